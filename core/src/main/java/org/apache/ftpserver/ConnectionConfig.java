@@ -68,4 +68,27 @@ public interface ConnectionConfig {
      *         processing client requests.
      */
     int getMaxThreads();
+
+    /**
+     * The maximum number of concurrent control connections from a single
+     * address. IPv6 addresses are counted by their /64 network. Connections
+     * over the limit are closed before any other processing.
+     *
+     * @return The maximum number of connections, or 0 for no limit
+     */
+    default int getMaxConnectionsPerIp() {
+        return 0;
+    }
+
+    /**
+     * The maximum number of new control connections per minute from a
+     * single address. Up to this number of connections may be opened at
+     * once, after which they are allowed at the average rate. IPv6
+     * addresses are counted by their /64 network.
+     *
+     * @return The maximum number of connections per minute, or 0 for no limit
+     */
+    default int getMaxConnectionRatePerIp() {
+        return 0;
+    }
 }
@@ -41,6 +41,10 @@ public class ConnectionConfigFactory {
 
     private int maxThreads = 0;
 
+    private int maxConnectionsPerIp = 0;
+
+    private int maxConnectionRatePerIp = 0;
+
     /**
      * Create a connection configuration instances based on the configuration on this factory
      * @return The {@link ConnectionConfig} instance
@@ -48,7 +52,8 @@ public class ConnectionConfigFactory {
     public ConnectionConfig createConnectionConfig() {
         return new DefaultConnectionConfig(anonymousLoginEnabled,
                 loginFailureDelay, maxLogins, maxAnonymousLogins,
-                maxLoginFailures, maxThreads);
+                maxLoginFailures, maxThreads, maxConnectionsPerIp,
+                maxConnectionRatePerIp);
     }
 
     /**
@@ -125,6 +130,43 @@ public class ConnectionConfigFactory {
         this.maxThreads = maxThreads;
     }
 
+    /**
+     * The maximum number of concurrent control connections from a single
+     * address
+     * @return The maximum number of connections, or 0 for no limit
+     */
+    public int getMaxConnectionsPerIp() {
+        return maxConnectionsPerIp;
+    }
+
+    /**
+     * Set the maximum number of concurrent control connections from a single
+     * address. IPv6 addresses are counted by their /64 network.
+     * @param maxConnectionsPerIp The maximum number of connections, or 0 for no limit
+     */
+    public void setMaxConnectionsPerIp(final int maxConnectionsPerIp) {
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+    }
+
+    /**
+     * The maximum number of new control connections per minute from a
+     * single address
+     * @return The maximum number of connections per minute, or 0 for no limit
+     */
+    public int getMaxConnectionRatePerIp() {
+        return maxConnectionRatePerIp;
+    }
+
+    /**
+     * Set the maximum number of new control connections per minute from a
+     * single address. Up to this number of connections may be opened at
+     * once, after which they are allowed at the average rate.
+     * @param maxConnectionRatePerIp The maximum number of connections per minute, or 0 for no limit
+     */
+    public void setMaxConnectionRatePerIp(final int maxConnectionRatePerIp) {
+        this.maxConnectionRatePerIp = maxConnectionRatePerIp;
+    }
+
     /**
      * Set if anonymous logins are allowed at the server
      * @param anonymousLoginEnabled true if anonymous logins should be enabled
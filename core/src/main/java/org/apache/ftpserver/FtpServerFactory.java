@@ -23,14 +23,17 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.ftpserver.command.CommandFactory;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
 import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.apache.ftpserver.ftplet.Ftplet;
 import org.apache.ftpserver.ftplet.UserManager;
 import org.apache.ftpserver.ftpletcontainer.impl.DefaultFtpletContainer;
+import org.apache.ftpserver.impl.AsyncObserverDispatcher;
 import org.apache.ftpserver.impl.DefaultFtpServer;
 import org.apache.ftpserver.impl.DefaultFtpServerContext;
 import org.apache.ftpserver.listener.Listener;
 import org.apache.ftpserver.message.MessageResource;
+import org.apache.ftpserver.quota.QuotaManager;
 
 /**
  * This is the starting point of all the servers. Creates server instances based on 
@@ -226,4 +229,68 @@ public class FtpServerFactory {
     public void setConnectionConfig(final ConnectionConfig connectionConfig) {
         serverContext.setConnectionConfig(connectionConfig);
     }
+
+    /**
+     * Retrieve the quota manager used by servers created by this factory
+     * 
+     * @return The {@link QuotaManager}, or null if none has been set
+     */
+    public QuotaManager getQuotaManager() {
+        return serverContext.getQuotaManager();
+    }
+
+    /**
+     * Set the quota manager to be used by servers created by this factory.
+     * By default no usage is accounted and no quota is enforced.
+     * 
+     * @param quotaManager
+     *            The {@link QuotaManager}
+     */
+    public void setQuotaManager(final QuotaManager quotaManager) {
+        serverContext.setQuotaManager(quotaManager);
+    }
+
+    /**
+     * Retrieve the digest cache used by servers created by this factory
+     * 
+     * @return The {@link DigestCache}, or null if none has been set
+     */
+    public DigestCache getDigestCache() {
+        return serverContext.getDigestCache();
+    }
+
+    /**
+     * Set the digest cache to be used by servers created by this factory.
+     * Uploads are digested while they are written and the digests answer
+     * later checksum requests for the unchanged files. By default uploads
+     * are not digested.
+     * 
+     * @param digestCache
+     *            The {@link DigestCache}
+     */
+    public void setDigestCache(final DigestCache digestCache) {
+        serverContext.setDigestCache(digestCache);
+    }
+
+    /**
+     * Retrieve the observer dispatcher used by servers created by this factory
+     * 
+     * @return The {@link AsyncObserverDispatcher}, or null if none has been set
+     */
+    public AsyncObserverDispatcher getObserverDispatcher() {
+        return serverContext.getObserverDispatcher();
+    }
+
+    /**
+     * Set the dispatcher delivering the statistics and file observer
+     * notifications of servers created by this factory. The dispatcher is
+     * started with the server and stopped when the server stops. By default
+     * observers are notified on the session threads.
+     * 
+     * @param observerDispatcher
+     *            The {@link AsyncObserverDispatcher}
+     */
+    public void setObserverDispatcher(final AsyncObserverDispatcher observerDispatcher) {
+        serverContext.setObserverDispatcher(observerDispatcher);
+    }
 }
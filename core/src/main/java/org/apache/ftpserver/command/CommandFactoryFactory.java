@@ -34,6 +34,7 @@ import org.apache.ftpserver.command.impl.DefaultCommandFactory;
 import org.apache.ftpserver.command.impl.EPRT;
 import org.apache.ftpserver.command.impl.EPSV;
 import org.apache.ftpserver.command.impl.FEAT;
+import org.apache.ftpserver.command.impl.HASH;
 import org.apache.ftpserver.command.impl.HELP;
 import org.apache.ftpserver.command.impl.LANG;
 import org.apache.ftpserver.command.impl.LIST;
@@ -54,6 +55,7 @@ import org.apache.ftpserver.command.impl.PORT;
 import org.apache.ftpserver.command.impl.PROT;
 import org.apache.ftpserver.command.impl.PWD;
 import org.apache.ftpserver.command.impl.QUIT;
+import org.apache.ftpserver.command.impl.RANG;
 import org.apache.ftpserver.command.impl.REIN;
 import org.apache.ftpserver.command.impl.REST;
 import org.apache.ftpserver.command.impl.RETR;
@@ -61,8 +63,12 @@ import org.apache.ftpserver.command.impl.RMD;
 import org.apache.ftpserver.command.impl.RNFR;
 import org.apache.ftpserver.command.impl.RNTO;
 import org.apache.ftpserver.command.impl.SITE;
+import org.apache.ftpserver.command.impl.SITE_ARCHIVE;
+import org.apache.ftpserver.command.impl.SITE_COPY;
 import org.apache.ftpserver.command.impl.SITE_DESCUSER;
+import org.apache.ftpserver.command.impl.SITE_DU;
 import org.apache.ftpserver.command.impl.SITE_HELP;
+import org.apache.ftpserver.command.impl.SITE_RMTREE;
 import org.apache.ftpserver.command.impl.SITE_STAT;
 import org.apache.ftpserver.command.impl.SITE_WHO;
 import org.apache.ftpserver.command.impl.SITE_ZONE;
@@ -96,6 +102,7 @@ public class CommandFactoryFactory {
         DEFAULT_COMMAND_MAP.put("EPRT", new EPRT());
         DEFAULT_COMMAND_MAP.put("EPSV", new EPSV());
         DEFAULT_COMMAND_MAP.put("FEAT", new FEAT());
+        DEFAULT_COMMAND_MAP.put("HASH", new HASH());
         DEFAULT_COMMAND_MAP.put("HELP", new HELP());
         DEFAULT_COMMAND_MAP.put("LANG", new LANG());
         DEFAULT_COMMAND_MAP.put("LIST", new LIST());
@@ -117,6 +124,7 @@ public class CommandFactoryFactory {
         DEFAULT_COMMAND_MAP.put("PROT", new PROT());
         DEFAULT_COMMAND_MAP.put("PWD", new PWD());
         DEFAULT_COMMAND_MAP.put("QUIT", new QUIT());
+        DEFAULT_COMMAND_MAP.put("RANG", new RANG());
         DEFAULT_COMMAND_MAP.put("REIN", new REIN());
         DEFAULT_COMMAND_MAP.put("REST", new REST());
         DEFAULT_COMMAND_MAP.put("RETR", new RETR());
@@ -125,8 +133,12 @@ public class CommandFactoryFactory {
         DEFAULT_COMMAND_MAP.put("RNTO", new RNTO());
         DEFAULT_COMMAND_MAP.put("SITE", new SITE());
         DEFAULT_COMMAND_MAP.put("SIZE", new SIZE());
+        DEFAULT_COMMAND_MAP.put("SITE_ARCHIVE", new SITE_ARCHIVE());
+        DEFAULT_COMMAND_MAP.put("SITE_COPY", new SITE_COPY());
         DEFAULT_COMMAND_MAP.put("SITE_DESCUSER", new SITE_DESCUSER());
+        DEFAULT_COMMAND_MAP.put("SITE_DU", new SITE_DU());
         DEFAULT_COMMAND_MAP.put("SITE_HELP", new SITE_HELP());
+        DEFAULT_COMMAND_MAP.put("SITE_RMTREE", new SITE_RMTREE());
         DEFAULT_COMMAND_MAP.put("SITE_STAT", new SITE_STAT());
         DEFAULT_COMMAND_MAP.put("SITE_WHO", new SITE_WHO());
         DEFAULT_COMMAND_MAP.put("SITE_ZONE", new SITE_ZONE());
@@ -138,6 +150,8 @@ public class CommandFactoryFactory {
         DEFAULT_COMMAND_MAP.put("SYST", new SYST());
         DEFAULT_COMMAND_MAP.put("TYPE", new TYPE());
         DEFAULT_COMMAND_MAP.put("USER", new USER());
+        DEFAULT_COMMAND_MAP.put("XCRC", new HASH());
+        DEFAULT_COMMAND_MAP.put("XSHA256", new HASH());
     }
 
     private Map<String, Command> commandMap = new HashMap<>();
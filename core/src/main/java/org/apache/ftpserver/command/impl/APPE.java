@@ -25,6 +25,7 @@ import java.net.InetAddress;
 import java.net.SocketException;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
@@ -38,6 +39,8 @@ import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.impl.UploadAbortedException;
+import org.apache.ftpserver.quota.QuotaExceededException;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -149,14 +152,21 @@ public class APPE extends AbstractCommand {
             boolean failure = false;
             OutputStream os = null;
             long transSz = 0L;
+            long offset = 0L;
+            boolean existed = file.doesExist();
             try {
 
                 // find offset
-                long offset = 0L;
-                if (file.doesExist()) {
+                if (existed) {
                     offset = file.getSize();
                 }
 
+                // cached digests no longer match the content
+                DigestCache digestCache = context.getDigestCache();
+                if (digestCache != null) {
+                    digestCache.invalidate(file);
+                }
+
                 // open streams
                 os = file.createOutputStream(offset);
 
@@ -182,6 +192,40 @@ public class APPE extends AbstractCommand {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
                         "APPE", fileName, file));
+            } catch (QuotaExceededException e) {
+                LOG.debug("Quota exceeded during file upload", e);
+                failure = true;
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "APPE", fileName, file));
+            } catch (UploadAbortedException e) {
+                LOG.debug("Data interceptor aborted the upload", e);
+                failure = true;
+
+                // nothing of a rejected upload is kept, the file is cut back
+                // to the size it had before
+                IoUtils.close(os);
+                try {
+                    if (!existed) {
+                        if (!file.delete()) {
+                            LOG.warn("Failed to delete rejected upload {}",
+                                    fileName);
+                        }
+                    } else {
+                        file.createOutputStream(offset).close();
+                    }
+                } catch (IOException ex) {
+                    LOG.warn("Failed to remove rejected upload " + fileName, ex);
+                }
+
+                session
+                        .write(LocalizedDataTransferFtpReply
+                                .translate(
+                                        session,
+                                        request,
+                                        context,
+                                        FtpReply.REPLY_551_REQUESTED_ACTION_ABORTED_PAGE_TYPE_UNKNOWN,
+                                        "APPE", fileName, file));
             } catch (IOException e) {
                 LOG.debug("IOException during file upload", e);
                 failure = true;
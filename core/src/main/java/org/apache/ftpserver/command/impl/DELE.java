@@ -22,6 +22,7 @@ package org.apache.ftpserver.command.impl;
 import java.io.IOException;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.FtpReply;
@@ -30,6 +31,7 @@ import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedFileActionFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -99,7 +101,17 @@ public class DELE extends AbstractCommand {
         }
 
         // now delete
+        long size = file.getSize();
         if (file.delete()) {
+            QuotaManager quotaManager = context.getQuotaManager();
+            if (quotaManager != null) {
+                quotaManager.release(session.getUser(), size);
+            }
+            DigestCache digestCache = context.getDigestCache();
+            if (digestCache != null) {
+                digestCache.invalidate(file);
+            }
+
             session.write(LocalizedFileActionFtpReply.translate(session, request, context,
                     FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY, "DELE",
                     fileName, file));
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.FileHasher;
+import org.apache.ftpserver.command.impl.hash.HashAlgorithm;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>HASH &lt;SP&gt; &lt;pathname&gt; &lt;CRLF&gt;</code><br>
+ * <code>XCRC &lt;SP&gt; &lt;pathname&gt; [&lt;SP&gt; &lt;start&gt; [&lt;SP&gt; &lt;end&gt;]] &lt;CRLF&gt;</code><br>
+ * <code>XSHA256 &lt;SP&gt; &lt;pathname&gt; [&lt;SP&gt; &lt;start&gt; [&lt;SP&gt; &lt;end&gt;]] &lt;CRLF&gt;</code><br>
+ * 
+ * Returns the hash of a file according to draft-bryan-ftpext-hash-02, using
+ * the algorithm selected by <code>OPTS HASH</code> and the byte range
+ * selected by a preceding <code>RANG</code> command. XCRC and XSHA256 always
+ * use CRC32 and SHA-256, a range can follow the path name when it is quoted.
+ * Range ends are inclusive.
+ * 
+ * The file is hashed on the pool of {@link FileHasher}.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class HASH extends AbstractCommand {
+
+    /**
+     * The session attribute holding the algorithm selected by OPTS HASH
+     */
+    public static final String ATTRIBUTE_ALGORITHM = "HASH.algorithm";
+
+    private final Logger LOG = LoggerFactory.getLogger(HASH.class);
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException {
+
+        // the range only applies to the command following RANG
+        long[] range = session.getFileRange();
+        session.resetState();
+
+        String command = request.getCommand().toUpperCase();
+        HashAlgorithm algorithm;
+        if ("XCRC".equals(command)) {
+            algorithm = HashAlgorithm.CRC32;
+        } else if ("XSHA256".equals(command)) {
+            algorithm = HashAlgorithm.SHA_256;
+        } else {
+            command = "HASH";
+            algorithm = (HashAlgorithm) session.getAttribute(
+                    ATTRIBUTE_ALGORITHM, HashAlgorithm.DEFAULT);
+        }
+
+        String argument = request.getArgument();
+        if (argument == null || argument.trim().length() == 0) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    command, null));
+            return;
+        }
+
+        String fileName = argument;
+        long start = 0L;
+        long last = -1L;
+        if (range != null) {
+            start = range[0];
+            last = range[1];
+        }
+        if (!"HASH".equals(command) && argument.startsWith("\"")) {
+            int quoteIndex = argument.indexOf('"', 1);
+            if (quoteIndex > 0) {
+                fileName = argument.substring(1, quoteIndex);
+                String[] bounds = argument.substring(quoteIndex + 1).trim()
+                        .split("\\s+");
+                try {
+                    if (bounds[0].length() > 0) {
+                        start = Long.parseLong(bounds[0]);
+                    }
+                    if (bounds.length > 1) {
+                        last = Long.parseLong(bounds[1]);
+                    }
+                } catch (NumberFormatException e) {
+                    LOG.debug("Invalid range: " + argument, e);
+                    start = -1L;
+                }
+            }
+        }
+
+        // get file object
+        FtpFile file = null;
+        try {
+            file = session.getFileSystemView().getFile(fileName);
+        } catch (Exception ex) {
+            LOG.debug("Exception getting the file object: " + fileName, ex);
+        }
+        if (file == null || !file.isFile()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    command + ".invalid", fileName));
+            return;
+        }
+        if (!file.isReadable()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    command + ".permission", fileName));
+            return;
+        }
+
+        long size = file.getSize();
+        long end = (last < 0 || last >= size) ? size : last + 1;
+        if (start < 0 || (start > 0 && start >= end)) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    command, null));
+            return;
+        }
+
+        byte[] digest;
+        try {
+            digest = FileHasher.await(context.getFileHasher().hash(file,
+                    algorithm, start, end));
+        } catch (IOException e) {
+            LOG.debug("Failed to hash " + fileName, e);
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_451_REQUESTED_ACTION_ABORTED, command,
+                    fileName));
+            return;
+        }
+
+        if ("HASH".equals(command)) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append(algorithm.getName()).append(' ');
+            sb.append(start).append('-').append(Math.max(start, end - 1));
+            sb.append(' ');
+            sb.append(new String(MD5.encodeHex(digest)).toLowerCase());
+            sb.append(' ').append(fileName);
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_213_FILE_STATUS, command, sb.toString()));
+        } else {
+            String hex = new String(MD5.encodeHex(digest));
+            if (algorithm != HashAlgorithm.CRC32) {
+                hex = hex.toLowerCase();
+            }
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY, command, hex));
+        }
+    }
+}
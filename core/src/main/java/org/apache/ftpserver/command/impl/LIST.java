@@ -25,6 +25,7 @@ import java.net.SocketException;
 
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
+import org.apache.ftpserver.command.impl.listing.DirectoryListing;
 import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
 import org.apache.ftpserver.command.impl.listing.ListArgumentParser;
@@ -123,10 +124,11 @@ public class LIST extends AbstractCommand {
 
             // transfer listing data
             boolean failure = false;
-            String dirList = directoryLister.listFiles(parsedArg, 
-                session.getFileSystemView(), LIST_FILE_FORMATER);
-            try {
-                dataConnection.transferToClient(session.getFtpletSession(), dirList);
+            long transferredSize = 0;
+            try (DirectoryListing dirList = directoryLister.openListing(
+                    parsedArg, session.getFileSystemView(), LIST_FILE_FORMATER)) {
+                transferredSize = dataConnection.transferToClient(
+                        session.getFtpletSession(), dirList);
             } catch (SocketException ex) {
                 LOG.debug("Socket exception during list transfer", ex);
                 failure = true;
@@ -161,7 +163,7 @@ public class LIST extends AbstractCommand {
             if (!failure) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_226_CLOSING_DATA_CONNECTION, "LIST",
-                        null, file, dirList.length()));
+                        null, file, transferredSize));
             }
         } finally {
             session.getDataConnection().closeDataConnection();
@@ -20,19 +20,19 @@
 package org.apache.ftpserver.command.impl;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.FileHasher;
+import org.apache.ftpserver.command.impl.hash.HashAlgorithm;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.FtpReply;
 import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
-import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,7 +43,8 @@ import org.slf4j.LoggerFactory;
  * <code>MMD5 &lt;SP&gt; &lt;pathnames&gt; &lt;CRLF&gt;</code><br>
  * 
  * Returns the MD5 value for a file or multiple files according to
- * draft-twine-ftpmd5-00.txt.
+ * draft-twine-ftpmd5-00.txt. The files are hashed in parallel on the pool of
+ * {@link FileHasher}.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -89,9 +90,11 @@ public class MD5 extends AbstractCommand {
             fileNames = new String[] { argument };
         }
 
-        StringBuilder sb = new StringBuilder();
+        // look up all files first, then hash them in parallel
+        FtpFile[] files = new FtpFile[fileNames.length];
         for (int i = 0; i < fileNames.length; i++) {
             String fileName = fileNames[i].trim();
+            fileNames[i] = fileName;
 
             // get file object
             FtpFile file = null;
@@ -102,20 +105,8 @@ public class MD5 extends AbstractCommand {
                 LOG.debug("Exception getting the file object: " + fileName, ex);
             }
 
-            if (file == null) {
-                session
-                        .write(LocalizedFtpReply
-                                .translate(
-                                        session,
-                                        request,
-                                        context,
-                                        FtpReply.REPLY_504_COMMAND_NOT_IMPLEMENTED_FOR_THAT_PARAMETER,
-                                        "MD5.invalid", fileName));
-                return;
-            }
-
             // check file
-            if (!file.isFile()) {
+            if (file == null || !file.isFile()) {
                 session
                         .write(LocalizedFtpReply
                                 .translate(
@@ -126,15 +117,25 @@ public class MD5 extends AbstractCommand {
                                         "MD5.invalid", fileName));
                 return;
             }
+            files[i] = file;
+        }
 
-            InputStream is = null;
-            try {
-                is = file.createInputStream(0);
-                String md5Hash = md5(is);
+        FileHasher hasher = context.getFileHasher();
+        List<Future<byte[]>> digests = new ArrayList<>(files.length);
+        for (FtpFile file : files) {
+            digests.add(hasher.hash(file, HashAlgorithm.MD5, 0L, Long.MAX_VALUE));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (int i = 0; i < files.length; i++) {
+                String md5Hash = new String(encodeHex(FileHasher.await(digests
+                        .get(i))));
 
                 if (i > 0) {
                     sb.append(", ");
                 }
+                String fileName = fileNames[i];
                 boolean nameHasSpaces = fileName.indexOf(' ') >= 0;
                 if(nameHasSpaces) {
                     sb.append('"');
@@ -145,14 +146,10 @@ public class MD5 extends AbstractCommand {
                 }
                 sb.append(' ');
                 sb.append(md5Hash);
-
-            } catch (NoSuchAlgorithmException e) {
-                LOG.debug("MD5 algorithm not available", e);
-                session.write(LocalizedFtpReply.translate(session, request, context,
-                        FtpReply.REPLY_502_COMMAND_NOT_IMPLEMENTED,
-                        "MD5.notimplemened", null));
-            } finally {
-                IoUtils.close(is);
+            }
+        } finally {
+            for (Future<byte[]> digest : digests) {
+                digest.cancel(true);
             }
         }
         if (isMMD5) {
@@ -164,28 +161,6 @@ public class MD5 extends AbstractCommand {
         }
     }
 
-    /**
-     * @param is
-     *            InputStream for which the MD5 hash is calculated
-     * @return The hash of the content in the input stream
-     * @throws IOException
-     * @throws NoSuchAlgorithmException
-     */
-    private String md5(InputStream is) throws IOException,
-            NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("MD5");
-        DigestInputStream dis = new DigestInputStream(is, digest);
-
-        byte[] buffer = new byte[1024];
-
-        int read = dis.read(buffer);
-        while (read > -1) {
-            read = dis.read(buffer);
-        }
-
-        return new String(encodeHex(dis.getMessageDigest().digest()));
-    }
-
     /**
      * Converts an array of bytes into an array of characters representing the
      * hexidecimal values of each byte in order. The returned array will be
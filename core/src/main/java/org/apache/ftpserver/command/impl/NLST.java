@@ -25,6 +25,7 @@ import java.net.SocketException;
 
 import org.apache.ftpserver.command.AbstractCommand;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
+import org.apache.ftpserver.command.impl.listing.DirectoryListing;
 import org.apache.ftpserver.command.impl.listing.FileFormater;
 import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
@@ -120,8 +121,11 @@ public class NLST extends AbstractCommand {
                     formater = NLST_FILE_FORMATER;
                 }
 
-                dataConnection.transferToClient(session.getFtpletSession(), directoryLister.listFiles(
-                        parsedArg, session.getFileSystemView(), formater));
+                try (DirectoryListing dirList = directoryLister.openListing(
+                        parsedArg, session.getFileSystemView(), formater)) {
+                    dataConnection.transferToClient(
+                            session.getFtpletSession(), dirList);
+                }
             } catch (SocketException ex) {
                 LOG.debug("Socket exception during data transfer", ex);
                 failure = true;
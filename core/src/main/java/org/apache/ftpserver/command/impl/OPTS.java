@@ -99,6 +99,8 @@ public class OPTS extends AbstractCommand {
 
     // initialize all the OPTS command handlers
     static {
+        COMMAND_MAP.put("OPTS_HASH",
+                new org.apache.ftpserver.command.impl.OPTS_HASH());
         COMMAND_MAP.put("OPTS_MLST",
                 new org.apache.ftpserver.command.impl.OPTS_MLST());
         COMMAND_MAP.put("OPTS_UTF8",
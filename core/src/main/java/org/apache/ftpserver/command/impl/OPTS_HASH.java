@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.HashAlgorithm;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Client-Server hash algorithm selection, <code>OPTS HASH</code> replies
+ * with the current algorithm, <code>OPTS HASH &lt;algorithm&gt;</code>
+ * selects another one.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class OPTS_HASH extends AbstractCommand {
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+
+        // reset state
+        session.resetState();
+
+        String argument = request.getArgument();
+        int spIndex = argument.indexOf(' ');
+        if (spIndex == -1) {
+            HashAlgorithm current = (HashAlgorithm) session.getAttribute(
+                    HASH.ATTRIBUTE_ALGORITHM, HashAlgorithm.DEFAULT);
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_200_COMMAND_OKAY, "OPTS.HASH",
+                    current.getName()));
+            return;
+        }
+
+        String name = argument.substring(spIndex + 1).trim();
+        HashAlgorithm algorithm = HashAlgorithm.forName(name);
+        if (algorithm != null) {
+            session.setAttribute(HASH.ATTRIBUTE_ALGORITHM, algorithm);
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_200_COMMAND_OKAY, "OPTS.HASH",
+                    algorithm.getName()));
+        } else {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_504_COMMAND_NOT_IMPLEMENTED_FOR_THAT_PARAMETER,
+                    "OPTS.HASH", name));
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.impl.jfr.FtpEvents;
 import org.apache.ftpserver.usermanager.AnonymousAuthentication;
 import org.apache.ftpserver.usermanager.UsernamePasswordAuthentication;
 import org.apache.ftpserver.usermanager.impl.UserMetadata;
@@ -164,7 +165,13 @@ public class PASS extends AbstractCommand {
                             password, userMetadata);
                 }
 
-                authenticatedUser = userManager.authenticate(auth);
+                Object event = FtpEvents.beginAuthentication();
+                try {
+                    authenticatedUser = userManager.authenticate(auth);
+                } finally {
+                    FtpEvents.endAuthentication(event, session, userName,
+                            anonymous, authenticatedUser != null);
+                }
             } catch (AuthenticationFailedException e) {
                 LOG.warn("User failed to log in");
             } catch (Exception e) {
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>RANG &lt;SP&gt; &lt;start&gt; &lt;SP&gt; &lt;end&gt; &lt;CRLF&gt;</code><br>
+ * 
+ * Selects the byte range, both ends inclusive, used by the HASH command
+ * immediately following, see draft-bryan-ftp-range-08. <code>RANG 1 0</code>
+ * resets the range to the whole file. The range is not applied to file
+ * transfers.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class RANG extends AbstractCommand {
+
+    private final Logger LOG = LoggerFactory.getLogger(RANG.class);
+
+    /**
+     * Execute command
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException {
+
+        session.resetState();
+
+        // argument check
+        String argument = request.getArgument();
+        String[] bounds = argument == null ? new String[0] : argument.trim()
+                .split("\\s+");
+        if (bounds.length != 2) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    "RANG", null));
+            return;
+        }
+
+        long start;
+        long end;
+        try {
+            start = Long.parseLong(bounds[0]);
+            end = Long.parseLong(bounds[1]);
+        } catch (NumberFormatException ex) {
+            LOG.debug("Invalid range: " + argument, ex);
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    "RANG", null));
+            return;
+        }
+
+        if (start == 1L && end == 0L) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_350_REQUESTED_FILE_ACTION_PENDING_FURTHER_INFORMATION,
+                    "RANG.reset", null));
+        } else if (start < 0L || end < start) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    "RANG", null));
+        } else {
+            session.setFileRange(new long[] { start, end });
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_350_REQUESTED_FILE_ACTION_PENDING_FURTHER_INFORMATION,
+                    "RANG", "Restarting at " + start + ". Ending at " + end
+                            + "."));
+        }
+    }
+}
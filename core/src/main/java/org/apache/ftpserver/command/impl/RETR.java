@@ -26,6 +26,8 @@ import java.net.InetAddress;
 import java.net.SocketException;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.DirectoryArchive;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DataType;
@@ -53,6 +55,10 @@ import org.slf4j.LoggerFactory;
  * in the pathname, to the server- or user-DTP at the other end of the data
  * connection. The status and contents of the file at the server site shall be
  * unaffected.
+ * <p>
+ * A missing file named after a directory with an archive extension, for
+ * example <code>dir.tar</code>, <code>dir.tar.gz</code> or
+ * <code>dir.zip</code>, streams the directory tree as an archive.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -97,6 +103,25 @@ public class RETR extends AbstractCommand {
                         "RETR.missing", fileName, file));
                 return;
             }
+
+            // retrieve the directory as an archive if the name is made up
+            ArchiveFormat archiveFormat = file.doesExist() ? null
+                    : ArchiveFormat.forPath(fileName);
+            if (archiveFormat != null) {
+                FtpFile directory = null;
+                try {
+                    directory = session.getFileSystemView().getFile(
+                            fileName.substring(0, fileName.length()
+                                    - archiveFormat.getExtensionLength(fileName)));
+                } catch (Exception ex) {
+                    LOG.debug("Exception getting directory object", ex);
+                }
+                if (directory != null && directory.isDirectory()) {
+                    file = directory;
+                } else {
+                    archiveFormat = null;
+                }
+            }
             fileName = file.getAbsolutePath();
 
             // check file existance
@@ -108,7 +133,7 @@ public class RETR extends AbstractCommand {
             }
 
             // check valid file
-            if (!file.isFile()) {
+            if (archiveFormat == null && !file.isFile()) {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
                         "RETR.invalid", fileName, file));
@@ -123,6 +148,16 @@ public class RETR extends AbstractCommand {
                 return;
             }
 
+            // archives are generated, they can neither be resumed nor
+            // converted to ASCII
+            if (archiveFormat != null
+                    && (skipLen != 0L || session.getDataType() == DataType.ASCII)) {
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                        "RETR.archive", fileName, file));
+                return;
+            }
+
             // 24-10-2007 - added check if PORT or PASV is issued, see
             // https://issues.apache.org/jira/browse/FTPSERVER-110
             //TODO move this block of code into the super class. Also, it makes 
@@ -163,7 +198,12 @@ public class RETR extends AbstractCommand {
             try {
 
                 // open streams
-                is = openInputStream(session, file, skipLen);
+                if (archiveFormat == null) {
+                    is = openInputStream(session, file, skipLen);
+                } else {
+                    is = new DirectoryArchive(file, archiveFormat,
+                            SITE_ARCHIVE.getLevel(session));
+                }
 
                 // transfer data
                 transSz = dataConnection.transferToClient(session.getFtpletSession(), is);
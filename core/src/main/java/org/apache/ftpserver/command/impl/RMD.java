@@ -30,6 +30,7 @@ import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedFileActionFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -111,6 +112,11 @@ public class RMD extends AbstractCommand {
 
         // now delete directory
         if (file.delete()) {
+            QuotaManager quotaManager = context.getQuotaManager();
+            if (quotaManager != null) {
+                quotaManager.touch(session.getUser());
+            }
+
             session.write(LocalizedFileActionFtpReply.translate(session, request, context,
                     FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY, "RMD",
                     fileName, file));
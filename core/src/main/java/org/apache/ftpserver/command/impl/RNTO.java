@@ -22,6 +22,7 @@ package org.apache.ftpserver.command.impl;
 import java.io.IOException;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.FtpReply;
@@ -29,6 +30,7 @@ import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.LocalizedRenameFtpReply;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -126,9 +128,21 @@ public class RNTO extends AbstractCommand {
 
             // save away the old path
             String logFrFileAbsolutePath = frFile.getAbsolutePath();
-            
+
+            // digests are cached by path
+            DigestCache digestCache = context.getDigestCache();
+            if (digestCache != null) {
+                digestCache.invalidate(frFile);
+                digestCache.invalidate(toFile);
+            }
+
             // now rename
             if (frFile.move(toFile)) {
+                QuotaManager quotaManager = context.getQuotaManager();
+                if (quotaManager != null) {
+                    quotaManager.touch(session.getUser());
+                }
+
                 session.write(LocalizedRenameFtpReply.translate(session, request, context,
                         FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY, "RNTO",
                         toFileStr, frFile, toFile));
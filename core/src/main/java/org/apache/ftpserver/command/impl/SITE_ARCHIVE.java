@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.archive.DirectoryArchive;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>SITE ARCHIVE [&lt;SP&gt; &lt;level&gt;]</code><br>
+ * 
+ * Show or select the compression level of the directory archives retrieved
+ * by RETR, from 0 to 9 or -1 for the default level.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SITE_ARCHIVE extends AbstractCommand {
+
+    public static final String ATTRIBUTE_LEVEL = "SITE.ARCHIVE.level";
+
+    /**
+     * Get the compression level selected for the session.
+     */
+    public static int getLevel(final FtpIoSession session) {
+        return (Integer) session.getAttribute(ATTRIBUTE_LEVEL,
+                Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+
+        // reset state variables
+        session.resetState();
+
+        String argument = request.getArgument();
+        int spIndex = argument.indexOf(' ');
+        if (spIndex != -1) {
+            int level;
+            try {
+                level = Integer.parseInt(argument.substring(spIndex + 1)
+                        .trim());
+            } catch (NumberFormatException ex) {
+                level = Integer.MIN_VALUE;
+            }
+            if (!DirectoryArchive.isValidLevel(level)) {
+                session.write(LocalizedFtpReply.translate(session, request,
+                        context,
+                        FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                        "SITE.ARCHIVE", null));
+                return;
+            }
+            session.setAttribute(ATTRIBUTE_LEVEL, level);
+        }
+
+        session.write(LocalizedFtpReply.translate(session, request, context,
+                FtpReply.REPLY_200_COMMAND_OKAY, "SITE.ARCHIVE", String
+                        .valueOf(getLevel(session))));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.copy.CopyTask;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.quota.QuotaExceededException;
+import org.apache.ftpserver.quota.QuotaManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>SITE COPY &lt;SP&gt; &lt;source&gt; &lt;SP&gt; &lt;target&gt;</code><br>
+ * 
+ * Copy a file on the server without sending it over a data connection. The
+ * copy runs in the background, its progress is shown by STAT without
+ * argument. Path names containing spaces must be quoted.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SITE_COPY extends AbstractCommand {
+
+    private final Logger LOG = LoggerFactory.getLogger(SITE_COPY.class);
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+
+        // reset state variables
+        session.resetState();
+
+        // skip the SITE sub command name
+        String argument = request.getArgument();
+        int spIndex = argument.indexOf(' ');
+        List<String> names = spIndex == -1 ? null : parseNames(argument
+                .substring(spIndex + 1));
+        if (names == null || names.size() != 2) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    "SITE.COPY", null));
+            return;
+        }
+
+        FtpFile source = null;
+        FtpFile target = null;
+        try {
+            source = session.getFileSystemView().getFile(names.get(0));
+            target = session.getFileSystemView().getFile(names.get(1));
+        } catch (Exception ex) {
+            LOG.debug("Exception getting file object", ex);
+        }
+
+        // the source must be a readable file
+        if (source == null || !source.isFile() || !source.isReadable()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.COPY.invalid", names.get(0)));
+            return;
+        }
+
+        // the target must not be a directory, nor the source itself
+        if (target == null || target.isDirectory()
+                || target.getAbsolutePath().equals(source.getAbsolutePath())) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.COPY.invalid", names.get(1)));
+            return;
+        }
+
+        // check permission
+        if (!target.isWritable()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.COPY.permission", names.get(1)));
+            return;
+        }
+
+        // the copy replaces the target, only the growth is reserved up front
+        // and the rest is settled once the copy has finished
+        final User user = session.getUser();
+        final QuotaManager quotaManager = context.getQuotaManager();
+        final long size = source.getSize();
+        final long oldSize = target.doesExist() ? target.getSize() : 0L;
+        if (quotaManager != null && size > oldSize) {
+            try {
+                quotaManager.reserve(user, size - oldSize);
+            } catch (QuotaExceededException ex) {
+                LOG.debug("Quota exceeded for copy", ex);
+                session.write(LocalizedFtpReply.translate(session, request,
+                        context, FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "SITE.COPY", names.get(1)));
+                return;
+            }
+        }
+
+        // digests are cached by path
+        DigestCache digestCache = context.getDigestCache();
+        if (digestCache != null) {
+            digestCache.invalidate(target);
+        }
+
+        final CopyTask task = new CopyTask(source.getAbsolutePath(), target
+                .getAbsolutePath(), size);
+        try {
+            context.getFileCopier().copy(source, target, task, finished -> {
+                if (quotaManager != null) {
+                    // the target now holds what was written, also when the
+                    // copy failed half way
+                    quotaManager.release(user, Math.max(size, oldSize)
+                            - finished.getCopied());
+                    quotaManager.touch(user);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOG.debug("Too many copies in progress", ex);
+            if (quotaManager != null) {
+                quotaManager.release(user, size - oldSize);
+            }
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_450_REQUESTED_FILE_ACTION_NOT_TAKEN,
+                    "SITE.COPY", null));
+            return;
+        }
+        session.getCopyTasks().add(task);
+
+        session.write(LocalizedFtpReply.translate(session, request, context,
+                FtpReply.REPLY_200_COMMAND_OKAY, "SITE.COPY", task.getSource()));
+    }
+
+    /**
+     * Split the argument into path names separated by spaces, where a
+     * quoted name can contain spaces.
+     * 
+     * @return The names, or null if a quote is not closed
+     */
+    static List<String> parseNames(final String argument) {
+        List<String> names = new ArrayList<String>(2);
+        int index = 0;
+        int length = argument.length();
+        while (index < length) {
+            char c = argument.charAt(index);
+            if (c == ' ') {
+                index++;
+            } else if (c == '"') {
+                int end = argument.indexOf('"', index + 1);
+                if (end == -1) {
+                    return null;
+                }
+                names.add(argument.substring(index + 1, end));
+                index = end + 1;
+            } else {
+                int end = argument.indexOf(' ', index);
+                if (end == -1) {
+                    end = length;
+                }
+                names.add(argument.substring(index, end));
+                index = end;
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.filesystem.tree.TreeProgress;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.ContinuationFtpReply;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>SITE DU [&lt;SP&gt; &lt;pathname&gt;]</code><br>
+ * 
+ * Show the number of files and directories below a directory, and the size
+ * of the files. Defaults to the current directory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SITE_DU extends AbstractCommand {
+
+    private final Logger LOG = LoggerFactory.getLogger(SITE_DU.class);
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+
+        // reset state variables
+        session.resetState();
+
+        String argument = request.getArgument();
+        int spIndex = argument.indexOf(' ');
+        String dirName = spIndex == -1 ? "" : argument.substring(spIndex + 1)
+                .trim();
+        if (dirName.length() == 0) {
+            dirName = "./";
+        }
+
+        // get file object
+        FtpFile dir = null;
+        try {
+            dir = session.getFileSystemView().getFile(dirName);
+        } catch (Exception ex) {
+            LOG.debug("Exception getting file object", ex);
+        }
+        if (dir == null || !dir.isDirectory()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.DU", dirName));
+            return;
+        }
+
+        TreeProgress progress = context.getTreeWalker().size(dir);
+        boolean done = false;
+        while (!done) {
+            try {
+                done = progress.await(SITE_RMTREE.PROGRESS_INTERVAL);
+            } catch (InterruptedException ex) {
+                LOG.debug("Interrupted while counting " + dirName, ex);
+                Thread.currentThread().interrupt();
+                progress.cancel();
+                break;
+            }
+
+            if (done) {
+                // nothing to do
+            } else if (!session.isConnected()) {
+                progress.cancel();
+                return;
+            } else {
+                session.write(ContinuationFtpReply.translate(session,
+                        request, context, FtpReply.REPLY_200_COMMAND_OKAY,
+                        "SITE.DU.progress", progress.toString()));
+            }
+        }
+
+        session.write(LocalizedFtpReply.translate(session, request, context,
+                FtpReply.REPLY_200_COMMAND_OKAY, "SITE.DU", progress
+                        .toString()));
+    }
+}
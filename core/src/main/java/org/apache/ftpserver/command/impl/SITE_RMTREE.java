@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
+import org.apache.ftpserver.filesystem.tree.TreeProgress;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.ContinuationFtpReply;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.quota.QuotaManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * <code>SITE RMTREE &lt;SP&gt; &lt;pathname&gt;</code><br>
+ * 
+ * Remove a directory with everything below it. The tree is removed by the
+ * tree walker pool, while the progress is reported every few seconds in the
+ * leading lines of the reply. Directories the user is not allowed to write
+ * are left in place and counted as skipped.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class SITE_RMTREE extends AbstractCommand {
+
+    private final Logger LOG = LoggerFactory.getLogger(SITE_RMTREE.class);
+
+    /** The time between two progress lines, in milliseconds */
+    static final long PROGRESS_INTERVAL = 5000;
+
+    /**
+     * Execute command.
+     */
+    public void execute(final FtpIoSession session,
+            final FtpServerContext context, final FtpRequest request)
+            throws IOException, FtpException {
+
+        // reset state variables
+        session.resetState();
+
+        // argument check
+        String argument = request.getArgument();
+        int spIndex = argument.indexOf(' ');
+        String dirName = spIndex == -1 ? "" : argument.substring(spIndex + 1)
+                .trim();
+        if (dirName.length() == 0) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_501_SYNTAX_ERROR_IN_PARAMETERS_OR_ARGUMENTS,
+                    "SITE.RMTREE", null));
+            return;
+        }
+
+        // get file object
+        FtpFile dir = null;
+        try {
+            dir = session.getFileSystemView().getFile(dirName);
+        } catch (Exception ex) {
+            LOG.debug("Exception getting file object", ex);
+        }
+        if (dir == null || !dir.isDirectory()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.RMTREE.invalid", dirName));
+            return;
+        }
+        dirName = dir.getAbsolutePath();
+
+        // check permission
+        if (!dir.isRemovable()) {
+            session.write(LocalizedFtpReply.translate(session, request, context,
+                    FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "SITE.RMTREE.permission", dirName));
+            return;
+        }
+
+        TreeProgress progress = context.getTreeWalker().remove(dir,
+                session.getUser());
+        boolean done = false;
+        while (!done) {
+            try {
+                done = progress.await(PROGRESS_INTERVAL);
+            } catch (InterruptedException ex) {
+                LOG.debug("Interrupted while removing " + dirName, ex);
+                Thread.currentThread().interrupt();
+                progress.cancel();
+                done = true;
+            }
+            notifyRemoved(session, context, progress);
+
+            if (done) {
+                // nothing to do
+            } else if (!session.isConnected()) {
+                // stop removing once the client has gone, and wait for the
+                // directories being worked on to complete
+                progress.cancel();
+            } else {
+                session.write(ContinuationFtpReply.translate(session,
+                        request, context,
+                        FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY,
+                        "SITE.RMTREE.progress", progress.toString()));
+            }
+        }
+
+        // the removed files no longer count against the quota
+        QuotaManager quotaManager = context.getQuotaManager();
+        if (quotaManager != null) {
+            quotaManager.release(session.getUser(), progress.getBytes());
+            quotaManager.touch(session.getUser());
+        }
+
+        LOG.info("Directory tree remove : " + session.getUser().getName()
+                + " - " + dirName + " - " + progress);
+        session.write(LocalizedFtpReply.translate(session, request, context,
+                FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY, "SITE.RMTREE",
+                progress.toString()));
+    }
+
+    /**
+     * Notify the files and directories removed since the last call in a
+     * single batch.
+     */
+    private void notifyRemoved(final FtpIoSession session,
+            final FtpServerContext context, final TreeProgress progress) {
+        List<FtpFile> files = new ArrayList<FtpFile>();
+        List<FtpFile> dirs = new ArrayList<FtpFile>();
+        progress.pollRemoved(files, dirs);
+        if (files.isEmpty() && dirs.isEmpty()) {
+            return;
+        }
+
+        // digests are cached by path
+        DigestCache digestCache = context.getDigestCache();
+        if (digestCache != null) {
+            for (FtpFile file : files) {
+                digestCache.invalidate(file);
+            }
+        }
+
+        ServerFtpStatistics ftpStat = (ServerFtpStatistics) context
+                .getFtpStatistics();
+        if (ftpStat != null) {
+            ftpStat.setDeleteTree(session, files, dirs);
+        }
+    }
+}
@@ -20,8 +20,10 @@
 package org.apache.ftpserver.command.impl;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.copy.CopyTask;
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
 import org.apache.ftpserver.command.impl.listing.LISTFileFormater;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
@@ -101,9 +103,23 @@ public class STAT extends AbstractCommand {
             }
         
         } else {
+            // the copies started by SITE COPY, finished ones are shown once
+            StringBuilder copies = new StringBuilder();
+            List<CopyTask> tasks = session.getCopyTasks();
+            for (CopyTask task : tasks) {
+                // the state is final once finished, so the line read after it
+                // is the last one of a task about to be removed
+                boolean finished = task.isFinished();
+                copies.append(task).append('\n');
+                if (finished) {
+                    tasks.remove(task);
+                }
+            }
+
             // write the status info
             session.write(LocalizedFtpReply.translate(session, request, context,
-                    FtpReply.REPLY_211_SYSTEM_STATUS_REPLY, "STAT", null));
+                    FtpReply.REPLY_211_SYSTEM_STATUS_REPLY, "STAT", copies
+                            .toString()));
         }
     }
 
@@ -25,6 +25,7 @@ import java.net.InetAddress;
 import java.net.SocketException;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
@@ -38,6 +39,9 @@ import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.LocalizedFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.impl.UploadAbortedException;
+import org.apache.ftpserver.quota.QuotaExceededException;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -144,7 +148,31 @@ public class STOR extends AbstractCommand {
             OutputStream outStream = null;
             long transSz = 0L;
             try {
+                // the file is cut or extended to the offset before the
+                // upload, account for the difference
+                QuotaManager quotaManager = context.getQuotaManager();
+                if (quotaManager != null) {
+                    long oldSize = file.isFile() ? file.getSize() : 0L;
+                    if (skipLen > oldSize) {
+                        quotaManager.reserve(session.getUser(), skipLen - oldSize);
+                    } else {
+                        quotaManager.release(session.getUser(), oldSize - skipLen);
+                    }
+                }
+
+                // digest the data on the way unless only a part is written
+                DigestCache digestCache = context.getDigestCache();
+                DigestCache.Upload upload = null;
+                if (digestCache != null) {
+                    digestCache.invalidate(file);
+                }
+
                 outStream = file.createOutputStream(skipLen);
+                if (digestCache != null && skipLen == 0
+                        && !digestCache.getAlgorithms().isEmpty()) {
+                    upload = digestCache.digest(outStream);
+                    outStream = upload;
+                }
                 transSz = dataConnection.transferFromClient(session.getFtpletSession(), outStream);
 
                 // attempt to close the output stream so that errors in 
@@ -152,6 +180,9 @@ public class STOR extends AbstractCommand {
                 if(outStream != null) {
                     outStream.close();
                 }
+                if (upload != null) {
+                    digestCache.uploaded(file, upload);
+                }
 
                 LOG.info("File uploaded {}", fileName);
 
@@ -166,6 +197,40 @@ public class STOR extends AbstractCommand {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
                         "STOR", fileName, file));
+            } catch (QuotaExceededException ex) {
+                LOG.debug("Quota exceeded during data transfer", ex);
+                failure = true;
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "STOR", fileName, file));
+            } catch (UploadAbortedException ex) {
+                LOG.debug("Data interceptor aborted the upload", ex);
+                failure = true;
+
+                // nothing of a rejected upload is kept, a resumed one is cut
+                // back to where it started
+                IoUtils.close(outStream);
+                try {
+                    if (skipLen == 0) {
+                        if (!file.delete()) {
+                            LOG.warn("Failed to delete rejected upload {}",
+                                    fileName);
+                        }
+                    } else {
+                        file.createOutputStream(skipLen).close();
+                    }
+                } catch (IOException e) {
+                    LOG.warn("Failed to remove rejected upload " + fileName, e);
+                }
+
+                session
+                        .write(LocalizedDataTransferFtpReply
+                                .translate(
+                                        session,
+                                        request,
+                                        context,
+                                        FtpReply.REPLY_551_REQUESTED_ACTION_ABORTED_PAGE_TYPE_UNKNOWN,
+                                        "STOR", fileName, file));
             } catch (IOException ex) {
                 LOG.debug("IOException during data transfer", ex);
                 failure = true;
@@ -25,6 +25,7 @@ import java.net.InetAddress;
 import java.net.SocketException;
 
 import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.DataConnectionFactory;
 import org.apache.ftpserver.ftplet.DefaultFtpReply;
@@ -38,6 +39,8 @@ import org.apache.ftpserver.impl.FtpServerContext;
 import org.apache.ftpserver.impl.IODataConnectionFactory;
 import org.apache.ftpserver.impl.LocalizedDataTransferFtpReply;
 import org.apache.ftpserver.impl.ServerFtpStatistics;
+import org.apache.ftpserver.impl.UploadAbortedException;
+import org.apache.ftpserver.quota.QuotaExceededException;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -150,6 +153,15 @@ public class STOU extends AbstractCommand {
                 // open streams
                 os = file.createOutputStream(0L);
 
+                // digest the data on the way
+                DigestCache digestCache = context.getDigestCache();
+                DigestCache.Upload upload = null;
+                if (digestCache != null
+                        && !digestCache.getAlgorithms().isEmpty()) {
+                    upload = digestCache.digest(os);
+                    os = upload;
+                }
+
                 // transfer data
                 transSz = dataConnection.transferFromClient(session.getFtpletSession(), os);
 
@@ -158,6 +170,9 @@ public class STOU extends AbstractCommand {
                 if(os != null) {
                     os.close();
                 }
+                if (upload != null) {
+                    digestCache.uploaded(file, upload);
+                }
 
                 LOG.info("File uploaded {}", fileName);
 
@@ -174,6 +189,30 @@ public class STOU extends AbstractCommand {
                 session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
                         FtpReply.REPLY_426_CONNECTION_CLOSED_TRANSFER_ABORTED,
                         "STOU", fileName, file));
+            } catch (QuotaExceededException ex) {
+                LOG.debug("Quota exceeded during data transfer", ex);
+                failure = true;
+                session.write(LocalizedDataTransferFtpReply.translate(session, request, context,
+                        FtpReply.REPLY_552_REQUESTED_FILE_ACTION_ABORTED_EXCEEDED_STORAGE,
+                        "STOU", fileName, file));
+            } catch (UploadAbortedException ex) {
+                LOG.debug("Data interceptor aborted the upload", ex);
+                failure = true;
+
+                // nothing of a rejected upload is kept
+                IoUtils.close(os);
+                if (!file.delete()) {
+                    LOG.warn("Failed to delete rejected upload {}", fileName);
+                }
+
+                session
+                        .write(LocalizedDataTransferFtpReply
+                                .translate(
+                                        session,
+                                        request,
+                                        context,
+                                        FtpReply.REPLY_551_REQUESTED_ACTION_ABORTED_PAGE_TYPE_UNKNOWN,
+                                        "STOU", fileName, file));
             } catch (IOException ex) {
                 LOG.debug("IOException during data transfer", ex);
                 failure = true;
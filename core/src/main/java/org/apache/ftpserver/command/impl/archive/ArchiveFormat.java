@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The archive formats a directory can be retrieved as, selected by the
+ * extension appended to the directory name.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public enum ArchiveFormat {
+
+    TAR(".tar"), TAR_GZ(".tar.gz", ".tgz"), ZIP(".zip");
+
+    private final String[] extensions;
+
+    private ArchiveFormat(final String... extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Get the length of the extension the path name ends with.
+     * 
+     * @param path
+     *            The path name
+     * @return The length of the extension, or 0 if the path does not end
+     *         with an extension of this format
+     */
+    public int getExtensionLength(final String path) {
+        for (String extension : extensions) {
+            if (path.length() > extension.length()
+                    && path.regionMatches(true, path.length()
+                            - extension.length(), extension, 0, extension
+                            .length())) {
+                return extension.length();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the format matching the extension of a path name.
+     * 
+     * @param path
+     *            The path name
+     * @return The format, or null if the extension does not match any
+     */
+    public static ArchiveFormat forPath(final String path) {
+        for (ArchiveFormat format : values()) {
+            if (format.getExtensionLength(path) > 0) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.ftpserver.command.impl.listing.FileFilter;
+import org.apache.ftpserver.command.impl.listing.VisibleFileFilter;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Reads a directory tree as a tar or zip archive. The tree is walked one
+ * directory at a time while the archive is read, and each step only
+ * produces as much output as one read of a file, so neither the archive nor
+ * the list of files is ever held in full. Hidden files and files the user
+ * is not allowed to read are left out.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DirectoryArchive extends InputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int TAR_BLOCK_SIZE = 512;
+
+    private static final int TAR_NAME_LENGTH = 100;
+
+    private static final int TAR_PREFIX_LENGTH = 155;
+
+    /** The largest size the octal size field of a tar header can hold */
+    private static final long TAR_MAX_OCTAL_SIZE = 077777777777L;
+
+    private static final FileFilter FILTER = new VisibleFileFilter();
+
+    /** The top level directory of an archive of the root directory */
+    private static final String ROOT_NAME = "root";
+
+    /**
+     * A directory being walked
+     */
+    private static class OpenDirectory {
+
+        private final String path;
+
+        private final Stream<? extends FtpFile> stream;
+
+        private final Iterator<? extends FtpFile> files;
+
+        private OpenDirectory(final String path,
+                final Stream<? extends FtpFile> stream) {
+            this.path = path;
+            this.stream = stream;
+            this.files = stream.iterator();
+        }
+    }
+
+    /**
+     * Collects the archive output until it is read.
+     */
+    private static class Sink extends OutputStream {
+
+        private byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int start;
+
+        private int end;
+
+        @Override
+        public void write(final int b) {
+            ensureCapacity(1);
+            buffer[end++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, buffer, end, len);
+            end += len;
+        }
+
+        private void ensureCapacity(final int len) {
+            if (end + len <= buffer.length) {
+                return;
+            }
+
+            // drop what has been read before growing
+            int available = end - start;
+            if (available + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2,
+                        available + len));
+            }
+            System.arraycopy(buffer, start, buffer, 0, available);
+            start = 0;
+            end = available;
+        }
+
+        private int available() {
+            return end - start;
+        }
+
+        private int read(final byte[] b, final int off, final int len) {
+            int count = Math.min(len, end - start);
+            System.arraycopy(buffer, start, b, off, count);
+            start += count;
+            if (start == end) {
+                start = 0;
+                end = 0;
+            }
+            return count;
+        }
+    }
+
+    private final ArchiveFormat format;
+
+    private final Sink sink = new Sink();
+
+    private final OutputStream out;
+
+    private final Deque<OpenDirectory> directories =
+        new ArrayDeque<OpenDirectory>();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private FtpFile root;
+
+    private InputStream entry;
+
+    // the bytes of the current tar entry still to be written
+    private long entryRemaining;
+
+    private long entrySize;
+
+    private boolean finished;
+
+    private boolean closed;
+
+    /**
+     * @param directory
+     *            The directory to archive, its name is the top level
+     *            directory of the archive, or "root" for the root directory
+     * @param format
+     *            The archive format
+     * @param level
+     *            The compression level, from 0 to 9 or -1 for the default
+     *            level. Ignored for uncompressed tar archives.
+     */
+    public DirectoryArchive(final FtpFile directory,
+            final ArchiveFormat format, final int level) throws IOException {
+        this.format = format;
+        this.root = directory;
+        switch (format) {
+        case TAR_GZ:
+            out = new GZIPOutputStream(sink, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            break;
+        case ZIP:
+            ZipOutputStream zip = new ZipOutputStream(sink,
+                    StandardCharsets.UTF_8);
+            zip.setLevel(level);
+            out = zip;
+            break;
+        default:
+            out = sink;
+        }
+    }
+
+    /**
+     * Check a compression level.
+     * 
+     * @return true if the level can be passed to the constructor
+     */
+    public static boolean isValidLevel(final int level) {
+        return level == Deflater.DEFAULT_COMPRESSION
+                || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Archive closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (sink.available() == 0) {
+            if (finished) {
+                return -1;
+            }
+            step();
+        }
+        return sink.read(b, off, len);
+    }
+
+    @Override
+    public int available() {
+        return sink.available();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IoUtils.close(entry);
+        entry = null;
+
+        // releases the deflater of compressed formats
+        IoUtils.close(out);
+        while (!directories.isEmpty()) {
+            directories.pop().stream.close();
+        }
+    }
+
+    /**
+     * Produce the next piece of the archive.
+     */
+    private void step() throws IOException {
+        if (entry != null) {
+            copyEntry();
+        } else if (root != null) {
+            FtpFile directory = root;
+            root = null;
+            addDirectory(rootName(directory), directory);
+        } else {
+            FtpFile next = null;
+            String path = null;
+            while (next == null && !directories.isEmpty()) {
+                OpenDirectory current = directories.peek();
+                if (current.files.hasNext()) {
+                    FtpFile file = current.files.next();
+                    if (file != null && FILTER.accept(file)
+                            && file.isReadable()) {
+                        next = file;
+                        path = current.path.isEmpty() ? file.getName()
+                                : current.path + '/' + file.getName();
+                    }
+                } else {
+                    directories.pop().stream.close();
+                }
+            }
+
+            if (next == null) {
+                finish();
+            } else if (isDirectory(next)) {
+                addDirectory(path, next);
+            } else if (next.isFile()) {
+                addFile(path, next);
+            }
+        }
+    }
+
+    /**
+     * The name of the top level directory, without any slashes the name of
+     * the root directory consists of.
+     */
+    private static String rootName(final FtpFile directory) {
+        String name = directory.getName();
+        int start = 0;
+        int end = name.length();
+        while (start < end && name.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        return start == end ? ROOT_NAME : name.substring(start, end);
+    }
+
+    /**
+     * Directories linked to from the tree are left out, they may lead back
+     * into it and make the archive endless.
+     */
+    private static boolean isDirectory(final FtpFile file) {
+        if (!file.isDirectory()) {
+            return false;
+        }
+        Object physicalFile = file.getPhysicalFile();
+        Path path = null;
+        if (physicalFile instanceof File) {
+            path = ((File) physicalFile).toPath();
+        } else if (physicalFile instanceof Path) {
+            path = (Path) physicalFile;
+        }
+        return path == null || !Files.isSymbolicLink(path);
+    }
+
+    private void addDirectory(final String path, final FtpFile directory)
+            throws IOException {
+        Stream<? extends FtpFile> files = directory.streamFiles();
+        if (files == null) {
+            return;
+        }
+        directories.push(new OpenDirectory(path, files));
+        if (path.isEmpty()) {
+            // the root directory has no name to put at the top
+            return;
+        }
+        if (format == ArchiveFormat.ZIP) {
+            ZipEntry zipEntry = new ZipEntry(path + '/');
+            zipEntry.setTime(directory.getLastModified());
+            ((ZipOutputStream) out).putNextEntry(zipEntry);
+            ((ZipOutputStream) out).closeEntry();
+        } else {
+            writeTarHeader(path + '/', '5', 0, directory.getLastModified());
+        }
+    }
+
+    private void addFile(final String path, final FtpFile file)
+            throws IOException {
+        InputStream in = file.createInputStream(0L);
+        if (format == ArchiveFormat.ZIP) {
+            ZipEntry zipEntry = new ZipEntry(path);
+            zipEntry.setTime(file.getLastModified());
+            ((ZipOutputStream) out).putNextEntry(zipEntry);
+        } else {
+            // the header is written first, a file changing while it is read
+            // is cut or padded to the size announced
+            entrySize = file.getSize();
+            entryRemaining = entrySize;
+            writeTarHeader(path, '0', entrySize, file.getLastModified());
+        }
+        entry = in;
+    }
+
+    private void copyEntry() throws IOException {
+        if (format == ArchiveFormat.ZIP) {
+            int count = entry.read(buffer);
+            if (count == -1) {
+                closeEntryStream();
+                ((ZipOutputStream) out).closeEntry();
+            } else {
+                out.write(buffer, 0, count);
+            }
+            return;
+        }
+
+        int count = entryRemaining == 0 ? -1 : entry.read(buffer, 0,
+                (int) Math.min(buffer.length, entryRemaining));
+        if (count == -1) {
+            closeEntryStream();
+            while (entryRemaining > 0) {
+                int zeros = (int) Math.min(buffer.length, entryRemaining);
+                Arrays.fill(buffer, 0, zeros, (byte) 0);
+                out.write(buffer, 0, zeros);
+                entryRemaining -= zeros;
+            }
+            writeTarPadding(entrySize);
+        } else {
+            out.write(buffer, 0, count);
+            entryRemaining -= count;
+        }
+    }
+
+    private void closeEntryStream() throws IOException {
+        InputStream in = entry;
+        entry = null;
+        in.close();
+    }
+
+    private void finish() throws IOException {
+        if (format != ArchiveFormat.ZIP) {
+            out.write(new byte[2 * TAR_BLOCK_SIZE]);
+        }
+        out.close();
+        finished = true;
+    }
+
+    private void writeTarHeader(final String path, final char type,
+            final long size, final long lastModified) throws IOException {
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        int split = splitTarName(name);
+        if (split == -1) {
+            // GNU long name extension, the real name follows in the data of
+            // a pseudo entry
+            byte[] longName = Arrays.copyOf(name, name.length + 1);
+            writeTarHeader(Arrays.copyOf("././@LongLink"
+                    .getBytes(StandardCharsets.US_ASCII), TAR_NAME_LENGTH),
+                    null, 'L', longName.length, 0L);
+            out.write(longName);
+            writeTarPadding(longName.length);
+            writeTarHeader(Arrays.copyOf(name, TAR_NAME_LENGTH), null, type,
+                    size, lastModified);
+        } else if (split == 0) {
+            writeTarHeader(name, null, type, size, lastModified);
+        } else {
+            writeTarHeader(Arrays.copyOfRange(name, split + 1, name.length),
+                    Arrays.copyOf(name, split), type, size, lastModified);
+        }
+    }
+
+    /**
+     * Find where to split a name between the prefix and the name fields of
+     * an ustar header.
+     * 
+     * @return 0 if the name fits the name field, the index of the separating
+     *         slash, or -1 if the name cannot be split
+     */
+    private static int splitTarName(final byte[] name) {
+        if (name.length <= TAR_NAME_LENGTH) {
+            return 0;
+        }
+        // a trailing slash is part of the name field
+        for (int i = Math.min(TAR_PREFIX_LENGTH, name.length - 2); i > 0; i--) {
+            if (name[i] == '/' && name.length - i - 1 <= TAR_NAME_LENGTH) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void writeTarHeader(final byte[] name, final byte[] prefix,
+            final char type, final long size, final long lastModified)
+            throws IOException {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        System.arraycopy(name, 0, header, 0, Math.min(name.length,
+                TAR_NAME_LENGTH));
+        writeOctal(header, 100, 8, type == '5' ? 0755 : 0644);
+        writeOctal(header, 108, 8, 0);
+        writeOctal(header, 116, 8, 0);
+        if (size > TAR_MAX_OCTAL_SIZE) {
+            // GNU base-256 encoding for files of 8 GB and more
+            header[124] = (byte) 0x80;
+            for (int i = 0; i < 8; i++) {
+                header[135 - i] = (byte) (size >>> (8 * i));
+            }
+        } else {
+            writeOctal(header, 124, 12, size);
+        }
+        writeOctal(header, 136, 12, Math.max(0L, lastModified / 1000));
+        header[156] = (byte) type;
+        System.arraycopy("ustar\00000".getBytes(StandardCharsets.US_ASCII), 0,
+                header, 257, 8);
+        if (prefix != null) {
+            System.arraycopy(prefix, 0, header, 345, prefix.length);
+        }
+
+        // the checksum is computed with its own field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        writeOctal(header, 148, 7, checksum);
+
+        out.write(header);
+    }
+
+    private void writeTarPadding(final long size) throws IOException {
+        int padding = (int) ((TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE);
+        if (padding > 0) {
+            out.write(new byte[padding]);
+        }
+    }
+
+    /**
+     * Write a zero terminated, zero padded octal number.
+     */
+    private static void writeOctal(final byte[] header, final int offset,
+            final int length, final long value) {
+        String octal = Long.toOctalString(value);
+        int pad = length - 1 - octal.length();
+        for (int i = 0; i < pad; i++) {
+            header[offset + i] = '0';
+        }
+        for (int i = 0; i < octal.length(); i++) {
+            header[offset + pad + i] = (byte) octal.charAt(i);
+        }
+        header[offset + length - 1] = 0;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.copy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The progress of a copy started by {@link FileCopier}.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CopyTask {
+
+    /**
+     * The states of a copy
+     */
+    public static enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    private final String source;
+
+    private final String target;
+
+    private final long size;
+
+    private final AtomicLong copied = new AtomicLong();
+
+    private volatile State state = State.QUEUED;
+
+    private volatile String failure;
+
+    /**
+     * @param source
+     *            The path of the source file shown to the user
+     * @param target
+     *            The path of the target file shown to the user
+     * @param size
+     *            The number of bytes to copy
+     */
+    public CopyTask(final String source, final String target, final long size) {
+        this.source = source;
+        this.target = target;
+        this.size = size;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCopied() {
+        return copied.get();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Get the reason of a failed copy.
+     * @return The reason, or null if the copy has not failed
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return true if the copy has completed or failed
+     */
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+
+    void started() {
+        state = State.RUNNING;
+    }
+
+    void progress(final long bytes) {
+        copied.set(bytes);
+    }
+
+    void done() {
+        state = State.DONE;
+    }
+
+    void failed(final String reason) {
+        failure = reason;
+        state = State.FAILED;
+    }
+
+    /**
+     * Describe the copy in a single line, for example
+     * <code>/a.iso -&gt; /b.iso: 1048576 of 4194304 bytes (25%)</code>.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(source).append(" -> ").append(target).append(": ");
+        switch (state) {
+        case QUEUED:
+            sb.append("queued");
+            break;
+        case DONE:
+            sb.append("done, ").append(getCopied()).append(" bytes");
+            break;
+        case FAILED:
+            sb.append("failed, ").append(failure);
+            break;
+        default:
+            long copiedBytes = getCopied();
+            sb.append(copiedBytes).append(" of ").append(size);
+            sb.append(" bytes (");
+            sb.append(size == 0 ? 100 : copiedBytes * 100 / size);
+            sb.append("%)");
+        }
+        return sb.toString();
+    }
+}
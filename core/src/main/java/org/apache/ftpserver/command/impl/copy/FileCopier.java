@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.copy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Copies files within the server on a bounded pool of its own. The target is
+ * always written through {@link FtpFile#createOutputStream(long)}, so that
+ * the file system keeps control over how content is stored. When the source
+ * is backed by a local file, it is sent with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets
+ * the operating system move the data without copying it through the Java heap
+ * when the target is a local file as well.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FileCopier {
+
+    private final Logger LOG = LoggerFactory.getLogger(FileCopier.class);
+
+    /**
+     * The number of bytes sent by each transferTo call, the progress is
+     * updated in between
+     */
+    private static final long CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int QUEUE_SIZE = 64;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param maxThreads
+     *            The maximum number of files copied at the same time
+     */
+    public FileCopier(final int maxThreads) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "FtpServer-copy-"
+                            + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a copy.
+     * 
+     * @param source
+     *            The file to copy
+     * @param target
+     *            The file to replace with a copy of the source
+     * @param task
+     *            Where to report the progress
+     * @param onFinished
+     *            Called on the pool thread once the copy has completed or
+     *            failed, can be null
+     * @throws RejectedExecutionException
+     *             If too many copies are already queued
+     */
+    public void copy(final FtpFile source, final FtpFile target,
+            final CopyTask task, final Consumer<CopyTask> onFinished) {
+        executor.execute(() -> {
+            task.started();
+            try {
+                copy(source, target, task);
+                task.done();
+            } catch (IOException e) {
+                LOG.debug("Failed to copy " + task.getSource() + " to "
+                        + task.getTarget(), e);
+                task.failed(e.getMessage() == null ? e.getClass()
+                        .getSimpleName() : e.getMessage());
+            } catch (RuntimeException e) {
+                // a bug or a broken file system, never leave the task running
+                LOG.warn("Unexpected failure copying " + task.getSource()
+                        + " to " + task.getTarget(), e);
+                task.failed(e.getClass().getSimpleName());
+            } finally {
+                if (onFinished != null) {
+                    onFinished.accept(task);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the pool threads, running copies are interrupted.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private void copy(final FtpFile source, final FtpFile target,
+            final CopyTask task) throws IOException {
+        Path sourcePath = null;
+        Object physicalFile = source.getPhysicalFile();
+        if (physicalFile instanceof File) {
+            sourcePath = ((File) physicalFile).toPath();
+        } else if (physicalFile instanceof Path) {
+            sourcePath = (Path) physicalFile;
+        }
+
+        OutputStream out = target.createOutputStream(0L);
+        try {
+            if (sourcePath != null) {
+                WritableByteChannel outChannel;
+                if (out instanceof FileOutputStream) {
+                    outChannel = ((FileOutputStream) out).getChannel();
+                } else {
+                    outChannel = Channels.newChannel(out);
+                }
+                try (FileChannel in = FileChannel.open(sourcePath,
+                        StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0L;
+                    while (position < size) {
+                        long sent = in.transferTo(position, Math.min(
+                                CHUNK_SIZE, size - position), outChannel);
+                        if (sent <= 0) {
+                            break;
+                        }
+                        position += sent;
+                        task.progress(position);
+                    }
+                }
+            } else {
+                InputStream in = source.createInputStream(0L);
+                try {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    long position = 0L;
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Copy interrupted");
+                        }
+                        out.write(buffer, 0, read);
+                        position += read;
+                        task.progress(position);
+                    }
+                } finally {
+                    IoUtils.close(in);
+                }
+            }
+
+            // errors closing the target fail the copy
+            out.close();
+        } finally {
+            IoUtils.close(out);
+        }
+    }
+}
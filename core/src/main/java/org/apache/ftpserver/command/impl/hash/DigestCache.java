@@ -0,0 +1,528 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.hash;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Digests of whole files keyed by physical path, file size and last
+ * modification time. Uploads are digested while the data streams to the file,
+ * so that a client verifying the upload right away is answered without the
+ * file being read again. An entry is only returned while size and last
+ * modification time of the file still match, commands changing a file in
+ * place or moving it drop the entry explicitly.
+ * 
+ * Only files backed by a local file are cached. The cache keeps the most
+ * recently used entries and is persisted in a text file periodically, after
+ * a number of changes and when the server stops. The file is replaced
+ * atomically, so a crash loses at most the changes since the last save.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DigestCache {
+
+    private final Logger LOG = LoggerFactory.getLogger(DigestCache.class);
+
+    /**
+     * The default number of seconds between saves of the cache file
+     */
+    public static final int DEFAULT_SAVE_INTERVAL = 60;
+
+    /**
+     * The number of changes after which the cache file is saved right away
+     */
+    public static final int SAVE_CHANGES = 1000;
+
+    private final Set<HashAlgorithm> algorithms;
+
+    private final File file;
+
+    private final Map<String, Entry> entries;
+
+    private final ScheduledExecutorService saver;
+
+    private final Object saveLock = new Object();
+
+    private boolean dirty;
+
+    private int changes;
+
+    private boolean saveQueued;
+
+    /**
+     * The digests of a file with the state they were computed for
+     */
+    private static final class Entry {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final Map<HashAlgorithm, byte[]> digests = new EnumMap<>(
+                HashAlgorithm.class);
+
+        private Entry(final long size, final long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * @param algorithms
+     *            The algorithms computed while uploading
+     * @param file
+     *            The file to persist the cache in, can be null
+     * @param maxEntries
+     *            The maximum number of files cached
+     */
+    public DigestCache(final Set<HashAlgorithm> algorithms, final File file,
+            final int maxEntries) {
+        this(algorithms, file, maxEntries, DEFAULT_SAVE_INTERVAL);
+    }
+
+    /**
+     * @param algorithms
+     *            The algorithms computed while uploading
+     * @param file
+     *            The file to persist the cache in, can be null
+     * @param maxEntries
+     *            The maximum number of files cached
+     * @param saveInterval
+     *            The number of seconds between saves of the file, 0 to only
+     *            save after a number of changes and on dispose
+     */
+    public DigestCache(final Set<HashAlgorithm> algorithms, final File file,
+            final int maxEntries, final int saveInterval) {
+        if (algorithms == null || algorithms.isEmpty()) {
+            this.algorithms = Collections.emptySet();
+        } else {
+            this.algorithms = Collections.unmodifiableSet(EnumSet
+                    .copyOf(algorithms));
+        }
+        this.file = file;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        load();
+
+        if (file != null) {
+            saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "FtpServer-digest-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (saveInterval > 0) {
+                saver.scheduleWithFixedDelay(this::save, saveInterval,
+                        saveInterval, TimeUnit.SECONDS);
+            }
+        } else {
+            saver = null;
+        }
+    }
+
+    /**
+     * Get the algorithms computed while uploading.
+     * @return The algorithms
+     */
+    public Set<HashAlgorithm> getAlgorithms() {
+        return algorithms;
+    }
+
+    /**
+     * Get the digest of a whole file.
+     * 
+     * @param file
+     *            The file
+     * @param algorithm
+     *            The hash algorithm
+     * @return The digest, or null if not cached for the current content
+     */
+    public byte[] get(final FtpFile file, final HashAlgorithm algorithm) {
+        String key = key(file);
+        if (key == null) {
+            return null;
+        }
+        long size = file.getSize();
+        long lastModified = file.getLastModified();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.size != size || entry.lastModified != lastModified) {
+                entries.remove(key);
+                changed();
+                return null;
+            }
+            return entry.digests.get(algorithm);
+        }
+    }
+
+    /**
+     * Add the digest of a whole file.
+     * 
+     * @param file
+     *            The file
+     * @param size
+     *            The size of the file when the digest was started
+     * @param lastModified
+     *            The last modification time of the file when the digest was
+     *            started
+     * @param algorithm
+     *            The hash algorithm
+     * @param digest
+     *            The digest
+     */
+    public void put(final FtpFile file, final long size,
+            final long lastModified, final HashAlgorithm algorithm,
+            final byte[] digest) {
+        String key = key(file);
+        if (key == null) {
+            return;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.size != size
+                    || entry.lastModified != lastModified) {
+                entry = new Entry(size, lastModified);
+                entries.put(key, entry);
+            }
+            entry.digests.put(algorithm, digest);
+            changed();
+        }
+    }
+
+    /**
+     * Drop the digests of a file.
+     * 
+     * @param file
+     *            The file
+     */
+    public void invalidate(final FtpFile file) {
+        String key = key(file);
+        if (key == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (entries.remove(key) != null) {
+                changed();
+            }
+        }
+    }
+
+    /**
+     * Wrap the stream an upload is written to, to digest the data on the
+     * way. The digests are added to the cache by
+     * {@link #uploaded(FtpFile, Upload)} once the stream has been closed.
+     * 
+     * @param out
+     *            The stream writing to the file, starting at its first byte
+     * @return The digesting stream
+     */
+    public Upload digest(final OutputStream out) {
+        return new Upload(out, algorithms);
+    }
+
+    /**
+     * Add the digests of a completed upload.
+     * 
+     * @param file
+     *            The uploaded file
+     * @param upload
+     *            The closed stream returned by {@link #digest(OutputStream)}
+     */
+    public void uploaded(final FtpFile file, final Upload upload) {
+        if (key(file) == null) {
+            return;
+        }
+
+        // the file must hold exactly what went through the stream
+        long size = file.getSize();
+        if (size != upload.written) {
+            invalidate(file);
+            return;
+        }
+        long lastModified = file.getLastModified();
+        for (int i = 0; i < upload.algorithms.length; i++) {
+            put(file, size, lastModified, upload.algorithms[i],
+                    upload.digests[i].digest());
+        }
+    }
+
+    /**
+     * Stop the periodic saves and persist the cache.
+     */
+    public void dispose() {
+        if (saver != null) {
+            saver.shutdown();
+            try {
+                saver.awaitTermination(5000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        save();
+    }
+
+    /**
+     * Mark the cache as changed, and have it saved once enough changes add
+     * up. Called with the entries locked.
+     */
+    private void changed() {
+        dirty = true;
+        if (++changes >= SAVE_CHANGES && saver != null && !saveQueued) {
+            try {
+                saver.execute(this::save);
+                saveQueued = true;
+            } catch (RejectedExecutionException e) {
+                // disposed, the final save picks the changes up
+            }
+        }
+    }
+
+    private static String key(final FtpFile file) {
+        Object physicalFile = file.getPhysicalFile();
+        if (physicalFile instanceof File) {
+            return ((File) physicalFile).getAbsolutePath();
+        } else if (physicalFile instanceof Path) {
+            return ((Path) physicalFile).toAbsolutePath().toString();
+        }
+        return null;
+    }
+
+    /**
+     * Each line holds the path, size, last modification time and the digests
+     * of a file, separated by tabs
+     */
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length < 4) {
+                    continue;
+                }
+                try {
+                    Entry entry = new Entry(Long.parseLong(fields[1]), Long
+                            .parseLong(fields[2]));
+                    for (int i = 3; i < fields.length; i++) {
+                        int eq = fields[i].indexOf('=');
+                        HashAlgorithm algorithm = eq < 0 ? null : HashAlgorithm
+                                .forName(fields[i].substring(0, eq));
+                        if (algorithm != null) {
+                            entry.digests.put(algorithm, decodeHex(fields[i]
+                                    .substring(eq + 1)));
+                        }
+                    }
+                    entries.put(fields[0], entry);
+                } catch (IllegalArgumentException e) {
+                    LOG.debug("Ignoring invalid digest cache entry: " + line, e);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to load the digest cache from " + file, e);
+        } finally {
+            IoUtils.close(reader);
+        }
+    }
+
+    private void save() {
+        synchronized (saveLock) {
+            try {
+                write();
+            } catch (RuntimeException e) {
+                // keep the timer running
+                LOG.warn("Failed to save the digest cache to " + file, e);
+            }
+        }
+    }
+
+    private void write() {
+        List<String> lines;
+        synchronized (entries) {
+            saveQueued = false;
+            if (file == null || !dirty) {
+                return;
+            }
+            dirty = false;
+            changes = 0;
+            lines = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                StringBuilder sb = new StringBuilder(mapEntry.getKey());
+                sb.append('\t').append(entry.size);
+                sb.append('\t').append(entry.lastModified);
+                for (Map.Entry<HashAlgorithm, byte[]> digest : entry.digests
+                        .entrySet()) {
+                    sb.append('\t').append(digest.getKey().getName());
+                    sb.append('=');
+                    encodeHex(sb, digest.getValue());
+                }
+                lines.add(sb.toString());
+            }
+        }
+
+        // write next to the target and move it in place
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), file
+                .getName()
+                + ".tmp");
+        FileOutputStream out = null;
+        BufferedWriter writer = null;
+        try {
+            out = new FileOutputStream(tmp);
+            writer = new BufferedWriter(new OutputStreamWriter(out,
+                    StandardCharsets.UTF_8));
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+            writer.close();
+            try {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to save the digest cache to " + file, e);
+            synchronized (entries) {
+                dirty = true;
+            }
+        } finally {
+            IoUtils.close(writer);
+            IoUtils.close(out);
+        }
+    }
+
+    private static void encodeHex(final StringBuilder sb, final byte[] data) {
+        for (byte b : data) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+    }
+
+    private static byte[] decodeHex(final String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits");
+        }
+        byte[] data = new byte[hex.length() / 2];
+        for (int i = 0; i < data.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex digit");
+            }
+            data[i] = (byte) ((high << 4) | low);
+        }
+        return data;
+    }
+
+    /**
+     * Digests the bytes written to the wrapped stream
+     */
+    public static final class Upload extends FilterOutputStream {
+
+        private final HashAlgorithm[] algorithms;
+
+        private final MessageDigest[] digests;
+
+        private long written;
+
+        private Upload(final OutputStream out,
+                final Set<HashAlgorithm> algorithms) {
+            super(out);
+            this.algorithms = algorithms.toArray(new HashAlgorithm[0]);
+            this.digests = new MessageDigest[this.algorithms.length];
+            for (int i = 0; i < digests.length; i++) {
+                digests[i] = this.algorithms[i].createDigest();
+            }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            for (MessageDigest digest : digests) {
+                digest.update((byte) b);
+            }
+            written++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+            out.write(b, off, len);
+            for (MessageDigest digest : digests) {
+                digest.update(b, off, len);
+            }
+            written += len;
+        }
+    }
+}
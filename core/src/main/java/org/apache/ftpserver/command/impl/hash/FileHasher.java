@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.hash;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Hashes file content on a bounded pool of its own, so that checksum
+ * requests neither tie up the threads serving the control connections nor
+ * compete without limit for the disk. When the pool and its queue are
+ * full, the requesting thread hashes the file itself.
+ * 
+ * Files backed by a local file are read through a {@link FileChannel} into a
+ * large buffer reused by each pool thread, other files through their input
+ * stream. Digests of whole files are looked up in and added to the
+ * {@link DigestCache}, if any.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FileHasher {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final int QUEUE_SIZE = 256;
+
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private final ThreadPoolExecutor executor;
+
+    private final DigestCache digestCache;
+
+    /**
+     * @param maxThreads
+     *            The maximum number of files hashed at the same time
+     */
+    public FileHasher(final int maxThreads) {
+        this(maxThreads, null);
+    }
+
+    /**
+     * @param maxThreads
+     *            The maximum number of files hashed at the same time
+     * @param digestCache
+     *            The cache of whole file digests to consult and fill, can be
+     *            null
+     */
+    public FileHasher(final int maxThreads, final DigestCache digestCache) {
+        this.digestCache = digestCache;
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "FtpServer-hash-"
+                            + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Start hashing a range of a file.
+     * 
+     * @param file
+     *            The file to hash
+     * @param algorithm
+     *            The hash algorithm
+     * @param start
+     *            The offset of the first byte to hash
+     * @param end
+     *            The offset following the last byte to hash, bytes past the
+     *            end of the file are ignored
+     * @return The pending digest
+     */
+    public Future<byte[]> hash(final FtpFile file,
+            final HashAlgorithm algorithm, final long start, final long end) {
+        if (digestCache != null && start == 0) {
+            final long size = file.getSize();
+            if (end >= size) {
+                byte[] cached = digestCache.get(file, algorithm);
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+                final long lastModified = file.getLastModified();
+                return executor.submit(() -> {
+                    byte[] digest = digest(file, algorithm, start, end);
+                    digestCache.put(file, size, lastModified, algorithm,
+                            digest);
+                    return digest;
+                });
+            }
+        }
+        return executor.submit(() -> digest(file, algorithm, start, end));
+    }
+
+    /**
+     * Wait for a digest started by {@link #hash(FtpFile, HashAlgorithm, long, long)}.
+     * 
+     * @param future
+     *            The pending digest
+     * @return The digest
+     * @throws IOException
+     *             If the file could not be read or the wait was interrupted
+     */
+    public static byte[] await(final Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Stop the pool threads, pending digests are abandoned.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] digest(final FtpFile file,
+            final HashAlgorithm algorithm, final long start, final long end)
+            throws IOException {
+        MessageDigest digest = algorithm.createDigest();
+        byte[] buffer = BUFFER.get();
+
+        Path path = null;
+        Object physicalFile = file.getPhysicalFile();
+        if (physicalFile instanceof File) {
+            path = ((File) physicalFile).toPath();
+        } else if (physicalFile instanceof Path) {
+            path = (Path) physicalFile;
+        }
+
+        if (path != null) {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.READ)) {
+                ByteBuffer bb = ByteBuffer.wrap(buffer);
+                long position = start;
+                while (position < end) {
+                    bb.clear();
+                    if (end - position < buffer.length) {
+                        bb.limit((int) (end - position));
+                    }
+                    int read = channel.read(bb, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    digest.update(buffer, 0, read);
+                    position += read;
+                }
+            }
+        } else {
+            InputStream in = file.createInputStream(start);
+            try {
+                long remaining = end - start;
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0,
+                            (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        break;
+                    }
+                    digest.update(buffer, 0, read);
+                    remaining -= read;
+                }
+            } finally {
+                IoUtils.close(in);
+            }
+        }
+        return digest.digest();
+    }
+}
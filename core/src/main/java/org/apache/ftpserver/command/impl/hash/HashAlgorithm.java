@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.hash;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The hash algorithms available to the HASH command, named as in
+ * draft-bryan-ftpext-hash-02.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public enum HashAlgorithm {
+
+    SHA_1("SHA-1"),
+
+    SHA_256("SHA-256"),
+
+    SHA_512("SHA-512"),
+
+    MD5("MD5"),
+
+    CRC32("CRC32") {
+        @Override
+        public MessageDigest createDigest() {
+            return new Crc32Digest();
+        }
+    };
+
+    /**
+     * The algorithm used until the client selects another one
+     */
+    public static final HashAlgorithm DEFAULT = SHA_256;
+
+    private final String name;
+
+    private HashAlgorithm(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name used on the wire.
+     * @return The algorithm name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Create a new digest for this algorithm.
+     * @return A digest in its initial state
+     */
+    public MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            // all of them are required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Look up an algorithm by its name on the wire, ignoring case.
+     * @param name The algorithm name
+     * @return The algorithm, or null if not supported
+     */
+    public static HashAlgorithm forName(final String name) {
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.name.equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Exposes {@link CRC32} as a four byte, big endian digest
+     */
+    private static final class Crc32Digest extends MessageDigest {
+
+        private final CRC32 crc = new CRC32();
+
+        private Crc32Digest() {
+            super("CRC32");
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            crc.update(input);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int len) {
+            crc.update(input, offset, len);
+        }
+
+        @Override
+        protected void engineUpdate(ByteBuffer input) {
+            crc.update(input);
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 4;
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            long value = crc.getValue();
+            crc.reset();
+            return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16),
+                    (byte) (value >>> 8), (byte) value };
+        }
+
+        @Override
+        protected void engineReset() {
+            crc.reset();
+        }
+    }
+}
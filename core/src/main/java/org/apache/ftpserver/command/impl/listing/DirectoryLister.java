@@ -20,8 +20,12 @@
 package org.apache.ftpserver.command.impl.listing;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.ftpserver.ftplet.FileSystemView;
 import org.apache.ftpserver.ftplet.FtpException;
@@ -36,74 +40,100 @@ import org.apache.ftpserver.ftplet.FtpFile;
  */
 public class DirectoryLister {
 
-    private String traverseFiles(final List<? extends FtpFile> files,
-            final FileFilter filter, final FileFormater formater) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append(traverseFiles(files, filter, formater, true));
-        sb.append(traverseFiles(files, filter, formater, false));
+    /**
+     * Option requesting the files in directory order rather than sorted,
+     * as for <code>ls -U</code>
+     */
+    public static final char OPTION_UNSORTED = 'U';
 
-        return sb.toString();
-    }
+    /**
+     * List the files into a single string.
+     */
+    public String listFiles(final ListArgument argument,
+            final FileSystemView fileSystemView, final FileFormater formater)
+            throws IOException {
 
-    private String traverseFiles(final List<? extends FtpFile> files,
-            final FileFilter filter, final FileFormater formater,
-            boolean matchDirs) {
         StringBuilder sb = new StringBuilder();
-        for (FtpFile file : files) {
-            if (file == null) {
-                continue;
-            }
-
-            if (filter == null || filter.accept(file)) {
-                if (file.isDirectory() == matchDirs) {
-                    sb.append(formater.format(file));
-                }
-            }
+        try (DirectoryListing listing = openListing(argument, fileSystemView,
+                formater)) {
+            listing.appendTo(sb);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
         return sb.toString();
     }
 
-    public String listFiles(final ListArgument argument,
+    /**
+     * Open a listing that formats the files one at a time as it is iterated.
+     * By default, directories are listed before files and both are in
+     * alphabetical order, which requires all files to be read up front. With
+     * the {@link #OPTION_UNSORTED} option, files are read lazily from the
+     * file system and listed in directory order.
+     */
+    public DirectoryListing openListing(final ListArgument argument,
             final FileSystemView fileSystemView, final FileFormater formater)
             throws IOException {
 
-        StringBuilder sb = new StringBuilder();
+        FileFilter filter = null;
+        if (!argument.hasOption('a')) {
+            filter = new VisibleFileFilter();
+        }
+        if (argument.getPattern() != null) {
+            filter = new RegexFileFilter(argument.getPattern(), filter);
+        }
 
-        // get all the file objects
-        List<? extends FtpFile> files = listFiles(fileSystemView, argument.getFile());
-        if (files != null) {
-            FileFilter filter = null;
-            if (!argument.hasOption('a')) {
-                filter = new VisibleFileFilter();
-            }
-            if (argument.getPattern() != null) {
-                filter = new RegexFileFilter(argument.getPattern(), filter);
+        FtpFile virtualFile;
+        try {
+            virtualFile = fileSystemView.getFile(argument.getFile());
+        } catch (FtpException ex) {
+            return emptyListing(formater);
+        }
+
+        if (virtualFile.isFile()) {
+            return new DirectoryListing(Collections.singletonList(virtualFile)
+                    .iterator(), filter, formater, null);
+        }
+
+        if (argument.hasOption(OPTION_UNSORTED)) {
+            Stream<? extends FtpFile> files = virtualFile.streamFiles();
+            if (files == null) {
+                return emptyListing(formater);
             }
+            return new DirectoryListing(files.iterator(), filter, formater,
+                    files::close);
+        }
 
-            sb.append(traverseFiles(files, filter, formater));
+        List<? extends FtpFile> files = virtualFile.listFiles();
+        if (files == null) {
+            return emptyListing(formater);
         }
+        return new DirectoryListing(directoriesFirst(files), filter,
+                formater, null);
+    }
 
-        return sb.toString();
+    private DirectoryListing emptyListing(final FileFormater formater) {
+        return new DirectoryListing(Collections.<FtpFile> emptyIterator(),
+                null, formater, null);
     }
 
     /**
-     * Get the file list. Files will be listed in alphabetlical order.
+     * Order the files with directories first, keeping the order within each
+     * group.
      */
-    private List<? extends FtpFile> listFiles(FileSystemView fileSystemView, String file) {
-        List <? extends FtpFile> files = null;
-        try {
-            FtpFile virtualFile = fileSystemView.getFile(file);
-            if (virtualFile.isFile()) {
-                List<FtpFile> auxFiles = new ArrayList<>();
-                auxFiles.add(virtualFile);
-                files = auxFiles;
-            } else {
-                files = virtualFile.listFiles();
+    private Iterator<FtpFile> directoriesFirst(
+            final List<? extends FtpFile> files) {
+        List<FtpFile> ordered = new ArrayList<>(files.size());
+        for (FtpFile file : files) {
+            if (file != null && file.isDirectory()) {
+                ordered.add(file);
+            }
+        }
+        for (FtpFile file : files) {
+            if (file != null && !file.isDirectory()) {
+                ordered.add(file);
             }
-        } catch (FtpException ex) {
         }
-        return files;
+        return ordered.iterator();
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.command.impl.listing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A directory listing that is formatted one file at a time as it is
+ * iterated. Must be closed to release the underlying directory.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DirectoryListing implements Iterator<String>, Closeable {
+
+    private final Iterator<? extends FtpFile> files;
+
+    private final FileFilter filter;
+
+    private final FileFormater formater;
+
+    private final Closeable resource;
+
+    // reused for formatting each file
+    private final StringBuilder buffer = new StringBuilder(128);
+
+    private String next;
+
+    /**
+     * @param files
+     *            The files to list
+     * @param filter
+     *            The filter to apply, can be null
+     * @param formater
+     *            The formater for each listed file
+     * @param resource
+     *            Released when the listing is closed, can be null
+     */
+    public DirectoryListing(final Iterator<? extends FtpFile> files,
+            final FileFilter filter, final FileFormater formater,
+            final Closeable resource) {
+        this.files = files;
+        this.filter = filter;
+        this.formater = formater;
+        this.resource = resource;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasNext() {
+        while (next == null && files.hasNext()) {
+            FtpFile file = files.next();
+            if (accept(file)) {
+                buffer.setLength(0);
+                formater.format(file, buffer);
+                next = buffer.toString();
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Format all remaining files directly into the provided buffer.
+     * 
+     * @param sb
+     *            The buffer to append to
+     */
+    public void appendTo(final StringBuilder sb) {
+        if (next != null) {
+            sb.append(next);
+            next = null;
+        }
+        while (files.hasNext()) {
+            FtpFile file = files.next();
+            if (accept(file)) {
+                formater.format(file, sb);
+            }
+        }
+    }
+
+    private boolean accept(final FtpFile file) {
+        return file != null && (filter == null || filter.accept(file));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = next;
+        next = null;
+        return line;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+}
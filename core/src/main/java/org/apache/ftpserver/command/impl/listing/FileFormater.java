@@ -38,4 +38,18 @@ public interface FileFormater {
      */
     String format(FtpFile file);
 
+    /**
+     * Format the file into the provided buffer. Formaters that are used for
+     * directory listings should override this to avoid creating a string for
+     * each file.
+     * 
+     * @param file
+     *            The {@link FtpFile}
+     * @param sb
+     *            The buffer the formated file is appended to
+     */
+    default void format(FtpFile file, StringBuilder sb) {
+        sb.append(format(file));
+    }
+
 }
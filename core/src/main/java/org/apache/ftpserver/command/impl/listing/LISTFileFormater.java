@@ -18,8 +18,6 @@
  */
 package org.apache.ftpserver.command.impl.listing;
 
-import java.util.Arrays;
-
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.util.DateUtils;
 
@@ -36,66 +34,73 @@ public class LISTFileFormater implements FileFormater {
 
     private final static char[] NEWLINE = { '\r', '\n' };
 
+    // the size is right aligned in a column of this width
+    private final static int SIZE_WIDTH = 12;
+
     /**
      * @see FileFormater#format(FtpFile)
      */
     public String format(FtpFile file) {
         StringBuilder sb = new StringBuilder();
-        sb.append(getPermission(file));
+        format(file, sb);
+        return sb.toString();
+    }
+
+    /**
+     * @see FileFormater#format(FtpFile, StringBuilder)
+     */
+    public void format(FtpFile file, StringBuilder sb) {
+        appendPermission(sb, file);
         sb.append(DELIM);
         sb.append(DELIM);
         sb.append(DELIM);
-        sb.append(String.valueOf(file.getLinkCount()));
+        sb.append(file.getLinkCount());
         sb.append(DELIM);
         sb.append(file.getOwnerName());
         sb.append(DELIM);
         sb.append(file.getGroupName());
         sb.append(DELIM);
-        sb.append(getLength(file));
+        appendLength(sb, file);
         sb.append(DELIM);
-        sb.append(getLastModified(file));
+        DateUtils.appendUnixDate(sb, file.getLastModified(), System
+                .currentTimeMillis());
         sb.append(DELIM);
         sb.append(file.getName());
         sb.append(NEWLINE);
-
-        return sb.toString();
     }
 
     /**
-     * Get size
+     * Append size
      */
-    private String getLength(FtpFile file) {
-        String initStr = "            ";
+    private void appendLength(StringBuilder sb, FtpFile file) {
         long sz = 0;
         if (file.isFile()) {
             sz = file.getSize();
         }
-        String szStr = String.valueOf(sz);
-        if (szStr.length() > initStr.length()) {
-            return szStr;
-        }
-        return initStr.substring(0, initStr.length() - szStr.length()) + szStr;
-    }
 
-    /**
-     * Get last modified date string.
-     */
-    private String getLastModified(FtpFile file) {
-        return DateUtils.getUnixDate(file.getLastModified());
+        int digits = 1;
+        for (long rest = sz / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        if (sz < 0) {
+            digits++;
+        }
+        for (int i = digits; i < SIZE_WIDTH; i++) {
+            sb.append(DELIM);
+        }
+        sb.append(sz);
     }
 
     /**
-     * Get permission string.
+     * Append permission string.
      */
-    private char[] getPermission(FtpFile file) {
-        char permission[] = new char[10];
-        Arrays.fill(permission, '-');
-
-        permission[0] = file.isDirectory() ? 'd' : '-';
-        permission[1] = file.isReadable() ? 'r' : '-';
-        permission[2] = file.isWritable() ? 'w' : '-';
-        permission[3] = file.isDirectory() ? 'x' : '-'; 
-        return permission;
+    private void appendPermission(StringBuilder sb, FtpFile file) {
+        boolean directory = file.isDirectory();
+        sb.append(directory ? 'd' : '-');
+        sb.append(file.isReadable() ? 'r' : '-');
+        sb.append(file.isWritable() ? 'w' : '-');
+        sb.append(directory ? 'x' : '-');
+        sb.append("------");
     }
 
     /*
@@ -52,17 +52,23 @@ public class MLSTFileFormater implements FileFormater {
      */
     public String format(FtpFile file) {
         StringBuilder sb = new StringBuilder();
+        format(file, sb);
+        return sb.toString();
+    }
 
+    /**
+     * @see FileFormater#format(FtpFile, StringBuilder)
+     */
+    public void format(FtpFile file, StringBuilder sb) {
         for (int i = 0; i < selectedTypes.length; ++i) {
             String type = selectedTypes[i];
             if (type.equalsIgnoreCase("size")) {
                 sb.append("Size=");
-                sb.append(String.valueOf(file.getSize()));
+                sb.append(file.getSize());
                 sb.append(';');
             } else if (type.equalsIgnoreCase("modify")) {
-                String timeStr = DateUtils.getFtpDate(file.getLastModified());
                 sb.append("Modify=");
-                sb.append(timeStr);
+                DateUtils.appendFtpDate(sb, file.getLastModified());
                 sb.append(';');
             } else if (type.equalsIgnoreCase("type")) {
                 if (file.isFile()) {
@@ -100,7 +106,5 @@ public class MLSTFileFormater implements FileFormater {
         sb.append(file.getName());
 
         sb.append(NEWLINE);
-
-        return sb.toString();
     }
 }
@@ -19,7 +19,11 @@
 
 package org.apache.ftpserver.config.spring;
 
+import java.io.File;
+
+import org.apache.ftpserver.filesystem.memory.MemoryFileSystemFactory;
 import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.filesystem.nio.NioFileSystemFactory;
 import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
@@ -28,7 +32,8 @@ import org.springframework.util.StringUtils;
 import org.w3c.dom.Element;
 
 /**
- * Parses the FtpServer "native-filesystem" element into a Spring bean graph
+ * Parses the FtpServer "native-filesystem", "nio-filesystem" and
+ * "memory-filesystem" elements into a Spring bean graph
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -41,6 +46,12 @@ public class FileSystemBeanDefinitionParser extends
     @Override
     protected Class<? extends FileSystemFactory> getBeanClass(
             final Element element) {
+        if ("nio-filesystem".equals(element.getLocalName())) {
+            return NioFileSystemFactory.class;
+        }
+        if ("memory-filesystem".equals(element.getLocalName())) {
+            return MemoryFileSystemFactory.class;
+        }
         return NativeFileSystemFactory.class;
     }
 
@@ -59,5 +70,43 @@ public class FileSystemBeanDefinitionParser extends
             builder.addPropertyValue("createHome", Boolean
                     .valueOf(element.getAttribute("create-home")));
         }
+        if (StringUtils.hasText(element.getAttribute("cache-size"))) {
+            builder.addPropertyValue("cacheSize", Integer.valueOf(element
+                    .getAttribute("cache-size")));
+        }
+        if (StringUtils.hasText(element.getAttribute("cache-ttl"))) {
+            builder.addPropertyValue("cacheTimeToLive", Long.valueOf(element
+                    .getAttribute("cache-ttl")));
+        }
+        if (StringUtils.hasText(element
+                .getAttribute("deduplication-directory"))) {
+            builder.addPropertyValue("deduplicationDirectory", element
+                    .getAttribute("deduplication-directory"));
+        }
+        if (StringUtils.hasText(element
+                .getAttribute("deduplication-algorithm"))) {
+            builder.addPropertyValue("deduplicationAlgorithm", element
+                    .getAttribute("deduplication-algorithm"));
+        }
+        if (StringUtils.hasText(element.getAttribute("chunk-size"))) {
+            builder.addPropertyValue("chunkSize", Integer.valueOf(element
+                    .getAttribute("chunk-size")));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-memory"))) {
+            builder.addPropertyValue("maxMemory", Long.valueOf(element
+                    .getAttribute("max-memory")));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-user-memory"))) {
+            builder.addPropertyValue("maxUserMemory", Long.valueOf(element
+                    .getAttribute("max-user-memory")));
+        }
+        if (StringUtils.hasText(element.getAttribute("ttl"))) {
+            builder.addPropertyValue("timeToLive", Long.valueOf(element
+                    .getAttribute("ttl")));
+        }
+        if (StringUtils.hasText(element.getAttribute("spill-directory"))) {
+            builder.addPropertyValue("spillDirectory", new File(element
+                    .getAttribute("spill-directory")));
+        }
     }
 }
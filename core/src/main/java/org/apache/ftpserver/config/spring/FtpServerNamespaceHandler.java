@@ -47,6 +47,10 @@ public class FtpServerNamespaceHandler extends NamespaceHandlerSupport {
                 new UserManagerBeanDefinitionParser());
         registerBeanDefinitionParser("native-filesystem",
                 new FileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("nio-filesystem",
+                new FileSystemBeanDefinitionParser());
+        registerBeanDefinitionParser("memory-filesystem",
+                new FileSystemBeanDefinitionParser());
         registerBeanDefinitionParser("commands",
                 new CommandFactoryBeanDefinitionParser());
 
@@ -21,15 +21,24 @@ package org.apache.ftpserver.config.spring;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.ftpserver.ConnectionConfigFactory;
 import org.apache.ftpserver.FtpServer;
 import org.apache.ftpserver.FtpServerConfigurationException;
 import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
+import org.apache.ftpserver.command.impl.hash.HashAlgorithm;
+import org.apache.ftpserver.impl.AsyncObserverDispatcher;
+import org.apache.ftpserver.impl.AsyncObserverDispatcher.OverflowPolicy;
 import org.apache.ftpserver.message.MessageResource;
 import org.apache.ftpserver.message.MessageResourceFactory;
+import org.apache.ftpserver.quota.QuotaManager;
+import org.apache.ftpserver.quota.QuotaManagerFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
@@ -88,7 +97,9 @@ public class ServerBeanDefinitionParser extends
                 factoryBuilder.addPropertyValue("userManager", SpringUtil
                         .parseSpringChildElement(childElm, parserContext,
                                 builder));
-            } else if ("native-filesystem".equals(childName)) {
+            } else if ("native-filesystem".equals(childName)
+                    || "nio-filesystem".equals(childName)
+                    || "memory-filesystem".equals(childName)) {
                 Object fileSystem = parserContext.getDelegate()
                         .parseCustomElement(childElm,
                                 builder.getBeanDefinition());
@@ -107,6 +118,15 @@ public class ServerBeanDefinitionParser extends
                         parserContext, builder);
                 factoryBuilder.addPropertyValue("messageResource", mr);
 
+            } else if ("digest-cache".equals(childName)) {
+                DigestCache digestCache = parseDigestCache(childElm);
+                factoryBuilder.addPropertyValue("digestCache", digestCache);
+            } else if ("observer-dispatcher".equals(childName)) {
+                AsyncObserverDispatcher dispatcher = parseObserverDispatcher(childElm);
+                factoryBuilder.addPropertyValue("observerDispatcher", dispatcher);
+            } else if ("quota".equals(childName)) {
+                QuotaManager quotaManager = parseQuotaManager(childElm);
+                factoryBuilder.addPropertyValue("quotaManager", quotaManager);
             } else {
                 throw new FtpServerConfigurationException(
                         "Unknown configuration name: " + childName);
@@ -140,6 +160,15 @@ public class ServerBeanDefinitionParser extends
                     "login-failure-delay"));
         }
 
+        if (StringUtils.hasText(element.getAttribute("max-connections-per-ip"))) {
+            connectionConfig.setMaxConnectionsPerIp(SpringUtil.parseInt(
+                    element, "max-connections-per-ip"));
+        }
+        if (StringUtils.hasText(element.getAttribute("max-connection-rate-per-ip"))) {
+            connectionConfig.setMaxConnectionRatePerIp(SpringUtil.parseInt(
+                    element, "max-connection-rate-per-ip"));
+        }
+
         factoryBuilder.addPropertyValue("connectionConfig", connectionConfig.createConnectionConfig());
 
        
@@ -182,6 +211,111 @@ public class ServerBeanDefinitionParser extends
         return mr.createMessageResource();
     }
 
+    /**
+     * Parse the "digest-cache" element
+     */
+    private DigestCache parseDigestCache(final Element childElm) {
+
+        EnumSet<HashAlgorithm> algorithms = EnumSet.noneOf(HashAlgorithm.class);
+        if (StringUtils.hasText(childElm.getAttribute("algorithms"))) {
+            for (String name : childElm.getAttribute("algorithms").trim()
+                    .split("[\\s,]+")) {
+                HashAlgorithm algorithm = HashAlgorithm.forName(name);
+                if (algorithm == null) {
+                    throw new FtpServerConfigurationException(
+                            "Unknown hash algorithm: " + name);
+                }
+                algorithms.add(algorithm);
+            }
+        } else {
+            algorithms.add(HashAlgorithm.MD5);
+            algorithms.add(HashAlgorithm.DEFAULT);
+        }
+
+        int maxEntries = 10000;
+        if (StringUtils.hasText(childElm.getAttribute("max-entries"))) {
+            maxEntries = SpringUtil.parseInt(childElm, "max-entries");
+        }
+
+        File file = null;
+        if (StringUtils.hasText(childElm.getAttribute("file"))) {
+            file = SpringUtil.parseFile(childElm, "file");
+        }
+
+        int saveInterval = DigestCache.DEFAULT_SAVE_INTERVAL;
+        if (StringUtils.hasText(childElm.getAttribute("save-interval"))) {
+            saveInterval = SpringUtil.parseInt(childElm, "save-interval");
+        }
+
+        return new DigestCache(algorithms, file, maxEntries, saveInterval);
+    }
+
+    /**
+     * Parse the "observer-dispatcher" element
+     */
+    private AsyncObserverDispatcher parseObserverDispatcher(final Element childElm) {
+
+        int capacity = 8192;
+        if (StringUtils.hasText(childElm.getAttribute("capacity"))) {
+            capacity = SpringUtil.parseInt(childElm, "capacity");
+        }
+
+        OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+        if (StringUtils.hasText(childElm.getAttribute("overflow-policy"))) {
+            String policy = childElm.getAttribute("overflow-policy").trim();
+            try {
+                overflowPolicy = OverflowPolicy.valueOf(policy.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new FtpServerConfigurationException(
+                        "Unknown overflow policy: " + policy);
+            }
+        }
+
+        int threads = 1;
+        if (StringUtils.hasText(childElm.getAttribute("threads"))) {
+            threads = SpringUtil.parseInt(childElm, "threads");
+        }
+
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(
+                capacity, overflowPolicy, threads);
+        if (StringUtils.hasText(childElm.getAttribute("sample-rate"))) {
+            dispatcher.setSampleRate(SpringUtil.parseInt(childElm, "sample-rate"));
+        }
+        if (StringUtils.hasText(childElm.getAttribute("batch-size"))) {
+            dispatcher.setBatchSize(SpringUtil.parseInt(childElm, "batch-size"));
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Parse the "quota" element
+     */
+    private QuotaManager parseQuotaManager(final Element childElm) {
+
+        QuotaManagerFactory factory = new QuotaManagerFactory();
+
+        if (StringUtils.hasText(childElm.getAttribute("default-quota"))) {
+            factory.setDefaultQuota(Long.parseLong(childElm
+                    .getAttribute("default-quota")));
+        }
+        if (StringUtils.hasText(childElm.getAttribute("file"))) {
+            factory.setFile(SpringUtil.parseFile(childElm, "file"));
+        }
+        if (StringUtils.hasText(childElm.getAttribute("reconcile-interval"))) {
+            factory.setReconcileInterval(SpringUtil.parseInt(childElm,
+                    "reconcile-interval"));
+        }
+
+        Map<String, Long> quotas = new HashMap<>();
+        for (Element userElm : SpringUtil.getChildElements(childElm)) {
+            quotas.put(userElm.getAttribute("name"), Long.valueOf(userElm
+                    .getAttribute("quota")));
+        }
+        factory.setQuotas(quotas);
+
+        return factory.createQuotaManager();
+    }
+
     /**
      * Parse the "ftplets" element
      */
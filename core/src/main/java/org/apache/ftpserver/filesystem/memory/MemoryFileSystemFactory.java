@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory;
+
+import java.io.File;
+
+import org.apache.ftpserver.filesystem.memory.impl.MemoryFileStore;
+import org.apache.ftpserver.filesystem.memory.impl.MemoryFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * File system factory keeping all files in memory, for transient files that
+ * do not need to be stored on disk. Each distinct user home directory gets
+ * its own, initially empty, directory tree. The content of files is held in
+ * direct buffers outside of the Java heap, within the configured memory
+ * limits. All files are lost when the factory is discarded.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileSystemFactory implements FileSystemFactory {
+
+    private int chunkSize = 64 * 1024;
+
+    private long maxMemory = 64L * 1024 * 1024;
+
+    private long maxUserMemory;
+
+    private long timeToLive;
+
+    private File spillDirectory;
+
+    private MemoryFileStore store;
+
+    /**
+     * The size of the buffers file content is stored in
+     * @return The chunk size in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Set the size of the buffers file content is stored in. Every file uses
+     * at least one chunk.
+     * @param chunkSize The chunk size in bytes, 64 kB by default
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * The maximum memory used for the content of all files
+     * @return The maximum memory in bytes, 0 if unlimited
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Set the maximum memory used for the content of all files. Writes that
+     * would exceed it fail, unless a spill directory is configured.
+     * @param maxMemory The maximum memory in bytes, 64 MB by default, 0 for no limit
+     */
+    public void setMaxMemory(long maxMemory) {
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("maxMemory can not be negative");
+        }
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * The maximum memory used for the content of the files written by each
+     * user
+     * @return The maximum memory in bytes, 0 if unlimited
+     */
+    public long getMaxUserMemory() {
+        return maxUserMemory;
+    }
+
+    /**
+     * Set the maximum memory used for the content of the files written by
+     * each user. Writes that would exceed it fail, unless a spill directory
+     * is configured.
+     * @param maxUserMemory The maximum memory in bytes, 0 for no limit which is the default
+     */
+    public void setMaxUserMemory(long maxUserMemory) {
+        if (maxUserMemory < 0) {
+            throw new IllegalArgumentException(
+                    "maxUserMemory can not be negative");
+        }
+        this.maxUserMemory = maxUserMemory;
+    }
+
+    /**
+     * The time after which files that have not been modified are removed
+     * @return The time to live in milliseconds, 0 if files never expire
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Set the time after which files that have not been modified are
+     * removed. Directories are kept.
+     * @param timeToLive The time to live in milliseconds, 0 for never which is the default
+     */
+    public void setTimeToLive(long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException(
+                    "timeToLive can not be negative");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * The directory files are moved to when the memory limits are reached
+     * @return The spill directory, null if disabled
+     */
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Set the directory files are moved to when the memory limits are
+     * reached. A file moved to disk stays there until it is deleted.
+     * @param spillDirectory The spill directory, null to fail writes instead which is the default
+     */
+    public void setSpillDirectory(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Get the store holding the files of all views created by this factory.
+     * The store is created on first use with the configured limits.
+     * @return The store
+     */
+    public synchronized MemoryFileStore getStore() {
+        if (store == null) {
+            if (spillDirectory != null && !spillDirectory.isDirectory()
+                    && !spillDirectory.mkdirs()) {
+                throw new IllegalStateException(
+                        "Cannot create spill directory :: " + spillDirectory);
+            }
+            store = new MemoryFileStore(chunkSize, maxMemory, maxUserMemory,
+                    timeToLive, spillDirectory);
+        }
+        return store;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        if (user.getHomeDirectory() == null) {
+            throw new IllegalArgumentException(
+                    "User home directory can not be null");
+        }
+        return new MemoryFileSystemView(user, getStore());
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The content of a file in the in-memory file system, held in fixed size
+ * chunks allocated from the {@link MemoryFileStore}. If a chunk can not be
+ * allocated within the memory limits and spilling is enabled, the content is
+ * moved to a temporary file and stays there until the file is deleted.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+final class MemoryFileContent {
+
+    private final Logger LOG = LoggerFactory.getLogger(MemoryFileContent.class);
+
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final MemoryFileStore store;
+
+    // the user whose memory limit the chunks count against
+    private final String owner;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    private long size;
+
+    // set once the content has been moved to disk
+    private File spillFile;
+
+    private FileChannel spillChannel;
+
+    // open output streams, the content does not expire while written. Read
+    // without the lock by the store
+    private volatile int writers;
+
+    private boolean released;
+
+    MemoryFileContent(final MemoryFileStore store, final String owner) {
+        this.store = store;
+        this.owner = owner;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    synchronized boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    boolean isWriting() {
+        return writers > 0;
+    }
+
+    synchronized void openWriter() throws IOException {
+        if (released) {
+            throw new IOException("File has been deleted");
+        }
+        writers++;
+    }
+
+    synchronized void closeWriter() {
+        writers--;
+    }
+
+    /**
+     * Read up to <code>len</code> bytes starting at <code>position</code>.
+     * 
+     * @return The number of bytes read, or -1 if the position is at or
+     *         beyond the end of the file
+     */
+    synchronized int read(final long position, final byte[] b,
+            final int off, final int len) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        int count = (int) Math.min(len, size - position);
+
+        if (spillChannel != null) {
+            return spillChannel.read(ByteBuffer.wrap(b, off, count), position);
+        }
+
+        int chunkSize = store.getChunkSize();
+        int done = 0;
+        while (done < count) {
+            long pos = position + done;
+            ByteBuffer chunk = chunks.get((int) (pos / chunkSize));
+            int chunkOffset = (int) (pos % chunkSize);
+            int n = Math.min(count - done, chunkSize - chunkOffset);
+
+            chunk.clear();
+            chunk.position(chunkOffset);
+            chunk.get(b, off + done, n);
+            done += n;
+        }
+        return count;
+    }
+
+    /**
+     * Write <code>len</code> bytes at <code>position</code>, extending the
+     * file as needed. A gap between the current end of the file and the
+     * position is filled with zeros.
+     */
+    synchronized void write(final long position, final byte[] b,
+            final int off, final int len) throws IOException {
+        if (released) {
+            throw new IOException("File has been deleted");
+        }
+
+        while (size < position) {
+            write(size, ZEROS, 0, (int) Math.min(position - size,
+                    ZEROS.length));
+        }
+
+        long end = position + len;
+        if (spillChannel == null && !ensureCapacity(end)) {
+            spill();
+        }
+
+        if (spillChannel != null) {
+            ByteBuffer src = ByteBuffer.wrap(b, off, len);
+            long pos = position;
+            while (src.hasRemaining()) {
+                pos += spillChannel.write(src, pos);
+            }
+        } else {
+            int chunkSize = store.getChunkSize();
+            int done = 0;
+            while (done < len) {
+                long pos = position + done;
+                ByteBuffer chunk = chunks.get((int) (pos / chunkSize));
+                int chunkOffset = (int) (pos % chunkSize);
+                int n = Math.min(len - done, chunkSize - chunkOffset);
+
+                chunk.clear();
+                chunk.position(chunkOffset);
+                chunk.put(b, off + done, n);
+                done += n;
+            }
+        }
+
+        if (end > size) {
+            size = end;
+        }
+    }
+
+    /**
+     * Cut the file at the given size, releasing chunks no longer needed.
+     */
+    synchronized void truncate(final long newSize) throws IOException {
+        if (newSize >= size) {
+            return;
+        }
+        size = newSize;
+
+        if (spillChannel != null) {
+            spillChannel.truncate(newSize);
+        } else {
+            int chunkSize = store.getChunkSize();
+            int needed = (int) ((newSize + chunkSize - 1) / chunkSize);
+            while (chunks.size() > needed) {
+                store.releaseChunk(owner, chunks.remove(chunks.size() - 1));
+            }
+        }
+    }
+
+    /**
+     * Release all memory and the spill file, if any. Streams still open on
+     * the content fail on their next write.
+     */
+    synchronized void release() {
+        released = true;
+        size = 0;
+        for (ByteBuffer chunk : chunks) {
+            store.releaseChunk(owner, chunk);
+        }
+        chunks.clear();
+
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close spill file " + spillFile, e);
+            }
+            if (!spillFile.delete()) {
+                LOG.warn("Failed to delete spill file " + spillFile);
+            }
+            spillChannel = null;
+            store.spillReleased();
+        }
+    }
+
+    /**
+     * Allocate chunks up to the given size.
+     * 
+     * @return false if the memory limits do not allow it
+     */
+    private boolean ensureCapacity(final long capacity) {
+        int chunkSize = store.getChunkSize();
+        while ((long) chunks.size() * chunkSize < capacity) {
+            ByteBuffer chunk = store.allocateChunk(owner);
+            if (chunk == null) {
+                return false;
+            }
+            chunks.add(chunk);
+        }
+        return true;
+    }
+
+    /**
+     * Move the content to a temporary file and release its memory.
+     */
+    private void spill() throws IOException {
+        File directory = store.getSpillDirectory();
+        if (directory == null) {
+            throw new IOException("Memory limit exceeded");
+        }
+
+        File file = File.createTempFile("ftpserver", ".spill", directory);
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long remaining = size;
+            long pos = 0;
+            for (ByteBuffer chunk : chunks) {
+                if (remaining <= 0) {
+                    break;
+                }
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), remaining));
+                while (chunk.hasRemaining()) {
+                    pos += channel.write(chunk, pos);
+                }
+                remaining -= chunk.limit();
+            }
+        } catch (IOException e) {
+            channel.close();
+            file.delete();
+            throw e;
+        }
+
+        LOG.debug("Spilled {} bytes of {} to {}", size, owner, file);
+
+        for (ByteBuffer chunk : chunks) {
+            store.releaseChunk(owner, chunk);
+        }
+        chunks.clear();
+        spillFile = file;
+        spillChannel = channel;
+        store.spilled();
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Holds the directory trees and accounts for the memory of the in-memory
+ * file system. There is one tree per distinct user home directory, so users
+ * sharing a home directory see the same files.
+ * 
+ * File content is stored in direct buffers of a fixed chunk size. Files that
+ * have not been modified for longer than the time to live are removed when
+ * they are next looked up, or when memory runs short.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileStore {
+
+    private final Logger LOG = LoggerFactory.getLogger(MemoryFileStore.class);
+
+    // released chunks kept for reuse, as direct memory is only freed by the
+    // garbage collector
+    private static final int MAX_POOLED_CHUNKS = 64;
+
+    private final int chunkSize;
+
+    private final long maxMemory;
+
+    private final long maxUserMemory;
+
+    private final long timeToLive;
+
+    private final File spillDirectory;
+
+    // guards the structure of all trees. Never held while acquiring the lock
+    // of a file content, contents are released after it has been let go
+    private final Object lock = new Object();
+
+    private final Map<String, MemoryNode> roots = new HashMap<>();
+
+    private final AtomicLong usedMemory = new AtomicLong();
+
+    private final ConcurrentMap<String, AtomicLong> userMemory = new ConcurrentHashMap<>();
+
+    private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooledChunks = new AtomicInteger();
+
+    private final AtomicInteger spilledFiles = new AtomicInteger();
+
+    /**
+     * @param chunkSize
+     *            The size of each allocated buffer
+     * @param maxMemory
+     *            The maximum memory used for file content, 0 for no limit
+     * @param maxUserMemory
+     *            The maximum memory used for the files written by each user,
+     *            0 for no limit
+     * @param timeToLive
+     *            The time in milliseconds after which files not modified
+     *            expire, 0 for never
+     * @param spillDirectory
+     *            The directory files are moved to when the memory limits are
+     *            reached, null to fail writes instead
+     */
+    public MemoryFileStore(final int chunkSize, final long maxMemory,
+            final long maxUserMemory, final long timeToLive,
+            final File spillDirectory) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.maxMemory = maxMemory;
+        this.maxUserMemory = maxUserMemory;
+        this.timeToLive = timeToLive;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return The size of each allocated buffer
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return The maximum memory used for file content, 0 for no limit
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @return The maximum memory used for the files written by each user, 0
+     *         for no limit
+     */
+    public long getMaxUserMemory() {
+        return maxUserMemory;
+    }
+
+    /**
+     * @return The time in milliseconds after which files not modified
+     *         expire, 0 for never
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @return The directory files are moved to when the memory limits are
+     *         reached, null if disabled
+     */
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @return The memory currently used for file content, in bytes
+     */
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    /**
+     * @param userName
+     *            The user name
+     * @return The memory currently used for the files written by the user
+     */
+    public long getUserMemory(final String userName) {
+        AtomicLong used = userMemory.get(userName == null ? "" : userName);
+        return used == null ? 0 : used.get();
+    }
+
+    /**
+     * @return The number of files currently moved to the spill directory
+     */
+    public int getSpilledFiles() {
+        return spilledFiles.get();
+    }
+
+    /**
+     * Remove all expired files.
+     * 
+     * @return The number of files removed
+     */
+    public int purgeExpired() {
+        if (timeToLive <= 0) {
+            return 0;
+        }
+
+        List<MemoryNode> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (MemoryNode root : roots.values()) {
+                purgeExpired(root, now, expired);
+            }
+        }
+        release(expired);
+
+        if (!expired.isEmpty()) {
+            LOG.debug("Removed {} expired files", expired.size());
+        }
+        return expired.size();
+    }
+
+    private void purgeExpired(final MemoryNode dir, final long now,
+            final List<MemoryNode> expired) {
+        for (MemoryNode child : dir.getChildren()) {
+            if (child.isDirectory()) {
+                purgeExpired(child, now, expired);
+            } else if (isExpired(child, now)) {
+                dir.removeChild(child);
+                expired.add(child);
+            }
+        }
+    }
+
+    private boolean isExpired(final MemoryNode node, final long now) {
+        return timeToLive > 0 && !node.isDirectory()
+                && !node.getContent().isWriting()
+                && now - node.getLastModified() > timeToLive;
+    }
+
+    private void release(final List<MemoryNode> files) {
+        for (MemoryNode file : files) {
+            file.getContent().release();
+        }
+    }
+
+    // memory accounting
+
+    /**
+     * Allocate a chunk for the content of a file, removing expired files if
+     * memory is short.
+     * 
+     * @return The chunk, or null if it would exceed the memory limits
+     */
+    ByteBuffer allocateChunk(final String owner) {
+        if (!reserve(owner)) {
+            if (purgeExpired() == 0 || !reserve(owner)) {
+                return null;
+            }
+        }
+
+        ByteBuffer chunk = pool.poll();
+        if (chunk != null) {
+            pooledChunks.decrementAndGet();
+        } else {
+            chunk = ByteBuffer.allocateDirect(chunkSize);
+        }
+        return chunk;
+    }
+
+    void releaseChunk(final String owner, final ByteBuffer chunk) {
+        usedMemory.addAndGet(-chunkSize);
+        userMemory(owner).addAndGet(-chunkSize);
+
+        if (pooledChunks.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+            pool.offer(chunk);
+        } else {
+            pooledChunks.decrementAndGet();
+        }
+    }
+
+    private boolean reserve(final String owner) {
+        if (!reserve(usedMemory, maxMemory)) {
+            return false;
+        }
+        if (!reserve(userMemory(owner), maxUserMemory)) {
+            usedMemory.addAndGet(-chunkSize);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean reserve(final AtomicLong used, final long max) {
+        while (true) {
+            long current = used.get();
+            if (max > 0 && current + chunkSize > max) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + chunkSize)) {
+                return true;
+            }
+        }
+    }
+
+    private AtomicLong userMemory(final String owner) {
+        String key = owner == null ? "" : owner;
+        AtomicLong used = userMemory.get(key);
+        if (used == null) {
+            used = new AtomicLong();
+            AtomicLong existing = userMemory.putIfAbsent(key, used);
+            if (existing != null) {
+                used = existing;
+            }
+        }
+        return used;
+    }
+
+    void spilled() {
+        spilledFiles.incrementAndGet();
+    }
+
+    void spillReleased() {
+        spilledFiles.decrementAndGet();
+    }
+
+    // tree operations, paths are virtual names relative to a root
+
+    /**
+     * Get the root directory for a home directory, creating it if needed.
+     */
+    MemoryNode getRoot(final String homeDirectory) {
+        String key = homeDirectory.replace('\\', '/');
+        synchronized (lock) {
+            MemoryNode root = roots.get(key);
+            if (root == null) {
+                root = MemoryNode.createDirectory("/");
+                roots.put(key, root);
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Find a node.
+     * 
+     * @return The node, or null if it does not exist
+     */
+    MemoryNode lookup(final MemoryNode root, final String path) {
+        List<MemoryNode> expired = new ArrayList<>(0);
+        MemoryNode node;
+        synchronized (lock) {
+            node = find(root, path, expired);
+        }
+        release(expired);
+        return node;
+    }
+
+    /**
+     * List the nodes within a directory, in name order.
+     * 
+     * @return The nodes, or null if the directory does not exist
+     */
+    List<MemoryNode> list(final MemoryNode root, final String path) {
+        List<MemoryNode> expired = new ArrayList<>(0);
+        List<MemoryNode> children = null;
+        synchronized (lock) {
+            MemoryNode dir = find(root, path, expired);
+            if (dir != null && dir.isDirectory()) {
+                long now = System.currentTimeMillis();
+                children = dir.getChildren();
+                for (Iterator<MemoryNode> iter = children.iterator(); iter
+                        .hasNext();) {
+                    MemoryNode child = iter.next();
+                    if (isExpired(child, now)) {
+                        dir.removeChild(child);
+                        expired.add(child);
+                        iter.remove();
+                    }
+                }
+            }
+        }
+        release(expired);
+        return children;
+    }
+
+    /**
+     * Create a directory.
+     * 
+     * @return true if created, false if the parent does not exist or the
+     *         name is already taken
+     */
+    boolean mkdir(final MemoryNode root, final String path) {
+        List<MemoryNode> expired = new ArrayList<>(0);
+        boolean created = false;
+        synchronized (lock) {
+            MemoryNode parent = find(root, getParentPath(path), expired);
+            String name = getName(path);
+            if (parent != null && parent.isDirectory() && name != null
+                    && find(root, path, expired) == null) {
+                parent.addChild(MemoryNode.createDirectory(name));
+                parent.setLastModified(System.currentTimeMillis());
+                created = true;
+            }
+        }
+        release(expired);
+        return created;
+    }
+
+    /**
+     * Get a file for writing, creating it if it does not exist.
+     * 
+     * @return The file, or null if the path is a directory or the parent
+     *         directory does not exist
+     */
+    MemoryNode createFile(final MemoryNode root, final String path,
+            final String owner) {
+        List<MemoryNode> expired = new ArrayList<>(0);
+        MemoryNode file = null;
+        synchronized (lock) {
+            MemoryNode existing = find(root, path, expired);
+            if (existing != null) {
+                if (!existing.isDirectory()) {
+                    file = existing;
+                }
+            } else {
+                MemoryNode parent = find(root, getParentPath(path), expired);
+                String name = getName(path);
+                if (parent != null && parent.isDirectory() && name != null) {
+                    file = MemoryNode.createFile(name, new MemoryFileContent(
+                            this, owner));
+                    parent.addChild(file);
+                    parent.setLastModified(System.currentTimeMillis());
+                }
+            }
+        }
+        release(expired);
+        return file;
+    }
+
+    /**
+     * Delete a file or an empty directory.
+     * 
+     * @return true if deleted
+     */
+    boolean delete(final MemoryNode root, final String path) {
+        List<MemoryNode> expired = new ArrayList<>(0);
+        boolean deleted = false;
+        synchronized (lock) {
+            MemoryNode node = find(root, path, expired);
+            if (node != null && node != root && !node.hasChildren()) {
+                MemoryNode parent = node.getParent();
+                parent.removeChild(node);
+                parent.setLastModified(System.currentTimeMillis());
+                if (!node.isDirectory()) {
+                    expired.add(node);
+                }
+                deleted = true;
+            }
+        }
+        release(expired);
+        return deleted;
+    }
+
+    /**
+     * Move a file or directory, possibly to another tree.
+     * 
+     * @return true if moved, false if the source does not exist, the
+     *         destination exists, or a directory would be moved into itself
+     */
+    boolean move(final MemoryNode root, final String path,
+            final MemoryNode destRoot, final String destPath) {
+        List<MemoryNode> expired = new ArrayList<>(0);
+        boolean moved = false;
+        synchronized (lock) {
+            MemoryNode node = find(root, path, expired);
+            MemoryNode destParent = find(destRoot, getParentPath(destPath),
+                    expired);
+            String destName = getName(destPath);
+            if (node != null && node != root && destParent != null
+                    && destParent.isDirectory() && destName != null
+                    && find(destRoot, destPath, expired) == null
+                    && !destParent.isWithin(node)) {
+                long now = System.currentTimeMillis();
+                MemoryNode parent = node.getParent();
+                parent.removeChild(node);
+                parent.setLastModified(now);
+                node.rename(destName);
+                destParent.addChild(node);
+                destParent.setLastModified(now);
+                moved = true;
+            }
+        }
+        release(expired);
+        return moved;
+    }
+
+    /**
+     * Walk the path from the root, removing expired files on the way. Must
+     * be called with the lock held.
+     */
+    private MemoryNode find(final MemoryNode root, final String path,
+            final List<MemoryNode> expired) {
+        MemoryNode node = root;
+        StringTokenizer st = new StringTokenizer(path, "/");
+        while (node != null && st.hasMoreTokens()) {
+            MemoryNode child = node.getChild(st.nextToken());
+            if (child != null && isExpired(child, System.currentTimeMillis())) {
+                node.removeChild(child);
+                expired.add(child);
+                child = null;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private static String getParentPath(final String path) {
+        int slashIndex = path.lastIndexOf('/');
+        return slashIndex <= 0 ? "/" : path.substring(0, slashIndex);
+    }
+
+    private static String getName(final String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return name.length() == 0 ? null : name;
+    }
+}
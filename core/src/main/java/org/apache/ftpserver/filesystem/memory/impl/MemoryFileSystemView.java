@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.util.StringTokenizer;
+
+import org.apache.ftpserver.filesystem.memory.MemoryFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view of the in-memory file system. Here the root directory
+ * will be user virtual root (/).
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFileSystemView implements FileSystemView {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(MemoryFileSystemView.class);
+
+    private final MemoryFileStore store;
+
+    private final MemoryNode root;
+
+    // the first and the last character will always be '/'
+    // It is always with respect to the root directory.
+    private String currDir;
+
+    private final User user;
+
+    /**
+     * Constructor - internal do not use directly, use {@link MemoryFileSystemFactory} instead
+     */
+    public MemoryFileSystemView(User user, MemoryFileStore store)
+            throws FtpException {
+        if (user == null) {
+            throw new IllegalArgumentException("user can not be null");
+        }
+        if (user.getHomeDirectory() == null) {
+            throw new IllegalArgumentException(
+                    "User home directory can not be null");
+        }
+        if (store == null) {
+            throw new IllegalArgumentException("store can not be null");
+        }
+
+        this.user = user;
+        this.store = store;
+        this.root = store.getRoot(user.getHomeDirectory());
+
+        LOG.debug("In-memory filesystem view created for user \"{}\" with root \"{}\"", user.getName(), user.getHomeDirectory());
+
+        currDir = "/";
+    }
+
+    /**
+     * Get the user home directory. It would be the file system root for the
+     * user.
+     */
+    public FtpFile getHomeDirectory() {
+        return new MemoryFtpFile("/", store, root, user);
+    }
+
+    /**
+     * Get the current directory.
+     */
+    public FtpFile getWorkingDirectory() {
+        return new MemoryFtpFile(currDir, store, root, user);
+    }
+
+    /**
+     * Get file object.
+     */
+    public FtpFile getFile(String file) {
+        return new MemoryFtpFile(getVirtualName(currDir, file), store, root,
+                user);
+    }
+
+    /**
+     * Change directory.
+     */
+    public boolean changeWorkingDirectory(String dir) {
+        String virtualName = getVirtualName(currDir, dir);
+        MemoryNode node = store.lookup(root, virtualName);
+        if (node == null || !node.isDirectory()) {
+            return false;
+        }
+
+        // add last '/' if necessary
+        if (virtualName.charAt(virtualName.length() - 1) != '/') {
+            virtualName = virtualName + '/';
+        }
+
+        currDir = virtualName;
+        return true;
+    }
+
+    /**
+     * Is the file content random accessible?
+     */
+    public boolean isRandomAccessible() {
+        return true;
+    }
+
+    /**
+     * Dispose file system view - does nothing, the files outlive the view.
+     */
+    public void dispose() {
+    }
+
+    /**
+     * Get the virtual name of a file, resolving ., .. and ~ against the
+     * current directory. The result can never end up above the root
+     * directory.
+     * 
+     * @param currDir
+     *            The current directory. It will always be with respect to the
+     *            root directory.
+     * @param fileName
+     *            The input file name.
+     * @return The virtual name, always beginning with '/' and never ending
+     *         with '/' unless it is the root directory. It will never be null.
+     */
+    protected String getVirtualName(final String currDir,
+            final String fileName) {
+        String normalizedFileName = fileName == null ? "" : fileName.replace(
+                '\\', '/');
+
+        // if file name is relative, start from the current directory
+        // in this loop result will never end with '/'
+        StringBuilder result = new StringBuilder();
+        if (!normalizedFileName.startsWith("/") && currDir != null) {
+            result.append(currDir.replace('\\', '/'));
+            if (result.length() > 0 && result.charAt(0) != '/') {
+                result.insert(0, '/');
+            }
+            while (result.length() > 0
+                    && result.charAt(result.length() - 1) == '/') {
+                result.setLength(result.length() - 1);
+            }
+        }
+
+        StringTokenizer st = new StringTokenizer(normalizedFileName, "/");
+        while (st.hasMoreTokens()) {
+            String tok = st.nextToken();
+
+            if (tok.equals(".")) {
+                // . => current directory, ignore and move on
+            } else if (tok.equals("..")) {
+                // .. => parent directory (if not root)
+                int slashIndex = result.lastIndexOf("/");
+                if (slashIndex != -1) {
+                    result.setLength(slashIndex);
+                }
+            } else if (tok.equals("~")) {
+                // ~ => home directory (in this case the root directory)
+                result.setLength(0);
+            } else {
+                result.append('/').append(tok);
+            }
+        }
+
+        if (result.length() == 0) {
+            return "/";
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A file in the in-memory file system. The file is looked up by name each
+ * time it is used, so the object stays valid when the file is created,
+ * deleted or replaced.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MemoryFtpFile implements FtpFile {
+
+    private final Logger LOG = LoggerFactory.getLogger(MemoryFtpFile.class);
+
+    // the file name with respect to the user root.
+    // The path separator character will be '/' and
+    // it will always begin with '/'.
+    private final String fileName;
+
+    private final MemoryFileStore store;
+
+    private final MemoryNode root;
+
+    private final User user;
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    MemoryFtpFile(final String fileName, final MemoryFileStore store,
+            final MemoryNode root, final User user) {
+        if (fileName == null) {
+            throw new IllegalArgumentException("fileName can not be null");
+        }
+
+        if (fileName.length() == 0) {
+            throw new IllegalArgumentException("fileName can not be empty");
+        } else if (fileName.charAt(0) != '/') {
+            throw new IllegalArgumentException(
+                    "fileName must be an absolut path");
+        }
+
+        this.fileName = fileName;
+        this.store = store;
+        this.root = root;
+        this.user = user;
+    }
+
+    private MemoryNode node() {
+        return store.lookup(root, getAbsolutePath());
+    }
+
+    /**
+     * Get full name.
+     */
+    public String getAbsolutePath() {
+
+        // strip the last '/' if necessary
+        String fullName = fileName;
+        int filelen = fullName.length();
+        if ((filelen != 1) && (fullName.charAt(filelen - 1) == '/')) {
+            fullName = fullName.substring(0, filelen - 1);
+        }
+
+        return fullName;
+    }
+
+    /**
+     * Get short name.
+     */
+    public String getName() {
+
+        // root - the short name will be '/'
+        if (fileName.equals("/")) {
+            return "/";
+        }
+
+        // strip the last '/'
+        String shortName = fileName;
+        int filelen = fileName.length();
+        if (shortName.charAt(filelen - 1) == '/') {
+            shortName = shortName.substring(0, filelen - 1);
+        }
+
+        // return from the last '/'
+        int slashIndex = shortName.lastIndexOf('/');
+        if (slashIndex != -1) {
+            shortName = shortName.substring(slashIndex + 1);
+        }
+        return shortName;
+    }
+
+    /**
+     * Is a hidden file?
+     */
+    public boolean isHidden() {
+        return getName().startsWith(".");
+    }
+
+    /**
+     * Is it a directory?
+     */
+    public boolean isDirectory() {
+        MemoryNode node = node();
+        return node != null && node.isDirectory();
+    }
+
+    /**
+     * Is it a file?
+     */
+    public boolean isFile() {
+        MemoryNode node = node();
+        return node != null && !node.isDirectory();
+    }
+
+    /**
+     * Does this file exists?
+     */
+    public boolean doesExist() {
+        return node() != null;
+    }
+
+    /**
+     * Get file size.
+     */
+    public long getSize() {
+        MemoryNode node = node();
+        if (node == null || node.isDirectory()) {
+            return 0;
+        }
+        return node.getContent().size();
+    }
+
+    /**
+     * Get file owner.
+     */
+    public String getOwnerName() {
+        return "user";
+    }
+
+    /**
+     * Get group name
+     */
+    public String getGroupName() {
+        return "group";
+    }
+
+    /**
+     * Get link count
+     */
+    public int getLinkCount() {
+        return isDirectory() ? 3 : 1;
+    }
+
+    /**
+     * Get last modified time.
+     */
+    public long getLastModified() {
+        MemoryNode node = node();
+        return node == null ? 0 : node.getLastModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean setLastModified(long time) {
+        MemoryNode node = node();
+        if (node == null) {
+            return false;
+        }
+        node.setLastModified(time);
+        return true;
+    }
+
+    /**
+     * Check read permission.
+     */
+    public boolean isReadable() {
+        return doesExist();
+    }
+
+    /**
+     * Check file write permission.
+     */
+    public boolean isWritable() {
+        LOG.debug("Checking authorization for " + getAbsolutePath());
+        if (user.authorize(new WriteRequest(getAbsolutePath())) == null) {
+            LOG.debug("Not authorized");
+            return false;
+        }
+
+        LOG.debug("Authorized");
+        return true;
+    }
+
+    /**
+     * Has delete permission.
+     */
+    public boolean isRemovable() {
+
+        // root cannot be deleted
+        if ("/".equals(fileName)) {
+            return false;
+        }
+
+        String fullName = getAbsolutePath();
+
+        // we check FTPServer's write permission for this file.
+        if (user.authorize(new WriteRequest(fullName)) == null) {
+            return false;
+        }
+
+        int indexOfSlash = fullName.lastIndexOf('/');
+        String parentFullName;
+        if (indexOfSlash == 0) {
+            parentFullName = "/";
+        } else {
+            parentFullName = fullName.substring(0, indexOfSlash);
+        }
+
+        // we check if the parent directory is writable.
+        return new MemoryFtpFile(parentFullName, store, root, user)
+                .isWritable();
+    }
+
+    /**
+     * Delete file.
+     */
+    public boolean delete() {
+        return isRemovable() && store.delete(root, getAbsolutePath());
+    }
+
+    /**
+     * Move file object.
+     */
+    public boolean move(final FtpFile dest) {
+        if (dest.isWritable() && isReadable()) {
+            MemoryFtpFile destFile = (MemoryFtpFile) dest;
+            return store.move(root, getAbsolutePath(), destFile.root, destFile
+                    .getAbsolutePath());
+        }
+        return false;
+    }
+
+    /**
+     * Create directory.
+     */
+    public boolean mkdir() {
+        return isWritable() && store.mkdir(root, getAbsolutePath());
+    }
+
+    /**
+     * Get the node holding the file.
+     * 
+     * @return The node, or null if the file does not exist
+     */
+    public Object getPhysicalFile() {
+        return node();
+    }
+
+    /**
+     * List files. If not a directory or does not exist, null will be returned.
+     */
+    public List<FtpFile> listFiles() {
+        List<MemoryNode> children = store.list(root, getAbsolutePath());
+        if (children == null) {
+            return null;
+        }
+
+        // get the virtual name of the base directory
+        String virtualFileStr = getAbsolutePath();
+        if (virtualFileStr.charAt(virtualFileStr.length() - 1) != '/') {
+            virtualFileStr += '/';
+        }
+
+        // the children are already in name order
+        List<FtpFile> virtualFiles = new ArrayList<>(children.size());
+        for (MemoryNode child : children) {
+            virtualFiles.add(new MemoryFtpFile(virtualFileStr
+                    + child.getName(), store, root, user));
+        }
+        return Collections.unmodifiableList(virtualFiles);
+    }
+
+    /**
+     * Create output stream for writing.
+     */
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isWritable()) {
+            throw new IOException("No write permission : " + getName());
+        }
+
+        final MemoryNode node = store.createFile(root, getAbsolutePath(),
+                user.getName());
+        if (node == null) {
+            throw new IOException("Not a file or no parent directory : "
+                    + getName());
+        }
+
+        final MemoryFileContent content = node.getContent();
+        content.openWriter();
+        try {
+            content.truncate(offset);
+        } catch (IOException e) {
+            content.closeWriter();
+            throw e;
+        }
+        node.setLastModified(System.currentTimeMillis());
+
+        return new OutputStream() {
+            private long position = offset;
+
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                content.write(position, b, off, len);
+                position += len;
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    node.setLastModified(System.currentTimeMillis());
+                    content.closeWriter();
+                }
+            }
+        };
+    }
+
+    /**
+     * Create input stream for reading.
+     */
+    public InputStream createInputStream(final long offset) throws IOException {
+
+        // permission check
+        MemoryNode node = node();
+        if (node == null) {
+            throw new IOException("No read permission : " + getName());
+        }
+        if (node.isDirectory()) {
+            throw new IOException("Not a file : " + getName());
+        }
+
+        final MemoryFileContent content = node.getContent();
+        return new InputStream() {
+            private long position = offset;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int count = content.read(position, b, off, len);
+                if (count > 0) {
+                    position += count;
+                }
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                long skipped = Math.max(0, Math.min(n, content.size()
+                        - position));
+                position += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.max(0, Math.min(Integer.MAX_VALUE, content
+                        .size()
+                        - position));
+            }
+        };
+    }
+
+    /**
+     * Implements equals by comparing the tree and the full name. Ignores the
+     * User field
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof MemoryFtpFile) {
+            MemoryFtpFile other = (MemoryFtpFile) obj;
+            return root == other.root
+                    && getAbsolutePath().equals(other.getAbsolutePath());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return getAbsolutePath().hashCode();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A file or directory in the in-memory file system. The tree structure is
+ * guarded by the lock of the owning {@link MemoryFileStore}, the file
+ * content by its own lock.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+final class MemoryNode {
+
+    private String name;
+
+    private MemoryNode parent;
+
+    // null for files, sorted by name for listings
+    private final TreeMap<String, MemoryNode> children;
+
+    // null for directories
+    private final MemoryFileContent content;
+
+    private volatile long lastModified;
+
+    private MemoryNode(final String name,
+            final MemoryFileContent content) {
+        this.name = name;
+        this.content = content;
+        this.children = content == null ? new TreeMap<String, MemoryNode>()
+                : null;
+        this.lastModified = System.currentTimeMillis();
+    }
+
+    static MemoryNode createDirectory(final String name) {
+        return new MemoryNode(name, null);
+    }
+
+    static MemoryNode createFile(final String name,
+            final MemoryFileContent content) {
+        return new MemoryNode(name, content);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    MemoryNode getParent() {
+        return parent;
+    }
+
+    boolean isDirectory() {
+        return children != null;
+    }
+
+    MemoryFileContent getContent() {
+        return content;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    void setLastModified(final long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    MemoryNode getChild(final String childName) {
+        return children == null ? null : children.get(childName);
+    }
+
+    List<MemoryNode> getChildren() {
+        return new ArrayList<>(children.values());
+    }
+
+    boolean hasChildren() {
+        return children != null && !children.isEmpty();
+    }
+
+    void addChild(final MemoryNode child) {
+        child.parent = this;
+        children.put(child.name, child);
+    }
+
+    void removeChild(final MemoryNode child) {
+        if (children.remove(child.name) == child) {
+            child.parent = null;
+        }
+    }
+
+    void rename(final String newName) {
+        this.name = newName;
+    }
+
+    /**
+     * Is this node, or any of its ancestors, the given node?
+     */
+    boolean isWithin(final MemoryNode ancestor) {
+        for (MemoryNode node = this; node != null; node = node.parent) {
+            if (node == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.ftpserver.filesystem.nativefs;
 
 import java.io.File;
 
+import org.apache.ftpserver.filesystem.nativefs.impl.CaseFoldingIndex;
 import org.apache.ftpserver.filesystem.nativefs.impl.NativeFileSystemView;
 import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.apache.ftpserver.ftplet.FileSystemView;
@@ -43,6 +44,8 @@ public class NativeFileSystemFactory implements FileSystemFactory {
 
     private boolean caseInsensitive;
 
+    private CaseFoldingIndex caseIndex;
+
     /**
      * Should the home directories be created automatically
      * @return true if the file system will create the home directory if not available
@@ -78,6 +81,17 @@ public class NativeFileSystemFactory implements FileSystemFactory {
         this.caseInsensitive = caseInsensitive;
     }
 
+    /**
+     * The index shared by all views for case insensitive lookups, so that a
+     * directory is only listed again when it has changed.
+     */
+    private synchronized CaseFoldingIndex getCaseIndex() {
+        if (caseInsensitive && caseIndex == null) {
+            caseIndex = new CaseFoldingIndex();
+        }
+        return caseIndex;
+    }
+
     /**
      * Create the appropriate user file system view.
      */
@@ -99,7 +113,7 @@ public class NativeFileSystemFactory implements FileSystemFactory {
             }
 
             FileSystemView fsView = new NativeFileSystemView(user,
-                    caseInsensitive);
+                    caseInsensitive, getCaseIndex());
             return fsView;
         }
     }
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Bounded cache of per directory indexes from case folded file names to the
+ * actual file names, used for case insensitive path resolution. An index is
+ * rebuilt when the last modified time of its directory changes and is
+ * dropped when a file in the directory is created, removed or renamed
+ * through the server.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class CaseFoldingIndex {
+
+    /**
+     * Default maximum number of directories to keep indexes for
+     */
+    public static final int DEFAULT_MAX_DIRECTORIES = 1000;
+
+    private static final class DirectoryIndex {
+
+        final long lastModified;
+
+        // folded name to the actual name, or to an array of actual names if
+        // several names fold to the same value
+        final Map<String, Object> names;
+
+        DirectoryIndex(long lastModified, Map<String, Object> names) {
+            this.lastModified = lastModified;
+            this.names = names;
+        }
+    }
+
+    private final int maxDirectories;
+
+    // guarded by itself
+    private final Map<String, DirectoryIndex> indexes;
+
+    public CaseFoldingIndex() {
+        this(DEFAULT_MAX_DIRECTORIES);
+    }
+
+    /**
+     * @param maxDirectories
+     *            The maximum number of directories to keep indexes for
+     */
+    public CaseFoldingIndex(final int maxDirectories) {
+        if (maxDirectories <= 0) {
+            throw new IllegalArgumentException(
+                    "maxDirectories must be positive");
+        }
+        this.maxDirectories = maxDirectories;
+        this.indexes = new LinkedHashMap<String, DirectoryIndex>(16, 0.75f,
+                true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, DirectoryIndex> eldest) {
+                return size() > CaseFoldingIndex.this.maxDirectories;
+            }
+        };
+    }
+
+    /**
+     * Find the actual name of a file in a directory, ignoring case. If the
+     * name exists with the exact casing, it is preferred over other matches.
+     * 
+     * @param dir
+     *            The physical path of the directory
+     * @param name
+     *            The name to look up
+     * @return The actual name, or null if no file matches
+     */
+    public String find(final String dir, final String name) {
+        DirectoryIndex index = getIndex(dir);
+        if (index == null) {
+            return null;
+        }
+
+        Object match = index.names.get(fold(name));
+        if (match == null || match instanceof String) {
+            return (String) match;
+        }
+
+        String[] matches = (String[]) match;
+        for (String candidate : matches) {
+            if (candidate.equals(name)) {
+                return candidate;
+            }
+        }
+        return matches[0];
+    }
+
+    /**
+     * Drop the index of a directory, to be called whenever a file is
+     * created, removed or renamed in it.
+     * 
+     * @param dir
+     *            The physical path of the directory
+     */
+    public void invalidate(final String dir) {
+        synchronized (indexes) {
+            indexes.remove(normalize(dir));
+        }
+    }
+
+    /**
+     * Drop all indexes.
+     */
+    public void clear() {
+        synchronized (indexes) {
+            indexes.clear();
+        }
+    }
+
+    /**
+     * @return The number of directories currently indexed
+     */
+    public int size() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    private DirectoryIndex getIndex(final String dir) {
+        String key = normalize(dir);
+        File dirFile = new File(key);
+        long lastModified = dirFile.lastModified();
+
+        DirectoryIndex index;
+        synchronized (indexes) {
+            index = indexes.get(key);
+        }
+        if (index != null && index.lastModified == lastModified) {
+            return index;
+        }
+
+        String[] names = dirFile.list();
+        if (names == null) {
+            invalidate(key);
+            return null;
+        }
+
+        Map<String, Object> folded = new HashMap<>(names.length * 4 / 3 + 1);
+        for (String name : names) {
+            String foldedName = fold(name);
+            Object existing = folded.putIfAbsent(foldedName, name);
+            if (existing instanceof String) {
+                folded.put(foldedName, new String[] { (String) existing, name });
+            } else if (existing != null) {
+                String[] existingNames = (String[]) existing;
+                String[] all = new String[existingNames.length + 1];
+                System.arraycopy(existingNames, 0, all, 0, existingNames.length);
+                all[existingNames.length] = name;
+                folded.put(foldedName, all);
+            }
+        }
+
+        index = new DirectoryIndex(lastModified, folded);
+        synchronized (indexes) {
+            indexes.put(key, index);
+        }
+        return index;
+    }
+
+    private static String normalize(final String dir) {
+        if (dir.length() > 1 && dir.charAt(dir.length() - 1) == '/') {
+            return dir.substring(0, dir.length() - 1);
+        }
+        return dir;
+    }
+
+    /**
+     * Fold a name so that two names are equal when folded if and only if
+     * they are equal according to {@link String#equalsIgnoreCase(String)}.
+     */
+    static String fold(final String name) {
+        char[] chars = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            char f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c) {
+                if (chars == null) {
+                    chars = name.toCharArray();
+                }
+                chars[i] = f;
+            }
+        }
+        return chars == null ? name : new String(chars);
+    }
+}
@@ -20,7 +20,6 @@
 package org.apache.ftpserver.filesystem.nativefs.impl;
 
 import java.io.File;
-import java.util.StringTokenizer;
 
 import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
 import org.apache.ftpserver.ftplet.FileSystemView;
@@ -57,6 +56,9 @@ public class NativeFileSystemView implements FileSystemView {
 
     private final boolean caseInsensitive;
 
+    // only used when case insensitive
+    private final CaseFoldingIndex caseIndex;
+
     /**
      * Constructor - internal do not use directly, use {@link NativeFileSystemFactory} instead
      */
@@ -69,6 +71,19 @@ public class NativeFileSystemView implements FileSystemView {
      */
     public NativeFileSystemView(User user, boolean caseInsensitive)
             throws FtpException {
+        this(user, caseInsensitive, caseInsensitive ? new CaseFoldingIndex()
+                : null);
+    }
+
+    /**
+     * Constructor - internal do not use directly, use {@link NativeFileSystemFactory} instead
+     * 
+     * @param caseIndex
+     *            The index used for case insensitive lookups, can be shared
+     *            between views
+     */
+    public NativeFileSystemView(User user, boolean caseInsensitive,
+            CaseFoldingIndex caseIndex) throws FtpException {
         if (user == null) {
             throw new IllegalArgumentException("user can not be null");
         }
@@ -78,6 +93,10 @@ public class NativeFileSystemView implements FileSystemView {
         }
 
         this.caseInsensitive = caseInsensitive;
+        if (caseInsensitive && caseIndex == null) {
+            caseIndex = new CaseFoldingIndex();
+        }
+        this.caseIndex = caseIndex;
 
         // add last '/' if necessary
         String rootDir = user.getHomeDirectory();
@@ -98,7 +117,7 @@ public class NativeFileSystemView implements FileSystemView {
      * user.
      */
     public FtpFile getHomeDirectory() {
-        return new NativeFtpFile("/", new File(rootDir), user);
+        return new NativeFtpFile("/", new File(rootDir), user, caseIndex);
     }
 
     /**
@@ -107,10 +126,10 @@ public class NativeFileSystemView implements FileSystemView {
     public FtpFile getWorkingDirectory() {
         FtpFile fileObj = null;
         if (currDir.equals("/")) {
-            fileObj = new NativeFtpFile("/", new File(rootDir), user);
+            fileObj = new NativeFtpFile("/", new File(rootDir), user, caseIndex);
         } else {
             File file = new File(rootDir, currDir.substring(1));
-            fileObj = new NativeFtpFile(currDir, file, user);
+            fileObj = new NativeFtpFile(currDir, file, user, caseIndex);
 
         }
         return fileObj;
@@ -128,7 +147,7 @@ public class NativeFileSystemView implements FileSystemView {
 
         // strip the root directory and return
         String userFileName = physicalName.substring(rootDir.length() - 1);
-        return new NativeFtpFile(userFileName, fileObj, user);
+        return new NativeFtpFile(userFileName, fileObj, user, caseIndex);
     }
 
     /**
@@ -184,80 +203,11 @@ public class NativeFileSystemView implements FileSystemView {
     protected String getPhysicalName(final String rootDir,
             final String currDir, final String fileName,
             final boolean caseInsensitive) {
-
-        // normalize root dir
-        String normalizedRootDir = normalizeSeparateChar(rootDir);
-        normalizedRootDir = appendSlash(normalizedRootDir);
-
-        // normalize file name
-        String normalizedFileName = normalizeSeparateChar(fileName);
-        String result;
-        
-        // if file name is relative, set resArg to root dir + curr dir
-        // if file name is absolute, set resArg to root dir
-        if (normalizedFileName.charAt(0) != '/') {
-            // file name is relative
-            String normalizedCurrDir = normalize(currDir, "/");
-
-            result = normalizedRootDir + normalizedCurrDir.substring(1);
-        } else {
-            result = normalizedRootDir;
-        }
-
-        // strip last '/'
-        result = trimTrailingSlash(result);
-
-        // replace ., ~ and ..
-        // in this loop resArg will never end with '/'
-        StringTokenizer st = new StringTokenizer(normalizedFileName, "/");
-        while (st.hasMoreTokens()) {
-            String tok = st.nextToken();
-
-            // . => current directory
-            if (tok.equals(".")) {
-                // ignore and move on
-            } else if (tok.equals("..")) {
-                // .. => parent directory (if not root)
-                if (result.startsWith(normalizedRootDir)) {
-                    int slashIndex = result.lastIndexOf('/');
-                    if (slashIndex != -1) {
-                        result = result.substring(0, slashIndex);
-                    }
-                }
-            } else if (tok.equals("~")) {
-                // ~ => home directory (in this case the root directory)
-                result = trimTrailingSlash(normalizedRootDir);
-                continue;
-            } else {
-                // token is normal directory name
-                
-                if(caseInsensitive) {
-                    // we're case insensitive, find a directory with the name, ignoring casing
-                    File[] matches = new File(result)
-                            .listFiles(new NameEqualsFileFilter(tok, true));
-    
-                    if (matches != null && matches.length > 0) {
-                        // found a file matching tok, replace tok for get the right casing
-                        tok = matches[0].getName();
-                    }
-                }
-
-                result = result + '/' + tok;
-    
-            }
-        }
-
-        // add last slash if necessary
-        if ((result.length()) + 1 == normalizedRootDir.length()) {
-            result += '/';
-        }
-
-        // make sure we did not end up above root dir
-        if (!result.startsWith(normalizedRootDir)) {
-            result = normalizedRootDir;
+        CaseFoldingIndex index = null;
+        if (caseInsensitive) {
+            index = caseIndex != null ? caseIndex : new CaseFoldingIndex(1);
         }
-
-        return result;
+        return PhysicalPathResolver.resolve(rootDir, currDir, fileName, index);
     }
 
     /**
@@ -271,28 +221,6 @@ public class NativeFileSystemView implements FileSystemView {
         }
     }
     
-    /**
-     * Prepend leading slash ('/') if missing
-     */
-    private String prependSlash(String path) {
-        if (path.charAt(0) != '/') {
-            return '/' + path;
-        } else {
-            return path;
-        }
-    }
-    
-    /**
-     * Trim trailing slash ('/') if existing
-     */
-    private String trimTrailingSlash(String path) {
-        if (path.charAt(path.length() - 1) == '/') {
-            return path.substring(0, path.length() - 1);
-        } else {
-            return path;
-        }
-    }
-    
     /**
      * Normalize separate character. Separate character should be '/' always.
      */
@@ -301,18 +229,4 @@ public class NativeFileSystemView implements FileSystemView {
         normalizedPathName = normalizedPathName.replace('\\', '/');
         return normalizedPathName;
     }
-    
-    /**
-     * Normalize separator char, append and prepend slashes. Default to 
-     * defaultPath if null or empty
-     */
-    private String normalize(String path, String defaultPath) {
-        if(path == null || path.trim().length() == 0) {
-            path = defaultPath;
-        }
-        
-        path = normalizeSeparateChar(path);
-        path = prependSlash(appendSlash(path));
-        return path;
-    }
 }
@@ -26,11 +26,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.User;
@@ -58,11 +59,26 @@ public class NativeFtpFile implements FtpFile {
 
     private final User user;
 
+    // null unless the file system is case insensitive
+    private final CaseFoldingIndex caseIndex;
+
+    // the canonical path of the file, resolved on first use by equals() or
+    // hashCode()
+    private volatile String canonicalPath;
+
     /**
      * Constructor, internal do not use directly.
      */
     protected NativeFtpFile(final String fileName, final File file,
             final User user) {
+        this(fileName, file, user, null);
+    }
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    NativeFtpFile(final String fileName, final File file, final User user,
+            final CaseFoldingIndex caseIndex) {
         if (fileName == null) {
             throw new IllegalArgumentException("fileName can not be null");
         }
@@ -80,6 +96,7 @@ public class NativeFtpFile implements FtpFile {
         this.fileName = fileName;
         this.file = file;
         this.user = user;
+        this.caseIndex = caseIndex;
     }
 
     /**
@@ -250,7 +267,7 @@ public class NativeFtpFile implements FtpFile {
 
         // we check if the parent FileObject is writable.
         NativeFtpFile parentObject = new NativeFtpFile(parentFullName, file
-                .getAbsoluteFile().getParentFile(), user);
+                .getAbsoluteFile().getParentFile(), user, caseIndex);
         return parentObject.isWritable();
     }
 
@@ -261,6 +278,9 @@ public class NativeFtpFile implements FtpFile {
         boolean retVal = false;
         if (isRemovable()) {
             retVal = file.delete();
+            if (retVal) {
+                directoryChanged(file);
+            }
         }
         return retVal;
     }
@@ -280,6 +300,10 @@ public class NativeFtpFile implements FtpFile {
                 retVal = false;
             } else {
                 retVal = file.renameTo(destFile);
+                if (retVal) {
+                    directoryChanged(file);
+                    directoryChanged(destFile);
+                }
             }
         }
         return retVal;
@@ -292,6 +316,9 @@ public class NativeFtpFile implements FtpFile {
         boolean retVal = false;
         if (isWritable()) {
             retVal = file.mkdir();
+            if (retVal) {
+                directoryChanged(file);
+            }
         }
         return retVal;
     }
@@ -337,12 +364,39 @@ public class NativeFtpFile implements FtpFile {
         for (int i = 0; i < files.length; ++i) {
             File fileObj = files[i];
             String fileName = virtualFileStr + fileObj.getName();
-            virtualFiles[i] = new NativeFtpFile(fileName, fileObj, user);
+            virtualFiles[i] = new NativeFtpFile(fileName, fileObj, user,
+                    caseIndex);
         }
 
         return Collections.unmodifiableList(Arrays.asList(virtualFiles));
     }
 
+    /**
+     * Stream the files in directory order without reading the whole
+     * directory up front.
+     */
+    public Stream<FtpFile> streamFiles() {
+        if (!file.isDirectory()) {
+            return null;
+        }
+
+        String virtualFileStr = getAbsolutePath();
+        if (virtualFileStr.charAt(virtualFileStr.length() - 1) != '/') {
+            virtualFileStr += '/';
+        }
+        final String parentName = virtualFileStr;
+
+        try {
+            return Files.list(file.toPath()).map(
+                    entry -> new NativeFtpFile(parentName
+                            + entry.getFileName(), entry.toFile(), user,
+                            caseIndex));
+        } catch (IOException e) {
+            LOG.debug("Failed to list directory " + file, e);
+            return null;
+        }
+    }
+
     /**
      * Create output stream for writing.
      */
@@ -355,7 +409,11 @@ public class NativeFtpFile implements FtpFile {
         }
 
         // create output stream
+        boolean created = caseIndex != null && !file.exists();
         final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        if (created) {
+            directoryChanged(file);
+        }
         raf.setLength(offset);
         raf.seek(offset);
 
@@ -370,6 +428,21 @@ public class NativeFtpFile implements FtpFile {
         };
     }
 
+    /**
+     * Tell the case insensitive index that a file has been created, removed
+     * or renamed. The last modified time of the directory is not enough as
+     * it may have too coarse a granularity.
+     */
+    private void directoryChanged(final File changed) {
+        if (caseIndex != null) {
+            File parent = changed.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                caseIndex.invalidate(parent.getPath().replace(
+                        File.separatorChar, '/'));
+            }
+        }
+    }
+
     /**
      * Create input stream for reading.
      */
@@ -396,34 +469,52 @@ public class NativeFtpFile implements FtpFile {
     }
 
     /**
-     * Implements equals by comparing getCanonicalPath() for the underlying file instabnce.
-     * Ignores the fileName and User fields
+     * Implements equals by comparing the canonical path of the underlying file
+     * instance. Ignores the fileName and User fields.
+     * 
+     * @see #getCanonicalPath()
      */
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof NativeFtpFile) {
-            String thisCanonicalPath;
-            String otherCanonicalPath;
-            try {
-                thisCanonicalPath = this.file.getCanonicalPath();
-                otherCanonicalPath = ((NativeFtpFile) obj).file
-                        .getCanonicalPath();
-            } catch (IOException e) {
-                throw new UncheckedIOException("Failed to get the canonical path",
-                        e);
-            }
-
-            return thisCanonicalPath.equals(otherCanonicalPath);
+            return getCanonicalPath().equals(
+                    ((NativeFtpFile) obj).getCanonicalPath());
         }
         return false;
     }
-    
+
     @Override
     public int hashCode() {
-        try {
-            return file.getCanonicalPath().hashCode();
-        } catch (IOException e) {
-            return 0;
+        return getCanonicalPath().hashCode();
+    }
+
+    /**
+     * Get the canonical path used as the identity of this file. It is
+     * resolved the first time it is needed and then kept for the lifetime of
+     * this instance, so the hash code stays stable while the file is held in
+     * a hash based collection. Changes made afterwards to symbolic links on
+     * the path are therefore not reflected; create a new instance, for
+     * example through the file system view, to pick them up. Renaming or
+     * deleting the file does not affect the identity, since it is derived
+     * from the path and not from the file contents.
+     * 
+     * If the canonical path can not be resolved, the absolute path is used
+     * instead.
+     */
+    String getCanonicalPath() {
+        String path = canonicalPath;
+        if (path == null) {
+            try {
+                path = file.getCanonicalPath();
+            } catch (IOException e) {
+                LOG.debug("Failed to get the canonical path of {}", file, e);
+                path = file.getAbsolutePath();
+            }
+            canonicalPath = path;
         }
+        return path;
     }
 }
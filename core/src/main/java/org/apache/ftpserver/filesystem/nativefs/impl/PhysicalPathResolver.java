@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Resolves a file name against a root and a current directory into a
+ * physical path, in a single pass over a reused character buffer. Apart
+ * from the returned string, nothing is allocated unless the root directory
+ * needs normalizing or names are looked up case insensitively.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public final class PhysicalPathResolver {
+
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[256];
+        }
+    };
+
+    private PhysicalPathResolver() {
+        // static methods only
+    }
+
+    /**
+     * Get the physical canonical file name. It works like
+     * File.getCanonicalPath().
+     * 
+     * @param rootDir
+     *            The root directory.
+     * @param currDir
+     *            The current directory. It will always be with respect to the
+     *            root directory.
+     * @param fileName
+     *            The input file name.
+     * @param caseIndex
+     *            Used to find the actual casing of each name, or null if case
+     *            sensitive
+     * @return The return string will always begin with the root directory. It
+     *         will never be null.
+     */
+    public static String resolve(final String rootDir, final String currDir,
+            final String fileName, final CaseFoldingIndex caseIndex) {
+        String root = normalizeRoot(rootDir);
+        int rootLen = root.length();
+
+        int currLen = currDir == null ? 0 : currDir.length();
+        char[] buf = buffer(rootLen + currLen + fileName.length() + 2);
+        root.getChars(0, rootLen, buf, 0);
+        int len = rootLen;
+
+        // if file name is relative, start from root dir + curr dir
+        // if file name is absolute, start from root dir
+        boolean relative = fileName.length() == 0
+                || !isSeparator(fileName.charAt(0));
+        if (relative && !isBlank(currDir)) {
+            int start = isSeparator(currDir.charAt(0)) ? 1 : 0;
+            for (int i = start; i < currLen; i++) {
+                buf[len++] = toSlash(currDir.charAt(i));
+            }
+            if (!isSeparator(currDir.charAt(currLen - 1))) {
+                buf[len++] = '/';
+            }
+        }
+
+        // strip last '/'
+        // in this loop the buffer will never end with '/'
+        len--;
+
+        int fileLen = fileName.length();
+        int pos = 0;
+        while (pos < fileLen) {
+            // skip separators
+            if (isSeparator(fileName.charAt(pos))) {
+                pos++;
+                continue;
+            }
+            int tokStart = pos;
+            while (pos < fileLen && !isSeparator(fileName.charAt(pos))) {
+                pos++;
+            }
+            int tokLen = pos - tokStart;
+
+            if (tokLen == 1 && fileName.charAt(tokStart) == '.') {
+                // . => current directory, ignore and move on
+            } else if (tokLen == 2 && fileName.charAt(tokStart) == '.'
+                    && fileName.charAt(tokStart + 1) == '.') {
+                // .. => parent directory (if not root)
+                if (startsWith(buf, len, root)) {
+                    int slashIndex = lastSlash(buf, len);
+                    if (slashIndex != -1) {
+                        len = slashIndex;
+                    }
+                }
+            } else if (tokLen == 1 && fileName.charAt(tokStart) == '~') {
+                // ~ => home directory (in this case the root directory)
+                len = rootLen - 1;
+            } else {
+                buf[len++] = '/';
+                String match = null;
+                if (caseIndex != null) {
+                    match = caseIndex.find(new String(buf, 0, len - 1),
+                            fileName.substring(tokStart, pos));
+                }
+                if (match != null && match.length() == tokLen) {
+                    // found a file matching the name, use the right casing
+                    match.getChars(0, tokLen, buf, len);
+                } else {
+                    fileName.getChars(tokStart, pos, buf, len);
+                }
+                len += tokLen;
+            }
+        }
+
+        // add last slash if necessary
+        if (len + 1 == rootLen) {
+            buf[len++] = '/';
+        }
+
+        // make sure we did not end up above root dir
+        if (!startsWith(buf, len, root)) {
+            return root;
+        }
+
+        return new String(buf, 0, len);
+    }
+
+    /**
+     * Normalize separator characters to '/' and append a trailing '/' if
+     * missing. Returns the same instance if already normalized.
+     */
+    static String normalizeRoot(final String rootDir) {
+        int len = rootDir.length();
+        boolean normalized = len > 0 && rootDir.charAt(len - 1) == '/';
+        for (int i = 0; normalized && i < len; i++) {
+            normalized = !isSeparator(rootDir.charAt(i))
+                    || rootDir.charAt(i) == '/';
+        }
+        if (normalized) {
+            return rootDir;
+        }
+
+        StringBuilder sb = new StringBuilder(len + 1);
+        for (int i = 0; i < len; i++) {
+            sb.append(toSlash(rootDir.charAt(i)));
+        }
+        if (len == 0 || sb.charAt(len - 1) != '/') {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    private static char[] buffer(final int capacity) {
+        char[] buf = BUFFER.get();
+        if (buf.length < capacity) {
+            buf = new char[Math.max(capacity, buf.length * 2)];
+            BUFFER.set(buf);
+        }
+        return buf;
+    }
+
+    private static boolean isSeparator(final char c) {
+        return c == '/' || c == '\\' || c == File.separatorChar;
+    }
+
+    private static char toSlash(final char c) {
+        return isSeparator(c) ? '/' : c;
+    }
+
+    private static boolean isBlank(final String str) {
+        if (str == null) {
+            return true;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(final char[] buf, final int len,
+            final String prefix) {
+        int prefixLen = prefix.length();
+        if (len < prefixLen) {
+            return false;
+        }
+        for (int i = prefixLen - 1; i >= 0; i--) {
+            if (buf[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lastSlash(final char[] buf, final int len) {
+        for (int i = len - 1; i >= 0; i--) {
+            if (buf[i] == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.ftpserver.filesystem.nio.impl.NioAttributeCache;
+import org.apache.ftpserver.filesystem.nio.impl.NioBlobStore;
+import org.apache.ftpserver.filesystem.nio.impl.NioFileSystemView;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File system factory based on <code>java.nio.file</code>. Unlike
+ * {@link org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory},
+ * file attributes are read in a single call per file and the real owner,
+ * group, permissions and link count are exposed where the underlying file
+ * system supports them.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFileSystemFactory implements FileSystemFactory {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(NioFileSystemFactory.class);
+
+    private FileSystem fileSystem = FileSystems.getDefault();
+
+    private boolean createHome;
+
+    private boolean caseInsensitive;
+
+    private int cacheSize;
+
+    private long cacheTimeToLive = 5000;
+
+    private NioAttributeCache cache;
+
+    private String deduplicationDirectory;
+
+    private String deduplicationAlgorithm = "SHA-256";
+
+    private NioBlobStore blobStore;
+
+    /**
+     * The file system in which user home directories are resolved
+     * @return The file system, the default file system unless configured
+     */
+    public FileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Set the file system in which user home directories are resolved
+     * @param fileSystem The file system
+     */
+    public void setFileSystem(FileSystem fileSystem) {
+        if (fileSystem == null) {
+            throw new IllegalArgumentException("fileSystem can not be null");
+        }
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Should the home directories be created automatically
+     * @return true if the file system will create the home directory if not available
+     */
+    public boolean isCreateHome() {
+        return createHome;
+    }
+
+    /**
+     * Set if the home directories be created automatically
+     * @param createHome true if the file system will create the home directory if not available
+     */
+    public void setCreateHome(boolean createHome) {
+        this.createHome = createHome;
+    }
+
+    /**
+     * Is this file system case insensitive.
+     * @return true if this file system is case insensitive
+     */
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    /**
+     * Should this file system be case insensitive.
+     * @param caseInsensitive true if this file system should be case insensitive
+     */
+    public void setCaseInsensitive(boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    /**
+     * The maximum number of files, and separately of directory listings,
+     * whose attributes are cached
+     * @return The cache size, 0 if caching is disabled
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Set the maximum number of files, and separately of directory
+     * listings, whose attributes are cached. Files and directories modified
+     * through the server are dropped from the cache immediately.
+     * @param cacheSize The cache size, 0 to disable caching which is the default
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize can not be negative");
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * The time after which cached attributes are read again
+     * @return The time to live in milliseconds
+     */
+    public long getCacheTimeToLive() {
+        return cacheTimeToLive;
+    }
+
+    /**
+     * Set the time after which cached attributes are read again. This bounds
+     * how long changes made outside of the server can go unnoticed.
+     * @param cacheTimeToLive The time to live in milliseconds, 5 seconds by default
+     */
+    public void setCacheTimeToLive(long cacheTimeToLive) {
+        if (cacheTimeToLive <= 0) {
+            throw new IllegalArgumentException(
+                    "cacheTimeToLive must be positive");
+        }
+        this.cacheTimeToLive = cacheTimeToLive;
+    }
+
+    /**
+     * Get the attribute cache shared by all views created by this factory.
+     * The cache is created on first use with the configured size and time to
+     * live.
+     * @return The cache, or null if caching is disabled
+     */
+    public synchronized NioAttributeCache getCache() {
+        if (cache == null && cacheSize > 0) {
+            cache = new NioAttributeCache(cacheSize, cacheTimeToLive);
+        }
+        return cache;
+    }
+
+    /**
+     * The directory in which file content is stored for deduplication
+     * @return The directory, null if deduplication is disabled
+     */
+    public String getDeduplicationDirectory() {
+        return deduplicationDirectory;
+    }
+
+    /**
+     * Set the directory in which file content is stored for deduplication.
+     * Uploaded content is stored there once under its hash, and files in the
+     * home directories become hard links to it, so that identical files are
+     * only stored once. The directory must be on the same file system as the
+     * home directories.
+     * @param deduplicationDirectory The directory, null to disable deduplication which is the default
+     */
+    public void setDeduplicationDirectory(String deduplicationDirectory) {
+        this.deduplicationDirectory = deduplicationDirectory;
+    }
+
+    /**
+     * The hash algorithm deduplicated content is addressed by
+     * @return The {@link java.security.MessageDigest} algorithm name
+     */
+    public String getDeduplicationAlgorithm() {
+        return deduplicationAlgorithm;
+    }
+
+    /**
+     * Set the hash algorithm deduplicated content is addressed by
+     * @param deduplicationAlgorithm The {@link java.security.MessageDigest} algorithm name, SHA-256 by default
+     */
+    public void setDeduplicationAlgorithm(String deduplicationAlgorithm) {
+        if (deduplicationAlgorithm == null) {
+            throw new IllegalArgumentException(
+                    "deduplicationAlgorithm can not be null");
+        }
+        this.deduplicationAlgorithm = deduplicationAlgorithm;
+    }
+
+    /**
+     * Get the store for deduplicated content shared by all views created by
+     * this factory. The store is created on first use, at which point content
+     * no longer referenced from any home directory is dropped.
+     * @return The store, or null if deduplication is disabled
+     * @throws IOException If the store directory can not be created
+     */
+    public synchronized NioBlobStore getBlobStore() throws IOException {
+        if (blobStore == null && deduplicationDirectory != null) {
+            NioBlobStore store = new NioBlobStore(fileSystem
+                    .getPath(deduplicationDirectory), deduplicationAlgorithm);
+            store.collectGarbage();
+            blobStore = store;
+        }
+        return blobStore;
+    }
+
+    /**
+     * Create the appropriate user file system view.
+     */
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        if (user.getHomeDirectory() == null) {
+            throw new IllegalArgumentException(
+                    "User home directory can not be null");
+        }
+
+        synchronized (user) {
+            Path homeDir = fileSystem.getPath(user.getHomeDirectory());
+
+            // create home if does not exist
+            if (createHome) {
+                if (Files.isRegularFile(homeDir)) {
+                    LOG.warn("Not a directory :: " + homeDir);
+                    throw new FtpException("Not a directory :: " + homeDir);
+                }
+                try {
+                    Files.createDirectories(homeDir);
+                } catch (IOException e) {
+                    LOG.warn("Cannot create user home :: " + homeDir);
+                    throw new FtpException("Cannot create user home :: "
+                            + homeDir, e);
+                }
+            }
+
+            NioBlobStore blobs;
+            try {
+                blobs = getBlobStore();
+            } catch (IOException e) {
+                LOG.warn("Cannot create deduplication store :: "
+                        + deduplicationDirectory);
+                throw new FtpException("Cannot create deduplication store :: "
+                        + deduplicationDirectory, e);
+            }
+
+            return new NioFileSystemView(user, homeDir, caseInsensitive,
+                    getCache(), blobs);
+        }
+    }
+
+}
@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Bounded cache of file attributes and directory contents, shared by all
+ * views created by a {@link org.apache.ftpserver.filesystem.nio.NioFileSystemFactory}.
+ * Entries are dropped when a file is modified through this server and
+ * expire after a fixed time to live, which bounds how long changes made
+ * outside the server go unnoticed. The least recently used entries are
+ * evicted when the cache is full. The cached paths are also indexed by their
+ * parent directory, so dropping a directory only visits what is cached below
+ * it.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioAttributeCache implements NioAttributeCacheMBean {
+
+    /**
+     * The contents of a directory, with the attributes of each entry
+     */
+    static final class Listing {
+
+        final Path[] paths;
+
+        final NioFileAttributes[] attributes;
+
+        Listing(Path[] paths, NioFileAttributes[] attributes) {
+            this.paths = paths;
+            this.attributes = attributes;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+
+        final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    // the generations of the paths, striped by hash, a collision only costs
+    // a value not being cached
+    private static final int STRIPES = 1024;
+
+    // the maps, the index and the generations are guarded by this
+    private final Map<Path, Entry<NioFileAttributes>> attributes;
+
+    private final Map<Path, Entry<Listing>> listings;
+
+    // the children of each directory that are cached, or have cached
+    // descendants, in either map
+    private final Map<Path, Set<Path>> children = new HashMap<>();
+
+    // incremented when a path is invalidated, so that a value read from the
+    // file system concurrently with a modification of the path or of one of
+    // its ancestors is not cached
+    private final long[] pathGenerations = new long[STRIPES];
+
+    // incremented when an entry of a directory is invalidated, so that a
+    // listing read concurrently is not cached
+    private final long[] listingGenerations = new long[STRIPES];
+
+    /**
+     * @param maxEntries
+     *            The maximum number of files, and separately of directory
+     *            listings, to keep
+     * @param timeToLive
+     *            The time in milliseconds after which an entry is read
+     *            again from the file system
+     */
+    public NioAttributeCache(final int maxEntries, final long timeToLive) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.attributes = createLruMap();
+        this.listings = createLruMap();
+    }
+
+    private <V> Map<Path, Entry<V>> createLruMap() {
+        return new LinkedHashMap<Path, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Path, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    // remove it here rather than returning true, so that
+                    // the index can be updated once it is gone
+                    Path path = eldest.getKey();
+                    remove(path);
+                    unindex(path);
+                    evictions.increment();
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the attributes of a file, reading them if not cached.
+     */
+    NioFileAttributes getAttributes(final Path path,
+            final NioFileAttributes.View view) {
+        long readGeneration;
+        synchronized (this) {
+            NioFileAttributes attrs = lookup(attributes, path);
+            if (attrs != null) {
+                return attrs;
+            }
+            readGeneration = attributesGeneration(path);
+        }
+
+        NioFileAttributes attrs = view.read(path);
+        synchronized (this) {
+            if (readGeneration == attributesGeneration(path)) {
+                attributes.put(path, new Entry<NioFileAttributes>(attrs,
+                        System.nanoTime() + ttlNanos));
+                index(path);
+            }
+        }
+        return attrs;
+    }
+
+    /**
+     * Get the contents of a directory in directory order, reading them if
+     * not cached. The attributes of the entries are cached as well.
+     * 
+     * @return The listing, or null if the directory can not be read
+     */
+    Listing getListing(final Path dir, final NioFileAttributes.View view) {
+        long readGeneration;
+        synchronized (this) {
+            Listing listing = lookup(listings, dir);
+            if (listing != null) {
+                return listing;
+            }
+            readGeneration = listingGeneration(dir);
+        }
+
+        List<Path> paths = new ArrayList<>();
+        List<NioFileAttributes> attrs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                paths.add(entry);
+                attrs.add(view.read(entry));
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        Listing listing = new Listing(paths.toArray(new Path[paths.size()]), attrs
+                .toArray(new NioFileAttributes[attrs.size()]));
+        long expires = System.nanoTime() + ttlNanos;
+        synchronized (this) {
+            if (readGeneration != listingGeneration(dir)) {
+                return listing;
+            }
+            listings.put(dir, new Entry<Listing>(listing, expires));
+            index(dir);
+            for (int i = 0; i < listing.paths.length; i++) {
+                attributes.put(listing.paths[i], new Entry<NioFileAttributes>(
+                        listing.attributes[i], expires));
+                index(listing.paths[i]);
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Drop everything cached about a file that has been modified: its own
+     * attributes, its contents if it is a directory, everything below it
+     * and the contents of its parent directory.
+     */
+    void invalidate(final Path path) {
+        invalidations.increment();
+        synchronized (this) {
+            pathGenerations[stripe(path)]++;
+            attributes.remove(path);
+            listings.remove(path);
+
+            // a directory that was moved or removed takes its children along
+            removeDescendants(path);
+            unindex(path);
+
+            Path parent = path.getParent();
+            if (parent != null) {
+                listingGenerations[stripe(parent)]++;
+                if (listings.remove(parent) != null) {
+                    unindex(parent);
+                }
+            }
+        }
+    }
+
+    private static int stripe(final Path path) {
+        return path.hashCode() & (STRIPES - 1);
+    }
+
+    /**
+     * The sum of the generations the attributes of a file depend on: those
+     * of the file and of its ancestors.
+     */
+    synchronized long attributesGeneration(final Path path) {
+        long sum = 0;
+        for (Path p = path; p != null; p = p.getParent()) {
+            sum += pathGenerations[stripe(p)];
+        }
+        return sum;
+    }
+
+    /**
+     * The sum of the generations a directory listing depends on: those of
+     * the directory, of its ancestors and of its entries.
+     */
+    synchronized long listingGeneration(final Path dir) {
+        return attributesGeneration(dir) + listingGenerations[stripe(dir)];
+    }
+
+    // must be called holding the lock
+    private void removeDescendants(final Path path) {
+        Set<Path> descendants = children.remove(path);
+        if (descendants == null) {
+            return;
+        }
+        for (Path child : descendants) {
+            attributes.remove(child);
+            listings.remove(child);
+            removeDescendants(child);
+        }
+    }
+
+    /**
+     * Add a cached path to the index, along with the ancestors not yet in it.
+     */
+    // must be called holding the lock
+    private void index(final Path path) {
+        Path child = path;
+        Path parent = child.getParent();
+        while (parent != null) {
+            Set<Path> siblings = children.get(parent);
+            if (siblings != null) {
+                siblings.add(child);
+                return;
+            }
+            siblings = new HashSet<>();
+            siblings.add(child);
+            children.put(parent, siblings);
+            child = parent;
+            parent = child.getParent();
+        }
+    }
+
+    /**
+     * Remove a path from the index once it is neither cached nor has cached
+     * descendants, along with the ancestors left empty.
+     */
+    // must be called holding the lock
+    private void unindex(final Path path) {
+        Path child = path;
+        while (!attributes.containsKey(child) && !listings.containsKey(child)
+                && !children.containsKey(child)) {
+            Path parent = child.getParent();
+            if (parent == null) {
+                return;
+            }
+            Set<Path> siblings = children.get(parent);
+            if (siblings == null) {
+                return;
+            }
+            siblings.remove(child);
+            if (!siblings.isEmpty()) {
+                return;
+            }
+            children.remove(parent);
+            child = parent;
+        }
+    }
+
+    // must be called holding the lock
+    private <V> V lookup(final Map<Path, Entry<V>> map,
+            final Path path) {
+        Entry<V> entry = map.get(path);
+        if (entry != null) {
+            if (entry.expires - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.value;
+            }
+            map.remove(path);
+            unindex(path);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getTimeToLive() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int getAttributeEntryCount() {
+        return attributes.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int getListingEntryCount() {
+        return listings.size();
+    }
+
+    /**
+     * The number of directories in the index of cached paths
+     */
+    synchronized int getIndexedDirectoryCount() {
+        return children.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void clear() {
+        attributes.clear();
+        listings.clear();
+        children.clear();
+    }
+}
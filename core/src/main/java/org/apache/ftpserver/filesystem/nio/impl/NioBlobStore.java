@@ -0,0 +1,814 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Content addressed store for file content, shared by all views created by a
+ * {@link org.apache.ftpserver.filesystem.nio.NioFileSystemFactory}. Uploads
+ * are hashed while written to a staging file. When the upload completes, the
+ * content is kept once in the store under its hash, and the file in the user
+ * home directory becomes a hard link to it. Identical uploads therefore share
+ * the same storage, and the link count of a stored file is its reference
+ * count: the store drops content that is no longer linked from any home
+ * directory.
+ * 
+ * Since all links to a blob share one inode, the modification time of a
+ * linked file is not taken from the file system. The store keeps the time of
+ * each linked file itself, set when the file is written or its time is
+ * changed, and persists it in a journal next to the content. A duplicate
+ * upload therefore neither shows nor changes the time of other copies. The
+ * permissions of linked files are those the store creates content with,
+ * they are not changed through the server.
+ * 
+ * The store must be on the same file system as the home directories. Where
+ * hard links can not be created, files are stored in full as usual. Content
+ * linked as often as the file system allows is continued in a new blob.
+ * Where the link count can not be read, unreferenced content is never
+ * dropped.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioBlobStore {
+
+    private final Logger LOG = LoggerFactory.getLogger(NioBlobStore.class);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // a lock file this recent may belong to a store not holding the lock yet
+    private static final long STARTING_MILLIS = 60 * 1000;
+
+    // records the journal may hold beyond two per linked file before it is
+    // compacted
+    private static final long JOURNAL_SLACK = 10000;
+
+    // the reason given for EMLINK, the link count limit of an inode
+    private static final String TOO_MANY_LINKS = "Too many links";
+
+    /**
+     * The outcomes of linking a file to a blob
+     */
+    private static enum Link {
+        LINKED, FULL, FAILED
+    }
+
+    // prefixes of the stores in this process, their lock files must not be
+    // opened since closing any channel to a file drops the locks of the
+    // process on it
+    private static final Set<String> LOCAL_PREFIXES = ConcurrentHashMap.newKeySet();
+
+
+    private final Path directory;
+
+    private final Path stagingDirectory;
+
+    private final String algorithm;
+
+    // blobs by file key, to find the blob a deleted file was linked to
+    private final ConcurrentMap<Object, Path> blobs = new ConcurrentHashMap<>();
+
+    // guards adding and dropping blobs
+    private final Object lock = new Object();
+
+    private volatile boolean linksUnsupported;
+
+    // tells apart staging files of stores sharing a directory
+    private final long stagingPrefix = System.nanoTime();
+
+    private final AtomicLong staged = new AtomicLong();
+
+    // held while the store is in use, tells other stores sharing the
+    // directory that the staging files with this prefix are not stale
+    private final FileChannel stagingLockChannel;
+
+    // modification times of the files linked to a blob, by path, sorted so
+    // that the files below a moved directory are found as one range
+    private final ConcurrentNavigableMap<String, Long> modified =
+        new ConcurrentSkipListMap<>();
+
+    private final Path journal;
+
+    // guards the journal, whose channel is replaced when it is compacted
+    private final Object journalLock = new Object();
+
+    private FileChannel journalChannel;
+
+    // records written since the journal was last compacted
+    private long journalRecords;
+
+    /**
+     * @param directory
+     *            The directory the content is stored in
+     * @param algorithm
+     *            The {@link MessageDigest} algorithm content is addressed by
+     */
+    public NioBlobStore(final Path directory, final String algorithm)
+            throws IOException {
+        try {
+            MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown hash algorithm : "
+                    + algorithm);
+        }
+
+        this.directory = directory.toAbsolutePath().normalize();
+        this.stagingDirectory = this.directory.resolve("staging");
+        this.algorithm = algorithm;
+
+        Files.createDirectories(stagingDirectory);
+
+        Path lockFile = stagingDirectory.resolve(stagingPrefix + ".lock");
+        stagingLockChannel = FileChannel.open(lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            stagingLockChannel.lock();
+            LOCAL_PREFIXES.add(String.valueOf(stagingPrefix));
+            boolean shared = deleteStaleStagingFiles();
+
+            journal = this.directory.resolve("modified.journal");
+            readJournal(!shared);
+            journalChannel = FileChannel.open(journal,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException e) {
+            stagingLockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Delete the files of uploads interrupted by a previous shutdown. Staging
+     * files are named after the prefix of their store, which holds a lock on
+     * its lock file while in use. The files of stores still holding the lock,
+     * or which might just be starting, are left alone.
+     * 
+     * @return true if other stores use the directory
+     */
+    private boolean deleteStaleStagingFiles() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files
+                .newDirectoryStream(stagingDirectory)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+
+        long startingSince = System.currentTimeMillis() - STARTING_MILLIS;
+        Set<String> live = new HashSet<>();
+        List<Path> staleLocks = new ArrayList<>();
+        for (Path entry : entries) {
+            String name = entry.getFileName().toString();
+            if (!name.endsWith(".lock")) {
+                continue;
+            }
+            String prefix = name.substring(0, name.length() - 5);
+            if (isLive(entry, prefix, startingSince)) {
+                live.add(prefix);
+            } else {
+                staleLocks.add(entry);
+            }
+        }
+
+        for (Path entry : entries) {
+            String name = entry.getFileName().toString();
+            if (name.endsWith(".lock")) {
+                continue;
+            }
+            // upload-<prefix>-<n> or link-<prefix>-<n>
+            String[] parts = name.split("-");
+            if (parts.length != 3 || !live.contains(parts[1])) {
+                Files.deleteIfExists(entry);
+            }
+        }
+        for (Path lock : staleLocks) {
+            Files.deleteIfExists(lock);
+        }
+        return live.size() > 1;
+    }
+
+    private static boolean isLive(final Path lockFile, final String prefix,
+            final long startingSince) throws IOException {
+        return LOCAL_PREFIXES.contains(prefix) || isLocked(lockFile)
+                || Files.getLastModifiedTime(lockFile).toMillis() > startingSince;
+    }
+
+    /**
+     * @return true if other stores use the directory
+     */
+    private boolean isShared() throws IOException {
+        long startingSince = System.currentTimeMillis() - STARTING_MILLIS;
+        String own = stagingPrefix + ".lock";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                stagingDirectory, "*.lock")) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                if (!name.equals(own) && isLive(entry, name.substring(0,
+                        name.length() - 5), startingSince)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Is the lock file held by a store in this or another process
+     */
+    private static boolean isLocked(final Path lockFile) {
+        try (FileChannel channel = FileChannel.open(lockFile,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            // can not tell, keep the files
+            return true;
+        }
+    }
+
+    /**
+     * Read the modification times of the linked files and, unless other
+     * stores append to it, rewrite the journal with those of files still
+     * present.
+     */
+    private void readJournal(final boolean compact) throws IOException {
+        if (Files.exists(journal)) {
+            try (BufferedReader reader = Files.newBufferedReader(journal,
+                    StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    if (space <= 0) {
+                        continue;
+                    }
+                    journalRecords++;
+                    String path = line.substring(space + 1);
+                    if (line.charAt(0) == '-') {
+                        modified.remove(path);
+                    } else {
+                        try {
+                            modified.put(path, Long.parseLong(line.substring(
+                                    0, space)));
+                        } catch (NumberFormatException e) {
+                            // partially written record
+                        }
+                    }
+                }
+            }
+        }
+
+        if (compact) {
+            for (String path : modified.keySet()) {
+                if (!Files.exists(directory.getFileSystem().getPath(path),
+                        LinkOption.NOFOLLOW_LINKS)) {
+                    modified.remove(path);
+                }
+            }
+            writeJournal();
+        }
+    }
+
+    /**
+     * Replace the journal with one holding the current times only.
+     */
+    private void writeJournal() throws IOException {
+        Path compacted = directory.resolve("modified.journal.tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted,
+                StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : modified.entrySet()) {
+                writer.write(entry.getValue() + " " + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(compacted, journal, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        journalRecords = modified.size();
+    }
+
+    /**
+     * Append a record to the journal, a single write so that stores sharing
+     * the journal do not interleave records. The journal is compacted once
+     * most of its records are outdated, unless other stores append to it.
+     */
+    private void appendJournal(final String record) {
+        ByteBuffer buffer = ByteBuffer.wrap((record + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        synchronized (journalLock) {
+            try {
+                while (buffer.hasRemaining()) {
+                    journalChannel.write(buffer);
+                }
+                if (++journalRecords > 2L * modified.size() + JOURNAL_SLACK) {
+                    compactJournal();
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to write modification time journal " + journal, e);
+            }
+        }
+    }
+
+    private void compactJournal() throws IOException {
+        if (isShared()) {
+            // try again once as many records more have been written
+            journalRecords = modified.size();
+            return;
+        }
+        writeJournal();
+        journalChannel.close();
+        journalChannel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void setModified(final String target, final long time) {
+        modified.put(target, time);
+        appendJournal(time + " " + target);
+    }
+
+    private void clearModified(final String target) {
+        if (modified.remove(target) != null) {
+            appendJournal("- " + target);
+        }
+    }
+
+    /**
+     * Get the modification time of a file in a home directory.
+     * 
+     * @param attributes
+     *            The attributes of the file
+     */
+    long lastModified(final Path target, final NioFileAttributes attributes) {
+        if (attributes.isRegularFile()) {
+            Long time = modified.get(target.toString());
+            if (time != null) {
+                return time;
+            }
+        }
+        return attributes.lastModified();
+    }
+
+    /**
+     * Set the modification time of a file in a home directory linked to a
+     * blob, without changing the shared inode.
+     * 
+     * @return false if the file is not linked, its own time must be set
+     */
+    boolean setLastModified(final Path target, final long time) {
+        String key = target.toString();
+        if (!modified.containsKey(key)) {
+            return false;
+        }
+        setModified(key, time);
+        return true;
+    }
+
+    /**
+     * Carry the modification times over to the new path of a moved file or
+     * directory.
+     */
+    void moved(final Path from, final Path to) {
+        String fromKey = from.toString();
+        String toKey = to.toString();
+        Long time = modified.get(fromKey);
+        if (time != null) {
+            clearModified(fromKey);
+            setModified(toKey, time);
+            return;
+        }
+
+        // the paths below the directory, they all start with its path and a
+        // separator
+        String separator = from.getFileSystem().getSeparator();
+        char last = separator.charAt(separator.length() - 1);
+        String start = fromKey + separator;
+        String end = fromKey + separator.substring(0, separator.length() - 1)
+                + (char) (last + 1);
+        List<Map.Entry<String, Long>> below = new ArrayList<>(modified.subMap(
+                start, end).entrySet());
+        for (Map.Entry<String, Long> entry : below) {
+            clearModified(entry.getKey());
+            setModified(toKey + entry.getKey().substring(fromKey.length()),
+                    entry.getValue());
+        }
+    }
+
+    /**
+     * @return The directory the content is stored in
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The hash algorithm content is addressed by
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Drop all content no longer linked from any home directory.
+     * 
+     * @return The number of blobs dropped
+     */
+    public int collectGarbage() throws IOException {
+        int dropped = 0;
+        try (DirectoryStream<Path> prefixes = Files
+                .newDirectoryStream(directory)) {
+            for (Path prefix : prefixes) {
+                if (prefix.equals(stagingDirectory)
+                        || !Files.isDirectory(prefix)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> stream = Files
+                        .newDirectoryStream(prefix)) {
+                    for (Path blob : stream) {
+                        synchronized (lock) {
+                            if (dropIfUnreferenced(blob)) {
+                                dropped++;
+                            } else {
+                                Object key = fileKey(blob);
+                                if (key != null) {
+                                    blobs.put(key, blob);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (dropped > 0) {
+            LOG.debug("Dropped {} unreferenced blobs", dropped);
+        }
+        return dropped;
+    }
+
+    /**
+     * Create a stream for writing the content of a file. The file is replaced
+     * when the stream is closed.
+     * 
+     * @param target
+     *            The file in the home directory
+     * @param offset
+     *            The content of the file before this offset is kept
+     */
+    OutputStream createOutputStream(final Path target, final long offset)
+            throws IOException {
+        if (Files.isDirectory(target)
+                || !Files.isDirectory(target.getParent())) {
+            throw new NoSuchFileException(target.toString());
+        }
+
+        final MessageDigest digest = newDigest();
+        // not a temporary file, those are only readable by the owner
+        final Path staging = Files.createFile(stagingDirectory.resolve("upload-"
+                + stagingPrefix + "-" + staged.incrementAndGet()));
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(staging, StandardOpenOption.WRITE);
+            try {
+                if (offset > 0) {
+                    copyPrefix(target, offset, channel, digest);
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(staging);
+            throw e;
+        }
+
+        return new OutputStream() {
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                digest.update(b, off, len);
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+
+                boolean committed = false;
+                try {
+                    channel.close();
+                    commit(staging, toHex(digest.digest()), target);
+                    committed = true;
+                } finally {
+                    if (!committed) {
+                        Files.deleteIfExists(staging);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Delete a file in a home directory, dropping its content from the store
+     * if it was the last reference.
+     */
+    void delete(final Path target) throws IOException {
+        Object key = fileKey(target);
+        Files.delete(target);
+        clearModified(target.toString());
+        release(key);
+    }
+
+    /**
+     * Copy the part of the existing file before the offset to the staging
+     * file, filling with zeros if the file is shorter.
+     */
+    private void copyPrefix(final Path target, final long offset,
+            final FileChannel staging, final MessageDigest digest)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long copied = 0;
+        if (Files.exists(target)) {
+            try (FileChannel in = FileChannel.open(target,
+                    StandardOpenOption.READ)) {
+                while (copied < offset) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), offset
+                            - copied));
+                    int count = in.read(buffer);
+                    if (count == -1) {
+                        break;
+                    }
+                    buffer.flip();
+                    digest.update(buffer.array(), 0, count);
+                    while (buffer.hasRemaining()) {
+                        staging.write(buffer);
+                    }
+                    copied += count;
+                }
+            }
+        }
+
+        while (copied < offset) {
+            int count = (int) Math.min(buffer.capacity(), offset - copied);
+            Arrays.fill(buffer.array(), 0, count, (byte) 0);
+            buffer.clear();
+            buffer.limit(count);
+            digest.update(buffer.array(), 0, count);
+            while (buffer.hasRemaining()) {
+                staging.write(buffer);
+            }
+            copied += count;
+        }
+    }
+
+    /**
+     * Replace the target with a link to the stored content, or with the
+     * staged file, which becomes the first link to new content.
+     */
+    private void commit(final Path staging, final String hash,
+            final Path target) throws IOException {
+        synchronized (lock) {
+            Object oldKey = fileKey(target);
+
+            boolean placed = false;
+            boolean linked = false;
+            for (int generation = 0; !linksUnsupported; generation++) {
+                Path blob = blobPath(hash, generation);
+                if (!Files.exists(blob)) {
+                    Files.move(staging, target,
+                            StandardCopyOption.REPLACE_EXISTING);
+                    placed = true;
+                    linked = addBlob(blob, target);
+                    break;
+                }
+                Link result = link(blob, target);
+                if (result == Link.FULL) {
+                    // a blob per so many links
+                    continue;
+                }
+                if (result == Link.LINKED) {
+                    LOG.debug("Content of {} already stored as {}", target,
+                            blob.getFileName());
+                    Files.delete(staging);
+                    placed = true;
+                    linked = true;
+                }
+                break;
+            }
+
+            if (!placed) {
+                Files.move(staging, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (linked) {
+                // the inode keeps the time of the first upload
+                setModified(target.toString(), System.currentTimeMillis());
+            } else {
+                clearModified(target.toString());
+            }
+
+            if (oldKey != null) {
+                release(oldKey);
+            }
+        }
+    }
+
+    private Path blobPath(final String hash, final int generation) {
+        Path prefix = directory.resolve(hash.substring(0, 2));
+        return prefix.resolve(generation == 0 ? hash : hash + "-" + generation);
+    }
+
+    /**
+     * Link a new blob to the target holding its content.
+     * 
+     * @return false if the target stays a file of its own
+     */
+    private boolean addBlob(final Path blob, final Path target)
+            throws IOException {
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.createLink(blob, target);
+        } catch (UnsupportedOperationException e) {
+            linksUnsupported(e);
+            return false;
+        } catch (FileSystemException e) {
+            LOG.warn("Failed to store the content of " + target
+                    + ", keeping it unshared", e);
+            return false;
+        }
+        Object key = fileKey(blob);
+        if (key != null) {
+            blobs.put(key, blob);
+        }
+        return true;
+    }
+
+    /**
+     * Replace the target with a hard link to the blob.
+     * 
+     * @return {@link Link#FULL} if the blob has as many links as the file
+     *         system allows, {@link Link#FAILED} if the target must be stored
+     *         in full
+     */
+    private Link link(final Path blob, final Path target) throws IOException {
+        Path link = stagingDirectory.resolve("link-" + stagingPrefix + "-"
+                + staged.incrementAndGet());
+        try {
+            Files.deleteIfExists(link);
+            Files.createLink(link, blob);
+        } catch (UnsupportedOperationException e) {
+            linksUnsupported(e);
+            return Link.FAILED;
+        } catch (FileSystemException e) {
+            if (TOO_MANY_LINKS.equals(e.getReason())) {
+                return Link.FULL;
+            }
+            // only this file goes without deduplication
+            LOG.warn("Failed to link " + target + " to " + blob
+                    + ", storing it in full", e);
+            return Link.FAILED;
+        }
+
+        try {
+            Files.move(link, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(link);
+            throw e;
+        }
+        return Link.LINKED;
+    }
+
+    private void linksUnsupported(final UnsupportedOperationException e) {
+        LOG.warn("Hard links not supported in " + directory
+                + ", storing files without deduplication", e);
+        linksUnsupported = true;
+    }
+
+    /**
+     * Drop the blob with the given file key if nothing links to it anymore.
+     */
+    private void release(final Object key) {
+        if (key == null) {
+            return;
+        }
+        synchronized (lock) {
+            Path blob = blobs.get(key);
+            if (blob != null && dropIfUnreferenced(blob)) {
+                blobs.remove(key);
+            }
+        }
+    }
+
+    private boolean dropIfUnreferenced(final Path blob) {
+        try {
+            Object nlink = Files.getAttribute(blob, "unix:nlink",
+                    LinkOption.NOFOLLOW_LINKS);
+            if (nlink instanceof Integer && (Integer) nlink == 1) {
+                Files.delete(blob);
+                LOG.debug("Dropped unreferenced blob {}", blob.getFileName());
+                return true;
+            }
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // link count not available, keep the content
+        } catch (IOException e) {
+            LOG.warn("Failed to drop blob " + blob, e);
+        }
+        return false;
+    }
+
+    private static Object fileKey(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // checked in the constructor
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
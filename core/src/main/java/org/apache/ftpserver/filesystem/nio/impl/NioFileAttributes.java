@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Immutable snapshot of the attributes of a single file, read with one call
+ * into the file system.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+final class NioFileAttributes {
+
+    /**
+     * Attributes of a file that does not exist
+     */
+    static final NioFileAttributes MISSING = new NioFileAttributes(false,
+            false, false, 0, 0, null, null, null, 0);
+
+    // the "unix" view is not part of the public API, but the default
+    // file system on Unix-like platforms supports it and it is the only view
+    // that carries the link count
+    private static final String UNIX_ATTRIBUTES = "unix:isDirectory,isRegularFile,size,lastModifiedTime,owner,group,permissions,nlink";
+
+    /**
+     * The richest attribute view supported by a file system
+     */
+    enum View {
+        UNIX, POSIX, BASIC;
+
+        static View of(FileSystem fileSystem) {
+            Set<String> views = fileSystem.supportedFileAttributeViews();
+            if (views.contains("unix")) {
+                return UNIX;
+            } else if (views.contains("posix")) {
+                return POSIX;
+            } else {
+                return BASIC;
+            }
+        }
+
+        /**
+         * Read all attributes of the file in one call. Symbolic links are
+         * followed.
+         */
+        NioFileAttributes read(Path path) {
+            try {
+                switch (this) {
+                case UNIX:
+                    return fromUnix(Files.readAttributes(path, UNIX_ATTRIBUTES));
+                case POSIX:
+                    return fromPosix(Files.readAttributes(path,
+                            PosixFileAttributes.class));
+                default:
+                    return fromBasic(Files.readAttributes(path,
+                            BasicFileAttributes.class));
+                }
+            } catch (IOException e) {
+                // includes NoSuchFileException
+                return MISSING;
+            }
+        }
+    }
+
+    private final boolean exists;
+
+    private final boolean directory;
+
+    private final boolean regularFile;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String owner;
+
+    private final String group;
+
+    private final Set<PosixFilePermission> permissions;
+
+    private final int linkCount;
+
+    private NioFileAttributes(boolean exists, boolean directory,
+            boolean regularFile, long size, long lastModified, String owner,
+            String group, Set<PosixFilePermission> permissions, int linkCount) {
+        this.exists = exists;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.owner = owner;
+        this.group = group;
+        this.permissions = permissions;
+        this.linkCount = linkCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NioFileAttributes fromUnix(Map<String, Object> attrs) {
+        Number nlink = (Number) attrs.get("nlink");
+        return new NioFileAttributes(true,
+                Boolean.TRUE.equals(attrs.get("isDirectory")),
+                Boolean.TRUE.equals(attrs.get("isRegularFile")),
+                ((Number) attrs.get("size")).longValue(),
+                ((FileTime) attrs.get("lastModifiedTime")).toMillis(),
+                nameOf((UserPrincipal) attrs.get("owner")),
+                nameOf((UserPrincipal) attrs.get("group")),
+                Collections.unmodifiableSet((Set<PosixFilePermission>) attrs
+                        .get("permissions")),
+                nlink == null ? 1 : nlink.intValue());
+    }
+
+    private static NioFileAttributes fromPosix(PosixFileAttributes attrs) {
+        return new NioFileAttributes(true, attrs.isDirectory(),
+                attrs.isRegularFile(), attrs.size(), attrs.lastModifiedTime()
+                        .toMillis(), nameOf(attrs.owner()),
+                nameOf(attrs.group()), Collections.unmodifiableSet(attrs
+                        .permissions()), attrs.isDirectory() ? 3 : 1);
+    }
+
+    private static NioFileAttributes fromBasic(BasicFileAttributes attrs) {
+        return new NioFileAttributes(true, attrs.isDirectory(),
+                attrs.isRegularFile(), attrs.size(), attrs.lastModifiedTime()
+                        .toMillis(), null, null, null, attrs.isDirectory() ? 3
+                        : 1);
+    }
+
+    private static String nameOf(UserPrincipal principal) {
+        return principal == null ? null : principal.getName();
+    }
+
+    boolean exists() {
+        return exists;
+    }
+
+    boolean isDirectory() {
+        return directory;
+    }
+
+    boolean isRegularFile() {
+        return regularFile;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return The owner name, or null if not supported by the file system
+     */
+    String owner() {
+        return owner;
+    }
+
+    /**
+     * @return The group name, or null if not supported by the file system
+     */
+    String group() {
+        return group;
+    }
+
+    /**
+     * @return The POSIX permissions, or null if not supported by the file
+     *         system
+     */
+    Set<PosixFilePermission> permissions() {
+        return permissions;
+    }
+
+    int linkCount() {
+        return linkCount;
+    }
+}
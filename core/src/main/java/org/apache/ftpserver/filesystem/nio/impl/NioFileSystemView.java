@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.StringTokenizer;
+
+import org.apache.ftpserver.filesystem.nio.NioFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * File system view based on <code>java.nio.file</code>. Here the root
+ * directory will be user virtual root (/).
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFileSystemView implements FileSystemView {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(NioFileSystemView.class);
+
+    private final Path rootDir;
+
+    // the first and the last character will always be '/'
+    // It is always with respect to the root directory.
+    private String currDir;
+
+    private final User user;
+
+    private final boolean caseInsensitive;
+
+    private final NioFileAttributes.View view;
+
+    private final NioAttributeCache cache;
+
+    private final NioBlobStore blobs;
+
+    /**
+     * Constructor - internal do not use directly, use {@link NioFileSystemFactory} instead
+     */
+    public NioFileSystemView(User user, Path rootDir, boolean caseInsensitive)
+            throws FtpException {
+        this(user, rootDir, caseInsensitive, null);
+    }
+
+    /**
+     * Constructor - internal do not use directly, use {@link NioFileSystemFactory} instead
+     * 
+     * @param cache
+     *            The attribute cache shared by the file system, can be null
+     */
+    public NioFileSystemView(User user, Path rootDir, boolean caseInsensitive,
+            NioAttributeCache cache) throws FtpException {
+        this(user, rootDir, caseInsensitive, cache, null);
+    }
+
+    /**
+     * Constructor - internal do not use directly, use {@link NioFileSystemFactory} instead
+     * 
+     * @param cache
+     *            The attribute cache shared by the file system, can be null
+     * @param blobs
+     *            The store for deduplicated file content, can be null
+     */
+    public NioFileSystemView(User user, Path rootDir, boolean caseInsensitive,
+            NioAttributeCache cache, NioBlobStore blobs) throws FtpException {
+        if (user == null) {
+            throw new IllegalArgumentException("user can not be null");
+        }
+        if (rootDir == null) {
+            throw new IllegalArgumentException(
+                    "User home directory can not be null");
+        }
+
+        this.user = user;
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+        this.caseInsensitive = caseInsensitive;
+        this.view = NioFileAttributes.View.of(rootDir.getFileSystem());
+        this.cache = cache;
+        this.blobs = blobs;
+
+        LOG.debug("NIO filesystem view created for user \"{}\" with root \"{}\"", user.getName(), this.rootDir);
+
+        currDir = "/";
+    }
+
+    /**
+     * Get the user home directory. It would be the file system root for the
+     * user.
+     */
+    public FtpFile getHomeDirectory() {
+        return new NioFtpFile("/", rootDir, user, view, cache, blobs, null);
+    }
+
+    /**
+     * Get the current directory.
+     */
+    public FtpFile getWorkingDirectory() {
+        return new NioFtpFile(currDir, getPhysicalPath(currDir), user, view,
+                cache, blobs, null);
+    }
+
+    /**
+     * Get file object.
+     */
+    public FtpFile getFile(String file) throws FtpException {
+        String virtualName = getVirtualName(currDir, file);
+        Path physicalPath;
+        try {
+            physicalPath = getPhysicalPath(virtualName);
+        } catch (InvalidPathException e) {
+            throw new FtpException("Invalid file name: " + file, e);
+        }
+        return new NioFtpFile(virtualName, physicalPath, user, view, cache,
+                blobs, null);
+    }
+
+    /**
+     * Change directory.
+     */
+    public boolean changeWorkingDirectory(String dir) {
+        String virtualName;
+        try {
+            virtualName = getVirtualName(currDir, dir);
+            if (!readAttributes(getPhysicalPath(virtualName)).isDirectory()) {
+                return false;
+            }
+        } catch (InvalidPathException e) {
+            return false;
+        }
+
+        // add last '/' if necessary
+        if (virtualName.charAt(virtualName.length() - 1) != '/') {
+            virtualName = virtualName + '/';
+        }
+
+        currDir = virtualName;
+        return true;
+    }
+
+    /**
+     * Is the file content random accessible?
+     */
+    public boolean isRandomAccessible() {
+        return true;
+    }
+
+    /**
+     * Dispose file system view - does nothing.
+     */
+    public void dispose() {
+    }
+
+    private NioFileAttributes readAttributes(Path path) {
+        return cache == null ? view.read(path) : cache.getAttributes(path, view);
+    }
+
+    /**
+     * Map a virtual name to the physical path below the root directory.
+     */
+    protected Path getPhysicalPath(String virtualName) {
+        if (virtualName.length() <= 1) {
+            return rootDir;
+        }
+        return rootDir.resolve(virtualName.substring(1));
+    }
+
+    /**
+     * Get the virtual name of a file, resolving ., .. and ~ against the
+     * current directory. The result can never end up above the root
+     * directory.
+     * 
+     * @param currDir
+     *            The current directory. It will always be with respect to the
+     *            root directory.
+     * @param fileName
+     *            The input file name.
+     * @return The virtual name, always beginning with '/' and never ending
+     *         with '/' unless it is the root directory. It will never be null.
+     */
+    protected String getVirtualName(final String currDir,
+            final String fileName) {
+        String normalizedFileName = fileName == null ? "" : fileName.replace(
+                '\\', '/');
+
+        // if file name is relative, start from the current directory
+        // in this loop result will never end with '/'
+        StringBuilder result = new StringBuilder();
+        if (!normalizedFileName.startsWith("/") && currDir != null) {
+            result.append(currDir.replace('\\', '/'));
+            if (result.length() > 0 && result.charAt(0) != '/') {
+                result.insert(0, '/');
+            }
+            while (result.length() > 0
+                    && result.charAt(result.length() - 1) == '/') {
+                result.setLength(result.length() - 1);
+            }
+        }
+
+        StringTokenizer st = new StringTokenizer(normalizedFileName, "/");
+        while (st.hasMoreTokens()) {
+            String tok = st.nextToken();
+
+            if (tok.equals(".")) {
+                // . => current directory, ignore and move on
+            } else if (tok.equals("..")) {
+                // .. => parent directory (if not root)
+                int slashIndex = result.lastIndexOf("/");
+                if (slashIndex != -1) {
+                    result.setLength(slashIndex);
+                }
+            } else if (tok.equals("~")) {
+                // ~ => home directory (in this case the root directory)
+                result.setLength(0);
+            } else {
+                if (caseInsensitive) {
+                    tok = matchCase(result.toString(), tok);
+                }
+                result.append('/').append(tok);
+            }
+        }
+
+        if (result.length() == 0) {
+            return "/";
+        }
+        return result.toString();
+    }
+
+    /**
+     * Find the actual casing of a name within a directory. Returns the name
+     * unchanged if it exists as is, or if no match is found.
+     */
+    private String matchCase(String virtualDir, String name) {
+        Path dir;
+        try {
+            dir = getPhysicalPath(virtualDir);
+            if (readAttributes(dir.resolve(name)).exists()) {
+                return name;
+            }
+        } catch (InvalidPathException e) {
+            // not a valid name on this file system, no file can match it
+            return name;
+        }
+
+        if (cache != null) {
+            NioAttributeCache.Listing listing = cache.getListing(dir, view);
+            if (listing != null) {
+                for (Path entry : listing.paths) {
+                    String entryName = entry.getFileName().toString();
+                    if (entryName.equalsIgnoreCase(name)) {
+                        return entryName;
+                    }
+                }
+            }
+            return name;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                String entryName = entry.getFileName().toString();
+                if (entryName.equalsIgnoreCase(name)) {
+                    return entryName;
+                }
+            }
+        } catch (IOException e) {
+            // directory does not exist or is not readable, keep the name
+        }
+        return name;
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * This class wraps a <code>java.nio.file.Path</code>. All attributes are read
+ * in a single call the first time any of them is requested, and files returned
+ * by {@link #listFiles()} are created with their attributes already loaded.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class NioFtpFile implements FtpFile {
+
+    private final Logger LOG = LoggerFactory.getLogger(NioFtpFile.class);
+
+    private static final Comparator<NioFtpFile> NAME_ORDER = new Comparator<NioFtpFile>() {
+        public int compare(NioFtpFile f1, NioFtpFile f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    // the file name with respect to the user root.
+    // The path separator character will be '/' and
+    // it will always begin with '/'.
+    private final String fileName;
+
+    private final Path path;
+
+    private final User user;
+
+    private final NioFileAttributes.View view;
+
+    // shared by all files of the file system, can be null
+    private final NioAttributeCache cache;
+
+    // shared by all files of the file system, null unless deduplicating
+    private final NioBlobStore blobs;
+
+    // lazily read, reset after every modification made through this object
+    private NioFileAttributes attributes;
+
+    /**
+     * Constructor, internal do not use directly.
+     */
+    protected NioFtpFile(final String fileName, final Path path,
+            final User user) {
+        this(fileName, path, user, path == null ? null
+                : NioFileAttributes.View.of(path.getFileSystem()), null, null,
+                null);
+    }
+
+    NioFtpFile(final String fileName, final Path path, final User user,
+            final NioFileAttributes.View view, final NioAttributeCache cache,
+            final NioBlobStore blobs, final NioFileAttributes attributes) {
+        if (fileName == null) {
+            throw new IllegalArgumentException("fileName can not be null");
+        }
+        if (path == null) {
+            throw new IllegalArgumentException("path can not be null");
+        }
+
+        if (fileName.length() == 0) {
+            throw new IllegalArgumentException("fileName can not be empty");
+        } else if (fileName.charAt(0) != '/') {
+            throw new IllegalArgumentException(
+                    "fileName must be an absolut path");
+        }
+
+        this.fileName = fileName;
+        this.path = path;
+        this.user = user;
+        this.view = view;
+        this.cache = cache;
+        this.blobs = blobs;
+        this.attributes = attributes;
+    }
+
+    private NioFileAttributes attributes() {
+        NioFileAttributes attrs = attributes;
+        if (attrs == null) {
+            attrs = cache == null ? view.read(path) : cache.getAttributes(path,
+                    view);
+            attributes = attrs;
+        }
+        return attrs;
+    }
+
+    /**
+     * Forget the attributes after the file has been modified
+     */
+    private void modified() {
+        attributes = null;
+        if (cache != null) {
+            cache.invalidate(path);
+        }
+    }
+
+    /**
+     * Get full name.
+     */
+    public String getAbsolutePath() {
+
+        // strip the last '/' if necessary
+        String fullName = fileName;
+        int filelen = fullName.length();
+        if ((filelen != 1) && (fullName.charAt(filelen - 1) == '/')) {
+            fullName = fullName.substring(0, filelen - 1);
+        }
+
+        return fullName;
+    }
+
+    /**
+     * Get short name.
+     */
+    public String getName() {
+
+        // root - the short name will be '/'
+        if (fileName.equals("/")) {
+            return "/";
+        }
+
+        // strip the last '/'
+        String shortName = fileName;
+        int filelen = fileName.length();
+        if (shortName.charAt(filelen - 1) == '/') {
+            shortName = shortName.substring(0, filelen - 1);
+        }
+
+        // return from the last '/'
+        int slashIndex = shortName.lastIndexOf('/');
+        if (slashIndex != -1) {
+            shortName = shortName.substring(slashIndex + 1);
+        }
+        return shortName;
+    }
+
+    /**
+     * Is a hidden file?
+     */
+    public boolean isHidden() {
+        if (view != NioFileAttributes.View.BASIC) {
+            // on POSIX file systems, hidden is purely a naming convention
+            Path name = path.getFileName();
+            return name != null && name.toString().startsWith(".");
+        }
+
+        try {
+            return Files.isHidden(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Is it a directory?
+     */
+    public boolean isDirectory() {
+        return attributes().isDirectory();
+    }
+
+    /**
+     * Is it a file?
+     */
+    public boolean isFile() {
+        return attributes().isRegularFile();
+    }
+
+    /**
+     * Does this file exists?
+     */
+    public boolean doesExist() {
+        return attributes().exists();
+    }
+
+    /**
+     * Get file size.
+     */
+    public long getSize() {
+        return attributes().size();
+    }
+
+    /**
+     * Get file owner.
+     */
+    public String getOwnerName() {
+        String owner = attributes().owner();
+        return owner == null ? "user" : owner;
+    }
+
+    /**
+     * Get group name
+     */
+    public String getGroupName() {
+        String group = attributes().group();
+        return group == null ? "group" : group;
+    }
+
+    /**
+     * Get link count
+     */
+    public int getLinkCount() {
+        return attributes().linkCount();
+    }
+
+    /**
+     * Get the POSIX permissions of the file.
+     * @return The permissions, or null if the file does not exist or the file
+     *         system does not support POSIX permissions
+     */
+    public Set<PosixFilePermission> getPermissions() {
+        return attributes().permissions();
+    }
+
+    /**
+     * Get last modified time.
+     */
+    public long getLastModified() {
+        if (blobs != null) {
+            return blobs.lastModified(path, attributes());
+        }
+        return attributes().lastModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean setLastModified(long time) {
+        try {
+            // deduplicated files share their inode with the other copies
+            if (blobs != null && attributes().isRegularFile()
+                    && blobs.setLastModified(path, time)) {
+                return true;
+            }
+            Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            modified();
+        }
+    }
+
+    /**
+     * Check read permission.
+     */
+    public boolean isReadable() {
+        return attributes().exists() && Files.isReadable(path);
+    }
+
+    /**
+     * Check file write permission.
+     */
+    public boolean isWritable() {
+        LOG.debug("Checking authorization for " + getAbsolutePath());
+        if (user.authorize(new WriteRequest(getAbsolutePath())) == null) {
+            LOG.debug("Not authorized");
+            return false;
+        }
+
+        LOG.debug("Checking if file exists");
+        if (attributes().exists()) {
+            return Files.isWritable(path);
+        }
+
+        LOG.debug("Authorized");
+        return true;
+    }
+
+    /**
+     * Has delete permission.
+     */
+    public boolean isRemovable() {
+
+        // root cannot be deleted
+        if ("/".equals(fileName)) {
+            return false;
+        }
+
+        String fullName = getAbsolutePath();
+
+        // we check FTPServer's write permission for this file.
+        if (user.authorize(new WriteRequest(fullName)) == null) {
+            return false;
+        }
+
+        int indexOfSlash = fullName.lastIndexOf('/');
+        String parentFullName;
+        if (indexOfSlash == 0) {
+            parentFullName = "/";
+        } else {
+            parentFullName = fullName.substring(0, indexOfSlash);
+        }
+
+        // we check if the parent directory is writable.
+        NioFtpFile parentObject = new NioFtpFile(parentFullName, path
+                .toAbsolutePath().getParent(), user, view, cache, blobs, null);
+        return parentObject.isWritable();
+    }
+
+    /**
+     * Delete file.
+     */
+    public boolean delete() {
+        if (!isRemovable()) {
+            return false;
+        }
+
+        try {
+            if (blobs != null && attributes().isRegularFile()) {
+                blobs.delete(path);
+            } else {
+                Files.delete(path);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            modified();
+        }
+    }
+
+    /**
+     * Move file object.
+     */
+    public boolean move(final FtpFile dest) {
+        boolean retVal = false;
+        if (dest.isWritable() && isReadable()) {
+            NioFtpFile destFile = (NioFtpFile) dest;
+
+            if (destFile.doesExist()) {
+                // we never replace an existing file
+                retVal = false;
+            } else {
+                try {
+                    Files.move(path, destFile.path);
+                    if (blobs != null) {
+                        blobs.moved(path, destFile.path);
+                    }
+                    retVal = true;
+                } catch (IOException e) {
+                    retVal = false;
+                } finally {
+                    modified();
+                    destFile.modified();
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Create directory.
+     */
+    public boolean mkdir() {
+        if (!isWritable()) {
+            return false;
+        }
+
+        try {
+            Files.createDirectory(path);
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            modified();
+        }
+    }
+
+    /**
+     * Get the physical path object.
+     */
+    public Path getPhysicalFile() {
+        return path;
+    }
+
+    /**
+     * List files. If not a directory or does not exist, null will be returned.
+     */
+    public List<FtpFile> listFiles() {
+
+        // is a directory
+        if (!isDirectory()) {
+            return null;
+        }
+
+        // get the virtual name of the base directory
+        String virtualFileStr = getAbsolutePath();
+        if (virtualFileStr.charAt(virtualFileStr.length() - 1) != '/') {
+            virtualFileStr += '/';
+        }
+
+        List<NioFtpFile> virtualFiles = new ArrayList<>();
+        if (cache != null) {
+            NioAttributeCache.Listing listing = cache.getListing(path, view);
+            if (listing == null) {
+                return null;
+            }
+            for (int i = 0; i < listing.paths.length; i++) {
+                Path entry = listing.paths[i];
+                virtualFiles.add(new NioFtpFile(virtualFileStr
+                        + entry.getFileName(), entry, user, view, cache, blobs,
+                        listing.attributes[i]));
+            }
+            Collections.sort(virtualFiles, NAME_ORDER);
+            return Collections.<FtpFile> unmodifiableList(virtualFiles);
+        }
+
+        // read the attributes of each entry while iterating so that every
+        // entry costs a single call into the file system
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                virtualFiles.add(new NioFtpFile(virtualFileStr + name, entry,
+                        user, view, null, blobs, view.read(entry)));
+            }
+        } catch (IOException e) {
+            LOG.debug("Failed to list directory " + path, e);
+            return null;
+        }
+
+        // make sure the files are returned in order
+        Collections.sort(virtualFiles, NAME_ORDER);
+
+        return Collections.<FtpFile> unmodifiableList(virtualFiles);
+    }
+
+    /**
+     * Stream the files in directory order, reading the attributes of each
+     * entry as it is reached.
+     */
+    public Stream<FtpFile> streamFiles() {
+        if (!isDirectory()) {
+            return null;
+        }
+
+        String virtualFileStr = getAbsolutePath();
+        if (virtualFileStr.charAt(virtualFileStr.length() - 1) != '/') {
+            virtualFileStr += '/';
+        }
+        final String parentName = virtualFileStr;
+
+        if (cache != null) {
+            final NioAttributeCache.Listing listing = cache.getListing(path,
+                    view);
+            if (listing == null) {
+                return null;
+            }
+            return IntStream.range(0, listing.paths.length).mapToObj(
+                    i -> new NioFtpFile(parentName
+                            + listing.paths[i].getFileName(),
+                            listing.paths[i], user, view, cache, blobs,
+                            listing.attributes[i]));
+        }
+
+        try {
+            return Files.list(path).map(
+                    entry -> new NioFtpFile(parentName + entry.getFileName(),
+                            entry, user, view, null, blobs, view.read(entry)));
+        } catch (IOException e) {
+            LOG.debug("Failed to list directory " + path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Create output stream for writing.
+     */
+    public OutputStream createOutputStream(final long offset)
+            throws IOException {
+
+        // permission check
+        if (!isWritable()) {
+            throw new IOException("No write permission : " + getName());
+        }
+        modified();
+
+        OutputStream out;
+        if (blobs != null) {
+            // written to the store and linked into place when closed
+            out = blobs.createOutputStream(path, offset);
+        } else {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                if (offset < channel.size()) {
+                    channel.truncate(offset);
+                }
+                channel.position(offset);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            out = Channels.newOutputStream(channel);
+        }
+
+        // the size and time stamp keep changing until the upload is done
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    modified();
+                }
+            }
+        };
+    }
+
+    /**
+     * Create input stream for reading.
+     */
+    public InputStream createInputStream(final long offset) throws IOException {
+
+        // permission check
+        if (!isReadable()) {
+            throw new IOException("No read permission : " + getName());
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return Channels.newInputStream(channel);
+    }
+
+    /**
+     * Implements equals by comparing the normalized absolute paths of the
+     * underlying files. Ignores the fileName and User fields
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof NioFtpFile) {
+            return normalizedPath().equals(((NioFtpFile) obj).normalizedPath());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return normalizedPath().hashCode();
+    }
+
+    private Path normalizedPath() {
+        return path.toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tree;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The counters of a tree operation run by {@link TreeWalker}, updated by
+ * the pool threads while the operation is running.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TreeProgress {
+
+    private final LongAdder files = new LongAdder();
+
+    private final LongAdder directories = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private final Queue<FtpFile> removedFiles;
+
+    private final Queue<FtpFile> removedDirectories;
+
+    private volatile ForkJoinTask<?> task;
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param trackRemoved
+     *            Whether removed files are kept until they are polled
+     */
+    TreeProgress(final boolean trackRemoved) {
+        if (trackRemoved) {
+            removedFiles = new ConcurrentLinkedQueue<FtpFile>();
+            removedDirectories = new ConcurrentLinkedQueue<FtpFile>();
+        } else {
+            removedFiles = null;
+            removedDirectories = null;
+        }
+    }
+
+    /**
+     * Wait for the operation to complete.
+     * 
+     * @param timeout
+     *            The maximum time to wait, in milliseconds
+     * @return true if the operation has completed
+     */
+    public boolean await(final long timeout) throws InterruptedException {
+        try {
+            task.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // failures are counted as skipped entries by the tasks
+        }
+        return true;
+    }
+
+    /**
+     * Stop the operation, directories not yet started are left as they are.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return The number of files counted or removed so far
+     */
+    public long getFiles() {
+        return files.sum();
+    }
+
+    /**
+     * @return The number of directories counted or removed so far
+     */
+    public long getDirectories() {
+        return directories.sum();
+    }
+
+    /**
+     * @return The size of the files counted or removed so far
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return The number of entries left out, because they could not be
+     *         read, the user was not allowed to remove them or their removal
+     *         failed
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * Move the files and directories removed since the last call to the
+     * provided lists, so that they can be notified in batches.
+     * 
+     * @param files
+     *            The list to add the removed files to
+     * @param directories
+     *            The list to add the removed directories to
+     */
+    public void pollRemoved(final List<FtpFile> files,
+            final List<FtpFile> directories) {
+        if (removedFiles == null) {
+            return;
+        }
+        FtpFile file;
+        while ((file = removedFiles.poll()) != null) {
+            files.add(file);
+        }
+        while ((file = removedDirectories.poll()) != null) {
+            directories.add(file);
+        }
+    }
+
+    void setTask(final ForkJoinTask<?> task) {
+        this.task = task;
+    }
+
+    void file(final FtpFile file, final long size, final boolean removed) {
+        files.increment();
+        bytes.add(size);
+        if (removed) {
+            removedFiles.add(file);
+        }
+    }
+
+    void directory(final FtpFile directory, final boolean removed) {
+        directories.increment();
+        if (removed) {
+            removedDirectories.add(directory);
+        }
+    }
+
+    void skipped() {
+        skipped.increment();
+    }
+
+    /**
+     * Describe the counters in a single line.
+     */
+    @Override
+    public String toString() {
+        return getFiles() + " files, " + getDirectories() + " directories, "
+                + getBytes() + " bytes, " + getSkipped() + " skipped";
+    }
+}
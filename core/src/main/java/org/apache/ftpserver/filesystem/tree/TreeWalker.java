@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tree;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Runs recursive operations on directory trees on a fork/join pool, one
+ * task per directory, so that large trees are listed and removed by several
+ * threads while the session only waits for the result. Symbolic links to
+ * directories are never followed.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TreeWalker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TreeWalker.class);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism
+     *            The number of threads of the pool
+     */
+    public TreeWalker(final int parallelism) {
+        pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                    .newThread(forkJoinPool);
+            thread.setName("FtpServer-tree-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Count the files, directories and bytes of a tree.
+     * 
+     * @param directory
+     *            The top directory of the tree
+     * @return The progress of the operation
+     */
+    public TreeProgress size(final FtpFile directory) {
+        TreeProgress progress = new TreeProgress(false);
+        progress.setTask(pool.submit(new SizeTask(directory, progress)));
+        return progress;
+    }
+
+    /**
+     * Remove a tree, including its top directory. The write permission of
+     * the user is checked once for each directory, a directory the user is
+     * not allowed to write is left untouched with everything below it.
+     * 
+     * @param directory
+     *            The top directory of the tree
+     * @param user
+     *            The user removing the tree
+     * @return The progress of the operation
+     */
+    public TreeProgress remove(final FtpFile directory, final User user) {
+        TreeProgress progress = new TreeProgress(true);
+        progress.setTask(pool.submit(new RemoveTask(directory, user, progress)));
+        return progress;
+    }
+
+    /**
+     * Stop the pool threads.
+     */
+    public void dispose() {
+        pool.shutdownNow();
+    }
+
+    private static boolean isDirectory(final FtpFile file) {
+        if (!file.isDirectory()) {
+            return false;
+        }
+        Object physicalFile = file.getPhysicalFile();
+        Path path = null;
+        if (physicalFile instanceof File) {
+            path = ((File) physicalFile).toPath();
+        } else if (physicalFile instanceof Path) {
+            path = (Path) physicalFile;
+        }
+        return path == null || !Files.isSymbolicLink(path);
+    }
+
+    private static List<? extends FtpFile> list(final FtpFile directory) {
+        try {
+            return directory.listFiles();
+        } catch (RuntimeException e) {
+            LOG.debug("Failed to list " + directory.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private static class SizeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FtpFile directory;
+
+        private final TreeProgress progress;
+
+        private SizeTask(final FtpFile directory, final TreeProgress progress) {
+            this.directory = directory;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (progress.isCancelled()) {
+                return;
+            }
+            List<? extends FtpFile> children = directory.isReadable() ? list(directory)
+                    : null;
+            if (children == null) {
+                progress.skipped();
+                return;
+            }
+            progress.directory(directory, false);
+
+            List<SizeTask> subtasks = new ArrayList<SizeTask>();
+            for (FtpFile child : children) {
+                if (isDirectory(child)) {
+                    subtasks.add(new SizeTask(child, progress));
+                } else {
+                    progress.file(child, child.getSize(), false);
+                }
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private static class RemoveTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FtpFile directory;
+
+        private final User user;
+
+        private final TreeProgress progress;
+
+        private RemoveTask(final FtpFile directory, final User user,
+                final TreeProgress progress) {
+            this.directory = directory;
+            this.user = user;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (progress.isCancelled()) {
+                return;
+            }
+
+            // the permission of a directory covers the whole subtree
+            if (user.authorize(new WriteRequest(directory.getAbsolutePath())) == null) {
+                progress.skipped();
+                return;
+            }
+            List<? extends FtpFile> children = list(directory);
+            if (children == null) {
+                progress.skipped();
+                return;
+            }
+
+            List<RemoveTask> subtasks = new ArrayList<RemoveTask>();
+            for (FtpFile child : children) {
+                if (isDirectory(child)) {
+                    subtasks.add(new RemoveTask(child, user, progress));
+                } else {
+                    long size = child.getSize();
+                    if (child.delete()) {
+                        progress.file(child, size, true);
+                    } else {
+                        progress.skipped();
+                    }
+                }
+            }
+            invokeAll(subtasks);
+
+            if (progress.isCancelled()) {
+                return;
+            }
+            if (directory.delete()) {
+                progress.directory(directory, true);
+            } else {
+                progress.skipped();
+            }
+        }
+    }
+}
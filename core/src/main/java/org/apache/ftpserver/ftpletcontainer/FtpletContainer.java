@@ -21,16 +21,27 @@ package org.apache.ftpserver.ftpletcontainer;
 
 import java.util.Map;
 
+import org.apache.ftpserver.ftplet.AsyncFtplet;
+import org.apache.ftpserver.ftplet.DataInterceptor;
 import org.apache.ftpserver.ftplet.Ftplet;
 
 /**
  * Interface describing an Ftplet container. Ftplet containers extend the
  * {@link Ftplet} interface and forward any events to the Ftplets hosted by the
  * container.
+ * <p>
+ * The server calls the asynchronous methods of {@link AsyncFtplet}, so that
+ * a container may let the session wait on the ftplets it hosts without
+ * holding a thread. Their default implementations call the synchronous
+ * methods.
+ * <p>
+ * Data transfers go through the {@link DataInterceptor} methods, which chain
+ * the stages of the hosted ftplets. Their default implementations leave the
+ * data alone.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
-public interface FtpletContainer extends Ftplet {
+public interface FtpletContainer extends AsyncFtplet, DataInterceptor {
 
     /**
      * Retrieve the {@link Ftplet} identified by the name (as provided in the
@@ -19,17 +19,30 @@
 
 package org.apache.ftpserver.ftpletcontainer.impl;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
+import org.apache.ftpserver.ftplet.AsyncFtplet;
+import org.apache.ftpserver.ftplet.DataInterceptor;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpReply;
 import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.ftplet.FtpSession;
 import org.apache.ftpserver.ftplet.Ftplet;
 import org.apache.ftpserver.ftplet.FtpletContext;
+import org.apache.ftpserver.ftplet.FtpletInterest;
 import org.apache.ftpserver.ftplet.FtpletResult;
 import org.apache.ftpserver.ftpletcontainer.FtpletContainer;
 import org.slf4j.Logger;
@@ -39,6 +52,20 @@ import org.slf4j.LoggerFactory;
  * <strong>Internal class, do not use directly.</strong>
  * 
  * This ftplet calls other ftplet methods and returns appropriate return value.
+ * <p>
+ * Ftplets implementing {@link FtpletInterest} are only called for the
+ * commands and events they declare. The ftplets to call are looked up in
+ * tables built on the first dispatch, and rebuilt when ftplets are added or
+ * removed.
+ * <p>
+ * When any of the ftplets is an {@link AsyncFtplet}, the asynchronous
+ * methods call the ftplets one after the other as their stages complete,
+ * without waiting for them. The synchronous methods then wait for the
+ * asynchronous ones.
+ * <p>
+ * The stages of the ftplets implementing {@link DataInterceptor} are chained
+ * in front of the stream of a transfer. Without such ftplets the stream is
+ * returned as is.
  *
  * <strong><strong>Internal class, do not use directly.</strong></strong>
  *
@@ -49,8 +76,170 @@ public class DefaultFtpletContainer implements FtpletContainer {
     private final Logger LOG = LoggerFactory
             .getLogger(DefaultFtpletContainer.class);
 
+    private static final Ftplet[] NO_FTPLETS = new Ftplet[0];
+
+    /**
+     * Calls a callback of an ftplet
+     */
+    private interface Hook {
+        CompletionStage<FtpletResult> call(Ftplet ftplet) throws FtpException,
+                IOException;
+    }
+
+    private static final DataInterceptor[] NO_INTERCEPTORS = new DataInterceptor[0];
+
+    /**
+     * Creates the stage of an interceptor
+     */
+    private interface Stage {
+        OutputStream intercept(DataInterceptor interceptor, OutputStream out)
+                throws FtpException, IOException;
+    }
+
+    /**
+     * The end of a chain of stages, leaving the stream of the transfer open
+     * when the stages are closed.
+     */
+    private static class ChainEnd extends FilterOutputStream {
+
+        private ChainEnd(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * The ftplets to call for each command and event, in the order of the
+     * ftplet map.
+     */
+    private static class Dispatch {
+
+        private final Ftplet[] all;
+
+        private final boolean async;
+
+        private final Ftplet[] connections;
+
+        private final DataInterceptor[] interceptors;
+
+        private final Map<String, Ftplet[]> before = new HashMap<>();
+
+        private final Ftplet[] beforeOthers;
+
+        private final Map<String, Ftplet[]> after = new HashMap<>();
+
+        private final Ftplet[] afterOthers;
+
+        private Dispatch(final Map<String, Ftplet> ftplets) {
+            List<Ftplet> all = new ArrayList<>(ftplets.values());
+            this.all = all.toArray(NO_FTPLETS);
+
+            boolean anyAsync = false;
+            for (Ftplet ftplet : all) {
+                anyAsync |= ftplet instanceof AsyncFtplet;
+            }
+            async = anyAsync;
+
+            List<Ftplet> selected = new ArrayList<>();
+            for (Ftplet ftplet : all) {
+                if (!(ftplet instanceof FtpletInterest)
+                        || ((FtpletInterest) ftplet).handlesConnections()) {
+                    selected.add(ftplet);
+                }
+            }
+            connections = selected.toArray(NO_FTPLETS);
+
+            List<DataInterceptor> intercepting = new ArrayList<>();
+            for (Ftplet ftplet : all) {
+                if (ftplet instanceof DataInterceptor) {
+                    intercepting.add((DataInterceptor) ftplet);
+                }
+            }
+            interceptors = intercepting.toArray(NO_INTERCEPTORS);
+
+            beforeOthers = build(all, true, before);
+            afterOthers = build(all, false, after);
+        }
+
+        /**
+         * Fill the table of a hook for every command declared by an ftplet.
+         * 
+         * @return The ftplets to call for the commands not in the table
+         */
+        private static Ftplet[] build(final List<Ftplet> all,
+                final boolean before, final Map<String, Ftplet[]> table) {
+            List<Set<String>> interests = new ArrayList<>(all.size());
+            Set<String> commands = new HashSet<>();
+            for (Ftplet ftplet : all) {
+                Set<String> interest = null;
+                if (ftplet instanceof FtpletInterest) {
+                    FtpletInterest declared = (FtpletInterest) ftplet;
+                    interest = before ? declared.getBeforeCommands()
+                            : declared.getAfterCommands();
+                }
+                interests.add(interest);
+                if (interest != null) {
+                    commands.addAll(interest);
+                }
+            }
+
+            for (String command : commands) {
+                table.put(command, select(all, interests, command));
+            }
+            return select(all, interests, null);
+        }
+
+        private static Ftplet[] select(final List<Ftplet> all,
+                final List<Set<String>> interests, final String command) {
+            List<Ftplet> selected = new ArrayList<>();
+            for (int i = 0; i < all.size(); i++) {
+                Set<String> interest = interests.get(i);
+                if (interest == null
+                        || (command != null && interest.contains(command))) {
+                    selected.add(all.get(i));
+                }
+            }
+            return selected.toArray(NO_FTPLETS);
+        }
+
+        /**
+         * @return true if the tables were built from the very ftplets the map
+         *         holds, in the same order
+         */
+        private boolean matches(final Map<String, Ftplet> ftplets) {
+            int i = 0;
+            for (Ftplet ftplet : ftplets.values()) {
+                if (i == all.length || all[i++] != ftplet) {
+                    return false;
+                }
+            }
+            return i == all.length;
+        }
+
+        private Ftplet[] before(final String command) {
+            Ftplet[] selected = before.get(command);
+            return selected != null ? selected : beforeOthers;
+        }
+
+        private Ftplet[] after(final String command) {
+            Ftplet[] selected = after.get(command);
+            return selected != null ? selected : afterOthers;
+        }
+    }
+
     private final Map<String, Ftplet> ftplets ;
 
+    private volatile Dispatch dispatch;
+
     public DefaultFtpletContainer() {
         this(new ConcurrentHashMap<>());
     }
@@ -74,6 +263,16 @@ public class DefaultFtpletContainer implements FtpletContainer {
         for (Entry<String, Ftplet> entry : ftplets.entrySet()) {
             entry.getValue().init(ftpletContext);
         }
+        dispatch = new Dispatch(ftplets);
+    }
+
+    private Dispatch getDispatch() {
+        Dispatch current = dispatch;
+        if (current == null || !current.matches(ftplets)) {
+            current = new Dispatch(ftplets);
+            dispatch = current;
+        }
+        return current;
     }
 
     /**
@@ -101,9 +300,14 @@ public class DefaultFtpletContainer implements FtpletContainer {
      */
     public FtpletResult onConnect(FtpSession session) throws FtpException,
             IOException {
+        Dispatch current = getDispatch();
+        if (current.async) {
+            return await(onConnectAsync(session));
+        }
+
         FtpletResult retVal = FtpletResult.DEFAULT;
-        for (Entry<String, Ftplet> entry : ftplets.entrySet()) {
-            retVal = entry.getValue().onConnect(session);
+        for (Ftplet ftplet : current.connections) {
+            retVal = ftplet.onConnect(session);
             if (retVal == null) {
                 retVal = FtpletResult.DEFAULT;
             }
@@ -121,10 +325,15 @@ public class DefaultFtpletContainer implements FtpletContainer {
      */
     public FtpletResult onDisconnect(FtpSession session) throws FtpException,
             IOException {
+        Dispatch current = getDispatch();
+        if (current.async) {
+            return await(onDisconnectAsync(session));
+        }
+
         FtpletResult retVal = FtpletResult.DEFAULT;
-        for (Entry<String, Ftplet> entry : ftplets.entrySet()) {
+        for (Ftplet ftplet : current.connections) {
 
-            retVal = entry.getValue().onDisconnect(session);
+            retVal = ftplet.onDisconnect(session);
             if (retVal == null) {
                 retVal = FtpletResult.DEFAULT;
             }
@@ -139,10 +348,15 @@ public class DefaultFtpletContainer implements FtpletContainer {
 
     public FtpletResult afterCommand(FtpSession session, FtpRequest request, FtpReply reply)
             throws FtpException, IOException {
+        Dispatch current = getDispatch();
+        if (current.async) {
+            return await(afterCommandAsync(session, request, reply));
+        }
+
         FtpletResult retVal = FtpletResult.DEFAULT;
-        for (Entry<String, Ftplet> entry : ftplets.entrySet()) {
+        for (Ftplet ftplet : current.after(request.getCommand())) {
 
-            retVal = entry.getValue().afterCommand(session, request, reply);
+            retVal = ftplet.afterCommand(session, request, reply);
             if (retVal == null) {
                 retVal = FtpletResult.DEFAULT;
             }
@@ -157,10 +371,15 @@ public class DefaultFtpletContainer implements FtpletContainer {
 
     public FtpletResult beforeCommand(FtpSession session, FtpRequest request)
             throws FtpException, IOException {
+        Dispatch current = getDispatch();
+        if (current.async) {
+            return await(beforeCommandAsync(session, request));
+        }
+
         FtpletResult retVal = FtpletResult.DEFAULT;
-        for (Entry<String, Ftplet> entry : ftplets.entrySet()) {
+        for (Ftplet ftplet : current.before(request.getCommand())) {
 
-            retVal = entry.getValue().beforeCommand(session, request);
+            retVal = ftplet.beforeCommand(session, request);
             if (retVal == null) {
                 retVal = FtpletResult.DEFAULT;
             }
@@ -173,4 +392,154 @@ public class DefaultFtpletContainer implements FtpletContainer {
         return retVal;
     }
 
+    public CompletionStage<FtpletResult> onConnectAsync(
+            final FtpSession session) throws FtpException, IOException {
+        Dispatch current = getDispatch();
+        if (!current.async) {
+            return CompletableFuture.completedFuture(onConnect(session));
+        }
+        return call(current.connections, 0, ftplet -> ftplet instanceof AsyncFtplet
+                ? ((AsyncFtplet) ftplet).onConnectAsync(session)
+                : CompletableFuture.completedFuture(ftplet.onConnect(session)));
+    }
+
+    public CompletionStage<FtpletResult> onDisconnectAsync(
+            final FtpSession session) throws FtpException, IOException {
+        Dispatch current = getDispatch();
+        if (!current.async) {
+            return CompletableFuture.completedFuture(onDisconnect(session));
+        }
+        return call(current.connections, 0, ftplet -> ftplet instanceof AsyncFtplet
+                ? ((AsyncFtplet) ftplet).onDisconnectAsync(session)
+                : CompletableFuture.completedFuture(ftplet.onDisconnect(session)));
+    }
+
+    public CompletionStage<FtpletResult> afterCommandAsync(
+            final FtpSession session, final FtpRequest request,
+            final FtpReply reply) throws FtpException, IOException {
+        Dispatch current = getDispatch();
+        if (!current.async) {
+            return CompletableFuture.completedFuture(afterCommand(session,
+                    request, reply));
+        }
+        return call(current.after(request.getCommand()), 0,
+                ftplet -> ftplet instanceof AsyncFtplet
+                        ? ((AsyncFtplet) ftplet).afterCommandAsync(session, request, reply)
+                        : CompletableFuture.completedFuture(ftplet.afterCommand(session, request, reply)));
+    }
+
+    public CompletionStage<FtpletResult> beforeCommandAsync(
+            final FtpSession session, final FtpRequest request)
+            throws FtpException, IOException {
+        Dispatch current = getDispatch();
+        if (!current.async) {
+            return CompletableFuture.completedFuture(beforeCommand(session,
+                    request));
+        }
+        return call(current.before(request.getCommand()), 0,
+                ftplet -> ftplet instanceof AsyncFtplet
+                        ? ((AsyncFtplet) ftplet).beforeCommandAsync(session, request)
+                        : CompletableFuture.completedFuture(ftplet.beforeCommand(session, request)));
+    }
+
+    /**
+     * Call the ftplets from the given index, going on with the next one only
+     * if the previous returned {@link FtpletResult#DEFAULT}. Stages which are
+     * already complete are handled in the calling thread.
+     */
+    private static CompletionStage<FtpletResult> call(final Ftplet[] ftplets,
+            final int from, final Hook hook) {
+        for (int i = from; i < ftplets.length; i++) {
+            CompletableFuture<FtpletResult> stage;
+            try {
+                stage = hook.call(ftplets[i]).toCompletableFuture();
+            } catch (Exception e) {
+                return failed(e);
+            }
+
+            if (!stage.isDone()) {
+                final int next = i + 1;
+                return stage.thenCompose(retVal -> retVal == null
+                        || retVal == FtpletResult.DEFAULT ? call(ftplets,
+                        next, hook) : CompletableFuture.completedFuture(retVal));
+            } else if (stage.isCompletedExceptionally()) {
+                return stage;
+            }
+
+            FtpletResult retVal = stage.join();
+            // proceed only if the return value is FtpletResult.DEFAULT
+            if (retVal != null && retVal != FtpletResult.DEFAULT) {
+                return stage;
+            }
+        }
+        return CompletableFuture.completedFuture(FtpletResult.DEFAULT);
+    }
+
+    private static CompletableFuture<FtpletResult> failed(final Throwable e) {
+        CompletableFuture<FtpletResult> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    /**
+     * Wait for an asynchronous callback, throwing what it completed with.
+     */
+    private static FtpletResult await(final CompletionStage<FtpletResult> stage)
+            throws FtpException, IOException {
+        try {
+            FtpletResult retVal = stage.toCompletableFuture().get();
+            return retVal == null ? FtpletResult.DEFAULT : retVal;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FtpException("Interrupted while waiting for ftplet", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FtpException) {
+                throw (FtpException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new FtpException(cause);
+        }
+    }
+
+    public OutputStream interceptUpload(final FtpSession session,
+            final FtpRequest request, final OutputStream out)
+            throws FtpException, IOException {
+        return intercept(out, (interceptor, next) -> interceptor
+                .interceptUpload(session, request, next));
+    }
+
+    public OutputStream interceptDownload(final FtpSession session,
+            final FtpRequest request, final OutputStream out)
+            throws FtpException, IOException {
+        return intercept(out, (interceptor, next) -> interceptor
+                .interceptDownload(session, request, next));
+    }
+
+    /**
+     * Chain the stages of the interceptors, the first one receiving the data
+     * first.
+     */
+    private OutputStream intercept(final OutputStream out, final Stage stage)
+            throws FtpException, IOException {
+        DataInterceptor[] interceptors = getDispatch().interceptors;
+        if (interceptors.length == 0) {
+            return out;
+        }
+
+        OutputStream end = new ChainEnd(out);
+        OutputStream chain = end;
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            chain = stage.intercept(interceptors[i], chain);
+        }
+
+        // no stage wants the data
+        return chain == end ? out : chain;
+    }
+
 }
@@ -0,0 +1,714 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Decouples statistics and file observers from the session threads. Events
+ * are put into bounded ring buffers of preallocated slots and delivered by
+ * dedicated consumer threads, so that a slow observer no longer stalls the
+ * sessions. The dispatcher is configured with
+ * {@link org.apache.ftpserver.FtpServerFactory#setObserverDispatcher(AsyncObserverDispatcher)}
+ * or the <code>observer-dispatcher</code> element of the Spring
+ * configuration, the observers registered with the
+ * {@link DefaultFtpStatistics} of the server are then called through it.
+ * 
+ * Each consumer thread has its own ring buffer of <code>capacity</code>
+ * slots. The events of a session always go to the same thread and are
+ * delivered in the order they were accepted, events of different sessions
+ * may be delivered concurrently when more than one thread is used, in which
+ * case the observers must be thread safe. Observers that also implement
+ * {@link BatchObserver} get the events in batches of up to
+ * <code>batchSize</code>. Since delivery is asynchronous, the session of an
+ * event might already be closed when the observer sees it.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class AsyncObserverDispatcher implements StatisticsObserver,
+        FileObserver {
+
+    /**
+     * What to do with an event when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for the consumer to free a slot
+         */
+        BLOCK,
+
+        /**
+         * Drop the event
+         */
+        DROP,
+
+        /**
+         * Once the buffer is more than half full, only accept one in every
+         * <code>sampleRate</code> events and drop the others. Events are
+         * dropped when the buffer is full.
+         */
+        SAMPLE
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(100);
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS
+            .toNanos(50);
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(AsyncObserverDispatcher.class);
+
+    private volatile StatisticsObserver observer;
+
+    private volatile FileObserver fileObserver;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Lane[] lanes;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private int sampleRate = 10;
+
+    private int batchSize = 256;
+
+    private volatile boolean running;
+
+    /**
+     * Create a dispatcher with a single consumer thread
+     * 
+     * @param observer
+     *            The statistics observer, can be null
+     * @param fileObserver
+     *            The file observer, can be null
+     * @param capacity
+     *            The number of slots in the ring buffer, rounded up to the
+     *            next power of two
+     * @param overflowPolicy
+     *            What to do with events when the ring buffer is full
+     */
+    public AsyncObserverDispatcher(final StatisticsObserver observer,
+            final FileObserver fileObserver, final int capacity,
+            final OverflowPolicy overflowPolicy) {
+        this(capacity, overflowPolicy, 1);
+        this.observer = observer;
+        this.fileObserver = fileObserver;
+    }
+
+    /**
+     * Create a dispatcher without observers, they are set by the statistics
+     * the dispatcher is installed in.
+     * 
+     * @param capacity
+     *            The number of slots in the ring buffer of each thread,
+     *            rounded up to the next power of two
+     * @param overflowPolicy
+     *            What to do with events when a ring buffer is full
+     * @param threads
+     *            The number of consumer threads
+     */
+    public AsyncObserverDispatcher(final int capacity,
+            final OverflowPolicy overflowPolicy, final int threads) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("overflowPolicy can not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Illegal number of threads: "
+                    + threads);
+        }
+
+        this.overflowPolicy = overflowPolicy;
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        lanes = new Lane[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new Lane(size);
+        }
+    }
+
+    /**
+     * Set the statistics observer
+     * @param observer The observer, can be null
+     */
+    public void setObserver(final StatisticsObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Set the file observer
+     * @param fileObserver The observer, can be null
+     */
+    public void setFileObserver(final FileObserver fileObserver) {
+        this.fileObserver = fileObserver;
+    }
+
+    /**
+     * The rate used by {@link OverflowPolicy#SAMPLE}
+     * @param sampleRate Accept one in every sampleRate events, must be positive
+     */
+    public void setSampleRate(final int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Illegal sample rate: "
+                    + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * The maximum number of events handed to a {@link BatchObserver} at once
+     * @param batchSize The batch size, must be positive
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Illegal batch size: "
+                    + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Start the consumer threads
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < lanes.length; i++) {
+            final Lane lane = lanes[i];
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    consume(lane);
+                }
+            }, "FtpServer-observer-dispatcher-" + i);
+            thread.setDaemon(true);
+            lane.consumer = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the consumer threads, events already in the ring buffers are
+     * delivered before this method returns.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.consumer);
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lane.consumer = null;
+        }
+    }
+
+    /**
+     * Is the consumer thread running
+     * @return true if started
+     */
+    public boolean isStarted() {
+        return running;
+    }
+
+    /**
+     * The number of consumer threads
+     * @return The number of threads
+     */
+    public int getThreads() {
+        return lanes.length;
+    }
+
+    /**
+     * The number of slots in the ring buffers of all threads
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return lanes[0].slots.length * lanes.length;
+    }
+
+    /**
+     * The number of events waiting to be delivered
+     * @return The backlog
+     */
+    public int getBacklog() {
+        int backlog = 0;
+        for (Lane lane : lanes) {
+            backlog += lane.getBacklog();
+        }
+        return backlog;
+    }
+
+    /**
+     * The number of events dropped because of the overflow policy
+     * @return The number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * The number of events delivered to the observers
+     * @return The number of delivered events
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    // //////////////////////////////////////////////////////
+    // ////////////////// producer side /////////////////////
+
+    public void notifyUpload(final FtpIoSession session, final FtpFile file,
+            final long size) {
+        publish(ObserverEvent.Type.UPLOAD, session, file, size, false, null);
+    }
+
+    public void notifyDownload(final FtpIoSession session,
+            final FtpFile file, final long size) {
+        publish(ObserverEvent.Type.DOWNLOAD, session, file, size, false, null);
+    }
+
+    public void notifyDelete(final FtpIoSession session, final FtpFile file) {
+        publish(ObserverEvent.Type.DELETE, session, file, 0, false, null);
+    }
+
+    public void notifyMkdir(final FtpIoSession session, final FtpFile file) {
+        publish(ObserverEvent.Type.MKDIR, session, file, 0, false, null);
+    }
+
+    public void notifyRmdir(final FtpIoSession session, final FtpFile file) {
+        publish(ObserverEvent.Type.RMDIR, session, file, 0, false, null);
+    }
+
+    @Override
+    public void notifyDeleteTree(final FtpIoSession session,
+            final List<FtpFile> files, final List<FtpFile> dirs) {
+        publishTree(session, files, dirs);
+    }
+
+    /**
+     * The statistics only upload, download, delete, mkdir and rmdir
+     * notifications are ignored, the observers learn about those from the
+     * corresponding {@link FileObserver} notifications. The statistics
+     * implementations always raise both.
+     */
+    public void notifyUpload() {
+        // delivered with the file event
+    }
+
+    public void notifyDownload() {
+        // delivered with the file event
+    }
+
+    public void notifyDelete() {
+        // delivered with the file event
+    }
+
+    public void notifyMkdir() {
+        // delivered with the file event
+    }
+
+    public void notifyRmdir() {
+        // delivered with the file event
+    }
+
+    public void notifyLogin(final boolean anonymous) {
+        publish(ObserverEvent.Type.LOGIN, null, null, 0, anonymous, null);
+    }
+
+    public void notifyLoginFail(final InetAddress address) {
+        publish(ObserverEvent.Type.LOGIN_FAIL, null, null, 0, false, address);
+    }
+
+    public void notifyLogout(final boolean anonymous) {
+        publish(ObserverEvent.Type.LOGOUT, null, null, 0, anonymous, null);
+    }
+
+    public void notifyOpenConnection() {
+        publish(ObserverEvent.Type.OPEN_CONNECTION, null, null, 0, false, null);
+    }
+
+    public void notifyCloseConnection() {
+        publish(ObserverEvent.Type.CLOSE_CONNECTION, null, null, 0, false, null);
+    }
+
+    /**
+     * Queue an event. The session selects the consumer thread, events without
+     * a session go to the first one.
+     */
+    void publish(final ObserverEvent.Type type,
+            final FtpIoSession session, final FtpFile file, final long size,
+            final boolean anonymous, final InetAddress address) {
+        Lane lane = laneOf(session);
+        long position = claim(lane, session);
+        if (position < 0) {
+            return;
+        }
+        int index = (int) (position & lane.mask);
+        lane.slots[index].set(type, session, file, size, anonymous, address);
+        publish(lane, index, position);
+    }
+
+    /**
+     * Queue the files and directories removed at once as a single event.
+     */
+    void publishTree(final FtpIoSession session, final List<FtpFile> files,
+            final List<FtpFile> dirs) {
+        Lane lane = laneOf(session);
+        long position = claim(lane, session);
+        if (position < 0) {
+            return;
+        }
+        int index = (int) (position & lane.mask);
+        lane.slots[index].setTree(session, files, dirs);
+        publish(lane, index, position);
+    }
+
+    private Lane laneOf(final FtpIoSession session) {
+        return lanes.length == 1 || session == null ? lanes[0]
+                : lanes[(int) Math.floorMod(session.getId(), (long) lanes.length)];
+    }
+
+    /**
+     * Claim a position for an event, applying the overflow policy
+     * @return The position, or -1 if the event is dropped
+     */
+    private long claim(final Lane lane, final FtpIoSession session) {
+        if (overflowPolicy == OverflowPolicy.SAMPLE
+                && lane.getBacklog() > (lane.slots.length >> 1)
+                && sampleCounter.getAndIncrement() % sampleRate != 0) {
+            dropped.increment();
+            return -1;
+        }
+
+        long position = claim(lane);
+        if (position < 0) {
+            dropped.increment();
+        }
+        return position;
+    }
+
+    /**
+     * Make the event in a claimed slot visible to the consumer.
+     */
+    private void publish(final Lane lane, final int index, final long position) {
+        lane.sequences.set(index, position + 1);
+
+        if (lane.consumerWaiting) {
+            Thread thread = lane.consumer;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Claim the next free position of a lane
+     * @return The position, or -1 if none is available
+     */
+    private long claim(final Lane lane) {
+        while (true) {
+            long position = lane.tail.get();
+            long sequence = lane.sequences.get((int) (position & lane.mask));
+            long diff = sequence - position;
+            if (diff == 0) {
+                if (lane.tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (diff < 0) {
+                // full
+                if (overflowPolicy != OverflowPolicy.BLOCK || !running) {
+                    return -1;
+                }
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+            // else another producer claimed the position, retry
+        }
+    }
+
+    // //////////////////////////////////////////////////////
+    // ////////////////// consumer side /////////////////////
+
+    private void consume(final Lane lane) {
+        List<ObserverEvent> batch = new ArrayList<>(batchSize);
+        List<ObserverEvent> fileBatch = new ArrayList<>(batchSize);
+        ObserverEvent[] slots = lane.slots;
+        AtomicLongArray sequences = lane.sequences;
+        int mask = lane.mask;
+
+        while (true) {
+            long position = lane.head;
+            int limit = batchSize;
+            while (batch.size() < limit) {
+                int index = (int) (position & mask);
+                if (sequences.get(index) != position + 1) {
+                    break;
+                }
+                batch.add(slots[index]);
+                position++;
+            }
+
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                lane.consumerWaiting = true;
+                long head = lane.head;
+                if (sequences.get((int) (head & mask)) != head + 1 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                lane.consumerWaiting = false;
+                continue;
+            }
+
+            deliver(batch, fileBatch);
+
+            // release the slots for reuse
+            for (int i = 0; i < batch.size(); i++) {
+                long released = lane.head + i;
+                int index = (int) (released & mask);
+                slots[index].clear();
+                sequences.set(index, released + slots.length);
+            }
+            delivered.add(batch.size());
+            lane.head = position;
+            batch.clear();
+            fileBatch.clear();
+        }
+    }
+
+    private void deliver(final List<ObserverEvent> batch,
+            final List<ObserverEvent> fileBatch) {
+        final StatisticsObserver registered = this.observer;
+        StatisticsObserver observer = registered;
+        FileObserver fileObserver = this.fileObserver;
+
+        if (observer instanceof BatchObserver) {
+            notifyBatch((BatchObserver) observer, batch);
+            observer = null;
+        }
+
+        if (fileObserver instanceof BatchObserver) {
+            // an observer registered twice only gets the batch once
+            if (fileObserver != registered) {
+                for (ObserverEvent event : batch) {
+                    if (isFileEvent(event)) {
+                        fileBatch.add(event);
+                    }
+                }
+                if (!fileBatch.isEmpty()) {
+                    notifyBatch((BatchObserver) fileObserver, fileBatch);
+                }
+            }
+            fileObserver = null;
+        }
+
+        if (observer == null && fileObserver == null) {
+            return;
+        }
+
+        for (ObserverEvent event : batch) {
+            if (observer != null) {
+                notifyStatistics(observer, event);
+            }
+            if (fileObserver != null && isFileEvent(event)) {
+                notifyFile(fileObserver, event);
+            }
+        }
+    }
+
+    private void notifyBatch(final BatchObserver batchObserver,
+            final List<ObserverEvent> events) {
+        try {
+            batchObserver.notifyEvents(events);
+        } catch (RuntimeException e) {
+            LOG.warn("Observer failed to handle events", e);
+        }
+    }
+
+    private static boolean isFileEvent(final ObserverEvent event) {
+        switch (event.type) {
+        case UPLOAD:
+        case DOWNLOAD:
+        case DELETE:
+        case MKDIR:
+        case RMDIR:
+        case DELETE_TREE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void notifyStatistics(final StatisticsObserver observer,
+            final ObserverEvent event) {
+        try {
+            switch (event.type) {
+            case UPLOAD:
+                observer.notifyUpload();
+                break;
+            case DOWNLOAD:
+                observer.notifyDownload();
+                break;
+            case DELETE:
+                observer.notifyDelete();
+                break;
+            case MKDIR:
+                observer.notifyMkdir();
+                break;
+            case RMDIR:
+                observer.notifyRmdir();
+                break;
+            case LOGIN:
+                observer.notifyLogin(event.anonymous);
+                break;
+            case LOGIN_FAIL:
+                observer.notifyLoginFail(event.address);
+                break;
+            case LOGOUT:
+                observer.notifyLogout(event.anonymous);
+                break;
+            case OPEN_CONNECTION:
+                observer.notifyOpenConnection();
+                break;
+            case CLOSE_CONNECTION:
+                observer.notifyCloseConnection();
+                break;
+            case DELETE_TREE:
+                for (int i = 0; i < event.files.size(); i++) {
+                    observer.notifyDelete();
+                }
+                for (int i = 0; i < event.dirs.size(); i++) {
+                    observer.notifyRmdir();
+                }
+                break;
+            default:
+                break;
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Statistics observer failed to handle " + event.type, e);
+        }
+    }
+
+    private void notifyFile(final FileObserver fileObserver,
+            final ObserverEvent event) {
+        try {
+            switch (event.type) {
+            case UPLOAD:
+                fileObserver.notifyUpload(event.session, event.file, event.size);
+                break;
+            case DOWNLOAD:
+                fileObserver.notifyDownload(event.session, event.file,
+                        event.size);
+                break;
+            case DELETE:
+                fileObserver.notifyDelete(event.session, event.file);
+                break;
+            case MKDIR:
+                fileObserver.notifyMkdir(event.session, event.file);
+                break;
+            case RMDIR:
+                fileObserver.notifyRmdir(event.session, event.file);
+                break;
+            case DELETE_TREE:
+                fileObserver.notifyDeleteTree(event.session, event.files,
+                        event.dirs);
+                break;
+            default:
+                break;
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("File observer failed to handle " + event.type, e);
+        }
+    }
+
+    /**
+     * A ring buffer with its consumer thread.
+     */
+    private static final class Lane {
+
+        private final ObserverEvent[] slots;
+
+        /**
+         * Per slot sequence, a slot at index i is free for the producer
+         * claiming position p when its sequence equals p, and readable by
+         * the consumer at position p when its sequence equals p + 1.
+         */
+        private final AtomicLongArray sequences;
+
+        private final int mask;
+
+        private final AtomicLong tail = new AtomicLong();
+
+        /**
+         * Only written by the consumer thread
+         */
+        private volatile long head;
+
+        private volatile boolean consumerWaiting;
+
+        private volatile Thread consumer;
+
+        private Lane(final int size) {
+            slots = new ObserverEvent[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                slots[i] = new ObserverEvent();
+                sequences.set(i, i);
+            }
+            mask = size - 1;
+        }
+
+        private int getBacklog() {
+            long backlog = tail.get() - head;
+            return (int) Math.max(0, Math.min(backlog, slots.length));
+        }
+    }
+}
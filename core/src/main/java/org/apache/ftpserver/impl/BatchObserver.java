@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.List;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Observer that can handle several events at once. When a
+ * {@link StatisticsObserver} or {@link FileObserver} given to
+ * {@link AsyncObserverDispatcher} also implements this interface, it will
+ * receive the queued events in batches instead of one callback per event.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface BatchObserver {
+
+    /**
+     * Batch notification, in the order the events were raised.
+     * 
+     * @param events
+     *            The events, only valid for the duration of the call
+     */
+    void notifyEvents(List<ObserverEvent> events);
+}
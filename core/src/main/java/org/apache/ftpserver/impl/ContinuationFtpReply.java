@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Leading lines of a multi line reply, sent while a long running command is
+ * still at work to report its progress. The reply is only ended by the
+ * regular reply with the same code written once the command has completed.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ContinuationFtpReply extends DefaultFtpReply {
+
+    public static ContinuationFtpReply translate(FtpIoSession session,
+            FtpRequest request, FtpServerContext context, int code,
+            String subId, String basicMsg) {
+        String msg = FtpReplyTranslator.translateMessage(session, request,
+                context, code, subId, basicMsg);
+
+        return new ContinuationFtpReply(code, msg);
+    }
+
+    /**
+     * Creates a new instance of <code>ContinuationFtpReply</code>.
+     * 
+     * @param code
+     *            the code of the reply to be continued
+     * @param message
+     *            the reply text
+     */
+    public ContinuationFtpReply(int code, String message) {
+        super(code, message);
+    }
+
+    /**
+     * Every line starts with the code followed by a hyphen.
+     */
+    @Override
+    public String toString() {
+        String message = getMessage() == null ? "" : getMessage().replace(
+                "\r", "");
+        StringBuilder sb = new StringBuilder(message.length() + 16);
+        for (String line : message.split("\n")) {
+            sb.append(getCode()).append('-').append(line).append("\r\n");
+        }
+        return sb.toString();
+    }
+}
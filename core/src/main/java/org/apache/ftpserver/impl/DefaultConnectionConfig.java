@@ -42,6 +42,10 @@ public class DefaultConnectionConfig implements ConnectionConfig {
     
     private final int maxThreads;
 
+    private final int maxConnectionsPerIp;
+
+    private final int maxConnectionRatePerIp;
+
     public DefaultConnectionConfig() {
         this(true, 500, 10, 10, 3, 0);
     }
@@ -52,12 +56,25 @@ public class DefaultConnectionConfig implements ConnectionConfig {
     public DefaultConnectionConfig(boolean anonymousLoginEnabled,
             int loginFailureDelay, int maxLogins, int maxAnonymousLogins,
             int maxLoginFailures, int maxThreads) {
+        this(anonymousLoginEnabled, loginFailureDelay, maxLogins,
+                maxAnonymousLogins, maxLoginFailures, maxThreads, 0, 0);
+    }
+
+    /**
+     * Internal constructor, do not use directly. Use {@link ConnectionConfigFactory} instead
+     */
+    public DefaultConnectionConfig(boolean anonymousLoginEnabled,
+            int loginFailureDelay, int maxLogins, int maxAnonymousLogins,
+            int maxLoginFailures, int maxThreads, int maxConnectionsPerIp,
+            int maxConnectionRatePerIp) {
         this.anonymousLoginEnabled = anonymousLoginEnabled;
         this.loginFailureDelay = loginFailureDelay;
         this.maxLogins = maxLogins;
         this.maxAnonymousLogins = maxAnonymousLogins;
         this.maxLoginFailures = maxLoginFailures;
         this.maxThreads = maxThreads;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.maxConnectionRatePerIp = maxConnectionRatePerIp;
     }
 
     public int getLoginFailureDelay() {
@@ -83,5 +100,13 @@ public class DefaultConnectionConfig implements ConnectionConfig {
     public int getMaxThreads() {
         return maxThreads;
     }
+
+    public int getMaxConnectionsPerIp() {
+        return maxConnectionsPerIp;
+    }
+
+    public int getMaxConnectionRatePerIp() {
+        return maxConnectionRatePerIp;
+    }
     
 }
@@ -141,6 +141,20 @@ public class DefaultDataConnectionConfiguration implements
         return passivePorts.toString();
     }
 
+    /**
+     * Get the number of passive ports currently reserved
+     */
+    public int getReservedPassivePortCount() {
+        return passivePorts.getReservedPortCount();
+    }
+
+    /**
+     * Get the number of passive ports available for reservation
+     */
+    public int getFreePassivePortCount() {
+        return passivePorts.getFreePortCount();
+    }
+
     /**
      * Release data port
      */
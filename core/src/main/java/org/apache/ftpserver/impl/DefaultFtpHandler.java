@@ -21,6 +21,10 @@ package org.apache.ftpserver.impl;
 
 import java.io.IOException;
 import java.nio.charset.MalformedInputException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.ftpserver.command.Command;
 import org.apache.ftpserver.command.CommandFactory;
@@ -30,8 +34,11 @@ import org.apache.ftpserver.ftplet.FtpReply;
 import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.ftplet.FtpletResult;
 import org.apache.ftpserver.ftpletcontainer.FtpletContainer;
+import org.apache.ftpserver.impl.jfr.FtpEvents;
 import org.apache.ftpserver.listener.Listener;
 import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.core.session.IoEventType;
 import org.apache.mina.core.write.WriteToClosedSessionException;
 import org.apache.mina.filter.codec.ProtocolDecoderException;
 import org.slf4j.Logger;
@@ -39,6 +46,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * <strong>Internal class, do not use directly.</strong>
+ * <p>
+ * Ftplets are called through the asynchronous methods of the ftplet
+ * container. While a session waits on an ftplet no thread is held: further
+ * requests of the session are queued in its {@link PendingRequests}, and
+ * processing is resumed on the server's ordered thread pool when the ftplet
+ * completes.
  * 
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  *
@@ -50,6 +63,9 @@ public class DefaultFtpHandler implements FtpHandler {
     private final static String[] NON_AUTHENTICATED_COMMANDS = new String[] {
             "USER", "PASS", "AUTH", "QUIT", "PROT", "PBSZ" };
 
+    private final static CompletableFuture<Void> DONE = CompletableFuture
+            .completedFuture(null);
+
     private FtpServerContext context;
 
     private Listener listener;
@@ -71,17 +87,32 @@ public class DefaultFtpHandler implements FtpHandler {
     }
 
     public void sessionOpened(final FtpIoSession session) throws Exception {
+        FtpEvents.sessionOpened(session, context.getMetrics().getListenerName(
+                listener));
+
         FtpletContainer ftplets = context.getFtpletContainer();
 
-        FtpletResult ftpletRet;
+        // requests received before the ftplets are done wait for them
+        session.getPendingRequests().start();
+
+        CompletionStage<FtpletResult> ftpletRet;
         try {
-            ftpletRet = ftplets.onConnect(session.getFtpletSession());
+            ftpletRet = ftplets.onConnectAsync(session.getFtpletSession());
         } catch (Exception e) {
-            LOG.debug("Ftplet threw exception", e);
-            ftpletRet = FtpletResult.DISCONNECT;
+            ftpletRet = failed(e);
         }
+        CompletableFuture<Void> done = resumed(session, null,
+                ftpletResult(ftpletRet, "Ftplet threw exception"))
+                .thenAccept(result -> connected(session, result))
+                .toCompletableFuture();
+        process(session, done);
+    }
+
+    private void connected(final FtpIoSession session,
+            final FtpletResult ftpletRet) {
         if (ftpletRet == FtpletResult.DISCONNECT) {
             LOG.debug("Ftplet returned DISCONNECT, session will be closed");
+            session.getPendingRequests().clear();
             session.close(false).awaitUninterruptibly(10000);
         } else {
             session.updateLastAccessTime();
@@ -93,14 +124,32 @@ public class DefaultFtpHandler implements FtpHandler {
 
     public void sessionClosed(final FtpIoSession session) throws Exception {
         LOG.debug("Closing session");
+        FtpEvents.sessionClosed(session, context.getMetrics().getListenerName(
+                listener));
+
+        // requests not yet executed are dropped
+        session.getPendingRequests().clear();
+
+        CompletionStage<FtpletResult> ftpletRet;
         try {
-            context.getFtpletContainer().onDisconnect(
+            ftpletRet = context.getFtpletContainer().onDisconnectAsync(
                     session.getFtpletSession());
         } catch (Exception e) {
-            // swallow the exception, we're closing down the session anyways
-            LOG.warn("Ftplet threw an exception on disconnect", e);
+            ftpletRet = failed(e);
         }
 
+        // the session is released on whichever thread completes the
+        // ftplets, the thread pool may already be shut down
+        ftpletRet.whenComplete((result, e) -> {
+            if (e != null) {
+                // swallow the exception, we're closing down the session anyways
+                LOG.warn("Ftplet threw an exception on disconnect", e);
+            }
+            released(session);
+        });
+    }
+
+    private void released(final FtpIoSession session) {
         // make sure we close the data connection if it happens to be open
         try {
             ServerDataConnectionFactory dc = session.getDataConnection(); 
@@ -174,66 +223,81 @@ public class DefaultFtpHandler implements FtpHandler {
 
     public void messageReceived(final FtpIoSession session,
             final FtpRequest request) throws Exception {
-        try {
-            session.updateLastAccessTime();
-            
-            String commandName = request.getCommand();
-            CommandFactory commandFactory = context.getCommandFactory();
-            Command command = commandFactory.getCommand(commandName);
+        if (session.getPendingRequests().offer(request)) {
+            process(session, execute(session, request));
+        }
+    }
 
-            // make sure the user is authenticated before he issues commands
-            if (!session.isLoggedIn()
-                    && !isCommandOkWithoutAuthentication(commandName)) {
-                session.write(LocalizedFtpReply.translate(session, request,
-                        context, FtpReply.REPLY_530_NOT_LOGGED_IN,
-                        "permission", null));
+    /**
+     * Go on with the pending requests of the session after a request is done,
+     * until one of them waits on an ftplet or none is left.
+     * 
+     * @param session The session
+     * @param done The request being executed
+     */
+    private void process(final FtpIoSession session,
+            final CompletionStage<Void> done) throws Exception {
+        PendingRequests pending = session.getPendingRequests();
+        CompletableFuture<Void> current = done.toCompletableFuture();
+        while (true) {
+            if (!current.isDone()) {
+                current.whenComplete((result, e) -> resume(session, e));
                 return;
             }
+            try {
+                current.join();
+            } catch (CompletionException e) {
+                pending.clear();
+                throw unwrap(e);
+            }
 
-            FtpletContainer ftplets = context.getFtpletContainer();
+            FtpRequest request = pending.next();
+            if (request == null) {
+                return;
+            }
+            current = execute(session, request).toCompletableFuture();
+        }
+    }
 
-            FtpletResult ftpletRet;
+    /**
+     * Called on the thread pool once a request waiting on an ftplet is done.
+     */
+    private void resume(final FtpIoSession session, final Throwable error) {
+        Exception cause;
+        if (error == null) {
             try {
-                ftpletRet = ftplets.beforeCommand(session.getFtpletSession(),
-                        request);
+                process(session, DONE);
+                return;
             } catch (Exception e) {
-                LOG.debug("Ftplet container threw exception", e);
-                ftpletRet = FtpletResult.DISCONNECT;
+                cause = e;
             }
-            if (ftpletRet == FtpletResult.DISCONNECT) {
-                LOG.debug("Ftplet returned DISCONNECT, session will be closed");
-                session.close(false).awaitUninterruptibly(10000);
-                return;
-            } else if (ftpletRet != FtpletResult.SKIP) {
+        } else {
+            session.getPendingRequests().clear();
+            cause = unwrap(error);
+        }
 
-                if (command != null) {
-                    synchronized (session) {
-                        command.execute(session, context, request);
-                    }
-                } else {
-                    session.write(LocalizedFtpReply.translate(session, request,
-                            context,
-                            FtpReply.REPLY_502_COMMAND_NOT_IMPLEMENTED,
-                            "not.implemented", null));
-                }
+        try {
+            exceptionCaught(session, cause);
+        } catch (Exception e) {
+            LOG.warn("Failed to handle exception of resumed session", e);
+        }
+    }
 
-                try {
-                    ftpletRet = ftplets.afterCommand(
-                            session.getFtpletSession(), request, session
-                                    .getLastReply());
-                } catch (Exception e) {
-                    LOG.debug("Ftplet container threw exception", e);
-                    ftpletRet = FtpletResult.DISCONNECT;
-                }
-                if (ftpletRet == FtpletResult.DISCONNECT) {
-                    LOG.debug("Ftplet returned DISCONNECT, session will be closed");
+    private CompletionStage<Void> execute(final FtpIoSession session,
+            final FtpRequest request) {
+        CompletionStage<Void> done;
+        try {
+            done = beforeCommand(session, request);
+        } catch (Exception e) {
+            done = failed(e);
+        }
 
-                    session.close(false).awaitUninterruptibly(10000);
-                    return;
-                }
+        return done.handle((result, e) -> {
+            if (e == null) {
+                return null;
             }
+            Exception ex = unwrap(e);
 
-        } catch (Exception ex) {
             // send error reply
             try {
                 session.write(LocalizedFtpReply.translate(session, request,
@@ -243,12 +307,170 @@ public class DefaultFtpHandler implements FtpHandler {
             }
 
             if (ex instanceof java.io.IOException) {
-                throw (IOException) ex;
+                throw new CompletionException(ex);
             } else {
                 LOG.warn("RequestHandler.service()", ex);
             }
+            return null;
+        });
+    }
+
+    private CompletionStage<Void> beforeCommand(final FtpIoSession session,
+            final FtpRequest request) throws Exception {
+        session.updateLastAccessTime();
+        
+        String commandName = request.getCommand();
+        CommandFactory commandFactory = context.getCommandFactory();
+        Command command = commandFactory.getCommand(commandName);
+
+        // make sure the user is authenticated before he issues commands
+        if (!session.isLoggedIn()
+                && !isCommandOkWithoutAuthentication(commandName)) {
+            session.write(LocalizedFtpReply.translate(session, request,
+                    context, FtpReply.REPLY_530_NOT_LOGGED_IN,
+                    "permission", null));
+            return DONE;
+        }
+
+        FtpletContainer ftplets = context.getFtpletContainer();
+
+        CompletionStage<FtpletResult> ftpletRet;
+        try {
+            ftpletRet = ftplets.beforeCommandAsync(session.getFtpletSession(),
+                    request);
+        } catch (Exception e) {
+            ftpletRet = failed(e);
+        }
+        return resumed(session, request,
+                ftpletResult(ftpletRet, "Ftplet container threw exception"))
+                .thenCompose(result -> {
+                    try {
+                        return executeCommand(session, request, command,
+                                result);
+                    } catch (Exception e) {
+                        return failed(e);
+                    }
+                });
+    }
+
+    private CompletionStage<Void> executeCommand(final FtpIoSession session,
+            final FtpRequest request, final Command command,
+            final FtpletResult ftpletRet) throws Exception {
+        if (ftpletRet == FtpletResult.DISCONNECT) {
+            LOG.debug("Ftplet returned DISCONNECT, session will be closed");
+            session.close(false).awaitUninterruptibly(10000);
+            return DONE;
+        } else if (ftpletRet == FtpletResult.SKIP || session.isClosing()) {
+            // skipped by an ftplet, or closed while an ftplet was waiting
+            return DONE;
+        }
+
+        String commandName = request.getCommand();
+        if (command != null) {
+            synchronized (session) {
+                Object event = FtpEvents.beginCommand();
+                long startTime = System.nanoTime();
+                session.setCurrentRequest(request);
+                try {
+                    command.execute(session, context, request);
+                } finally {
+                    session.setCurrentRequest(null);
+                    FtpMetrics metrics = context.getMetrics();
+                    metrics.recordCommand(session, commandName,
+                            startTime);
+                    FtpEvents.endCommand(event, session, metrics
+                            .getListenerName(listener), request);
+                }
+            }
+        } else {
+            session.write(LocalizedFtpReply.translate(session, request,
+                    context,
+                    FtpReply.REPLY_502_COMMAND_NOT_IMPLEMENTED,
+                    "not.implemented", null));
+        }
+
+        FtpletContainer ftplets = context.getFtpletContainer();
+
+        CompletionStage<FtpletResult> afterRet;
+        try {
+            afterRet = ftplets.afterCommandAsync(session.getFtpletSession(),
+                    request, session.getLastReply());
+        } catch (Exception e) {
+            afterRet = failed(e);
         }
+        return resumed(session, request,
+                ftpletResult(afterRet, "Ftplet container threw exception"))
+                .thenAccept(result -> {
+                    if (result == FtpletResult.DISCONNECT) {
+                        LOG.debug("Ftplet returned DISCONNECT, session will be closed");
 
+                        session.close(false).awaitUninterruptibly(10000);
+                    }
+                });
+    }
+
+    /**
+     * Map an ftplet failure to {@link FtpletResult#DISCONNECT}.
+     */
+    private CompletionStage<FtpletResult> ftpletResult(
+            final CompletionStage<FtpletResult> stage, final String message) {
+        return stage.exceptionally(e -> {
+            LOG.debug(message, e);
+            return FtpletResult.DISCONNECT;
+        });
+    }
+
+    /**
+     * Continue on the thread pool, in the order of the events of the
+     * session, once a stage which is still pending completes. Completed
+     * stages go on in the calling thread.
+     */
+    private <T> CompletionStage<T> resumed(final FtpIoSession session,
+            final FtpRequest request, final CompletionStage<T> stage) {
+        CompletableFuture<T> future = stage.toCompletableFuture();
+        if (future.isDone()) {
+            return future;
+        }
+        return future.thenApplyAsync(result -> result,
+                task -> dispatch(session, request, task));
+    }
+
+    private void dispatch(final FtpIoSession session,
+            final FtpRequest request, final Runnable task) {
+        IoEventType type = request == null ? IoEventType.SESSION_OPENED
+                : IoEventType.MESSAGE_RECEIVED;
+        try {
+            // the ordered thread pool only accepts session events
+            context.getThreadPoolExecutor().execute(
+                    new IoEvent(type, session, request) {
+                        @Override
+                        public void fire() {
+                            task.run();
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Thread pool rejected the resumed session, closing", e);
+            session.closeNow();
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(final Throwable e) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    private static Exception unwrap(final Throwable e) {
+        Throwable cause = e;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new CompletionException(cause);
     }
 
     public void sessionIdle(final FtpIoSession session, final IdleStatus status)
@@ -19,20 +19,26 @@
 
 package org.apache.ftpserver.impl;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ftpserver.ConnectionConfig;
 import org.apache.ftpserver.FtpServer;
 import org.apache.ftpserver.FtpServerFactory;
 import org.apache.ftpserver.command.CommandFactory;
+import org.apache.ftpserver.filesystem.nio.NioFileSystemFactory;
+import org.apache.ftpserver.filesystem.nio.impl.NioAttributeCache;
 import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpStatistics;
 import org.apache.ftpserver.ftplet.Ftplet;
 import org.apache.ftpserver.ftplet.UserManager;
 import org.apache.ftpserver.listener.Listener;
 import org.apache.ftpserver.message.MessageResource;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,8 +55,15 @@ public class DefaultFtpServer implements FtpServer {
 
     private final Logger LOG = LoggerFactory.getLogger(DefaultFtpServer.class);
 
+    /**
+     * Used to give each server started in this JVM its own MBean names
+     */
+    private static final AtomicInteger SERVER_COUNT = new AtomicInteger();
+
     private FtpServerContext serverContext;
 
+    private MBeanRegistry mbeanRegistry;
+
     private boolean suspended = false;
 
     private boolean started = false;
@@ -75,7 +88,23 @@ public class DefaultFtpServer implements FtpServer {
         List<Listener> startedListeners = new ArrayList<>();
         
         try {
+            // deliver observer notifications asynchronously before the first session
+            AsyncObserverDispatcher observerDispatcher = serverContext.getObserverDispatcher();
+            if (observerDispatcher != null) {
+                FtpStatistics statistics = serverContext.getFtpStatistics();
+                if (statistics instanceof DefaultFtpStatistics) {
+                    ((DefaultFtpStatistics) statistics).setObserverDispatcher(observerDispatcher);
+                } else {
+                    LOG.warn("Statistics {} do not support an observer dispatcher", statistics);
+                }
+                observerDispatcher.start();
+            }
+
             Map<String, Listener> listeners = serverContext.getListeners();
+            for (Map.Entry<String, Listener> entry : listeners.entrySet()) {
+                serverContext.getMetrics().setListenerName(entry.getValue(),
+                        entry.getKey());
+            }
             for (Listener listener : listeners.values()) {
                 listener.start(serverContext);
                 startedListeners.add(listener);
@@ -83,7 +112,15 @@ public class DefaultFtpServer implements FtpServer {
     
             // init the Ftplet container
             serverContext.getFtpletContainer().init(serverContext);
+
+            QuotaManager quotaManager = serverContext.getQuotaManager();
+            if (quotaManager != null) {
+                quotaManager.start(serverContext.getUserManager(),
+                        serverContext.getFileSystemManager());
+            }
         
+            registerMBeans();
+
             started = true;
 
             LOG.info("FTP server started");
@@ -92,6 +129,9 @@ public class DefaultFtpServer implements FtpServer {
             for(Listener listener : startedListeners) {
                 listener.stop();
             }
+            if (serverContext.getObserverDispatcher() != null) {
+                serverContext.getObserverDispatcher().stop();
+            }
             
             if(e instanceof FtpException) {
                 throw (FtpException)e;
@@ -121,6 +161,8 @@ public class DefaultFtpServer implements FtpServer {
         // destroy the Ftplet container
         serverContext.getFtpletContainer().destroy();
 
+        unregisterMBeans();
+
         // release server resources
         if (serverContext != null) {
             serverContext.dispose();
@@ -130,6 +172,54 @@ public class DefaultFtpServer implements FtpServer {
         started = false;
     }
 
+    /**
+     * Publish the listeners, the shared thread pool, the statistics, the
+     * file system cache if any and the server metrics in the platform MBean
+     * server. The first
+     * server started in a JVM uses "ftpserver" as the value of the server key
+     * of its object names, later ones get a sequence number appended.
+     */
+    private void registerMBeans() {
+        int count = SERVER_COUNT.getAndIncrement();
+        String name = count == 0 ? "ftpserver" : "ftpserver-" + count;
+        try {
+            mbeanRegistry = new MBeanRegistry(
+                    ManagementFactory.getPlatformMBeanServer(), name);
+        } catch (SecurityException e) {
+            LOG.warn("Not allowed to access the platform MBean server, JMX disabled", e);
+            return;
+        }
+
+        for (Map.Entry<String, Listener> entry : serverContext.getListeners()
+                .entrySet()) {
+            mbeanRegistry.register(new ListenerControl(entry.getKey(), entry
+                    .getValue(), serverContext.getMetrics()), "Listener",
+                    "name", entry.getKey());
+        }
+        mbeanRegistry.register(new ThreadPoolControl(serverContext
+                .getThreadPoolExecutor()), "ThreadPool");
+        if (serverContext.getFtpStatistics() != null) {
+            mbeanRegistry.register(new StatisticsControl(serverContext
+                    .getFtpStatistics()), "Statistics");
+        }
+        if (serverContext.getFileSystemManager() instanceof NioFileSystemFactory) {
+            NioAttributeCache cache = ((NioFileSystemFactory) serverContext
+                    .getFileSystemManager()).getCache();
+            if (cache != null) {
+                mbeanRegistry.register(cache, "FileSystemCache");
+            }
+        }
+        serverContext.getMetrics().setMBeanRegistry(mbeanRegistry);
+    }
+
+    private void unregisterMBeans() {
+        if (mbeanRegistry != null) {
+            serverContext.getMetrics().setMBeanRegistry(null);
+            mbeanRegistry.unregisterAll();
+            mbeanRegistry = null;
+        }
+    }
+
     /**
      * Get the server status.
      */
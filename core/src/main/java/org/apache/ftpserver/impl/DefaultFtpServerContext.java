@@ -30,6 +30,10 @@ import org.apache.ftpserver.ConnectionConfig;
 import org.apache.ftpserver.ConnectionConfigFactory;
 import org.apache.ftpserver.command.CommandFactory;
 import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.command.impl.copy.FileCopier;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
+import org.apache.ftpserver.command.impl.hash.FileHasher;
+import org.apache.ftpserver.filesystem.tree.TreeWalker;
 import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
 import org.apache.ftpserver.ftplet.Authority;
 import org.apache.ftpserver.ftplet.FileSystemFactory;
@@ -42,6 +46,7 @@ import org.apache.ftpserver.listener.Listener;
 import org.apache.ftpserver.listener.ListenerFactory;
 import org.apache.ftpserver.message.MessageResource;
 import org.apache.ftpserver.message.MessageResourceFactory;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
 import org.apache.ftpserver.usermanager.impl.BaseUser;
 import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
@@ -79,6 +84,10 @@ public class DefaultFtpServerContext implements FtpServerContext {
 
     private Map<String, Listener> listeners = new HashMap<>();
 
+    private FtpMetrics metrics = new FtpMetrics();
+
+    private QuotaManager quotaManager;
+
     private static final List<Authority> ADMIN_AUTHORITIES = new ArrayList<>();
     private static final List<Authority> ANON_AUTHORITIES = new ArrayList<>();
     
@@ -86,6 +95,19 @@ public class DefaultFtpServerContext implements FtpServerContext {
      * The thread pool executor to be used by the server using this context
      */
     private ThreadPoolExecutor threadPoolExecutor = null;
+
+    /**
+     * The pool hashing file content, created on first use
+     */
+    private FileHasher fileHasher = null;
+
+    private FileCopier fileCopier = null;
+
+    private TreeWalker treeWalker = null;
+
+    private DigestCache digestCache;
+
+    private AsyncObserverDispatcher observerDispatcher;
     
     static {
         ADMIN_AUTHORITIES.add(new WritePermission());
@@ -198,6 +220,29 @@ public class DefaultFtpServerContext implements FtpServerContext {
     public void dispose() {
         listeners.clear();
         ftpletContainer.getFtplets().clear();
+        if (quotaManager != null) {
+            quotaManager.dispose();
+        }
+        synchronized (this) {
+            if (fileHasher != null) {
+                fileHasher.dispose();
+                fileHasher = null;
+            }
+            if (fileCopier != null) {
+                fileCopier.dispose();
+                fileCopier = null;
+            }
+            if (treeWalker != null) {
+                treeWalker.dispose();
+                treeWalker = null;
+            }
+        }
+        if (digestCache != null) {
+            digestCache.dispose();
+        }
+        if (observerDispatcher != null) {
+            observerDispatcher.stop();
+        }
         if (threadPoolExecutor != null) {
             LOG.debug("Shutting down the thread pool executor");
             threadPoolExecutor.shutdown();
@@ -262,6 +307,18 @@ public class DefaultFtpServerContext implements FtpServerContext {
         this.connectionConfig = connectionConfig;
     }
     
+    public FtpMetrics getMetrics() {
+        return metrics;
+    }
+
+    public QuotaManager getQuotaManager() {
+        return quotaManager;
+    }
+
+    public void setQuotaManager(QuotaManager quotaManager) {
+        this.quotaManager = quotaManager;
+    }
+
     public synchronized ThreadPoolExecutor getThreadPoolExecutor() {
         if(threadPoolExecutor == null) {
             int maxThreads = connectionConfig.getMaxThreads();
@@ -279,4 +336,50 @@ public class DefaultFtpServerContext implements FtpServerContext {
         }
         return threadPoolExecutor;
     }
+
+    public synchronized FileHasher getFileHasher() {
+        if (fileHasher == null) {
+            // hashing is bound by the disk rather than the processors
+            int maxThreads = Math.max(2, Math.min(8, Runtime.getRuntime()
+                    .availableProcessors()));
+            LOG.debug("Initializing file hasher with max threads of {}", maxThreads);
+            fileHasher = new FileHasher(maxThreads, digestCache);
+        }
+        return fileHasher;
+    }
+
+    public synchronized FileCopier getFileCopier() {
+        if (fileCopier == null) {
+            // copies compete for the same disks, a few at a time is enough
+            fileCopier = new FileCopier(2);
+        }
+        return fileCopier;
+    }
+
+    public synchronized TreeWalker getTreeWalker() {
+        if (treeWalker == null) {
+            // mostly waiting on the disk for metadata, like hashing
+            int parallelism = Math.max(2, Math.min(8, Runtime.getRuntime()
+                    .availableProcessors()));
+            LOG.debug("Initializing tree walker with parallelism of {}", parallelism);
+            treeWalker = new TreeWalker(parallelism);
+        }
+        return treeWalker;
+    }
+
+    public DigestCache getDigestCache() {
+        return digestCache;
+    }
+
+    public void setDigestCache(DigestCache digestCache) {
+        this.digestCache = digestCache;
+    }
+
+    public AsyncObserverDispatcher getObserverDispatcher() {
+        return observerDispatcher;
+    }
+
+    public void setObserverDispatcher(AsyncObserverDispatcher observerDispatcher) {
+        this.observerDispatcher = observerDispatcher;
+    }
 }
@@ -22,10 +22,11 @@ package org.apache.ftpserver.impl;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Date;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.User;
@@ -35,87 +36,133 @@ import org.apache.ftpserver.ftplet.User;
  * 
  * This is FTP statistics implementation.
  * 
- * TODO revisit concurrency, right now we're a bit over zealous with both Atomic*
- * counters and synchronization
+ * None of the methods take a lock. Cumulative totals are kept in
+ * {@link LongAdder}s, which are cheap to increment from many threads, while
+ * the current gauges (connections, logins) are kept in {@link AtomicInteger}s
+ * since they are read on every login by the max login checks. The per user
+ * login table is only ever modified through the atomic compute operations of
+ * {@link ConcurrentHashMap}. Observers are notified on the calling thread,
+ * unless an {@link AsyncObserverDispatcher} is installed.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
 public class DefaultFtpStatistics implements ServerFtpStatistics {
 
-    private StatisticsObserver observer = null;
+    private volatile StatisticsObserver observer = null;
 
-    private FileObserver fileObserver = null;
+    private volatile FileObserver fileObserver = null;
 
-    private Date startTime = new Date();
+    private volatile AsyncObserverDispatcher dispatcher = null;
 
-    private AtomicInteger uploadCount = new AtomicInteger(0);
+    private volatile Date startTime = new Date();
 
-    private AtomicInteger downloadCount = new AtomicInteger(0);
+    private final LongAdder uploadCount = new LongAdder();
 
-    private AtomicInteger deleteCount = new AtomicInteger(0);
+    private final LongAdder downloadCount = new LongAdder();
 
-    private AtomicInteger mkdirCount = new AtomicInteger(0);
+    private final LongAdder deleteCount = new LongAdder();
 
-    private AtomicInteger rmdirCount = new AtomicInteger(0);
+    private final LongAdder mkdirCount = new LongAdder();
 
-    private AtomicInteger currLogins = new AtomicInteger(0);
+    private final LongAdder rmdirCount = new LongAdder();
 
-    private AtomicInteger totalLogins = new AtomicInteger(0);
+    private final AtomicInteger currLogins = new AtomicInteger(0);
 
-    private AtomicInteger totalFailedLogins = new AtomicInteger(0);
+    private final LongAdder totalLogins = new LongAdder();
 
-    private AtomicInteger currAnonLogins = new AtomicInteger(0);
+    private final LongAdder totalFailedLogins = new LongAdder();
 
-    private AtomicInteger totalAnonLogins = new AtomicInteger(0);
+    private final AtomicInteger currAnonLogins = new AtomicInteger(0);
 
-    private AtomicInteger currConnections = new AtomicInteger(0);
+    private final LongAdder totalAnonLogins = new LongAdder();
 
-    private AtomicInteger totalConnections = new AtomicInteger(0);
+    private final AtomicInteger currConnections = new AtomicInteger(0);
 
-    private AtomicLong bytesUpload = new AtomicLong(0L);
+    private final LongAdder totalConnections = new LongAdder();
 
-    private AtomicLong bytesDownload = new AtomicLong(0L);
+    private final LongAdder bytesUpload = new LongAdder();
 
+    private final LongAdder bytesDownload = new LongAdder();
+
+    /**
+     * The current logins of a single user, in total and per remote address.
+     * Instances are only modified from within the compute functions of the
+     * login table, which serializes updates for the same user name without
+     * blocking logins of other users.
+     */
     private static class UserLogins {
-        private Map<InetAddress, AtomicInteger> perAddress = new ConcurrentHashMap<>();
+        private final ConcurrentMap<InetAddress, AtomicInteger> perAddress = new ConcurrentHashMap<>();
 
-        public UserLogins(InetAddress address) {
-            // init with the first connection
-            totalLogins = new AtomicInteger(1);
-            perAddress.put(address, new AtomicInteger(1));
+        private final AtomicInteger totalLogins = new AtomicInteger(0);
+
+        public void login(InetAddress address) {
+            totalLogins.incrementAndGet();
+            if (address != null) {
+                perAddress.computeIfAbsent(address, a -> new AtomicInteger(0))
+                        .incrementAndGet();
+            }
         }
 
-        public AtomicInteger loginsFromInetAddress(InetAddress address) {
-            AtomicInteger logins = perAddress.get(address);
-            if (logins == null) {
-                logins = new AtomicInteger(0);
-                perAddress.put(address, logins);
+        public void logout(InetAddress address) {
+            totalLogins.decrementAndGet();
+            if (address != null) {
+                perAddress.computeIfPresent(address, (a, logins) ->
+                    logins.decrementAndGet() <= 0 ? null : logins);
             }
-            return logins;
         }
 
-        public AtomicInteger totalLogins;
+        public int loginsFromInetAddress(InetAddress address) {
+            AtomicInteger logins = address == null ? null : perAddress.get(address);
+            return logins == null ? 0 : logins.get();
+        }
+
+        public boolean isEmpty() {
+            return totalLogins.get() <= 0;
+        }
     }
 
     /**
      *The user login information.
      */
-    private Map<String, UserLogins> userLoginTable = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UserLogins> userLoginTable = new ConcurrentHashMap<>();
 
     public static final String LOGIN_NUMBER = "login_number";
 
     /**
      * Set the observer.
      */
-    public void setObserver(final StatisticsObserver observer) {
+    public synchronized void setObserver(final StatisticsObserver observer) {
         this.observer = observer;
+        if (dispatcher != null) {
+            dispatcher.setObserver(observer);
+        }
     }
 
     /**
      * Set the file observer.
      */
-    public void setFileObserver(final FileObserver observer) {
+    public synchronized void setFileObserver(final FileObserver observer) {
         fileObserver = observer;
+        if (dispatcher != null) {
+            dispatcher.setFileObserver(observer);
+        }
+    }
+
+    /**
+     * Deliver the observer notifications through a dispatcher instead of on
+     * the calling thread.
+     * 
+     * @param dispatcher
+     *            The dispatcher, or null to notify the observers on the
+     *            calling thread
+     */
+    public synchronized void setObserverDispatcher(
+            final AsyncObserverDispatcher dispatcher) {
+        if (dispatcher != null) {
+            dispatcher.setObserver(observer);
+            dispatcher.setFileObserver(fileObserver);
+        }
+        this.dispatcher = dispatcher;
     }
 
     // //////////////////////////////////////////////////////
@@ -124,6 +171,7 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get server start time.
      */
     public Date getStartTime() {
+        Date startTime = this.startTime;
         if (startTime != null) {
             return (Date) startTime.clone();
         } else {
@@ -135,56 +183,56 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get number of files uploaded.
      */
     public int getTotalUploadNumber() {
-        return uploadCount.get();
+        return uploadCount.intValue();
     }
 
     /**
      * Get number of files downloaded.
      */
     public int getTotalDownloadNumber() {
-        return downloadCount.get();
+        return downloadCount.intValue();
     }
 
     /**
      * Get number of files deleted.
      */
     public int getTotalDeleteNumber() {
-        return deleteCount.get();
+        return deleteCount.intValue();
     }
 
     /**
      * Get total number of bytes uploaded.
      */
     public long getTotalUploadSize() {
-        return bytesUpload.get();
+        return bytesUpload.sum();
     }
 
     /**
      * Get total number of bytes downloaded.
      */
     public long getTotalDownloadSize() {
-        return bytesDownload.get();
+        return bytesDownload.sum();
     }
 
     /**
      * Get total directory created.
      */
     public int getTotalDirectoryCreated() {
-        return mkdirCount.get();
+        return mkdirCount.intValue();
     }
 
     /**
      * Get total directory removed.
      */
     public int getTotalDirectoryRemoved() {
-        return rmdirCount.get();
+        return rmdirCount.intValue();
     }
 
     /**
      * Get total number of connections.
      */
     public int getTotalConnectionNumber() {
-        return totalConnections.get();
+        return totalConnections.intValue();
     }
 
     /**
@@ -198,14 +246,14 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get total number of logins.
      */
     public int getTotalLoginNumber() {
-        return totalLogins.get();
+        return totalLogins.intValue();
     }
 
     /**
      * Get total failed login number.
      */
     public int getTotalFailedLoginNumber() {
-        return totalFailedLogins.get();
+        return totalFailedLogins.intValue();
     }
 
     /**
@@ -219,7 +267,7 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Get total number of anonymous logins.
      */
     public int getTotalAnonymousLoginNumber() {
-        return totalAnonLogins.get();
+        return totalAnonLogins.intValue();
     }
 
     /**
@@ -232,7 +280,7 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Get the login number for the specific user
      */
-    public synchronized int getCurrentUserLoginNumber(final User user) {
+    public int getCurrentUserLoginNumber(final User user) {
         UserLogins userLogins = userLoginTable.get(user.getName());
         if (userLogins == null) {// not found the login user's statistics info
             return 0;
@@ -249,13 +297,13 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * @param ipAddress
      *            the ip address of the remote user
      */
-    public synchronized int getCurrentUserLoginNumber(final User user,
+    public int getCurrentUserLoginNumber(final User user,
             final InetAddress ipAddress) {
         UserLogins userLogins = userLoginTable.get(user.getName());
         if (userLogins == null) {// not found the login user's statistics info
             return 0;
         } else {
-            return userLogins.loginsFromInetAddress(ipAddress).get();
+            return userLogins.loginsFromInetAddress(ipAddress);
         }
     }
 
@@ -264,107 +312,97 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Increment upload count.
      */
-    public synchronized void setUpload(final FtpIoSession session,
+    public void setUpload(final FtpIoSession session,
             final FtpFile file, final long size) {
-        uploadCount.incrementAndGet();
-        bytesUpload.addAndGet(size);
+        uploadCount.increment();
+        bytesUpload.add(size);
         notifyUpload(session, file, size);
     }
 
     /**
      * Increment download count.
      */
-    public synchronized void setDownload(final FtpIoSession session,
+    public void setDownload(final FtpIoSession session,
             final FtpFile file, final long size) {
-        downloadCount.incrementAndGet();
-        bytesDownload.addAndGet(size);
+        downloadCount.increment();
+        bytesDownload.add(size);
         notifyDownload(session, file, size);
     }
 
     /**
      * Increment delete count.
      */
-    public synchronized void setDelete(final FtpIoSession session,
+    public void setDelete(final FtpIoSession session,
             final FtpFile file) {
-        deleteCount.incrementAndGet();
+        deleteCount.increment();
         notifyDelete(session, file);
     }
 
+    /**
+     * Increment delete and remove directory counts by a batch.
+     */
+    public void setDeleteTree(final FtpIoSession session,
+            final List<FtpFile> files, final List<FtpFile> dirs) {
+        deleteCount.add(files.size());
+        rmdirCount.add(dirs.size());
+        notifyDeleteTree(session, files, dirs);
+    }
+
     /**
      * Increment make directory count.
      */
-    public synchronized void setMkdir(final FtpIoSession session,
+    public void setMkdir(final FtpIoSession session,
             final FtpFile file) {
-        mkdirCount.incrementAndGet();
+        mkdirCount.increment();
         notifyMkdir(session, file);
     }
 
     /**
      * Increment remove directory count.
      */
-    public synchronized void setRmdir(final FtpIoSession session,
+    public void setRmdir(final FtpIoSession session,
             final FtpFile file) {
-        rmdirCount.incrementAndGet();
+        rmdirCount.increment();
         notifyRmdir(session, file);
     }
 
     /**
      * Increment open connection count.
      */
-    public synchronized void setOpenConnection(final FtpIoSession session) {
+    public void setOpenConnection(final FtpIoSession session) {
         currConnections.incrementAndGet();
-        totalConnections.incrementAndGet();
+        totalConnections.increment();
         notifyOpenConnection(session);
     }
 
     /**
      * Decrement open connection count.
      */
-    public synchronized void setCloseConnection(final FtpIoSession session) {
-        if (currConnections.get() > 0) {
-            currConnections.decrementAndGet();
-        }
+    public void setCloseConnection(final FtpIoSession session) {
+        decrementToZero(currConnections);
         notifyCloseConnection(session);
     }
 
     /**
      * New login.
      */
-    public synchronized void setLogin(final FtpIoSession session) {
+    public void setLogin(final FtpIoSession session) {
         currLogins.incrementAndGet();
-        totalLogins.incrementAndGet();
+        totalLogins.increment();
         User user = session.getUser();
         if ("anonymous".equals(user.getName())) {
             currAnonLogins.incrementAndGet();
-            totalAnonLogins.incrementAndGet();
+            totalAnonLogins.increment();
         }
 
-        synchronized (user) {// thread safety is needed. Since the login occurrs
-            // at low frequency, this overhead is endurable
-            UserLogins statisticsTable = userLoginTable.get(user.getName());
-            if (statisticsTable == null) {
-                // the hash table that records the login information of the user
-                // and its ip address.
-
-                InetAddress address = null;
-                if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                    address = ((InetSocketAddress) session.getRemoteAddress())
-                            .getAddress();
-                }
-                statisticsTable = new UserLogins(address);
-                userLoginTable.put(user.getName(), statisticsTable);
-            } else {
-                statisticsTable.totalLogins.incrementAndGet();
-
-                if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                    InetAddress address = ((InetSocketAddress) session
-                            .getRemoteAddress()).getAddress();
-                    statisticsTable.loginsFromInetAddress(address)
-                            .incrementAndGet();
-                }
-
+        final InetAddress address = getRemoteInetAddress(session);
+        userLoginTable.compute(user.getName(), (name, userLogins) -> {
+            if (userLogins == null) {
+                userLogins = new UserLogins();
             }
-        }
+            userLogins.login(address);
+            return userLogins;
+        });
 
         notifyLogin(session);
     }
@@ -372,15 +410,15 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     /**
      * Increment failed login count.
      */
-    public synchronized void setLoginFail(final FtpIoSession session) {
-        totalFailedLogins.incrementAndGet();
+    public void setLoginFail(final FtpIoSession session) {
+        totalFailedLogins.increment();
         notifyLoginFail(session);
     }
 
     /**
      * User logout
      */
-    public synchronized void setLogout(final FtpIoSession session) {
+    public void setLogout(final FtpIoSession session) {
         User user = session.getUser();
         if (user == null) {
             return;
@@ -392,30 +430,87 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
             currAnonLogins.decrementAndGet();
         }
 
-        synchronized (user) {
-            UserLogins userLogins = userLoginTable.get(user.getName());
+        // drop the entry once the last session of the user is gone, so that
+        // the table does not grow with every user that has ever logged in
+        final InetAddress address = getRemoteInetAddress(session);
+        userLoginTable.computeIfPresent(user.getName(), (name, userLogins) -> {
+            userLogins.logout(address);
+            return userLogins.isEmpty() ? null : userLogins;
+        });
 
-            if (userLogins != null) {
-                userLogins.totalLogins.decrementAndGet();
-                if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                    InetAddress address = ((InetSocketAddress) session
-                            .getRemoteAddress()).getAddress();
-                    userLogins.loginsFromInetAddress(address).decrementAndGet();
-                }
-            }
+        notifyLogout(session);
+    }
 
+    private static InetAddress getRemoteInetAddress(final FtpIoSession session) {
+        if (session.getRemoteAddress() instanceof InetSocketAddress) {
+            return ((InetSocketAddress) session.getRemoteAddress()).getAddress();
+        } else {
+            return null;
         }
+    }
 
-        notifyLogout(session);
+    private static void decrementToZero(final AtomicInteger counter) {
+        counter.updateAndGet(current -> current > 0 ? current - 1 : 0);
     }
 
     // //////////////////////////////////////////////////////////
     // /////////////// all observer methods ////////////////////
+    /**
+     * Queue the notification if a dispatcher is installed.
+     * 
+     * @return true if the dispatcher handles the notification
+     */
+    private boolean dispatch(final ObserverEvent.Type type,
+            final FtpIoSession session, final FtpFile file, final long size,
+            final boolean anonymous, final InetAddress address) {
+        AsyncObserverDispatcher dispatcher = this.dispatcher;
+        if (dispatcher == null) {
+            return false;
+        }
+        if (observer != null || fileObserver != null) {
+            dispatcher.publish(type, session, file, size, anonymous, address);
+        }
+        return true;
+    }
+
+    /**
+     * Hand a batch delete to the dispatcher as a single event.
+     * @return false if there is no dispatcher and the observers must be
+     *         notified directly
+     */
+    private boolean dispatchTree(final FtpIoSession session,
+            final List<FtpFile> files, final List<FtpFile> dirs) {
+        AsyncObserverDispatcher dispatcher = this.dispatcher;
+        if (dispatcher == null) {
+            return false;
+        }
+        if (observer != null || fileObserver != null) {
+            dispatcher.publishTree(session, files, dirs);
+        }
+        return true;
+    }
+
+    /**
+     * Is the user of the session anonymous
+     */
+    private static boolean isAnonymous(final FtpIoSession session) {
+        User user = session.getUser();
+        if (user != null) {
+            String login = user.getName();
+            return (login != null) && login.equals("anonymous");
+        }
+        return false;
+    }
+
     /**
      * Observer upload notification.
      */
     private void notifyUpload(final FtpIoSession session,
             final FtpFile file, long size) {
+        if (dispatch(ObserverEvent.Type.UPLOAD, session, file, size, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyUpload();
@@ -432,6 +527,10 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      */
     private void notifyDownload(final FtpIoSession session,
             final FtpFile file, final long size) {
+        if (dispatch(ObserverEvent.Type.DOWNLOAD, session, file, size, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyDownload();
@@ -447,6 +546,10 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Observer delete notification.
      */
     private void notifyDelete(final FtpIoSession session, final FtpFile file) {
+        if (dispatch(ObserverEvent.Type.DELETE, session, file, 0, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyDelete();
@@ -458,10 +561,39 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
         }
     }
 
+    /**
+     * Observer batch delete notification.
+     */
+    private void notifyDeleteTree(final FtpIoSession session,
+            final List<FtpFile> files, final List<FtpFile> dirs) {
+        if (dispatchTree(session, files, dirs)) {
+            return;
+        }
+
+        StatisticsObserver observer = this.observer;
+        if (observer != null) {
+            for (int i = 0; i < files.size(); i++) {
+                observer.notifyDelete();
+            }
+            for (int i = 0; i < dirs.size(); i++) {
+                observer.notifyRmdir();
+            }
+        }
+
+        FileObserver fileObserver = this.fileObserver;
+        if (fileObserver != null) {
+            fileObserver.notifyDeleteTree(session, files, dirs);
+        }
+    }
+
     /**
      * Observer make directory notification.
      */
     private void notifyMkdir(final FtpIoSession session, final FtpFile file) {
+        if (dispatch(ObserverEvent.Type.MKDIR, session, file, 0, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyMkdir();
@@ -477,6 +609,10 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Observer remove directory notification.
      */
     private void notifyRmdir(final FtpIoSession session, final FtpFile file) {
+        if (dispatch(ObserverEvent.Type.RMDIR, session, file, 0, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyRmdir();
@@ -492,6 +628,10 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Observer open connection notification.
      */
     private void notifyOpenConnection(final FtpIoSession session) {
+        if (dispatch(ObserverEvent.Type.OPEN_CONNECTION, session, null, 0, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyOpenConnection();
@@ -502,6 +642,10 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
      * Observer close connection notification.
      */
     private void notifyCloseConnection(final FtpIoSession session) {
+        if (dispatch(ObserverEvent.Type.CLOSE_CONNECTION, session, null, 0, false, null)) {
+            return;
+        }
+
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             observer.notifyCloseConnection();
@@ -514,15 +658,12 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
     private void notifyLogin(final FtpIoSession session) {
         StatisticsObserver observer = this.observer;
         if (observer != null) {
-
             // is anonymous login
-            User user = session.getUser();
-            boolean anonymous = false;
-            if (user != null) {
-                String login = user.getName();
-                anonymous = (login != null) && login.equals("anonymous");
+            boolean anonymous = isAnonymous(session);
+            if (!dispatch(ObserverEvent.Type.LOGIN, session, null, 0,
+                    anonymous, null)) {
+                observer.notifyLogin(anonymous);
             }
-            observer.notifyLogin(anonymous);
         }
     }
 
@@ -533,9 +674,12 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             if (session.getRemoteAddress() instanceof InetSocketAddress) {
-                observer.notifyLoginFail(((InetSocketAddress) session
-                        .getRemoteAddress()).getAddress());
-
+                InetAddress address = ((InetSocketAddress) session
+                        .getRemoteAddress()).getAddress();
+                if (!dispatch(ObserverEvent.Type.LOGIN_FAIL, session, null, 0,
+                        false, address)) {
+                    observer.notifyLoginFail(address);
+                }
             }
         }
     }
@@ -547,35 +691,33 @@ public class DefaultFtpStatistics implements ServerFtpStatistics {
         StatisticsObserver observer = this.observer;
         if (observer != null) {
             // is anonymous login
-            User user = session.getUser();
-            boolean anonymous = false;
-            if (user != null) {
-                String login = user.getName();
-                anonymous = (login != null) && login.equals("anonymous");
+            boolean anonymous = isAnonymous(session);
+            if (!dispatch(ObserverEvent.Type.LOGOUT, session, null, 0,
+                    anonymous, null)) {
+                observer.notifyLogout(anonymous);
             }
-            observer.notifyLogout(anonymous);
         }
     }
 
     /**
      * Reset the cumulative counters.
      */
-    public synchronized void resetStatisticsCounters() {
+    public void resetStatisticsCounters() {
         startTime = new Date();
 
-        uploadCount.set(0);
-        downloadCount.set(0);
-        deleteCount.set(0);
+        uploadCount.reset();
+        downloadCount.reset();
+        deleteCount.reset();
 
-        mkdirCount.set(0);
-        rmdirCount.set(0);
+        mkdirCount.reset();
+        rmdirCount.reset();
 
-        totalLogins.set(0);
-        totalFailedLogins.set(0);
-        totalAnonLogins.set(0);
-        totalConnections.set(0);
+        totalLogins.reset();
+        totalFailedLogins.reset();
+        totalAnonLogins.reset();
+        totalConnections.reset();
 
-        bytesUpload.set(0);
-        bytesDownload.set(0);
+        bytesUpload.reset();
+        bytesDownload.reset();
     }
 }
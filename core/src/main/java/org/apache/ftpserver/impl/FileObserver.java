@@ -19,6 +19,8 @@
 
 package org.apache.ftpserver.impl;
 
+import java.util.List;
+
 import org.apache.ftpserver.ftplet.FtpFile;
 
 /**
@@ -55,4 +57,20 @@ public interface FileObserver {
      */
     void notifyRmdir(FtpIoSession session, FtpFile file);
 
+    /**
+     * User remove tree notification, for a batch of the files and
+     * directories removed. The default implementation calls
+     * {@link #notifyDelete(FtpIoSession, FtpFile)} and
+     * {@link #notifyRmdir(FtpIoSession, FtpFile)} for each of them.
+     */
+    default void notifyDeleteTree(FtpIoSession session, List<FtpFile> files,
+            List<FtpFile> dirs) {
+        for (FtpFile file : files) {
+            notifyDelete(session, file);
+        }
+        for (FtpFile dir : dirs) {
+            notifyRmdir(session, dir);
+        }
+    }
+
 }
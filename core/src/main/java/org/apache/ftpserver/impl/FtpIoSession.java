@@ -22,16 +22,20 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.security.cert.Certificate;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSession;
 
+import org.apache.ftpserver.command.impl.copy.CopyTask;
 import org.apache.ftpserver.ftplet.DataType;
 import org.apache.ftpserver.ftplet.FileSystemView;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
 import org.apache.ftpserver.ftplet.FtpSession;
 import org.apache.ftpserver.ftplet.Structure;
 import org.apache.ftpserver.ftplet.User;
@@ -82,6 +86,14 @@ public class FtpIoSession implements IoSession {
             + "rename-from";
     private static final String ATTRIBUTE_FILE_OFFSET = ATTRIBUTE_PREFIX
             + "file-offset";
+    private static final String ATTRIBUTE_FILE_RANGE = ATTRIBUTE_PREFIX
+            + "file-range";
+    private static final String ATTRIBUTE_COPY_TASKS = ATTRIBUTE_PREFIX
+            + "copy-tasks";
+    private static final String ATTRIBUTE_PENDING_REQUESTS = ATTRIBUTE_PREFIX
+            + "pending-requests";
+    private static final String ATTRIBUTE_CURRENT_REQUEST = ATTRIBUTE_PREFIX
+            + "current-request";
     private static final String ATTRIBUTE_DATA_TYPE = ATTRIBUTE_PREFIX
             + "data-type";
     private static final String ATTRIBUTE_STRUCTURE = ATTRIBUTE_PREFIX
@@ -546,6 +558,7 @@ public class FtpIoSession implements IoSession {
     public void resetState() {
         removeAttribute(ATTRIBUTE_RENAME_FROM);
         removeAttribute(ATTRIBUTE_FILE_OFFSET);
+        removeAttribute(ATTRIBUTE_FILE_RANGE);
     }
 
     public synchronized ServerDataConnectionFactory getDataConnection() {
@@ -653,6 +666,7 @@ public class FtpIoSession implements IoSession {
         removeAttribute(ATTRIBUTE_FILE_SYSTEM);
         removeAttribute(ATTRIBUTE_RENAME_FROM);
         removeAttribute(ATTRIBUTE_FILE_OFFSET);
+        removeAttribute(ATTRIBUTE_FILE_RANGE);
     }
 
     public void logoutUser() {
@@ -683,6 +697,74 @@ public class FtpIoSession implements IoSession {
         return (Long) getAttribute(ATTRIBUTE_FILE_OFFSET, 0L);
     }
 
+    /**
+     * Set the byte range selected by the RANG command.
+     * @param range The first and the last byte of the range
+     */
+    public void setFileRange(long[] range) {
+        setAttribute(ATTRIBUTE_FILE_RANGE, range);
+    }
+
+    /**
+     * Get the byte range selected by the RANG command.
+     * @return The first and the last byte of the range, or null
+     */
+    public long[] getFileRange() {
+        return (long[]) getAttribute(ATTRIBUTE_FILE_RANGE);
+    }
+
+    /**
+     * Get the copies started by SITE COPY which have not yet been reported
+     * as finished by STAT.
+     * @return The copies of this session, never null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<CopyTask> getCopyTasks() {
+        List<CopyTask> tasks = (List<CopyTask>) getAttribute(ATTRIBUTE_COPY_TASKS);
+        if (tasks == null) {
+            tasks = new CopyOnWriteArrayList<CopyTask>();
+            setAttribute(ATTRIBUTE_COPY_TASKS, tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Get the requests waiting for an earlier request to be done.
+     * @return The pending requests of this session, never null
+     */
+    public PendingRequests getPendingRequests() {
+        PendingRequests requests = (PendingRequests) getAttribute(ATTRIBUTE_PENDING_REQUESTS);
+        if (requests == null) {
+            PendingRequests created = new PendingRequests();
+            requests = (PendingRequests) setAttributeIfAbsent(
+                    ATTRIBUTE_PENDING_REQUESTS, created);
+            if (requests == null) {
+                requests = created;
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Set the request whose command is being executed.
+     * @param request The request, or null when the command is done
+     */
+    public void setCurrentRequest(FtpRequest request) {
+        if (request == null) {
+            removeAttribute(ATTRIBUTE_CURRENT_REQUEST);
+        } else {
+            setAttribute(ATTRIBUTE_CURRENT_REQUEST, request);
+        }
+    }
+
+    /**
+     * Get the request whose command is being executed.
+     * @return The request, or null if no command is being executed
+     */
+    public FtpRequest getCurrentRequest() {
+        return (FtpRequest) getAttribute(ATTRIBUTE_CURRENT_REQUEST);
+    }
+
     public void setStructure(Structure structure) {
         setAttribute(ATTRIBUTE_STRUCTURE, structure);
     }
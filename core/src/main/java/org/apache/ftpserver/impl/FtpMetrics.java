@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ftpserver.listener.Listener;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Per command latency and per direction transfer metrics, tagged by the
+ * listener the session came in on. Histograms are created on first use and
+ * published as MBeans once an {@link MBeanRegistry} has been set, which
+ * {@link DefaultFtpServer} does when started.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class FtpMetrics {
+
+    public static final String UPLOAD = "upload";
+
+    public static final String DOWNLOAD = "download";
+
+    public static final String LISTING = "listing";
+
+    private static final String UNKNOWN_LISTENER = "unknown";
+
+    private final ConcurrentMap<Key, LatencyHistogram> commands = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Key, TransferHistogram> transfers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Listener, String> listenerNames = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicInteger> activeTransfers = new ConcurrentHashMap<>();
+
+    private volatile MBeanRegistry registry;
+
+    /**
+     * Histogram key, a listener name and a command name or transfer direction
+     */
+    private static final class Key {
+        private final String listener;
+
+        private final String name;
+
+        Key(final String listener, final String name) {
+            this.listener = listener;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * listener.hashCode() + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return listener.equals(other.listener) && name.equals(other.name);
+        }
+
+        @Override
+        public String toString() {
+            return listener + "/" + name;
+        }
+    }
+
+    /**
+     * Set the name used to tag metrics for sessions of a listener
+     */
+    public void setListenerName(final Listener listener, final String name) {
+        listenerNames.put(listener, name);
+    }
+
+    /**
+     * Get the name used to tag metrics for sessions of a listener
+     */
+    public String getListenerName(final Listener listener) {
+        String name = listener == null ? null : listenerNames.get(listener);
+        return name == null ? UNKNOWN_LISTENER : name;
+    }
+
+    /**
+     * Record the execution of a command
+     * 
+     * @param session
+     *            The session the command was executed for
+     * @param command
+     *            The command name, only commands known to the command
+     *            factory should be recorded
+     * @param startNanos
+     *            The {@link System#nanoTime()} at which execution started
+     */
+    public void recordCommand(final FtpIoSession session, final String command,
+            final long startNanos) {
+        getCommandHistogram(getListenerName(session.getListener()), command)
+                .recordSince(startNanos);
+    }
+
+    /**
+     * Record a data transfer
+     * 
+     * @param session
+     *            The session the transfer was done for
+     * @param direction
+     *            One of {@link #UPLOAD}, {@link #DOWNLOAD} or {@link #LISTING}
+     * @param startNanos
+     *            The {@link System#nanoTime()} at which the transfer started
+     * @param size
+     *            The number of bytes transferred
+     */
+    public void recordTransfer(final FtpIoSession session,
+            final String direction, final long startNanos, final long size) {
+        getTransferHistogram(getListenerName(session.getListener()), direction)
+                .recordTransfer(startNanos, size);
+    }
+
+    /**
+     * Called when a data transfer starts, must be followed by a call to
+     * {@link #transferFinished(FtpIoSession)}
+     */
+    public void transferStarted(final FtpIoSession session) {
+        activeTransfers(getListenerName(session.getListener())).incrementAndGet();
+    }
+
+    /**
+     * Called when a data transfer is done, successful or not
+     */
+    public void transferFinished(final FtpIoSession session) {
+        activeTransfers(getListenerName(session.getListener())).decrementAndGet();
+    }
+
+    /**
+     * Get the number of data transfers in progress for sessions of a listener
+     */
+    public int getActiveTransferCount(final String listener) {
+        AtomicInteger count = activeTransfers.get(listener);
+        return count == null ? 0 : count.get();
+    }
+
+    private AtomicInteger activeTransfers(final String listener) {
+        AtomicInteger count = activeTransfers.get(listener);
+        if (count == null) {
+            count = new AtomicInteger();
+            AtomicInteger existing = activeTransfers.putIfAbsent(listener, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the histogram for a command, created if needed
+     */
+    public LatencyHistogram getCommandHistogram(final String listener,
+            final String command) {
+        Key key = new Key(listener, command);
+        LatencyHistogram histogram = commands.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = commands.putIfAbsent(key, histogram);
+            if (existing != null) {
+                return existing;
+            }
+            register(histogram, "CommandLatency", key);
+        }
+        return histogram;
+    }
+
+    /**
+     * Get the histogram for a transfer direction, created if needed
+     */
+    public TransferHistogram getTransferHistogram(final String listener,
+            final String direction) {
+        Key key = new Key(listener, direction);
+        TransferHistogram histogram = transfers.get(key);
+        if (histogram == null) {
+            histogram = new TransferHistogram();
+            TransferHistogram existing = transfers.putIfAbsent(key, histogram);
+            if (existing != null) {
+                return existing;
+            }
+            register(histogram, "TransferLatency", key);
+        }
+        return histogram;
+    }
+
+    /**
+     * Get all command histograms, keyed by "listener/command"
+     */
+    public Map<String, LatencyHistogram> getCommandHistograms() {
+        return snapshot(commands);
+    }
+
+    /**
+     * Get all transfer histograms, keyed by "listener/direction"
+     */
+    public Map<String, TransferHistogram> getTransferHistograms() {
+        return snapshot(transfers);
+    }
+
+    /**
+     * Publish all existing and future histograms through the registry
+     * 
+     * @param registry
+     *            The registry, or null to stop publishing new histograms
+     */
+    public synchronized void setMBeanRegistry(final MBeanRegistry registry) {
+        this.registry = registry;
+        if (registry != null) {
+            for (Map.Entry<Key, LatencyHistogram> entry : commands.entrySet()) {
+                register(entry.getValue(), "CommandLatency", entry.getKey());
+            }
+            for (Map.Entry<Key, TransferHistogram> entry : transfers.entrySet()) {
+                register(entry.getValue(), "TransferLatency", entry.getKey());
+            }
+        }
+    }
+
+    private void register(final LatencyHistogram histogram, final String type,
+            final Key key) {
+        MBeanRegistry registry = this.registry;
+        if (registry != null) {
+            registry.register(histogram, type, "listener", key.listener,
+                    "name", key.name);
+        }
+    }
+
+    private static <T> Map<String, T> snapshot(final Map<Key, T> histograms) {
+        Map<String, T> result = new TreeMap<>();
+        for (Map.Entry<Key, T> entry : histograms.entrySet()) {
+            result.put(entry.getKey().toString(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -24,10 +24,15 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.ftpserver.ConnectionConfig;
 import org.apache.ftpserver.command.CommandFactory;
+import org.apache.ftpserver.command.impl.copy.FileCopier;
+import org.apache.ftpserver.command.impl.hash.DigestCache;
+import org.apache.ftpserver.command.impl.hash.FileHasher;
+import org.apache.ftpserver.filesystem.tree.TreeWalker;
 import org.apache.ftpserver.ftplet.FtpletContext;
 import org.apache.ftpserver.ftpletcontainer.FtpletContainer;
 import org.apache.ftpserver.listener.Listener;
 import org.apache.ftpserver.message.MessageResource;
+import org.apache.ftpserver.quota.QuotaManager;
 
 /**
  * <strong>Internal class, do not use directly.</strong>
@@ -70,4 +75,47 @@ public interface FtpServerContext extends FtpletContext {
      * @return the thread pool executor for this context.
      */
     ThreadPoolExecutor getThreadPoolExecutor();
+
+    /**
+     * Returns the pool hashing file content for this context.
+     * @return the file hasher for this context.
+     */
+    FileHasher getFileHasher();
+
+    /**
+     * Returns the pool copying files for SITE COPY.
+     * @return the file copier for this context.
+     */
+    FileCopier getFileCopier();
+
+    /**
+     * Returns the pool running SITE RMTREE and SITE DU.
+     * @return the tree walker for this context.
+     */
+    TreeWalker getTreeWalker();
+
+    /**
+     * Get the cache of file digests computed during uploads.
+     * @return The digest cache, or null if uploads are not digested
+     */
+    DigestCache getDigestCache();
+
+    /**
+     * Get the dispatcher delivering the statistics and file observer
+     * notifications.
+     * @return The dispatcher, or null if observers are notified on the
+     *         session threads
+     */
+    AsyncObserverDispatcher getObserverDispatcher();
+
+    /**
+     * Get the command and transfer metrics.
+     */
+    FtpMetrics getMetrics();
+
+    /**
+     * Get the quota manager.
+     * @return The quota manager, or null if the usage is not accounted
+     */
+    QuotaManager getQuotaManager();
 }
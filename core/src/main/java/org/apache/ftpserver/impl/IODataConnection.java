@@ -21,19 +21,27 @@ package org.apache.ftpserver.impl;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
 
 import org.apache.ftpserver.ftplet.DataConnection;
+import org.apache.ftpserver.ftplet.DataInterceptor;
 import org.apache.ftpserver.ftplet.DataType;
+import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.impl.jfr.FtpEvents;
+import org.apache.ftpserver.quota.QuotaManager;
 import org.apache.ftpserver.usermanager.impl.TransferRateRequest;
 import org.apache.ftpserver.util.IoUtils;
 import org.slf4j.Logger;
@@ -61,11 +69,59 @@ public class IODataConnection implements DataConnection {
 
     private final ServerDataConnectionFactory factory;
 
+    private final FtpMetrics metrics;
+
+    private final QuotaManager quotaManager;
+
+    private final DataInterceptor interceptor;
+
+    // the bytes of the current upload reserved from the quota
+    private long reserved;
+
     public IODataConnection(final Socket socket, final FtpIoSession session,
             final ServerDataConnectionFactory factory) {
+        this(socket, session, factory, null);
+    }
+
+    /**
+     * @param metrics
+     *            Where to record the transfers, can be null
+     */
+    public IODataConnection(final Socket socket, final FtpIoSession session,
+            final ServerDataConnectionFactory factory, final FtpMetrics metrics) {
+        this(socket, session, factory, metrics, null);
+    }
+
+    /**
+     * @param metrics
+     *            Where to record the transfers, can be null
+     * @param quotaManager
+     *            Where to account uploaded bytes, can be null
+     */
+    public IODataConnection(final Socket socket, final FtpIoSession session,
+            final ServerDataConnectionFactory factory, final FtpMetrics metrics,
+            final QuotaManager quotaManager) {
+        this(socket, session, factory, metrics, quotaManager, null);
+    }
+
+    /**
+     * @param metrics
+     *            Where to record the transfers, can be null
+     * @param quotaManager
+     *            Where to account uploaded bytes, can be null
+     * @param interceptor
+     *            The stages to pass the data of uploads and downloads
+     *            through, can be null
+     */
+    public IODataConnection(final Socket socket, final FtpIoSession session,
+            final ServerDataConnectionFactory factory, final FtpMetrics metrics,
+            final QuotaManager quotaManager, final DataInterceptor interceptor) {
         this.session = session;
         this.socket = socket;
         this.factory = factory;
+        this.metrics = metrics;
+        this.quotaManager = quotaManager;
+        this.interceptor = interceptor;
     }
 
     /**
@@ -132,11 +188,35 @@ public class IODataConnection implements DataConnection {
             maxRate = transferRateRequest.getMaxUploadRate();
         }
 
-        InputStream is = getDataInputStream();
+        Object event = transferStarted();
+        long startTime = System.nanoTime();
+        long transferredSize = -1;
         try {
-            return transfer(session, false, is, out, maxRate);
+            InputStream is = getDataInputStream();
+            OutputStream os = out;
+            boolean complete = false;
+            reserved = 0L;
+            try {
+                os = intercept(session, false, out);
+                transferredSize = transfer(session, false, is, os, maxRate);
+                complete = true;
+                closeStages(os, out);
+                recordTransfer(FtpMetrics.UPLOAD, startTime, transferredSize);
+                return transferredSize;
+            } catch (UploadAbortedException e) {
+                // the command removes the data, give back its quota
+                if (quotaManager != null) {
+                    quotaManager.release(session.getUser(), reserved);
+                }
+                throw e;
+            } finally {
+                if (!complete && os != out) {
+                    IoUtils.close(os);
+                }
+                IoUtils.close(is);
+            }
         } finally {
-            IoUtils.close(is);
+            transferFinished(event, FtpMetrics.UPLOAD, transferredSize);
         }
     }
 
@@ -157,11 +237,28 @@ public class IODataConnection implements DataConnection {
             maxRate = transferRateRequest.getMaxDownloadRate();
         }
 
-        OutputStream out = getDataOutputStream();
+        Object event = transferStarted();
+        long startTime = System.nanoTime();
+        long transferredSize = -1;
         try {
-            return transfer(session, true, in, out, maxRate);
+            OutputStream out = getDataOutputStream();
+            OutputStream os = out;
+            boolean complete = false;
+            try {
+                os = intercept(session, true, out);
+                transferredSize = transfer(session, true, in, os, maxRate);
+                complete = true;
+                closeStages(os, out);
+                recordTransfer(FtpMetrics.DOWNLOAD, startTime, transferredSize);
+                return transferredSize;
+            } finally {
+                if (!complete && os != out) {
+                    IoUtils.close(os);
+                }
+                IoUtils.close(out);
+            }
         } finally {
-            IoUtils.close(out);
+            transferFinished(event, FtpMetrics.DOWNLOAD, transferredSize);
         }
     }
 
@@ -174,24 +271,49 @@ public class IODataConnection implements DataConnection {
      */
     public final void transferToClient(FtpSession session, final String str)
             throws IOException {
-        OutputStream out = getDataOutputStream();
-        Writer writer = null;
-        try {
-            writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-            writer.write(str);
+        transferToClient(session, Collections.singletonList(str).iterator());
+    }
 
-            // update session
+    /**
+     * Encodes and writes each piece of text as it is produced. Encoded bytes
+     * are buffered in bounded chunks, so the client starts receiving data
+     * before the last piece has been produced.
+     */
+    public final long transferToClient(FtpSession session,
+            final Iterator<? extends CharSequence> text) throws IOException {
+        Object event = transferStarted();
+        long startTime = System.nanoTime();
+        long transferredSize = -1;
+        try {
+            DefaultFtpSession defaultFtpSession = null;
             if (session instanceof DefaultFtpSession) {
-                ((DefaultFtpSession) session).increaseWrittenDataBytes(str
-                        .getBytes(StandardCharsets.UTF_8).length);
+                defaultFtpSession = (DefaultFtpSession) session;
             }
-        } finally {
-            if (writer != null) {
+            CountingOutputStream out = new CountingOutputStream(
+                    getDataOutputStream(), defaultFtpSession);
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                while (text.hasNext()) {
+                    writer.append(text.next());
+                }
                 writer.flush();
+            } catch (UncheckedIOException e) {
+                // producers of the text, e.g. directory iterators, can only
+                // fail unchecked
+                throw e.getCause();
+            } finally {
+                if (writer != null) {
+                    writer.flush();
+                }
+                IoUtils.close(writer);
             }
-            IoUtils.close(writer);
+            recordTransfer(FtpMetrics.LISTING, startTime, out.count);
+            transferredSize = out.count;
+            return transferredSize;
+        } finally {
+            transferFinished(event, FtpMetrics.LISTING, transferredSize);
         }
-
     }
 
     private final long transfer(FtpSession session, boolean isWrite,
@@ -247,6 +369,13 @@ public class IODataConnection implements DataConnection {
                     break;
                 }
 
+                // account uploaded bytes before they reach the file, an
+                // upload going over quota is aborted here
+                if (!isWrite && quotaManager != null) {
+                    quotaManager.reserve(session.getUser(), count);
+                    reserved += count;
+                }
+
                 // update MINA session
                 if (defaultFtpSession != null) {
                     if (isWrite) {
@@ -311,6 +440,181 @@ public class IODataConnection implements DataConnection {
         return transferredSize;
     }
 
+    /**
+     * Put the stages of the interceptor in front of the stream of a transfer.
+     * 
+     * @return The stream to write the data to, <code>out</code> if no stage
+     *         is interested
+     * @throws UploadAbortedException
+     *             If the interceptor rejects an upload
+     */
+    private OutputStream intercept(final FtpSession session,
+            final boolean isWrite, final OutputStream out) throws IOException {
+        if (interceptor == null) {
+            return out;
+        }
+        try {
+            if (isWrite) {
+                return interceptor.interceptDownload(session, this.session
+                        .getCurrentRequest(), out);
+            } else {
+                OutputStream stage = interceptor.interceptUpload(session,
+                        this.session.getCurrentRequest(), out);
+                return stage == out ? out : new UploadStage(stage);
+            }
+        } catch (FtpException e) {
+            factory.closeDataConnection();
+            if (!isWrite) {
+                throw new UploadAbortedException(e);
+            }
+            throw new IOException("Data interceptor failed", e);
+        } catch (IOException e) {
+            if (isWrite) {
+                throw e;
+            }
+            factory.closeDataConnection();
+            throw UploadStage.aborted(e);
+        }
+    }
+
+    /**
+     * Tells the failures of the upload stages apart from those of the data
+     * connection, only the former remove the uploaded data.
+     */
+    private static class UploadStage extends OutputStream {
+
+        private final OutputStream stage;
+
+        private UploadStage(final OutputStream stage) {
+            this.stage = stage;
+        }
+
+        private static UploadAbortedException aborted(final IOException e) {
+            if (e instanceof UploadAbortedException) {
+                return (UploadAbortedException) e;
+            }
+            return new UploadAbortedException(e);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            try {
+                stage.write(b);
+            } catch (IOException e) {
+                throw aborted(e);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+            try {
+                stage.write(b, off, len);
+            } catch (IOException e) {
+                throw aborted(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                stage.flush();
+            } catch (IOException e) {
+                throw aborted(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                stage.close();
+            } catch (IOException e) {
+                throw aborted(e);
+            }
+        }
+    }
+
+    /**
+     * Close the stages after a complete transfer, so that they can write
+     * buffered data or abort the transfer.
+     */
+    private void closeStages(final OutputStream os, final OutputStream out)
+            throws IOException {
+        if (os != out) {
+            try {
+                os.close();
+            } catch (IOException e) {
+                LOG.warn("Data interceptor aborted the transfer, closing data connection socket", e);
+                factory.closeDataConnection();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return The flight recorder event handle
+     */
+    private Object transferStarted() {
+        if (metrics != null) {
+            metrics.transferStarted(session);
+        }
+        return FtpEvents.beginTransfer();
+    }
+
+    private void transferFinished(final Object event, final String direction,
+            final long size) {
+        if (metrics != null) {
+            metrics.transferFinished(session);
+        }
+        if (event != null) {
+            boolean passive = factory instanceof IODataConnectionFactory
+                    && ((IODataConnectionFactory) factory).passive;
+            String listener = metrics == null ? null : metrics
+                    .getListenerName(session.getListener());
+            FtpEvents.endTransfer(event, session, listener, direction, size,
+                    passive, factory.isSecure(), factory.isZipMode());
+        }
+    }
+
+    private void recordTransfer(final String direction, final long startTime,
+            final long size) {
+        if (metrics != null) {
+            metrics.recordTransfer(session, direction, startTime, size);
+        }
+    }
+
+    /**
+     * Counts the bytes written, updating the session as they go out so that
+     * it is kept alive during a long text transfer.
+     */
+    private final class CountingOutputStream extends FilterOutputStream {
+
+        private final DefaultFtpSession ftpSession;
+
+        private long count;
+
+        CountingOutputStream(final OutputStream out,
+                final DefaultFtpSession ftpSession) {
+            super(out);
+            this.ftpSession = ftpSession;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+            if (ftpSession != null) {
+                ftpSession.increaseWrittenDataBytes(len);
+            }
+            notifyObserver();
+        }
+    }
+
     /**
      * Notify connection manager observer.
      */
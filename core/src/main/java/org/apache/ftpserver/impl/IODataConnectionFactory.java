@@ -33,6 +33,7 @@ import org.apache.ftpserver.DataConnectionConfiguration;
 import org.apache.ftpserver.DataConnectionException;
 import org.apache.ftpserver.ftplet.DataConnection;
 import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.impl.jfr.FtpEvents;
 import org.apache.ftpserver.ssl.ClientAuth;
 import org.apache.ftpserver.ssl.SslConfiguration;
 import org.slf4j.Logger;
@@ -228,7 +229,16 @@ public class IODataConnectionFactory implements ServerDataConnectionFactory {
      * @see org.apache.ftpserver.FtpDataConnectionFactory2#openConnection()
      */
     public DataConnection openConnection() throws Exception {
-        return new IODataConnection(createDataSocket(), session, this);
+        Object event = FtpEvents.beginDataConnection();
+        Socket socket = null;
+        try {
+            socket = createDataSocket();
+        } finally {
+            FtpEvents.endDataConnection(event, session, passive, secure, socket);
+        }
+        return new IODataConnection(socket, session, this,
+                serverContext.getMetrics(), serverContext.getQuotaManager(),
+                serverContext.getFtpletContainer());
     }
 
     /**
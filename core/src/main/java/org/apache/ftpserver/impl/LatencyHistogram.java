@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Lock-free latency histogram. Values are recorded in microseconds into log
+ * linear buckets, each power of two is split into 32 sub buckets which keeps
+ * the relative error of reported percentiles below about 3%, in the same way
+ * as HdrHistogram does. Values above about 71 minutes are recorded in the
+ * highest bucket.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_EXPONENT = 31;
+
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private volatile long startTime = System.nanoTime();
+
+    /**
+     * Record a latency
+     * 
+     * @param duration
+     *            The duration
+     * @param unit
+     *            The unit of the duration
+     */
+    public void record(final long duration, final TimeUnit unit) {
+        recordMicros(unit.toMicros(duration));
+    }
+
+    /**
+     * Record a latency measured with {@link System#nanoTime()}
+     * 
+     * @param startNanos
+     *            The time the call started
+     */
+    public void recordSince(final long startNanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime()
+                - startNanos));
+    }
+
+    private void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        } else if (micros > MAX_VALUE) {
+            micros = MAX_VALUE;
+        }
+
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+                & (SUB_BUCKET_COUNT - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS)
+                + subBucket;
+    }
+
+    /**
+     * The highest value that ends up in the given bucket
+     */
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index & (SUB_BUCKET_COUNT - 1);
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : toMillis(sum.sum()) / n;
+    }
+
+    public double getMaxMillis() {
+        return toMillis(max.get());
+    }
+
+    public double getPercentile50Millis() {
+        return getPercentileMillis(50);
+    }
+
+    public double getPercentile90Millis() {
+        return getPercentileMillis(90);
+    }
+
+    public double getPercentile99Millis() {
+        return getPercentileMillis(99);
+    }
+
+    public double getPercentile999Millis() {
+        return getPercentileMillis(99.9);
+    }
+
+    public double getPercentileMillis(final double percentile) {
+        return toMillis(getPercentileMicros(percentile));
+    }
+
+    /**
+     * Get the latency at the given percentile
+     * 
+     * @param percentile
+     *            The percentile, between 0 and 100
+     * @return The latency in microseconds, 0 if nothing has been recorded
+     */
+    public long getPercentileMicros(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Illegal percentile: "
+                    + percentile);
+        }
+
+        // take a snapshot since the buckets might be updated while we look
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public double getRatePerSecond() {
+        long elapsed = System.nanoTime() - startTime;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return count.sum() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * The time since the last reset, in nanoseconds
+     */
+    protected long getElapsedNanos() {
+        return System.nanoTime() - startTime;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+        startTime = System.nanoTime();
+    }
+
+    private static double toMillis(final long micros) {
+        return micros / 1000d;
+    }
+}
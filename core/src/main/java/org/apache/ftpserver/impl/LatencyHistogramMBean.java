@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * JMX view of a {@link LatencyHistogram}. All times are in milliseconds.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * Get the number of recorded calls.
+     */
+    long getCount();
+
+    /**
+     * Get the mean latency.
+     */
+    double getMeanMillis();
+
+    /**
+     * Get the highest recorded latency.
+     */
+    double getMaxMillis();
+
+    /**
+     * Get the median latency.
+     */
+    double getPercentile50Millis();
+
+    /**
+     * Get the 90th percentile latency.
+     */
+    double getPercentile90Millis();
+
+    /**
+     * Get the 99th percentile latency.
+     */
+    double getPercentile99Millis();
+
+    /**
+     * Get the 99.9th percentile latency.
+     */
+    double getPercentile999Millis();
+
+    /**
+     * Get the latency at the given percentile.
+     * 
+     * @param percentile
+     *            The percentile, between 0 and 100
+     */
+    double getPercentileMillis(double percentile);
+
+    /**
+     * Get the mean number of calls per second since the last reset.
+     */
+    double getRatePerSecond();
+
+    /**
+     * Reset all recorded values.
+     */
+    void reset();
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ftpserver.DataConnectionConfiguration;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.listener.Listener;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Exposes a {@link Listener} over JMX.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ListenerControl implements ListenerControlMBean {
+
+    private final String name;
+
+    private final Listener listener;
+
+    private final FtpMetrics metrics;
+
+    public ListenerControl(final String name, final Listener listener,
+            final FtpMetrics metrics) {
+        this.name = name;
+        this.listener = listener;
+        this.metrics = metrics;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getServerAddress() {
+        return listener.getServerAddress();
+    }
+
+    public int getPort() {
+        return listener.getPort();
+    }
+
+    public boolean isImplicitSsl() {
+        return listener.isImplicitSsl();
+    }
+
+    public boolean isStopped() {
+        return listener.isStopped();
+    }
+
+    public boolean isSuspended() {
+        return listener.isSuspended();
+    }
+
+    public int getActiveSessionCount() {
+        return getSessions().size();
+    }
+
+    public String[] getActiveSessions() {
+        List<String> descriptions = new ArrayList<>();
+        for (FtpIoSession session : getSessions()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(session.getId());
+            sb.append(' ').append(session.getRemoteAddress());
+            User user = session.getUser();
+            sb.append(' ').append(user == null ? "-" : user.getName());
+            sb.append(" login=").append(session.getLoginTime());
+            sb.append(" lastAccess=").append(session.getLastAccessTime());
+            descriptions.add(sb.toString());
+        }
+        Collections.sort(descriptions);
+        return descriptions.toArray(new String[descriptions.size()]);
+    }
+
+    public int getActiveTransferCount() {
+        return metrics.getActiveTransferCount(name);
+    }
+
+    public String getPassivePorts() {
+        DataConnectionConfiguration config = listener
+                .getDataConnectionConfiguration();
+        return config == null ? null : config.getPassivePorts();
+    }
+
+    public int getReservedPassivePortCount() {
+        DataConnectionConfiguration config = listener
+                .getDataConnectionConfiguration();
+        if (config instanceof DefaultDataConnectionConfiguration) {
+            return ((DefaultDataConnectionConfiguration) config)
+                    .getReservedPassivePortCount();
+        }
+        return -1;
+    }
+
+    public int getFreePassivePortCount() {
+        DataConnectionConfiguration config = listener
+                .getDataConnectionConfiguration();
+        if (config instanceof DefaultDataConnectionConfiguration) {
+            return ((DefaultDataConnectionConfiguration) config)
+                    .getFreePassivePortCount();
+        }
+        return -1;
+    }
+
+    public void suspend() {
+        listener.suspend();
+    }
+
+    public void resume() {
+        listener.resume();
+    }
+
+    public boolean disconnectSession(final long sessionId) {
+        for (FtpIoSession session : getSessions()) {
+            if (session.getId() == sessionId) {
+                session.close(false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<FtpIoSession> getSessions() {
+        if (listener.isStopped()) {
+            return Collections.emptySet();
+        }
+        return listener.getActiveSessions();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * JMX management interface for a listener.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface ListenerControlMBean {
+
+    /**
+     * Get the name the listener was configured with.
+     */
+    String getName();
+
+    /**
+     * Get the address the listener is bound to, null for all addresses.
+     */
+    String getServerAddress();
+
+    /**
+     * Get the port the listener is bound to.
+     */
+    int getPort();
+
+    /**
+     * Is the listener in implicit SSL mode.
+     */
+    boolean isImplicitSsl();
+
+    /**
+     * Is the listener stopped.
+     */
+    boolean isStopped();
+
+    /**
+     * Is the listener suspended.
+     */
+    boolean isSuspended();
+
+    /**
+     * Get the number of open sessions.
+     */
+    int getActiveSessionCount();
+
+    /**
+     * Get a description of each open session: id, remote address, user, login
+     * time and last access time.
+     */
+    String[] getActiveSessions();
+
+    /**
+     * Get the number of data transfers in progress.
+     */
+    int getActiveTransferCount();
+
+    /**
+     * Get the configured passive ports.
+     */
+    String getPassivePorts();
+
+    /**
+     * Get the number of passive ports currently reserved, -1 if unknown.
+     */
+    int getReservedPassivePortCount();
+
+    /**
+     * Get the number of passive ports available for reservation, -1 if
+     * unknown.
+     */
+    int getFreePassivePortCount();
+
+    /**
+     * Stop accepting new connections, open sessions are not affected.
+     */
+    void suspend();
+
+    /**
+     * Start accepting new connections again.
+     */
+    void resume();
+
+    /**
+     * Close a session.
+     * 
+     * @param sessionId
+     *            The id of the session, as listed by
+     *            {@link #getActiveSessions()}
+     * @return true if the session was found
+     */
+    boolean disconnectSession(long sessionId);
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Keeps track of the MBeans registered for a server, so that they can all be
+ * unregistered when the server is stopped. Object names are of the form
+ * <code>org.apache.ftpserver:server=&lt;server&gt;,type=&lt;type&gt;,...</code>.
+ * Failures to register are logged and otherwise ignored, management must
+ * never stop the server from working.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class MBeanRegistry {
+
+    public static final String DOMAIN = "org.apache.ftpserver";
+
+    private final Logger LOG = LoggerFactory.getLogger(MBeanRegistry.class);
+
+    private final MBeanServer mbeanServer;
+
+    private final String serverName;
+
+    private final Set<ObjectName> registered = new CopyOnWriteArraySet<>();
+
+    /**
+     * Create a registry
+     * 
+     * @param mbeanServer
+     *            The MBean server to register with
+     * @param serverName
+     *            The value of the server key of all object names
+     */
+    public MBeanRegistry(final MBeanServer mbeanServer, final String serverName) {
+        this.mbeanServer = mbeanServer;
+        this.serverName = serverName;
+    }
+
+    /**
+     * The value of the server key of all object names
+     * @return The server name
+     */
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * Register an MBean
+     * 
+     * @param mbean
+     *            The MBean
+     * @param type
+     *            The type key of the object name
+     * @param keysAndValues
+     *            Additional keys and values of the object name, in pairs
+     * @return The object name, or null if the MBean could not be registered
+     */
+    public ObjectName register(final Object mbean, final String type,
+            final String... keysAndValues) {
+        try {
+            ObjectName name = createName(type, keysAndValues);
+            if (mbeanServer.isRegistered(name)) {
+                mbeanServer.unregisterMBean(name);
+            }
+            mbeanServer.registerMBean(mbean, name);
+            registered.add(name);
+            return name;
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean of type " + type, e);
+            return null;
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to register MBean of type " + type, e);
+            return null;
+        }
+    }
+
+    /**
+     * Unregister an MBean registered through this registry
+     * 
+     * @param name
+     *            The object name, ignored if null
+     */
+    public void unregister(final ObjectName name) {
+        if (name == null || !registered.remove(name)) {
+            return;
+        }
+        try {
+            mbeanServer.unregisterMBean(name);
+        } catch (JMException e) {
+            LOG.debug("Failed to unregister MBean " + name, e);
+        }
+    }
+
+    /**
+     * Unregister all MBeans registered through this registry
+     */
+    public void unregisterAll() {
+        for (ObjectName name : registered) {
+            unregister(name);
+        }
+    }
+
+    private ObjectName createName(final String type,
+            final String... keysAndValues) throws JMException {
+        if (keysAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "Keys and values must be given in pairs");
+        }
+        StringBuilder sb = new StringBuilder(DOMAIN);
+        sb.append(":server=").append(quote(serverName));
+        sb.append(",type=").append(quote(type));
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            sb.append(',').append(keysAndValues[i]).append('=')
+                    .append(quote(keysAndValues[i + 1]));
+        }
+        return new ObjectName(sb.toString());
+    }
+
+    private static String quote(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+            case ',':
+            case '=':
+            case ':':
+            case '"':
+            case '*':
+            case '?':
+            case '\n':
+                return ObjectName.quote(value);
+            default:
+                break;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * A statistics or file event queued by {@link AsyncObserverDispatcher}.
+ * Instances are preallocated slots of the dispatcher ring buffer and are
+ * reused once delivered, observers must therefore not keep references to them
+ * after the notification returns.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public final class ObserverEvent {
+
+    /**
+     * The kind of event, one per observer callback.
+     */
+    public enum Type {
+        UPLOAD, DOWNLOAD, DELETE, MKDIR, RMDIR, LOGIN, LOGIN_FAIL, LOGOUT,
+        OPEN_CONNECTION, CLOSE_CONNECTION, DELETE_TREE
+    }
+
+    Type type;
+
+    FtpIoSession session;
+
+    FtpFile file;
+
+    long size;
+
+    boolean anonymous;
+
+    InetAddress address;
+
+    List<FtpFile> files;
+
+    List<FtpFile> dirs;
+
+    /**
+     * Will only be created by the dispatcher.
+     */
+    ObserverEvent() {
+        // empty
+    }
+
+    /**
+     * The event type
+     * @return The type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The session of a file event, null for statistics only events
+     * @return The session
+     */
+    public FtpIoSession getSession() {
+        return session;
+    }
+
+    /**
+     * The file of a file event, null for other events
+     * @return The file
+     */
+    public FtpFile getFile() {
+        return file;
+    }
+
+    /**
+     * The number of bytes of an upload or download event
+     * @return The size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Whether a login or logout event was for an anonymous user
+     * @return true if anonymous
+     */
+    public boolean isAnonymous() {
+        return anonymous;
+    }
+
+    /**
+     * The remote address of a failed login event
+     * @return The address
+     */
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * The files removed by a delete tree event, null for other events
+     * @return The files
+     */
+    public List<FtpFile> getFiles() {
+        return files;
+    }
+
+    /**
+     * The directories removed by a delete tree event, null for other events
+     * @return The directories
+     */
+    public List<FtpFile> getDirs() {
+        return dirs;
+    }
+
+    void set(final Type type, final FtpIoSession session, final FtpFile file,
+            final long size, final boolean anonymous, final InetAddress address) {
+        this.type = type;
+        this.session = session;
+        this.file = file;
+        this.size = size;
+        this.anonymous = anonymous;
+        this.address = address;
+        this.files = null;
+        this.dirs = null;
+    }
+
+    void setTree(final FtpIoSession session, final List<FtpFile> files,
+            final List<FtpFile> dirs) {
+        set(Type.DELETE_TREE, session, null, 0, false, null);
+        this.files = files;
+        this.dirs = dirs;
+    }
+
+    void clear() {
+        set(null, null, null, 0, false, null);
+    }
+}
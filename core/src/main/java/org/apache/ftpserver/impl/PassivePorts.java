@@ -28,6 +28,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.StringTokenizer;
 
+import org.apache.ftpserver.impl.jfr.FtpEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -199,6 +200,17 @@ public class PassivePorts {
     }
 
     public synchronized int reserveNextPort() {
+        Object event = FtpEvents.beginPassivePort();
+        int port = -1;
+        try {
+            port = doReserveNextPort();
+            return port;
+        } finally {
+            FtpEvents.endPassivePort(event, port, freeList.size());
+        }
+    }
+
+    private int doReserveNextPort() {
         // create a copy of the free ports, so that we can keep track of the tested ports
         List<Integer> freeCopy = new ArrayList<>(freeList);
         
@@ -243,6 +255,25 @@ public class PassivePorts {
         }
     }
 
+    /**
+     * Get the number of ports currently reserved
+     */
+    public synchronized int getReservedPortCount() {
+        return usedList.size();
+    }
+
+    /**
+     * Get the number of ports available for reservation, not counting the
+     * "any" port 0
+     */
+    public synchronized int getFreePortCount() {
+        int count = freeList.size();
+        if (freeList.contains(0)) {
+            count--;
+        }
+        return count;
+    }
+
     @Override
     public String toString() {
         if (passivePortsString != null) {
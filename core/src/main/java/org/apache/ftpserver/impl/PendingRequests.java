@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.impl;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.apache.ftpserver.ftplet.FtpRequest;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The requests of a session received while an earlier request waits on an
+ * asynchronous ftplet. They are executed in the order they were received
+ * once the earlier request is done.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class PendingRequests {
+
+    private final Queue<FtpRequest> requests = new ArrayDeque<>();
+
+    private boolean busy;
+
+    /**
+     * Mark the session as busy.
+     * 
+     * @return true if the session was idle
+     */
+    public synchronized boolean start() {
+        if (busy) {
+            return false;
+        }
+        busy = true;
+        return true;
+    }
+
+    /**
+     * Add a request, unless the session is idle.
+     * 
+     * @param request The received request
+     * @return true if the session was idle and the caller is to execute the
+     *         request right away, false if it was queued
+     */
+    public synchronized boolean offer(final FtpRequest request) {
+        if (start()) {
+            return true;
+        }
+        requests.add(request);
+        return false;
+    }
+
+    /**
+     * Take the next request to execute, marking the session idle if there
+     * is none.
+     * 
+     * @return The next request, or null
+     */
+    public synchronized FtpRequest next() {
+        FtpRequest request = requests.poll();
+        if (request == null) {
+            busy = false;
+        }
+        return request;
+    }
+
+    /**
+     * Drop the queued requests and mark the session idle.
+     */
+    public synchronized void clear() {
+        requests.clear();
+        busy = false;
+    }
+}
@@ -19,6 +19,8 @@
 
 package org.apache.ftpserver.impl;
 
+import java.util.List;
+
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.FtpStatistics;
 
@@ -67,6 +69,22 @@ public interface ServerFtpStatistics extends FtpStatistics {
      */
     void setDelete(FtpIoSession session, FtpFile file);
 
+    /**
+     * Increment delete and remove directory counts for a batch of files and
+     * directories removed at once. The default implementation calls
+     * {@link #setDelete} for each file and {@link #setRmdir} for each
+     * directory.
+     */
+    default void setDeleteTree(FtpIoSession session, List<FtpFile> files,
+            List<FtpFile> dirs) {
+        for (FtpFile file : files) {
+            setDelete(session, file);
+        }
+        for (FtpFile dir : dirs) {
+            setRmdir(session, dir);
+        }
+    }
+
     /**
      * Increment current connection count.
      */
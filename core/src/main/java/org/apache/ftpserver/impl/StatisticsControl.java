@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.Date;
+
+import org.apache.ftpserver.ftplet.FtpStatistics;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Exposes the {@link FtpStatistics} of a server over JMX.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class StatisticsControl implements StatisticsControlMBean {
+
+    private final FtpStatistics statistics;
+
+    public StatisticsControl(final FtpStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public Date getStartTime() {
+        return statistics.getStartTime();
+    }
+
+    public int getTotalUploadNumber() {
+        return statistics.getTotalUploadNumber();
+    }
+
+    public int getTotalDownloadNumber() {
+        return statistics.getTotalDownloadNumber();
+    }
+
+    public int getTotalDeleteNumber() {
+        return statistics.getTotalDeleteNumber();
+    }
+
+    public long getTotalUploadSize() {
+        return statistics.getTotalUploadSize();
+    }
+
+    public long getTotalDownloadSize() {
+        return statistics.getTotalDownloadSize();
+    }
+
+    public int getTotalDirectoryCreated() {
+        return statistics.getTotalDirectoryCreated();
+    }
+
+    public int getTotalDirectoryRemoved() {
+        return statistics.getTotalDirectoryRemoved();
+    }
+
+    public int getTotalConnectionNumber() {
+        return statistics.getTotalConnectionNumber();
+    }
+
+    public int getCurrentConnectionNumber() {
+        return statistics.getCurrentConnectionNumber();
+    }
+
+    public int getTotalLoginNumber() {
+        return statistics.getTotalLoginNumber();
+    }
+
+    public int getTotalFailedLoginNumber() {
+        return statistics.getTotalFailedLoginNumber();
+    }
+
+    public int getCurrentLoginNumber() {
+        return statistics.getCurrentLoginNumber();
+    }
+
+    public int getTotalAnonymousLoginNumber() {
+        return statistics.getTotalAnonymousLoginNumber();
+    }
+
+    public int getCurrentAnonymousLoginNumber() {
+        return statistics.getCurrentAnonymousLoginNumber();
+    }
+
+    /**
+     * Only supported for {@link ServerFtpStatistics}, ignored otherwise.
+     */
+    public void resetStatisticsCounters() {
+        if (statistics instanceof ServerFtpStatistics) {
+            ((ServerFtpStatistics) statistics).resetStatisticsCounters();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.Date;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * JMX management interface for the server statistics.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface StatisticsControlMBean {
+
+    Date getStartTime();
+
+    int getTotalUploadNumber();
+
+    int getTotalDownloadNumber();
+
+    int getTotalDeleteNumber();
+
+    long getTotalUploadSize();
+
+    long getTotalDownloadSize();
+
+    int getTotalDirectoryCreated();
+
+    int getTotalDirectoryRemoved();
+
+    int getTotalConnectionNumber();
+
+    int getCurrentConnectionNumber();
+
+    int getTotalLoginNumber();
+
+    int getTotalFailedLoginNumber();
+
+    int getCurrentLoginNumber();
+
+    int getTotalAnonymousLoginNumber();
+
+    int getCurrentAnonymousLoginNumber();
+
+    /**
+     * Reset all cumulative total counters.
+     */
+    void resetStatisticsCounters();
+}
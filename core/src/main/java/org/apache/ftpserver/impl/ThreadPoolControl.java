@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Exposes the thread pool executor shared by the listeners over JMX.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ThreadPoolControl implements ThreadPoolControlMBean {
+
+    private final ThreadPoolExecutor executor;
+
+    public ThreadPoolControl(final ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    public int getLargestPoolSize() {
+        return executor.getLargestPoolSize();
+    }
+
+    public int getCorePoolSize() {
+        return executor.getCorePoolSize();
+    }
+
+    public void setCorePoolSize(final int corePoolSize) {
+        executor.setCorePoolSize(corePoolSize);
+    }
+
+    public int getMaximumPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public void setMaximumPoolSize(final int maximumPoolSize) {
+        executor.setMaximumPoolSize(maximumPoolSize);
+    }
+
+    /**
+     * The ordered executor used by the listeners keeps the waiting tasks in
+     * per session queues rather than in {@link ThreadPoolExecutor#getQueue()},
+     * so the number is derived from the task counts instead.
+     */
+    public long getQueuedTaskCount() {
+        long queued = executor.getTaskCount()
+                - executor.getCompletedTaskCount() - executor.getActiveCount();
+        return Math.max(queued, 0);
+    }
+
+    public long getCompletedTaskCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public synchronized void resize(final int maximumPoolSize) {
+        if (maximumPoolSize < 1) {
+            throw new IllegalArgumentException("Illegal pool size: "
+                    + maximumPoolSize);
+        }
+        if (executor.getCorePoolSize() > maximumPoolSize) {
+            executor.setCorePoolSize(maximumPoolSize);
+        }
+        executor.setMaximumPoolSize(maximumPoolSize);
+    }
+}
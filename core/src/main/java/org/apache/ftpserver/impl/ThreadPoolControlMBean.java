@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * JMX management interface for the shared thread pool executor.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface ThreadPoolControlMBean {
+
+    /**
+     * Get the number of threads executing tasks.
+     */
+    int getActiveCount();
+
+    /**
+     * Get the current number of threads in the pool.
+     */
+    int getPoolSize();
+
+    /**
+     * Get the largest number of threads that have been in the pool.
+     */
+    int getLargestPoolSize();
+
+    /**
+     * Get the core number of threads.
+     */
+    int getCorePoolSize();
+
+    /**
+     * Set the core number of threads.
+     */
+    void setCorePoolSize(int corePoolSize);
+
+    /**
+     * Get the maximum number of threads.
+     */
+    int getMaximumPoolSize();
+
+    /**
+     * Set the maximum number of threads.
+     */
+    void setMaximumPoolSize(int maximumPoolSize);
+
+    /**
+     * Get the approximate number of tasks waiting to be executed.
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Get the approximate number of tasks that have completed.
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * Is the executor shut down.
+     */
+    boolean isShutdown();
+
+    /**
+     * Change the maximum number of threads, lowering the core number of
+     * threads if needed.
+     * 
+     * @param maximumPoolSize
+     *            The new maximum, must be positive
+     */
+    void resize(int maximumPoolSize);
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Latency histogram for data transfers, which also keeps track of the number
+ * of bytes transferred.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TransferHistogram extends LatencyHistogram implements
+        TransferHistogramMBean {
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder transferNanos = new LongAdder();
+
+    /**
+     * Record a transfer measured with {@link System#nanoTime()}
+     * 
+     * @param startNanos
+     *            The time the transfer started
+     * @param size
+     *            The number of bytes transferred
+     */
+    public void recordTransfer(final long startNanos, final long size) {
+        long duration = System.nanoTime() - startNanos;
+        record(duration, TimeUnit.NANOSECONDS);
+        transferNanos.add(Math.max(duration, 0));
+        bytes.add(size);
+    }
+
+    public long getTotalBytes() {
+        return bytes.sum();
+    }
+
+    public double getBytesPerSecond() {
+        long elapsed = getElapsedNanos();
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return bytes.sum() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    public double getTransferRateBytesPerSecond() {
+        long nanos = transferNanos.sum();
+        if (nanos <= 0) {
+            return 0;
+        }
+        return bytes.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        bytes.reset();
+        transferNanos.reset();
+    }
+}
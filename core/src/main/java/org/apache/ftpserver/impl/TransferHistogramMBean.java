@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * JMX view of a {@link TransferHistogram}.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface TransferHistogramMBean extends LatencyHistogramMBean {
+
+    /**
+     * Get the total number of bytes transferred.
+     */
+    long getTotalBytes();
+
+    /**
+     * Get the mean number of bytes transferred per second since the last
+     * reset.
+     */
+    double getBytesPerSecond();
+
+    /**
+     * Get the number of bytes per second while transfers were in progress.
+     */
+    double getTransferRateBytesPerSecond();
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Flight recorder event for the execution of a command.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+@Name("org.apache.ftpserver.Command")
+@Label("FTP Command")
+@Category("Apache FtpServer")
+@Description("Execution of an FTP command")
+@StackTrace(false)
+class CommandEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    long sessionId;
+
+    @Label("Listener")
+    String listener;
+
+    @Label("User")
+    String user;
+
+    @Label("Command")
+    String command;
+
+    @Label("Argument")
+    @Description("The command argument, not recorded for PASS and ACCT")
+    String argument;
+
+    @Label("Reply Code")
+    int replyCode;
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl.jfr;
+
+import java.net.Socket;
+
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Emits Java Flight Recorder events for sessions, commands, data connections,
+ * transfers, passive port reservations and authentication attempts.
+ * 
+ * Events spanning a period are started with a <code>begin</code> method,
+ * which returns an opaque handle, and completed by passing the handle to the
+ * matching <code>end</code> method. The handle is null, and the
+ * <code>end</code> methods return immediately, when the event is not enabled
+ * in any running recording, so that nothing is allocated or looked up while
+ * not recording. On JVMs without the flight recorder API all methods are
+ * no-ops and the event classes are never loaded.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public final class FtpEvents {
+
+    private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private FtpEvents() {
+        // static methods only
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FtpEvents.class
+                    .getClassLoader());
+
+            // registers the event types, fails if the JVM has been started
+            // without flight recorder support
+            JfrEvents.init();
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        } catch (IllegalStateException e) {
+            return false;
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Is the flight recorder API available in this JVM
+     * 
+     * @return true if available
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static void sessionOpened(final FtpIoSession session,
+            final String listener) {
+        if (AVAILABLE) {
+            JfrEvents.sessionOpened(session, listener);
+        }
+    }
+
+    public static void sessionClosed(final FtpIoSession session,
+            final String listener) {
+        if (AVAILABLE) {
+            JfrEvents.sessionClosed(session, listener);
+        }
+    }
+
+    public static Object beginCommand() {
+        return AVAILABLE ? JfrEvents.beginCommand() : null;
+    }
+
+    public static void endCommand(final Object event,
+            final FtpIoSession session, final String listener,
+            final FtpRequest request) {
+        if (event != null) {
+            JfrEvents.endCommand(event, session, listener, request);
+        }
+    }
+
+    public static Object beginDataConnection() {
+        return AVAILABLE ? JfrEvents.beginDataConnection() : null;
+    }
+
+    /**
+     * @param socket
+     *            The opened socket, null if opening failed
+     */
+    public static void endDataConnection(final Object event,
+            final FtpIoSession session, final boolean passive,
+            final boolean secure, final Socket socket) {
+        if (event != null) {
+            JfrEvents.endDataConnection(event, session, passive, secure,
+                    socket);
+        }
+    }
+
+    public static Object beginTransfer() {
+        return AVAILABLE ? JfrEvents.beginTransfer() : null;
+    }
+
+    /**
+     * @param bytes
+     *            The number of bytes transferred, -1 if the transfer failed
+     */
+    public static void endTransfer(final Object event,
+            final FtpIoSession session, final String listener,
+            final String direction, final long bytes, final boolean passive,
+            final boolean secure, final boolean compressed) {
+        if (event != null) {
+            JfrEvents.endTransfer(event, session, listener, direction, bytes,
+                    passive, secure, compressed);
+        }
+    }
+
+    public static Object beginPassivePort() {
+        return AVAILABLE ? JfrEvents.beginPassivePort() : null;
+    }
+
+    /**
+     * @param port
+     *            The reserved port, 0 for any port, -1 if none was available
+     */
+    public static void endPassivePort(final Object event, final int port,
+            final int freePorts) {
+        if (event != null) {
+            JfrEvents.endPassivePort(event, port, freePorts);
+        }
+    }
+
+    public static Object beginAuthentication() {
+        return AVAILABLE ? JfrEvents.beginAuthentication() : null;
+    }
+
+    public static void endAuthentication(final Object event,
+            final FtpIoSession session, final String userName,
+            final boolean anonymous, final boolean success) {
+        if (event != null) {
+            JfrEvents.endAuthentication(event, session, userName, anonymous,
+                    success);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl.jfr;
+
+import java.net.Socket;
+import java.net.SocketAddress;
+
+import jdk.jfr.EventType;
+
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.impl.FtpIoSession;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * The only class, besides the events themselves, that refers to the flight
+ * recorder API. Only loaded by {@link FtpEvents} once it has verified that the
+ * API is available.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+final class JfrEvents {
+
+    private static final EventType SESSION_OPENED = EventType
+            .getEventType(SessionOpenedEvent.class);
+
+    private static final EventType SESSION_CLOSED = EventType
+            .getEventType(SessionClosedEvent.class);
+
+    private static final EventType COMMAND = EventType
+            .getEventType(CommandEvent.class);
+
+    private static final EventType DATA_CONNECTION = EventType
+            .getEventType(DataConnectionEvent.class);
+
+    private static final EventType TRANSFER = EventType
+            .getEventType(TransferEvent.class);
+
+    private static final EventType PASSIVE_PORT = EventType
+            .getEventType(PassivePortEvent.class);
+
+    private static final EventType AUTHENTICATION = EventType
+            .getEventType(AuthenticationEvent.class);
+
+    private JfrEvents() {
+        // static methods only
+    }
+
+    /**
+     * Does nothing, but forces the event types to be registered
+     */
+    static void init() {
+        // done in the static initializer
+    }
+
+    static void sessionOpened(final FtpIoSession session, final String listener) {
+        if (!SESSION_OPENED.isEnabled()) {
+            return;
+        }
+        SessionOpenedEvent event = new SessionOpenedEvent();
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.listener = listener;
+            event.remoteAddress = toString(session.getRemoteAddress());
+            event.commit();
+        }
+    }
+
+    static void sessionClosed(final FtpIoSession session, final String listener) {
+        if (!SESSION_CLOSED.isEnabled()) {
+            return;
+        }
+        SessionClosedEvent event = new SessionClosedEvent();
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.listener = listener;
+            event.remoteAddress = toString(session.getRemoteAddress());
+            event.user = getUserName(session);
+            event.bytesRead = session.getReadBytes();
+            event.bytesWritten = session.getWrittenBytes();
+            event.commit();
+        }
+    }
+
+    static Object beginCommand() {
+        if (!COMMAND.isEnabled()) {
+            return null;
+        }
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCommand(final Object begun, final FtpIoSession session,
+            final String listener, final FtpRequest request) {
+        CommandEvent event = (CommandEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.listener = listener;
+            event.user = getUserName(session);
+            event.command = request.getCommand();
+            if (!"PASS".equals(event.command) && !"ACCT".equals(event.command)) {
+                event.argument = request.getArgument();
+            }
+            FtpReply reply = session.getLastReply();
+            event.replyCode = reply == null ? 0 : reply.getCode();
+            event.commit();
+        }
+    }
+
+    static Object beginDataConnection() {
+        if (!DATA_CONNECTION.isEnabled()) {
+            return null;
+        }
+        DataConnectionEvent event = new DataConnectionEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endDataConnection(final Object begun,
+            final FtpIoSession session, final boolean passive,
+            final boolean secure, final Socket socket) {
+        DataConnectionEvent event = (DataConnectionEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.passive = passive;
+            event.secure = secure;
+            event.success = socket != null;
+            if (socket != null) {
+                event.remoteAddress = toString(socket.getRemoteSocketAddress());
+            }
+            event.commit();
+        }
+    }
+
+    static Object beginTransfer() {
+        if (!TRANSFER.isEnabled()) {
+            return null;
+        }
+        TransferEvent event = new TransferEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endTransfer(final Object begun, final FtpIoSession session,
+            final String listener, final String direction, final long bytes,
+            final boolean passive, final boolean secure,
+            final boolean compressed) {
+        TransferEvent event = (TransferEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.listener = listener;
+            event.user = getUserName(session);
+            event.direction = direction;
+            event.bytes = bytes;
+            event.passive = passive;
+            event.secure = secure;
+            event.compressed = compressed;
+            event.dataType = String.valueOf(session.getDataType());
+            event.commit();
+        }
+    }
+
+    static Object beginPassivePort() {
+        if (!PASSIVE_PORT.isEnabled()) {
+            return null;
+        }
+        PassivePortEvent event = new PassivePortEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endPassivePort(final Object begun, final int port,
+            final int freePorts) {
+        PassivePortEvent event = (PassivePortEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.port = port;
+            event.freePorts = freePorts;
+            event.commit();
+        }
+    }
+
+    static Object beginAuthentication() {
+        if (!AUTHENTICATION.isEnabled()) {
+            return null;
+        }
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endAuthentication(final Object begun,
+            final FtpIoSession session, final String userName,
+            final boolean anonymous, final boolean success) {
+        AuthenticationEvent event = (AuthenticationEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = session.getId();
+            event.user = userName;
+            event.anonymous = anonymous;
+            event.success = success;
+            event.remoteAddress = toString(session.getRemoteAddress());
+            event.commit();
+        }
+    }
+
+    private static String getUserName(final FtpIoSession session) {
+        User user = session.getUser();
+        return user == null ? null : user.getName();
+    }
+
+    private static String toString(final SocketAddress address) {
+        return address == null ? null : address.toString();
+    }
+}
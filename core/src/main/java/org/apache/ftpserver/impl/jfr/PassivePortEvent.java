@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Flight recorder event for the reservation of a passive port.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+@Name("org.apache.ftpserver.PassivePortReservation")
+@Label("FTP Passive Port Reservation")
+@Category("Apache FtpServer")
+@Description("Reservation of a passive data port")
+@StackTrace(false)
+class PassivePortEvent extends jdk.jfr.Event {
+
+    @Label("Port")
+    @Description("The reserved port, 0 for any port, -1 if none was available")
+    int port;
+
+    @Label("Free Ports")
+    int freePorts;
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ipfilter;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * MINA filter limiting the number of concurrent connections and the rate of
+ * new connections from a single address. IPv6 clients are counted by their
+ * /64 network since a single host usually controls a whole /64. Connections
+ * over a limit are closed in <code>sessionCreated</code>, before they reach
+ * the executor or the FTP handler.
+ * 
+ * The rate limit is a token bucket stored as a single theoretical arrival
+ * time per address (the generic cell rate algorithm), allowing a burst of up
+ * to the per minute rate. Entries which have no open connections and a full
+ * bucket are swept periodically, so the table only holds recently active
+ * addresses.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class ConnectionLimitFilter extends IoFilterAdapter {
+
+    private final Logger LOG = LoggerFactory.getLogger(ConnectionLimitFilter.class);
+
+    private static final String ATTRIBUTE_ENTRY = ConnectionLimitFilter.class
+            .getName() + ".entry";
+
+    private static final String ATTRIBUTE_REJECTED = ConnectionLimitFilter.class
+            .getName() + ".rejected";
+
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private final int maxConnections;
+
+    private final long emissionInterval;
+
+    private final long tolerance;
+
+    private final ConcurrentMap<Long, Entry> ipv4Entries = new ConcurrentHashMap<Long, Entry>();
+
+    private final ConcurrentMap<Long, Entry> ipv6Entries = new ConcurrentHashMap<Long, Entry>();
+
+    private final AtomicLong nextSweep;
+
+    /**
+     * Create a filter
+     * 
+     * @param maxConnections
+     *            The maximum number of concurrent connections per address,
+     *            or 0 for no limit
+     * @param maxConnectionsPerMinute
+     *            The maximum number of new connections per minute per
+     *            address, or 0 for no limit
+     */
+    public ConnectionLimitFilter(int maxConnections, int maxConnectionsPerMinute) {
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("maxConnections can not be negative");
+        }
+        if (maxConnectionsPerMinute < 0) {
+            throw new IllegalArgumentException("maxConnectionsPerMinute can not be negative");
+        }
+        this.maxConnections = maxConnections;
+        if (maxConnectionsPerMinute > 0) {
+            emissionInterval = TimeUnit.MINUTES.toNanos(1) / maxConnectionsPerMinute;
+            tolerance = emissionInterval * (maxConnectionsPerMinute - 1);
+        } else {
+            emissionInterval = 0;
+            tolerance = 0;
+        }
+        nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL);
+    }
+
+    /**
+     * The number of addresses currently tracked by this filter
+     * @return The number of addresses
+     */
+    public int size() {
+        return ipv4Entries.size() + ipv6Entries.size();
+    }
+
+    /**
+     * Check if a new connection from the address is allowed and, if so,
+     * account for it. Each successful call must be followed by a call to
+     * {@link #release(InetAddress)} when the connection closes.
+     * 
+     * @param address
+     *            The remote address
+     * @return true if the connection is allowed
+     */
+    public boolean acquire(InetAddress address) {
+        return acquire(address, System.nanoTime()) != null;
+    }
+
+    /**
+     * Release a connection previously allowed by {@link #acquire(InetAddress)}
+     * 
+     * @param address
+     *            The remote address
+     */
+    public void release(InetAddress address) {
+        Entry entry = table(address).get(key(address));
+        if (entry != null) {
+            entry.release();
+        }
+    }
+
+    Entry acquire(InetAddress address, long now) {
+        sweep(now);
+
+        ConcurrentMap<Long, Entry> table = table(address);
+        Long key = key(address);
+        while (true) {
+            Entry entry = table.get(key);
+            if (entry == null) {
+                Entry created = new Entry(now);
+                entry = table.putIfAbsent(key, created);
+                if (entry == null) {
+                    entry = created;
+                }
+            }
+            synchronized (entry) {
+                if (entry.removed) {
+                    // lost a race with the sweeper, retry with a fresh entry
+                    continue;
+                }
+                if (maxConnections > 0 && entry.open >= maxConnections) {
+                    return null;
+                }
+                if (emissionInterval > 0) {
+                    long tat = entry.tat - now > 0 ? entry.tat : now;
+                    if (tat - now > tolerance) {
+                        return null;
+                    }
+                    entry.tat = tat + emissionInterval;
+                }
+                entry.open++;
+                return entry;
+            }
+        }
+    }
+
+    private void sweep(long now) {
+        long next = nextSweep.get();
+        if (now - next < 0 || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL)) {
+            return;
+        }
+        sweep(ipv4Entries, now);
+        sweep(ipv6Entries, now);
+    }
+
+    private void sweep(ConcurrentMap<Long, Entry> table, long now) {
+        Iterator<Entry> entries = table.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            synchronized (entry) {
+                if (entry.open == 0 && entry.tat - now <= 0) {
+                    entry.removed = true;
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    private ConcurrentMap<Long, Entry> table(InetAddress address) {
+        return address instanceof Inet4Address ? ipv4Entries : ipv6Entries;
+    }
+
+    /**
+     * IPv4 addresses are keyed by the full address, IPv6 addresses by the
+     * upper 64 bits
+     */
+    private static Long key(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        int length = Math.min(bytes.length, 8);
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            key = (key << 8) | (bytes[i] & 0xFF);
+        }
+        return key;
+    }
+
+    private static InetAddress remoteAddress(IoSession session) {
+        SocketAddress address = session.getRemoteAddress();
+        if (address instanceof InetSocketAddress) {
+            return ((InetSocketAddress) address).getAddress();
+        }
+        return null;
+    }
+
+    private static boolean isRejected(IoSession session) {
+        return session.containsAttribute(ATTRIBUTE_REJECTED);
+    }
+
+    @Override
+    public void sessionCreated(NextFilter nextFilter, IoSession session)
+            throws Exception {
+        InetAddress address = remoteAddress(session);
+        if (address != null) {
+            Entry entry = acquire(address, System.nanoTime());
+            if (entry == null) {
+                LOG.debug("Connection limit exceeded for {}, closing session", address);
+                session.setAttribute(ATTRIBUTE_REJECTED, Boolean.TRUE);
+                session.close(true);
+                return;
+            }
+            session.setAttribute(ATTRIBUTE_ENTRY, entry);
+        }
+        nextFilter.sessionCreated(session);
+    }
+
+    @Override
+    public void sessionOpened(NextFilter nextFilter, IoSession session)
+            throws Exception {
+        if (!isRejected(session)) {
+            nextFilter.sessionOpened(session);
+        }
+    }
+
+    @Override
+    public void sessionIdle(NextFilter nextFilter, IoSession session,
+            IdleStatus status) throws Exception {
+        if (!isRejected(session)) {
+            nextFilter.sessionIdle(session, status);
+        }
+    }
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession session,
+            Object message) throws Exception {
+        if (!isRejected(session)) {
+            nextFilter.messageReceived(session, message);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(NextFilter nextFilter, IoSession session,
+            Throwable cause) throws Exception {
+        if (!isRejected(session)) {
+            nextFilter.exceptionCaught(session, cause);
+        }
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session)
+            throws Exception {
+        if (isRejected(session)) {
+            return;
+        }
+        Entry entry = (Entry) session.removeAttribute(ATTRIBUTE_ENTRY);
+        if (entry != null) {
+            entry.release();
+        }
+        nextFilter.sessionClosed(session);
+    }
+
+    static final class Entry {
+
+        /** Theoretical arrival time of the next connection, in nanoTime */
+        long tat;
+
+        int open;
+
+        boolean removed;
+
+        Entry(long now) {
+            this.tat = now;
+        }
+
+        synchronized void release() {
+            if (open > 0) {
+                open--;
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ipfilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * An immutable set of IPv4 and IPv6 subnets, each with an
+ * {@link IpFilterType}, looked up by longest prefix match. The subnets are
+ * kept in a path compressed binary trie, so that a lookup visits at most one
+ * node per distinct prefix length on the path to the address, whatever the
+ * number of subnets.
+ * <p>
+ * Instances are created through a {@link Builder} and never change, so that
+ * a new list can be built aside and swapped in at once.
+ * 
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class IpTrie {
+
+    /**
+     * A prefix of an address, with the action of the subnet it denotes if it
+     * was added
+     */
+    private static final class Node {
+
+        private final byte[] prefix;
+
+        private final int length;
+
+        private IpFilterType action;
+
+        private Node zero;
+
+        private Node one;
+
+        private Node(final byte[] prefix, final int length,
+                final IpFilterType action) {
+            this.prefix = prefix;
+            this.length = length;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Builds an {@link IpTrie}. Not thread safe.
+     */
+    public static class Builder {
+
+        private final Node ipv4 = new Node(new byte[4], 0, null);
+
+        private final Node ipv6 = new Node(new byte[16], 0, null);
+
+        private int size;
+
+        private boolean built;
+
+        /**
+         * Add a subnet. When a subnet is added both as allowed and denied,
+         * it is denied.
+         * 
+         * @param address
+         *            Any address of the subnet
+         * @param length
+         *            The number of leading bits of the subnet
+         * @param action
+         *            Whether addresses in the subnet are allowed or denied
+         * @return this builder
+         */
+        public Builder add(final InetAddress address, final int length,
+                final IpFilterType action) {
+            if (built) {
+                throw new IllegalStateException("Trie already built");
+            }
+            if (action == null) {
+                throw new IllegalArgumentException("Action can not be null");
+            }
+            byte[] key = address.getAddress();
+            if (length < 0 || length > key.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length "
+                        + length + " for " + address.getHostAddress());
+            }
+            mask(key, length);
+            insert(address instanceof Inet4Address ? ipv4 : ipv6, key,
+                    length, action);
+            return this;
+        }
+
+        /**
+         * Add a subnet in CIDR notation, or a single address.
+         * 
+         * @param cidr
+         *            The subnet, e.g. <code>192.168.0.0/16</code> or
+         *            <code>2001:db8::/32</code>
+         * @param action
+         *            Whether addresses in the subnet are allowed or denied
+         * @return this builder
+         * @throws UnknownHostException
+         *             propagated
+         * @throws NumberFormatException
+         *             propagated
+         */
+        public Builder add(final String cidr, final IpFilterType action)
+                throws NumberFormatException, UnknownHostException {
+            // InetAddress takes a blank string for the loopback address
+            String trimmed = cidr.trim();
+            if (trimmed.length() < 1) {
+                throw new IllegalArgumentException(
+                        "Invalid IP Address or Subnet: " + cidr);
+            }
+            int slash = trimmed.indexOf('/');
+            if (slash < 0) {
+                InetAddress address = InetAddress.getByName(trimmed);
+                return add(address, address.getAddress().length * 8, action);
+            }
+            return add(InetAddress.getByName(trimmed.substring(0, slash)),
+                    Integer.parseInt(trimmed.substring(slash + 1)), action);
+        }
+
+        /**
+         * Add the subnets listed by a reader, one per line. A line holds a
+         * subnet in CIDR notation or a single address, optionally preceded by
+         * <code>allow</code> or <code>deny</code>. Empty lines and text
+         * following a <code>#</code> are ignored.
+         * 
+         * @param reader
+         *            The list, not closed by this method
+         * @param action
+         *            The action for lines not giving one
+         * @return this builder
+         * @throws IOException
+         *             If the list can not be read or holds an invalid line
+         */
+        public Builder load(final Reader reader, final IpFilterType action)
+                throws IOException {
+            BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader
+                    : new BufferedReader(reader);
+            int number = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                number++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length == 1 && tokens[0].length() == 0) {
+                    continue;
+                }
+                try {
+                    if (tokens.length == 1) {
+                        add(tokens[0], action);
+                    } else if (tokens.length == 2) {
+                        add(tokens[1], IpFilterType.parse(tokens[0]));
+                    } else {
+                        throw new IllegalArgumentException("Too many tokens");
+                    }
+                } catch (IllegalArgumentException | UnknownHostException e) {
+                    throw new IOException("Invalid subnet on line " + number
+                            + ": " + line.trim(), e);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Create the trie. The builder can not be used afterwards.
+         * 
+         * @return The trie holding the added subnets
+         */
+        public IpTrie build() {
+            built = true;
+            return new IpTrie(ipv4, ipv6, size);
+        }
+
+        private void insert(final Node root, final byte[] key,
+                final int length, final IpFilterType action) {
+            Node node = root;
+            while (true) {
+                if (node.length == length) {
+                    if (node.action == null) {
+                        size++;
+                    }
+                    if (node.action != IpFilterType.DENY) {
+                        node.action = action;
+                    }
+                    return;
+                }
+
+                boolean bit = bit(key, node.length);
+                Node child = bit ? node.one : node.zero;
+                if (child == null) {
+                    setChild(node, bit, new Node(key, length, action));
+                    size++;
+                    return;
+                }
+
+                int common = commonLength(key, child.prefix, Math.min(length,
+                        child.length));
+                if (common == child.length) {
+                    node = child;
+                    continue;
+                }
+
+                // the subnet and the child part below the node, split them
+                byte[] prefix = key.clone();
+                mask(prefix, common);
+                Node split = new Node(prefix, common, null);
+                setChild(split, bit(child.prefix, common), child);
+                if (common == length) {
+                    split.action = action;
+                } else {
+                    setChild(split, bit(key, common), new Node(key, length,
+                            action));
+                }
+                setChild(node, bit, split);
+                size++;
+                return;
+            }
+        }
+
+        private static void setChild(final Node node, final boolean bit,
+                final Node child) {
+            if (bit) {
+                node.one = child;
+            } else {
+                node.zero = child;
+            }
+        }
+
+        private static void mask(final byte[] key, final int length) {
+            for (int i = length / 8; i < key.length; i++) {
+                int keep = length - i * 8;
+                key[i] &= keep <= 0 ? 0 : (byte) (0xFF << (8 - keep));
+            }
+        }
+
+        private static int commonLength(final byte[] a, final byte[] b,
+                final int max) {
+            int length = 0;
+            for (int i = 0; length < max; i++) {
+                int diff = (a[i] ^ b[i]) & 0xFF;
+                if (diff != 0) {
+                    length += Integer.numberOfLeadingZeros(diff) - 24;
+                    break;
+                }
+                length += 8;
+            }
+            return Math.min(length, max);
+        }
+    }
+
+    private final Node ipv4;
+
+    private final Node ipv6;
+
+    private final int size;
+
+    private IpTrie(final Node ipv4, final Node ipv6, final int size) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.size = size;
+    }
+
+    /**
+     * @return A trie holding no subnets
+     */
+    public static IpTrie empty() {
+        return new Builder().build();
+    }
+
+    /**
+     * @return The number of distinct subnets
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the action of the longest subnet containing the address.
+     * 
+     * @param address
+     *            The address to look up
+     * @return The action, or null if no subnet contains the address
+     */
+    public IpFilterType lookup(final InetAddress address) {
+        byte[] key = address.getAddress();
+        Node node = address instanceof Inet4Address ? ipv4 : ipv6;
+        IpFilterType action = null;
+        while (true) {
+            if (node.action != null) {
+                action = node.action;
+            }
+            if (node.length == key.length * 8) {
+                return action;
+            }
+            Node child = bit(key, node.length) ? node.one : node.zero;
+            if (child == null || !matches(key, child)) {
+                return action;
+            }
+            node = child;
+        }
+    }
+
+    private static boolean bit(final byte[] key, final int index) {
+        return (key[index >> 3] & (0x80 >>> (index & 7))) != 0;
+    }
+
+    private static boolean matches(final byte[] key, final Node node) {
+        int bytes = node.length >> 3;
+        for (int i = 0; i < bytes; i++) {
+            if (key[i] != node.prefix[i]) {
+                return false;
+            }
+        }
+        int bits = node.length & 7;
+        if (bits == 0) {
+            return true;
+        }
+        int mask = 0xFF << (8 - bits);
+        return ((key[bytes] ^ node.prefix[bytes]) & mask) == 0;
+    }
+}
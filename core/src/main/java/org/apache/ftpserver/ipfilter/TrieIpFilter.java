@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ipfilter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the <code>SessionFilter</code> interface, to filter
+ * sessions based on the remote IP address against large lists of allowed and
+ * denied subnets. The subnet with the longest prefix containing the address
+ * decides; addresses outside all subnets get the default action.
+ * <p>
+ * Unlike {@link RemoteIpFilter}, the cost of a lookup does not depend on the
+ * number of subnets. The subnets are held in an immutable {@link IpTrie}
+ * which is replaced at once when the list is reloaded, so sessions are never
+ * checked against a partly loaded list.
+ * 
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class TrieIpFilter implements SessionFilter {
+
+    private final Logger LOG = LoggerFactory.getLogger(TrieIpFilter.class);
+
+    private final IpFilterType defaultAction;
+
+    private volatile IpTrie trie;
+
+    /**
+     * Creates a new instance of <code>TrieIpFilter</code> without subnets.
+     * 
+     * @param defaultAction
+     *            the action for addresses outside all subnets, ALLOW for a
+     *            black list and DENY for a white list
+     */
+    public TrieIpFilter(IpFilterType defaultAction) {
+        this(defaultAction, IpTrie.empty());
+    }
+
+    /**
+     * Creates a new instance of <code>TrieIpFilter</code>.
+     * 
+     * @param defaultAction
+     *            the action for addresses outside all subnets
+     * @param trie
+     *            the subnets
+     */
+    public TrieIpFilter(IpFilterType defaultAction, IpTrie trie) {
+        if (defaultAction == null) {
+            throw new IllegalArgumentException("Default action can not be null");
+        }
+        this.defaultAction = defaultAction;
+        setTrie(trie);
+    }
+
+    /**
+     * Returns the action for addresses outside all subnets.
+     * 
+     * @return the default action
+     */
+    public IpFilterType getDefaultAction() {
+        return defaultAction;
+    }
+
+    /**
+     * Returns the current subnets.
+     * 
+     * @return the subnets
+     */
+    public IpTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * Replaces the subnets. Sessions created from now on are checked
+     * against the given subnets only.
+     * 
+     * @param trie
+     *            the new subnets
+     */
+    public void setTrie(IpTrie trie) {
+        if (trie == null) {
+            throw new IllegalArgumentException("Trie can not be null");
+        }
+        this.trie = trie;
+    }
+
+    /**
+     * Replaces the subnets with those listed in a file, in the format of
+     * {@link IpTrie.Builder#load(Reader, IpFilterType)}. The current subnets
+     * are kept if the file can not be read or is invalid.
+     * 
+     * @param file
+     *            the list of subnets, in UTF-8
+     * @param action
+     *            the action for subnets listed without one
+     * @throws IOException
+     *             if the file can not be read or holds an invalid line
+     */
+    public void load(Path file, IpFilterType action) throws IOException {
+        IpTrie loaded;
+        try (Reader reader = Files.newBufferedReader(file,
+                StandardCharsets.UTF_8)) {
+            loaded = new IpTrie.Builder().load(reader, action).build();
+        }
+        setTrie(loaded);
+        LOG.info("Loaded {} subnets from {}", loaded.size(), file);
+    }
+
+    /**
+     * Tells whether the given address is accepted by this filter.
+     * 
+     * @param address
+     *            the address to check
+     * @return <code>true</code>, if the address is allowed
+     */
+    public boolean isAllowed(InetAddress address) {
+        IpFilterType action = trie.lookup(address);
+        if (action == null) {
+            action = defaultAction;
+        }
+        return action == IpFilterType.ALLOW;
+    }
+
+    public boolean accept(IoSession session) {
+        InetAddress address = ((InetSocketAddress) session.getRemoteAddress())
+                .getAddress();
+        boolean accepted = isAllowed(address);
+        if (!accepted && LOG.isDebugEnabled()) {
+            LOG.debug("Denying connection from {}", address);
+        }
+        return accepted;
+    }
+}
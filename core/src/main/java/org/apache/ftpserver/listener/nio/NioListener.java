@@ -28,12 +28,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.ftpserver.ConnectionConfig;
 import org.apache.ftpserver.DataConnectionConfiguration;
 import org.apache.ftpserver.FtpServerConfigurationException;
 import org.apache.ftpserver.impl.DefaultFtpHandler;
 import org.apache.ftpserver.impl.FtpHandler;
 import org.apache.ftpserver.impl.FtpIoSession;
 import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.ipfilter.ConnectionLimitFilter;
 import org.apache.ftpserver.ipfilter.MinaSessionFilter;
 import org.apache.ftpserver.ipfilter.SessionFilter;
 import org.apache.ftpserver.listener.Listener;
@@ -126,6 +128,14 @@ public class NioListener extends AbstractListener {
         acceptor.getFilterChain().addLast("sessionFilter", new MinaSessionFilter(sessionFilter));
         }
 
+        ConnectionConfig connectionConfig = context.getConnectionConfig();
+        if (connectionConfig.getMaxConnectionsPerIp() > 0
+                || connectionConfig.getMaxConnectionRatePerIp() > 0) {
+        // reject connections over the per address limits before any executor work
+        acceptor.getFilterChain().addLast("connectionLimit", new ConnectionLimitFilter(
+                connectionConfig.getMaxConnectionsPerIp(), connectionConfig.getMaxConnectionRatePerIp()));
+        }
+
         acceptor.getFilterChain().addLast("threadPool", new ExecutorFilter(context.getThreadPoolExecutor()));
         acceptor.getFilterChain().addLast("codec", new ProtocolCodecFilter(new FtpServerProtocolCodecFactory()));
         acceptor.getFilterChain().addLast("mdcFilter2", mdcFilter);
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.quota;
+
+import java.io.IOException;
+
+/**
+ * Thrown when storing more bytes would take a user over quota. Extends
+ * {@link IOException} so that it can be thrown from within a data transfer.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaExceededException extends IOException {
+
+    private static final long serialVersionUID = -2370586925143596302L;
+
+    private final long quota;
+
+    /**
+     * Constructor.
+     * 
+     * @param msg
+     *            The detail message
+     * @param quota
+     *            The quota that would have been exceeded
+     */
+    public QuotaExceededException(String msg, long quota) {
+        super(msg);
+        this.quota = quota;
+    }
+
+    /**
+     * Get the quota that would have been exceeded.
+     * 
+     * @return The quota in bytes
+     */
+    public long getQuota() {
+        return quota;
+    }
+}
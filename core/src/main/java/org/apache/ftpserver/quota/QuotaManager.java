@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.quota;
+
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.ftplet.UserManager;
+
+/**
+ * Keeps track of the number of bytes stored by each user. The usage is
+ * updated incrementally by the commands changing the file system and by the
+ * data connection while an upload is in progress, so that no directory has to
+ * be walked to enforce a quota. A background scan of the home directories
+ * corrects any drift, for example caused by changes made outside the server.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface QuotaManager {
+
+    /**
+     * Get the maximum number of bytes a user may store.
+     * 
+     * @param userName
+     *            The user name
+     * @return The quota in bytes, or a negative value if the user has no quota
+     */
+    long getQuota(String userName);
+
+    /**
+     * Get the number of bytes currently accounted to a user.
+     * 
+     * @param userName
+     *            The user name
+     * @return The usage in bytes
+     */
+    long getUsage(String userName);
+
+    /**
+     * Account bytes about to be stored by a user. Nothing is accounted if the
+     * bytes would take the user over quota.
+     * 
+     * @param user
+     *            The user storing the bytes
+     * @param bytes
+     *            The number of bytes
+     * @throws QuotaExceededException
+     *             If storing the bytes would exceed the quota of the user
+     */
+    void reserve(User user, long bytes) throws QuotaExceededException;
+
+    /**
+     * Give back bytes no longer stored by a user, for example after a delete
+     * or when a file is overwritten.
+     * 
+     * @param user
+     *            The user
+     * @param bytes
+     *            The number of bytes
+     */
+    void release(User user, long bytes);
+
+    /**
+     * Record a change of the file system of a user that does not change the
+     * number of bytes stored, like a rename or the removal of a directory. A
+     * scan of the home directory running concurrently is then discarded, as it
+     * might have seen a file twice or not at all.
+     * 
+     * @param user
+     *            The user
+     */
+    void touch(User user);
+
+    /**
+     * Start reconciling the usage counters with the content of the home
+     * directories in the background.
+     * 
+     * @param userManager
+     *            The user manager listing the users to scan
+     * @param fileSystemFactory
+     *            The file system factory used to access the home directories
+     */
+    void start(UserManager userManager, FileSystemFactory fileSystemFactory);
+
+    /**
+     * Stop the background scan and persist the usage counters.
+     */
+    void dispose();
+}
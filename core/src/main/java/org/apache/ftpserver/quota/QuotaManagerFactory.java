@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.quota;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ftpserver.quota.impl.DefaultQuotaManager;
+
+/**
+ * Factory for the default {@link QuotaManager} implementation.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class QuotaManagerFactory {
+
+    private long defaultQuota = -1;
+
+    private Map<String, Long> quotas = new HashMap<>();
+
+    private File file;
+
+    private int reconcileInterval = 3600;
+
+    /**
+     * Create a {@link QuotaManager} instance based on the provided
+     * configuration. The persisted usage counters, if any, are loaded.
+     * 
+     * @return The {@link QuotaManager}
+     */
+    public QuotaManager createQuotaManager() {
+        return new DefaultQuotaManager(defaultQuota, quotas, file,
+                reconcileInterval);
+    }
+
+    /**
+     * Get the quota of users not listed in {@link #getQuotas()}.
+     * 
+     * @return The quota in bytes, a negative value means no quota
+     */
+    public long getDefaultQuota() {
+        return defaultQuota;
+    }
+
+    /**
+     * Set the quota of users not listed in {@link #getQuotas()}. The default
+     * value is -1, no quota, the usage is still accounted.
+     * 
+     * @param defaultQuota
+     *            The quota in bytes, a negative value means no quota
+     */
+    public void setDefaultQuota(long defaultQuota) {
+        this.defaultQuota = defaultQuota;
+    }
+
+    /**
+     * Get the quotas of specific users.
+     * 
+     * @return The quotas in bytes keyed by user name
+     */
+    public Map<String, Long> getQuotas() {
+        return quotas;
+    }
+
+    /**
+     * Set the quotas of specific users.
+     * 
+     * @param quotas
+     *            The quotas in bytes keyed by user name, a negative value
+     *            means no quota
+     */
+    public void setQuotas(Map<String, Long> quotas) {
+        this.quotas = quotas;
+    }
+
+    /**
+     * Get the file the usage counters are persisted in.
+     * 
+     * @return The file, or null if the counters are not persisted
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Set the file the usage counters are persisted in. Without a file the
+     * counters start at zero until the first scan has completed.
+     * 
+     * @param file
+     *            The file
+     */
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the number of seconds between two scans of the home directories.
+     * 
+     * @return The interval in seconds
+     */
+    public int getReconcileInterval() {
+        return reconcileInterval;
+    }
+
+    /**
+     * Set the number of seconds between two scans of the home directories.
+     * The first scan starts right after the server has started. The default
+     * value is 3600, 0 disables the scans.
+     * 
+     * @param reconcileInterval
+     *            The interval in seconds
+     */
+    public void setReconcileInterval(int reconcileInterval) {
+        this.reconcileInterval = reconcileInterval;
+    }
+}
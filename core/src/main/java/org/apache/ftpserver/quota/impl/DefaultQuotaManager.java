@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.quota.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.quota.QuotaExceededException;
+import org.apache.ftpserver.quota.QuotaManager;
+import org.apache.ftpserver.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <strong>Internal class, do not use directly.</strong>
+ * 
+ * Quota manager keeping an atomic usage counter per user. Every update also
+ * bumps a change counter of the user, a scan of the home directory during
+ * which that counter moved is repeated a few times. The scan result is
+ * applied as a correction of the counter value read when the scan started,
+ * so that bytes accounted concurrently are never lost. A user whose files
+ * keep changing gets the last scan applied anyway, off by at most what was
+ * transferred during it, which the next scan corrects.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DefaultQuotaManager implements QuotaManager {
+
+    private final Logger LOG = LoggerFactory
+            .getLogger(DefaultQuotaManager.class);
+
+    private final long defaultQuota;
+
+    private final Map<String, Long> quotas;
+
+    private final File file;
+
+    private final int reconcileInterval;
+
+    private final ConcurrentHashMap<String, Usage> usages = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private ScheduledExecutorService scanner;
+
+    // scans of a user's home directory before applying one done while the
+    // usage changed
+    private static final int SCAN_ATTEMPTS = 3;
+
+    /**
+     * The usage of a single user
+     */
+    private static final class Usage {
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private final AtomicLong changes = new AtomicLong();
+    }
+
+    /**
+     * Internal constructor, do not use directly. Use
+     * {@link org.apache.ftpserver.quota.QuotaManagerFactory} instead.
+     */
+    public DefaultQuotaManager(final long defaultQuota,
+            final Map<String, Long> quotas, final File file,
+            final int reconcileInterval) {
+        this.defaultQuota = defaultQuota;
+        if (quotas == null) {
+            this.quotas = Collections.emptyMap();
+        } else {
+            this.quotas = new HashMap<>(quotas);
+        }
+        this.file = file;
+        this.reconcileInterval = reconcileInterval;
+
+        load();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getQuota(final String userName) {
+        Long quota = quotas.get(key(userName));
+        if (quota == null) {
+            return defaultQuota;
+        }
+        return quota.longValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getUsage(final String userName) {
+        Usage usage = usages.get(key(userName));
+        if (usage == null) {
+            return 0L;
+        }
+        return usage.bytes.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void reserve(final User user, final long bytes)
+            throws QuotaExceededException {
+        if (bytes <= 0) {
+            return;
+        }
+        String name = key(user.getName());
+        long quota = getQuota(name);
+        Usage usage = usage(name);
+        long used;
+        do {
+            used = usage.bytes.get();
+            if (quota >= 0 && used + bytes > quota) {
+                throw new QuotaExceededException("Quota of " + quota
+                        + " bytes exceeded for user " + name, quota);
+            }
+        } while (!usage.bytes.compareAndSet(used, used + bytes));
+        usage.changes.incrementAndGet();
+        dirty.set(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void release(final User user, final long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        Usage usage = usage(key(user.getName()));
+
+        // the counter starts at zero if nothing has been persisted, do not
+        // let the removal of files stored before go below that
+        usage.bytes.updateAndGet(used -> Math.max(0L, used - bytes));
+        usage.changes.incrementAndGet();
+        dirty.set(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void touch(final User user) {
+        usage(key(user.getName())).changes.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void start(final UserManager userManager,
+            final FileSystemFactory fileSystemFactory) {
+        if (scanner != null || reconcileInterval <= 0) {
+            return;
+        }
+        scanner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FtpServer-quota-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanner.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile(userManager, fileSystemFactory);
+            } catch (Exception e) {
+                LOG.warn("Failed to reconcile the quota usage", e);
+            }
+        }, 0, reconcileInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void dispose() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scanner;
+            scanner = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        save();
+    }
+
+    /**
+     * Scan the home directories of all users and correct the usage counters,
+     * then persist them.
+     * 
+     * @param userManager
+     *            The user manager listing the users to scan
+     * @param fileSystemFactory
+     *            The file system factory used to access the home directories
+     * @throws FtpException
+     *             If the users can not be listed
+     */
+    public void reconcile(final UserManager userManager,
+            final FileSystemFactory fileSystemFactory) throws FtpException {
+        for (String name : userManager.getAllUserNames()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                User user = userManager.getUserByName(name);
+                if (user != null) {
+                    reconcile(user, fileSystemFactory);
+                }
+            } catch (Exception e) {
+                LOG.warn("Failed to scan the home directory of user " + name,
+                        e);
+            }
+        }
+        save();
+    }
+
+    /**
+     * Scan the home directory of a user and correct its usage counter.
+     * 
+     * @param user
+     *            The user
+     * @param fileSystemFactory
+     *            The file system factory used to access the home directory
+     * @return false if the file system of the user changed during every
+     *         scan, the correction is then approximate
+     * @throws FtpException
+     *             If the file system of the user can not be accessed
+     */
+    public boolean reconcile(final User user,
+            final FileSystemFactory fileSystemFactory) throws FtpException {
+        String name = key(user.getName());
+        Usage usage = usage(name);
+        boolean exact = false;
+        long before = 0L;
+        long total = 0L;
+        for (int attempt = 0; attempt < SCAN_ATTEMPTS && !exact; attempt++) {
+            long changes = usage.changes.get();
+            before = usage.bytes.get();
+
+            FileSystemView view = fileSystemFactory.createFileSystemView(user);
+            try {
+                total = sizeOf(view.getHomeDirectory());
+            } finally {
+                view.dispose();
+            }
+            exact = usage.changes.get() == changes;
+        }
+
+        if (!exact) {
+            LOG.debug("Usage of user {} kept changing during the scans, "
+                    + "correcting it anyway", name);
+        }
+        long drift = total - before;
+        if (drift != 0) {
+            LOG.debug("Correcting usage of user {} by {} bytes", name, drift);
+            usage.bytes.addAndGet(drift);
+            dirty.set(true);
+        }
+        return exact;
+    }
+
+    private long sizeOf(final FtpFile root) {
+        long total = 0L;
+        Deque<FtpFile> dirs = new ArrayDeque<>();
+        dirs.push(root);
+        while (!dirs.isEmpty()) {
+            FtpFile dir = dirs.pop();
+            List<? extends FtpFile> files = dir.listFiles();
+            if (files == null) {
+                // unreadable or removed during the scan, count as empty
+                LOG.warn("Failed to list directory {}, skipping it",
+                        dir.getAbsolutePath());
+                continue;
+            }
+            for (FtpFile file : files) {
+                if (file.isDirectory()) {
+                    dirs.push(file);
+                } else if (file.isFile()) {
+                    total += file.getSize();
+                }
+            }
+        }
+        return total;
+    }
+
+    private Usage usage(final String name) {
+        return usages.computeIfAbsent(name, k -> new Usage());
+    }
+
+    private static String key(final String userName) {
+        return userName == null ? "" : userName;
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            props.load(in);
+        } catch (IOException e) {
+            LOG.warn("Failed to load the quota usage from " + file, e);
+            return;
+        } finally {
+            IoUtils.close(in);
+        }
+        for (String name : props.stringPropertyNames()) {
+            try {
+                usage(name).bytes.set(Long.parseLong(props.getProperty(name)));
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring invalid quota usage of user {}", name);
+            }
+        }
+    }
+
+    private void save() {
+        if (file == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        Properties props = new Properties();
+        for (Map.Entry<String, Usage> entry : usages.entrySet()) {
+            props.setProperty(entry.getKey(),
+                    String.valueOf(entry.getValue().bytes.get()));
+        }
+
+        // write next to the target and move it in place, a crash while
+        // writing must not lose the previous counters
+        File tmp = new File(file.getAbsoluteFile().getParentFile(),
+                file.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            props.store(out, "FtpServer quota usage");
+            out.close();
+            try {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty.set(true);
+            LOG.warn("Failed to save the quota usage to " + file, e);
+        } finally {
+            IoUtils.close(out);
+        }
+    }
+}
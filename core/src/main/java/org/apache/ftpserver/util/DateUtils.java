@@ -22,9 +22,11 @@ package org.apache.ftpserver.util;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
 /**
@@ -36,8 +38,6 @@ import java.util.TimeZone;
  */
 public class DateUtils {
 
-    private static final TimeZone TIME_ZONE_UTC = TimeZone.getTimeZone("UTC");
-
     private final static String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May",
             "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
 
@@ -57,56 +57,100 @@ public class DateUtils {
         
     };
     
+    /*
+     * Per thread caches of formatted dates. Listings tend to contain many
+     * files modified within the same minute or second, so the date text is
+     * only computed once for each.
+     */
+    private static final ThreadLocal<DateTextCache> UNIX_DATES = new ThreadLocal<DateTextCache>() {
+
+        @Override
+        protected DateTextCache initialValue() {
+            return new DateTextCache();
+        }
+    };
+
+    private static final ThreadLocal<DateTextCache> ISO8601_DATES = new ThreadLocal<DateTextCache>() {
+
+        @Override
+        protected DateTextCache initialValue() {
+            return new DateTextCache();
+        }
+    };
+
+    private static final ThreadLocal<DateTextCache> FTP_DATES = new ThreadLocal<DateTextCache>() {
+
+        @Override
+        protected DateTextCache initialValue() {
+            return new DateTextCache();
+        }
+    };
+
+    private static final long SIX_MONTHS = 15811200000L; // 183L * 24L * 60L * 60L * 1000L;
+
     /**
      * Get unix style date string.
      */
     public final static String getUnixDate(long millis) {
+        StringBuilder sb = new StringBuilder(16);
+        appendUnixDate(sb, millis, System.currentTimeMillis());
+        return sb.toString();
+    }
+
+    /**
+     * Append the unix style date, as used in <code>ls -l</code>. Dates more
+     * than six months away from <code>now</code> show the year instead of
+     * the time of day.
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date to format
+     * @param now
+     *            The current time
+     */
+    public final static void appendUnixDate(StringBuilder sb, long millis,
+            long now) {
         if (millis < 0) {
-            return "------------";
+            sb.append("------------");
+            return;
         }
 
-        StringBuilder sb = new StringBuilder(16);
-        Calendar cal = new GregorianCalendar();
-        cal.setTimeInMillis(millis);
+        boolean showYear = Math.abs(now - millis) > SIX_MONTHS;
+        long key = (millis / 60000L) << 1 | (showYear ? 1 : 0);
 
-        // month
-        sb.append(MONTHS[cal.get(Calendar.MONTH)]);
-        sb.append(' ');
+        DateTextCache cache = UNIX_DATES.get();
+        char[] text = cache.get(key);
+        if (text == null) {
+            LocalDateTime date = toLocalDateTime(millis, ZoneId
+                    .systemDefault());
+            StringBuilder dateSb = new StringBuilder(16);
 
-        // day
-        int day = cal.get(Calendar.DATE);
-        if (day < 10) {
-            sb.append(' ');
-        }
-        sb.append(day);
-        sb.append(' ');
-
-        long sixMonth = 15811200000L; // 183L * 24L * 60L * 60L * 1000L;
-        long nowTime = System.currentTimeMillis();
-        if (Math.abs(nowTime - millis) > sixMonth) {
-
-            // year
-            int year = cal.get(Calendar.YEAR);
-            sb.append(' ');
-            sb.append(year);
-        } else {
-
-            // hour
-            int hh = cal.get(Calendar.HOUR_OF_DAY);
-            if (hh < 10) {
-                sb.append('0');
+            // month
+            dateSb.append(MONTHS[date.getMonthValue() - 1]);
+            dateSb.append(' ');
+
+            // day
+            int day = date.getDayOfMonth();
+            if (day < 10) {
+                dateSb.append(' ');
             }
-            sb.append(hh);
-            sb.append(':');
+            dateSb.append(day);
+            dateSb.append(' ');
 
-            // minute
-            int mm = cal.get(Calendar.MINUTE);
-            if (mm < 10) {
-                sb.append('0');
+            if (showYear) {
+                // year
+                dateSb.append(' ');
+                dateSb.append(date.getYear());
+            } else {
+                // hour and minute
+                appendTwoDigits(dateSb, date.getHour());
+                dateSb.append(':');
+                appendTwoDigits(dateSb, date.getMinute());
             }
-            sb.append(mm);
+            text = cache.put(key, dateSb);
         }
-        return sb.toString();
+        sb.append(text);
     }
 
     /**
@@ -114,53 +158,43 @@ public class DateUtils {
      */
     public final static String getISO8601Date(long millis) {
         StringBuilder sb = new StringBuilder(19);
-        Calendar cal = new GregorianCalendar();
-        cal.setTimeInMillis(millis);
-
-        // year
-        sb.append(cal.get(Calendar.YEAR));
-
-        // month
-        sb.append('-');
-        int month = cal.get(Calendar.MONTH) + 1;
-        if (month < 10) {
-            sb.append('0');
-        }
-        sb.append(month);
+        appendISO8601Date(sb, millis);
+        return sb.toString();
+    }
 
-        // date
-        sb.append('-');
-        int date = cal.get(Calendar.DATE);
-        if (date < 10) {
-            sb.append('0');
-        }
-        sb.append(date);
+    /**
+     * Append the ISO 8601 timestamp, in the local time zone and with second
+     * precision.
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date to format
+     */
+    public final static void appendISO8601Date(StringBuilder sb, long millis) {
+        long key = Math.floorDiv(millis, 1000L);
 
-        // hour
-        sb.append('T');
-        int hour = cal.get(Calendar.HOUR_OF_DAY);
-        if (hour < 10) {
-            sb.append('0');
-        }
-        sb.append(hour);
+        DateTextCache cache = ISO8601_DATES.get();
+        char[] text = cache.get(key);
+        if (text == null) {
+            LocalDateTime date = toLocalDateTime(millis, ZoneId
+                    .systemDefault());
+            StringBuilder dateSb = new StringBuilder(19);
 
-        // minute
-        sb.append(':');
-        int min = cal.get(Calendar.MINUTE);
-        if (min < 10) {
-            sb.append('0');
+            dateSb.append(date.getYear());
+            dateSb.append('-');
+            appendTwoDigits(dateSb, date.getMonthValue());
+            dateSb.append('-');
+            appendTwoDigits(dateSb, date.getDayOfMonth());
+            dateSb.append('T');
+            appendTwoDigits(dateSb, date.getHour());
+            dateSb.append(':');
+            appendTwoDigits(dateSb, date.getMinute());
+            dateSb.append(':');
+            appendTwoDigits(dateSb, date.getSecond());
+            text = cache.put(key, dateSb);
         }
-        sb.append(min);
-
-        // second
-        sb.append(':');
-        int sec = cal.get(Calendar.SECOND);
-        if (sec < 10) {
-            sb.append('0');
-        }
-        sb.append(sec);
-
-        return sb.toString();
+        sb.append(text);
     }
 
     /**
@@ -168,62 +202,95 @@ public class DateUtils {
      */
     public final static String getFtpDate(long millis) {
         StringBuilder sb = new StringBuilder(20);
-        
-        // MLST should use UTC
-        Calendar cal = new GregorianCalendar(TIME_ZONE_UTC);
-        cal.setTimeInMillis(millis);
-        
+        appendFtpDate(sb, millis);
+        return sb.toString();
+    }
 
-        // year
-        sb.append(cal.get(Calendar.YEAR));
+    /**
+     * Append the FTP date, as used by MDTM and MLST, in UTC and with
+     * millisecond precision.
+     * 
+     * @param sb
+     *            The buffer to append to
+     * @param millis
+     *            The date to format
+     */
+    public final static void appendFtpDate(StringBuilder sb, long millis) {
+        long key = Math.floorDiv(millis, 1000L);
 
-        // month
-        int month = cal.get(Calendar.MONTH) + 1;
-        if (month < 10) {
-            sb.append('0');
-        }
-        sb.append(month);
+        DateTextCache cache = FTP_DATES.get();
+        char[] text = cache.get(key);
+        if (text == null) {
+            // MLST should use UTC
+            LocalDateTime date = toLocalDateTime(millis, ZoneOffset.UTC);
+            StringBuilder dateSb = new StringBuilder(20);
 
-        // date
-        int date = cal.get(Calendar.DATE);
-        if (date < 10) {
-            sb.append('0');
+            dateSb.append(date.getYear());
+            appendTwoDigits(dateSb, date.getMonthValue());
+            appendTwoDigits(dateSb, date.getDayOfMonth());
+            appendTwoDigits(dateSb, date.getHour());
+            appendTwoDigits(dateSb, date.getMinute());
+            appendTwoDigits(dateSb, date.getSecond());
+            text = cache.put(key, dateSb);
         }
-        sb.append(date);
+        sb.append(text);
 
-        // hour
-        int hour = cal.get(Calendar.HOUR_OF_DAY);
-        if (hour < 10) {
+        // millisecond
+        sb.append('.');
+        int milli = (int) Math.floorMod(millis, 1000L);
+        if (milli < 100) {
             sb.append('0');
         }
-        sb.append(hour);
-
-        // minute
-        int min = cal.get(Calendar.MINUTE);
-        if (min < 10) {
+        if (milli < 10) {
             sb.append('0');
         }
-        sb.append(min);
+        sb.append(milli);
+    }
 
-        // second
-        int sec = cal.get(Calendar.SECOND);
-        if (sec < 10) {
+    private static LocalDateTime toLocalDateTime(long millis, ZoneId zone) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) {
             sb.append('0');
         }
-        sb.append(sec);
+        sb.append(value);
+    }
 
-        // millisecond
-        sb.append('.');
-        int milli = cal.get(Calendar.MILLISECOND);
-        if (milli < 100) {
-            sb.append('0');
+    /**
+     * Small direct mapped cache from a time key, e.g. the minute or second,
+     * to its formatted text. Not thread safe, used per thread. Cached local
+     * dates are not refreshed if the default time zone is changed.
+     */
+    private static final class DateTextCache {
+
+        // must be a power of two
+        private static final int SIZE = 64;
+
+        private final long[] keys = new long[SIZE];
+
+        private final char[][] texts = new char[SIZE][];
+
+        public char[] get(long key) {
+            int index = (int) (key ^ (key >>> 32)) & (SIZE - 1);
+            char[] text = texts[index];
+            if (text != null && keys[index] == key) {
+                return text;
+            }
+            return null;
         }
-        if (milli < 10) {
-            sb.append('0');
+
+        public char[] put(long key, StringBuilder sb) {
+            int index = (int) (key ^ (key >>> 32)) & (SIZE - 1);
+            char[] text = new char[sb.length()];
+            sb.getChars(0, text.length, text, 0);
+            keys[index] = key;
+            texts[index] = text;
+            return text;
         }
-        sb.append(milli);
-        return sb.toString();
     }
+
     /*
      *  Parses a date in the format used by the FTP commands 
      *  involving dates(MFMT, MDTM)
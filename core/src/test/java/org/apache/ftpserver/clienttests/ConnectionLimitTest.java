@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.clienttests;
+
+import java.io.IOException;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServerFactory;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class ConnectionLimitTest extends ClientTestTemplate {
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        ConnectionConfigFactory ccFactory = new ConnectionConfigFactory();
+
+        ccFactory.setMaxConnectionsPerIp(2);
+
+        server.setConnectionConfig(ccFactory.createConnectionConfig());
+
+        return server;
+    }
+
+    private boolean connect(FTPClient other) {
+        try {
+            other.connect("localhost", getListenerPort());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void testMaxConnectionsPerIp() throws Exception {
+        FTPClient second = createFTPClient();
+        FTPClient third = createFTPClient();
+        try {
+            assertTrue(connect(second));
+            assertFalse(connect(third));
+
+            second.quit();
+            second.disconnect();
+
+            // the server releases the connection asynchronously
+            boolean connected = false;
+            for (int i = 0; i < 20 && !connected; i++) {
+                Thread.sleep(100);
+                third = createFTPClient();
+                connected = connect(third);
+            }
+            assertTrue(connected);
+        } finally {
+            if (second.isConnected()) {
+                second.disconnect();
+            }
+            if (third.isConnected()) {
+                third.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.ftpserver.test.TestUtil;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class FtpHashTest extends ClientTestTemplate {
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "test1.txt");
+
+    private static final File TEST_FILE_WITH_SPACE = new File(ROOT_DIR,
+            "test 2.txt");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final byte[] TEST_DATA = "TESTDATA"
+            .getBytes(StandardCharsets.UTF_8);
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.ftpserver.clienttests.ClientTestTemplate#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+    }
+
+    public void testHashDefaultAlgorithm() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TEST_DATA);
+
+        assertEquals(213, client.sendCommand("HASH " + TEST_FILE1.getName()));
+        assertEquals("213 SHA-256 0-7 " + DigestUtils.sha256Hex(TEST_DATA)
+                + " " + TEST_FILE1.getName(), client.getReplyString().trim());
+    }
+
+    public void testHashSelectedAlgorithm() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE_WITH_SPACE, TEST_DATA);
+
+        assertEquals(200, client.sendCommand("OPTS HASH SHA-512"));
+        assertEquals("200 SHA-512", client.getReplyString().trim());
+        assertEquals(200, client.sendCommand("OPTS HASH"));
+        assertEquals("200 SHA-512", client.getReplyString().trim());
+
+        assertEquals(213, client.sendCommand("HASH "
+                + TEST_FILE_WITH_SPACE.getName()));
+        assertEquals("213 SHA-512 0-7 " + DigestUtils.sha512Hex(TEST_DATA)
+                + " " + TEST_FILE_WITH_SPACE.getName(), client
+                .getReplyString().trim());
+    }
+
+    public void testHashUnknownAlgorithm() throws Exception {
+        assertEquals(504, client.sendCommand("OPTS HASH FOO"));
+    }
+
+    public void testHashRange() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TEST_DATA);
+
+        assertEquals(350, client.sendCommand("RANG 2 5"));
+        assertEquals(213, client.sendCommand("HASH " + TEST_FILE1.getName()));
+        assertEquals("213 SHA-256 2-5 "
+                + DigestUtils.sha256Hex(Arrays.copyOfRange(TEST_DATA, 2, 6))
+                + " " + TEST_FILE1.getName(), client.getReplyString().trim());
+
+        // the range only applies to the next command
+        assertEquals(213, client.sendCommand("HASH " + TEST_FILE1.getName()));
+        assertTrue(client.getReplyString().startsWith("213 SHA-256 0-7 "));
+    }
+
+    public void testHashDirectory() throws Exception {
+        TEST_DIR1.mkdirs();
+
+        assertEquals(550, client.sendCommand("HASH " + TEST_DIR1.getName()));
+    }
+
+    public void testHashNonExistingFile() throws Exception {
+        assertEquals(550, client.sendCommand("HASH " + TEST_FILE1.getName()));
+    }
+
+    public void testHashNoFileName() throws Exception {
+        assertEquals(501, client.sendCommand("HASH"));
+    }
+
+    public void testXcrc() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TEST_DATA);
+
+        assertEquals(250, client.sendCommand("XCRC " + TEST_FILE1.getName()));
+        assertEquals("250 " + crc32(TEST_DATA, 0, TEST_DATA.length), client
+                .getReplyString().trim());
+    }
+
+    public void testXcrcRange() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE_WITH_SPACE, TEST_DATA);
+
+        assertEquals(250, client.sendCommand("XCRC \""
+                + TEST_FILE_WITH_SPACE.getName() + "\" 2 5"));
+        assertEquals("250 " + crc32(TEST_DATA, 2, 4), client
+                .getReplyString().trim());
+    }
+
+    public void testXsha256() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TEST_DATA);
+
+        assertEquals(250, client.sendCommand("XSHA256 " + TEST_FILE1.getName()));
+        assertEquals("250 " + DigestUtils.sha256Hex(TEST_DATA), client
+                .getReplyString().trim());
+    }
+
+    private String crc32(byte[] data, int offset, int length) {
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(data, offset, length);
+        return String.format("%08X", crc.getValue());
+    }
+}
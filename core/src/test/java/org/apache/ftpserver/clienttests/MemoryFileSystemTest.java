@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.clienttests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.memory.MemoryFileSystemFactory;
+import org.apache.ftpserver.test.TestUtil;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MemoryFileSystemTest extends ClientTestTemplate {
+
+    private static final String TEST_FILENAME = "test.txt";
+
+    private static final byte[] TEST_DATA = "TESTDATA"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private MemoryFileSystemFactory fileSystemFactory;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        fileSystemFactory = new MemoryFileSystemFactory();
+        fileSystemFactory.setChunkSize(4);
+        server.setFileSystem(fileSystemFactory);
+
+        return server;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+    }
+
+    public void testStoreAndRetrieve() throws Exception {
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                TEST_DATA)));
+
+        // nothing is written to disk
+        assertFalse(new File(ROOT_DIR, TEST_FILENAME).exists());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(TEST_FILENAME, baos));
+        TestUtil.assertArraysEqual(TEST_DATA, baos.toByteArray());
+    }
+
+    public void testRetrieveWithRestart() throws Exception {
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                TEST_DATA)));
+
+        client.setRestartOffset(5);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(TEST_FILENAME, baos));
+        assertEquals("ATA", new String(baos.toByteArray(),
+                StandardCharsets.UTF_8));
+    }
+
+    public void testAppend() throws Exception {
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                TEST_DATA)));
+        assertTrue(client.appendFile(TEST_FILENAME, new ByteArrayInputStream(
+                TEST_DATA)));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(TEST_FILENAME, baos));
+        assertEquals("TESTDATATESTDATA", new String(baos.toByteArray(),
+                StandardCharsets.UTF_8));
+    }
+
+    public void testDirectories() throws Exception {
+        assertTrue(client.makeDirectory("dir1"));
+        assertTrue(client.changeWorkingDirectory("dir1"));
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                TEST_DATA)));
+        assertTrue(client.changeToParentDirectory());
+
+        FTPFile[] files = client.listFiles("dir1");
+        assertEquals(1, files.length);
+        assertEquals(TEST_FILENAME, files[0].getName());
+        assertEquals(TEST_DATA.length, files[0].getSize());
+
+        assertFalse(client.removeDirectory("dir1"));
+        assertTrue(client.deleteFile("dir1/" + TEST_FILENAME));
+        assertTrue(client.removeDirectory("dir1"));
+        assertEquals(0, fileSystemFactory.getStore().getUsedMemory());
+    }
+
+    public void testRename() throws Exception {
+        assertTrue(client.storeFile(TEST_FILENAME, new ByteArrayInputStream(
+                TEST_DATA)));
+        assertTrue(client.rename(TEST_FILENAME, "renamed.txt"));
+
+        assertEquals(550, client.sendCommand("SIZE " + TEST_FILENAME));
+        assertEquals(213, client.sendCommand("SIZE renamed.txt"));
+    }
+}
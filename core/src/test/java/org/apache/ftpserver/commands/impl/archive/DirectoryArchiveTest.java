@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.command.impl.archive.ArchiveFormat;
+import org.apache.ftpserver.command.impl.archive.DirectoryArchive;
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DirectoryArchiveTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR = new File(ROOT_DIR, "dir");
+
+    private static final String LONG_NAME = "a-directory-name-long-enough-to-"
+            + "need-more-than-the-hundred-bytes-of-the-tar-name-field/"
+            + "and-more-than-the-prefix-field-once-added-to-a-file-name-of-"
+            + "similar-length-which-makes-tar-use-the-gnu-long-name-entry.txt";
+
+    private static final byte[] BINARY_DATA = new byte[200 * 1024 + 11];
+
+    private FileSystemView view;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+        new File(TEST_DIR, "sub").mkdirs();
+        new File(TEST_DIR, "empty").mkdirs();
+        new File(TEST_DIR, LONG_NAME).getParentFile().mkdirs();
+
+        new Random(1).nextBytes(BINARY_DATA);
+        write(new File(TEST_DIR, "a.txt"), "hello"
+                .getBytes(StandardCharsets.UTF_8));
+        write(new File(TEST_DIR, "sub/b.bin"), BINARY_DATA);
+        write(new File(TEST_DIR, ".hidden"), new byte[1]);
+        write(new File(TEST_DIR, LONG_NAME), "long"
+                .getBytes(StandardCharsets.UTF_8));
+
+        BaseUser user = new BaseUser();
+        user.setName("user");
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        user.setAuthorities(Arrays.asList(new WritePermission()));
+        view = new NativeFileSystemFactory().createFileSystemView(user);
+    }
+
+    private void write(File file, byte[] data) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+    }
+
+    private void assertEntries(Map<String, byte[]> entries) {
+        assertEquals("[dir/, dir/" + LONG_NAME.substring(0, LONG_NAME
+                .indexOf('/') + 1) + ", dir/" + LONG_NAME
+                + ", dir/a.txt, dir/empty/, dir/sub/, dir/sub/b.bin]", entries
+                .keySet().toString());
+        assertEquals("hello", new String(entries.get("dir/a.txt"),
+                StandardCharsets.UTF_8));
+        assertEquals("long", new String(entries.get("dir/" + LONG_NAME),
+                StandardCharsets.UTF_8));
+        assertTrue(Arrays.equals(BINARY_DATA, entries.get("dir/sub/b.bin")));
+    }
+
+    public void testForPath() {
+        assertSame(ArchiveFormat.TAR, ArchiveFormat.forPath("/dir.TAR"));
+        assertSame(ArchiveFormat.TAR_GZ, ArchiveFormat.forPath("dir.tar.gz"));
+        assertSame(ArchiveFormat.TAR_GZ, ArchiveFormat.forPath("dir.tgz"));
+        assertSame(ArchiveFormat.ZIP, ArchiveFormat.forPath("dir.zip"));
+        assertNull(ArchiveFormat.forPath("dir.rar"));
+        assertNull(ArchiveFormat.forPath(".zip"));
+        assertEquals(7, ArchiveFormat.TAR_GZ.getExtensionLength("d.tar.gz"));
+    }
+
+    public void testTar() throws Exception {
+        DirectoryArchive archive = new DirectoryArchive(view.getFile("dir"),
+                ArchiveFormat.TAR, -1);
+        try {
+            assertEntries(readTar(archive));
+        } finally {
+            archive.close();
+        }
+    }
+
+    public void testTarGz() throws Exception {
+        DirectoryArchive archive = new DirectoryArchive(view.getFile("dir"),
+                ArchiveFormat.TAR_GZ, 1);
+        try {
+            assertEntries(readTar(new GZIPInputStream(archive)));
+        } finally {
+            archive.close();
+        }
+    }
+
+    public void testZip() throws Exception {
+        DirectoryArchive archive = new DirectoryArchive(view.getFile("dir"),
+                ArchiveFormat.ZIP, 9);
+        try {
+            Map<String, byte[]> entries = new TreeMap<String, byte[]>();
+            ZipInputStream zip = new ZipInputStream(archive,
+                    StandardCharsets.UTF_8);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), readFully(zip));
+            }
+            assertEntries(entries);
+        } finally {
+            archive.close();
+        }
+    }
+
+    public void testRootDirectory() throws Exception {
+        DirectoryArchive archive = new DirectoryArchive(view.getFile("/"),
+                ArchiveFormat.TAR, -1);
+        try {
+            Map<String, byte[]> entries = readTar(archive);
+            assertEquals("root/", entries.keySet().iterator().next());
+            assertEquals("hello", new String(entries.get("root/dir/a.txt"),
+                    StandardCharsets.UTF_8));
+            for (String name : entries.keySet()) {
+                assertTrue(name, name.startsWith("root/"));
+                assertFalse(name, name.contains("//"));
+            }
+        } finally {
+            archive.close();
+        }
+    }
+
+    public void testSymbolicLinkLoop() throws Exception {
+        Path loop = new File(TEST_DIR, "sub/loop").toPath();
+        try {
+            Files.createSymbolicLink(loop, TEST_DIR.getAbsoluteFile()
+                    .toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            // symbolic links not supported
+            return;
+        }
+
+        DirectoryArchive archive = new DirectoryArchive(view.getFile("dir"),
+                ArchiveFormat.TAR, -1);
+        try {
+            assertEntries(readTar(archive));
+        } finally {
+            archive.close();
+            // not to be followed when cleaning up
+            Files.delete(loop);
+        }
+    }
+
+    public void testCloseBeforeEnd() throws Exception {
+        DirectoryArchive archive = new DirectoryArchive(view.getFile("dir"),
+                ArchiveFormat.ZIP, -1);
+        assertTrue(archive.read(new byte[100]) > 0);
+        archive.close();
+        try {
+            archive.read(new byte[100]);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testValidLevel() {
+        assertTrue(DirectoryArchive.isValidLevel(-1));
+        assertTrue(DirectoryArchive.isValidLevel(0));
+        assertTrue(DirectoryArchive.isValidLevel(9));
+        assertFalse(DirectoryArchive.isValidLevel(10));
+        assertFalse(DirectoryArchive.isValidLevel(-2));
+    }
+
+    /**
+     * Read the entries of a tar archive, checking the header checksums
+     */
+    private Map<String, byte[]> readTar(InputStream in) throws IOException {
+        Map<String, byte[]> entries = new TreeMap<String, byte[]>();
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[512];
+        String longName = null;
+        while (true) {
+            data.readFully(header);
+            if (header[0] == 0) {
+                // the end of archive is marked by two empty blocks
+                data.readFully(header);
+                assertEquals(0, header[0]);
+                assertEquals(-1, data.read());
+                return entries;
+            }
+
+            long checksum = 0;
+            for (int i = 0; i < header.length; i++) {
+                checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+            }
+            assertEquals(checksum, Long.parseLong(field(header, 148, 8), 8));
+            assertEquals("ustar", field(header, 257, 6));
+
+            String name = field(header, 0, 100);
+            String prefix = field(header, 345, 155);
+            if (prefix.length() > 0) {
+                name = prefix + '/' + name;
+            }
+            int size = Integer.parseInt(field(header, 124, 12), 8);
+            byte[] content = new byte[size];
+            data.readFully(content);
+            data.readFully(new byte[(512 - size % 512) % 512]);
+
+            char type = (char) header[156];
+            if (type == 'L') {
+                longName = new String(content, 0, content.length - 1,
+                        StandardCharsets.UTF_8);
+                continue;
+            }
+            if (longName != null) {
+                name = longName;
+                longName = null;
+            }
+            assertEquals(name.endsWith("/") ? '5' : '0', type);
+            entries.put(name, content);
+        }
+    }
+
+    private String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset,
+                StandardCharsets.UTF_8).trim();
+    }
+
+    private byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
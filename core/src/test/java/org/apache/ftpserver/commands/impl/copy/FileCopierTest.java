@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.copy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.command.impl.copy.CopyTask;
+import org.apache.ftpserver.command.impl.copy.FileCopier;
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class FileCopierTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File SOURCE_FILE = new File(ROOT_DIR, "source.bin");
+
+    private static final File TARGET_FILE = new File(ROOT_DIR, "target.bin");
+
+    private static final byte[] TEST_DATA = new byte[300 * 1024 + 3];
+
+    private FileSystemView view;
+
+    private FileCopier copier;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+        ROOT_DIR.mkdirs();
+
+        new Random(1).nextBytes(TEST_DATA);
+        write(SOURCE_FILE, TEST_DATA);
+
+        BaseUser user = new BaseUser();
+        user.setName("user");
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        user.setAuthorities(Arrays.asList(new WritePermission()));
+        view = new NativeFileSystemFactory().createFileSystemView(user);
+
+        copier = new FileCopier(2);
+    }
+
+    private void write(File file, byte[] data) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+    }
+
+    private CopyTask copy(String source, String target) throws Exception {
+        FtpFile sourceFile = view.getFile(source);
+        FtpFile targetFile = view.getFile(target);
+        CopyTask task = new CopyTask(sourceFile.getAbsolutePath(), targetFile
+                .getAbsolutePath(), sourceFile.getSize());
+        assertEquals(CopyTask.State.QUEUED, task.getState());
+
+        final CountDownLatch finished = new CountDownLatch(1);
+        copier.copy(sourceFile, targetFile, task, t -> finished.countDown());
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertTrue(task.isFinished());
+        return task;
+    }
+
+    public void testCopy() throws Exception {
+        CopyTask task = copy("source.bin", "target.bin");
+
+        assertEquals(CopyTask.State.DONE, task.getState());
+        assertEquals(TEST_DATA.length, task.getCopied());
+        assertTrue(Arrays.equals(TEST_DATA, Files.readAllBytes(TARGET_FILE
+                .toPath())));
+        assertEquals("/source.bin -> /target.bin: done, " + TEST_DATA.length
+                + " bytes", task.toString());
+    }
+
+    public void testCopyReplacesLongerFile() throws Exception {
+        write(TARGET_FILE, new byte[TEST_DATA.length * 2]);
+
+        CopyTask task = copy("source.bin", "target.bin");
+
+        assertEquals(CopyTask.State.DONE, task.getState());
+        assertTrue(Arrays.equals(TEST_DATA, Files.readAllBytes(TARGET_FILE
+                .toPath())));
+    }
+
+    public void testCopyMissingSource() throws Exception {
+        FtpFile source = view.getFile("source.bin");
+        SOURCE_FILE.delete();
+        FtpFile target = view.getFile("target.bin");
+        CopyTask task = new CopyTask(source.getAbsolutePath(), target
+                .getAbsolutePath(), TEST_DATA.length);
+
+        final CountDownLatch finished = new CountDownLatch(1);
+        copier.copy(source, target, task, t -> finished.countDown());
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        assertEquals(CopyTask.State.FAILED, task.getState());
+        assertNotNull(task.getFailure());
+        assertTrue(task.toString().startsWith(
+                "/source.bin -> /target.bin: failed, "));
+    }
+
+    public void testCopyUnexpectedFailure() throws Exception {
+        FtpFile source = view.getFile("source.bin");
+        final FtpFile realTarget = view.getFile("target.bin");
+        FtpFile target = (FtpFile) Proxy.newProxyInstance(getClass()
+                .getClassLoader(), new Class<?>[] { FtpFile.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("createOutputStream")) {
+                        throw new IllegalStateException("broken");
+                    }
+                    return method.invoke(realTarget, args);
+                });
+        CopyTask task = new CopyTask(source.getAbsolutePath(), target
+                .getAbsolutePath(), TEST_DATA.length);
+
+        final CountDownLatch finished = new CountDownLatch(1);
+        copier.copy(source, target, task, t -> finished.countDown());
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        assertEquals(CopyTask.State.FAILED, task.getState());
+        assertEquals("IllegalStateException", task.getFailure());
+    }
+
+    public void testQueuedDescription() {
+        CopyTask task = new CopyTask("/a", "/b", 400);
+        assertEquals("/a -> /b: queued", task.toString());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        copier.dispose();
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
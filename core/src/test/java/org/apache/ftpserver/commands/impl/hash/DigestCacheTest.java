@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.hash;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.command.impl.hash.DigestCache;
+import org.apache.ftpserver.command.impl.hash.FileHasher;
+import org.apache.ftpserver.command.impl.hash.HashAlgorithm;
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DigestCacheTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File CACHE_FILE = new File(TEST_TMP_DIR, "digests");
+
+    private static final byte[] TEST_DATA = "TESTDATA"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private FileSystemView view;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+        ROOT_DIR.mkdirs();
+
+        BaseUser user = new BaseUser();
+        user.setName("user");
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        user.setAuthorities(Arrays.asList(new WritePermission()));
+        view = new NativeFileSystemFactory().createFileSystemView(user);
+    }
+
+    private DigestCache createCache() {
+        return new DigestCache(EnumSet.of(HashAlgorithm.MD5,
+                HashAlgorithm.SHA_256), CACHE_FILE, 100);
+    }
+
+    private DigestCache createCache(int saveInterval) {
+        return new DigestCache(EnumSet.of(HashAlgorithm.MD5,
+                HashAlgorithm.SHA_256), CACHE_FILE, 100, saveInterval);
+    }
+
+    private void waitForCacheFile() throws InterruptedException {
+        for (int i = 0; i < 100 && !CACHE_FILE.exists(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(CACHE_FILE.exists());
+    }
+
+    private FtpFile upload(DigestCache cache, String name) throws Exception {
+        FtpFile file = view.getFile(name);
+        DigestCache.Upload upload = cache.digest(file.createOutputStream(0));
+        upload.write(TEST_DATA, 0, 4);
+        upload.write(TEST_DATA, 4, TEST_DATA.length - 4);
+        upload.close();
+        cache.uploaded(file, upload);
+        return view.getFile(name);
+    }
+
+    private byte[] expected(HashAlgorithm algorithm) {
+        return algorithm.createDigest().digest(TEST_DATA);
+    }
+
+    public void testUpload() throws Exception {
+        DigestCache cache = createCache();
+        FtpFile file = upload(cache, "file");
+
+        assertTrue(Arrays.equals(expected(HashAlgorithm.MD5), cache.get(file,
+                HashAlgorithm.MD5)));
+        assertTrue(Arrays.equals(expected(HashAlgorithm.SHA_256), cache.get(
+                file, HashAlgorithm.SHA_256)));
+        assertNull(cache.get(file, HashAlgorithm.SHA_512));
+    }
+
+    public void testInvalidate() throws Exception {
+        DigestCache cache = createCache();
+        FtpFile file = upload(cache, "file");
+
+        cache.invalidate(file);
+        assertNull(cache.get(file, HashAlgorithm.MD5));
+    }
+
+    public void testChangedFile() throws Exception {
+        DigestCache cache = createCache();
+        FtpFile file = upload(cache, "file");
+
+        // a change made behind the back of the cache
+        OutputStream out = file.createOutputStream(file.getSize());
+        out.write(TEST_DATA);
+        out.close();
+
+        assertNull(cache.get(view.getFile("file"), HashAlgorithm.MD5));
+    }
+
+    public void testPersist() throws Exception {
+        DigestCache cache = createCache();
+        FtpFile file = upload(cache, "file");
+        cache.dispose();
+        assertTrue(CACHE_FILE.exists());
+
+        cache = createCache();
+        assertTrue(Arrays.equals(expected(HashAlgorithm.SHA_256), cache.get(
+                file, HashAlgorithm.SHA_256)));
+    }
+
+    public void testSavedPeriodically() throws Exception {
+        DigestCache cache = createCache(1);
+        try {
+            FtpFile file = upload(cache, "file");
+            waitForCacheFile();
+
+            // read back without disposing, as after a crash
+            DigestCache loaded = createCache(0);
+            assertTrue(Arrays.equals(expected(HashAlgorithm.MD5), loaded.get(
+                    file, HashAlgorithm.MD5)));
+        } finally {
+            cache.dispose();
+        }
+    }
+
+    public void testSavedAfterChanges() throws Exception {
+        DigestCache cache = createCache(0);
+        try {
+            FtpFile file = upload(cache, "file");
+            // the upload added one digest per algorithm
+            for (int i = 2; i < DigestCache.SAVE_CHANGES - 1; i++) {
+                cache.put(file, file.getSize(), file.getLastModified(),
+                        HashAlgorithm.MD5, expected(HashAlgorithm.MD5));
+            }
+            Thread.sleep(200);
+            assertFalse(CACHE_FILE.exists());
+
+            cache.put(file, file.getSize(), file.getLastModified(),
+                    HashAlgorithm.MD5, expected(HashAlgorithm.MD5));
+            waitForCacheFile();
+
+            DigestCache loaded = createCache(0);
+            assertTrue(Arrays.equals(expected(HashAlgorithm.SHA_256), loaded
+                    .get(file, HashAlgorithm.SHA_256)));
+        } finally {
+            cache.dispose();
+        }
+    }
+
+    public void testFileHasherUsesCache() throws Exception {
+        DigestCache cache = createCache();
+        FtpFile file = upload(cache, "file");
+        FileHasher hasher = new FileHasher(1, cache);
+        try {
+            assertTrue(Arrays.equals(expected(HashAlgorithm.MD5), FileHasher
+                    .await(hasher.hash(file, HashAlgorithm.MD5, 0,
+                            Long.MAX_VALUE))));
+
+            // computed digests are added
+            assertNull(cache.get(file, HashAlgorithm.SHA_1));
+            FileHasher.await(hasher.hash(file, HashAlgorithm.SHA_1, 0,
+                    Long.MAX_VALUE));
+            assertTrue(Arrays.equals(expected(HashAlgorithm.SHA_1), cache.get(
+                    file, HashAlgorithm.SHA_1)));
+        } finally {
+            hasher.dispose();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.commands.impl.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.command.impl.hash.FileHasher;
+import org.apache.ftpserver.command.impl.hash.HashAlgorithm;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class FileHasherTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File TEST_FILE = new File(TEST_TMP_DIR, "test.bin");
+
+    // spans several reads of the hasher buffer
+    private static final byte[] TEST_DATA = new byte[600 * 1024 + 17];
+
+    private FileHasher hasher;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+        TEST_TMP_DIR.mkdirs();
+
+        new Random(1).nextBytes(TEST_DATA);
+        FileOutputStream fos = new FileOutputStream(TEST_FILE);
+        try {
+            fos.write(TEST_DATA);
+        } finally {
+            fos.close();
+        }
+
+        hasher = new FileHasher(2);
+    }
+
+    public void testForName() {
+        assertSame(HashAlgorithm.SHA_256, HashAlgorithm.forName("sha-256"));
+        assertSame(HashAlgorithm.CRC32, HashAlgorithm.forName("CRC32"));
+        assertNull(HashAlgorithm.forName("SHA-3"));
+    }
+
+    public void testHashWholeFile() throws Exception {
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            byte[] digest = FileHasher.await(hasher.hash(new TestFile(true),
+                    algorithm, 0, Long.MAX_VALUE));
+            assertTrue(algorithm.getName(), Arrays.equals(expected(algorithm,
+                    0, TEST_DATA.length), digest));
+        }
+    }
+
+    public void testHashRange() throws Exception {
+        byte[] digest = FileHasher.await(hasher.hash(new TestFile(true),
+                HashAlgorithm.SHA_256, 1000, 300000));
+        assertTrue(Arrays.equals(expected(HashAlgorithm.SHA_256, 1000, 300000),
+                digest));
+    }
+
+    public void testHashStream() throws Exception {
+        byte[] digest = FileHasher.await(hasher.hash(new TestFile(false),
+                HashAlgorithm.SHA_1, 5, 270000));
+        assertTrue(Arrays.equals(expected(HashAlgorithm.SHA_1, 5, 270000),
+                digest));
+    }
+
+    public void testCrc32() throws Exception {
+        byte[] digest = FileHasher.await(hasher.hash(new TestFile(true),
+                HashAlgorithm.CRC32, 0, Long.MAX_VALUE));
+
+        CRC32 crc = new CRC32();
+        crc.update(TEST_DATA);
+        assertEquals(String.format("%08x", crc.getValue()), String.format(
+                "%08x", new java.math.BigInteger(1, digest)));
+    }
+
+    public void testMissingFile() throws Exception {
+        TEST_FILE.delete();
+        try {
+            FileHasher.await(hasher.hash(new TestFile(true),
+                    HashAlgorithm.MD5, 0, Long.MAX_VALUE));
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private byte[] expected(HashAlgorithm algorithm, int start, int end) {
+        MessageDigest digest = algorithm.createDigest();
+        digest.update(TEST_DATA, start, Math.min(end, TEST_DATA.length)
+                - start);
+        return digest.digest();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        hasher.dispose();
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+    /**
+     * Exposes the test file either as a physical file or only as a stream
+     */
+    private static class TestFile implements FtpFile {
+
+        private final boolean physical;
+
+        private TestFile(boolean physical) {
+            this.physical = physical;
+        }
+
+        public Object getPhysicalFile() {
+            return physical ? TEST_FILE : null;
+        }
+
+        public InputStream createInputStream(long offset) throws IOException {
+            return new ByteArrayInputStream(TEST_DATA, (int) offset,
+                    TEST_DATA.length - (int) offset);
+        }
+
+        public java.io.OutputStream createOutputStream(long offset) {
+            throw new UnsupportedOperationException();
+        }
+
+        public String getAbsolutePath() {
+            return "/" + TEST_FILE.getName();
+        }
+
+        public String getName() {
+            return TEST_FILE.getName();
+        }
+
+        public boolean isHidden() {
+            return false;
+        }
+
+        public boolean isDirectory() {
+            return false;
+        }
+
+        public boolean isFile() {
+            return true;
+        }
+
+        public boolean doesExist() {
+            return true;
+        }
+
+        public boolean isReadable() {
+            return true;
+        }
+
+        public boolean isWritable() {
+            return false;
+        }
+
+        public boolean isRemovable() {
+            return false;
+        }
+
+        public String getOwnerName() {
+            return "user";
+        }
+
+        public String getGroupName() {
+            return "group";
+        }
+
+        public int getLinkCount() {
+            return 1;
+        }
+
+        public long getLastModified() {
+            return 0;
+        }
+
+        public boolean setLastModified(long time) {
+            return false;
+        }
+
+        public long getSize() {
+            return TEST_DATA.length;
+        }
+
+        public boolean mkdir() {
+            return false;
+        }
+
+        public boolean delete() {
+            return false;
+        }
+
+        public boolean move(FtpFile destination) {
+            return false;
+        }
+
+        public java.util.List<FtpFile> listFiles() {
+            return null;
+        }
+    }
+}
@@ -20,10 +20,15 @@
 package org.apache.ftpserver.commands.impl.listing;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.ftpserver.command.impl.listing.DirectoryLister;
+import org.apache.ftpserver.command.impl.listing.DirectoryListing;
 import org.apache.ftpserver.command.impl.listing.FileFormater;
 import org.apache.ftpserver.command.impl.listing.ListArgument;
 import org.apache.ftpserver.command.impl.listing.NLSTFileFormater;
@@ -90,6 +95,55 @@ public class DirectoryListerTest extends TestCase {
         assertEquals("dir3\r\ntest3.txt\r\ntest4.txt\r\n", actual);
     }
 
+    public void testListDirectoriesFirst() throws Exception {
+        ListArgument arg = new ListArgument("/", null, null);
+        FileFormater formater = new NLSTFileFormater();
+
+        String actual = directoryLister
+                .listFiles(arg, fileSystemView, formater);
+
+        assertEquals("dir1\r\ndir2\r\ntest1.txt\r\n", actual);
+    }
+
+    public void testListSingleFile() throws Exception {
+        ListArgument arg = new ListArgument(TEST_FILE1.getName(), null, null);
+        FileFormater formater = new NLSTFileFormater();
+
+        String actual = directoryLister
+                .listFiles(arg, fileSystemView, formater);
+
+        assertEquals("test1.txt\r\n", actual);
+    }
+
+    public void testOpenListingUnsorted() throws Exception {
+        ListArgument arg = new ListArgument(TEST_DIR1.getName(), null,
+                new char[] { DirectoryLister.OPTION_UNSORTED });
+        FileFormater formater = new NLSTFileFormater();
+
+        List<String> actual = new ArrayList<>();
+        try (DirectoryListing listing = directoryLister.openListing(arg,
+                fileSystemView, formater)) {
+            while (listing.hasNext()) {
+                actual.add(listing.next());
+            }
+        }
+
+        // directory order is file system dependent
+        Collections.sort(actual);
+        assertEquals(Arrays.asList("dir3\r\n", "test3.txt\r\n",
+                "test4.txt\r\n"), actual);
+    }
+
+    public void testOpenListingOnMissingDirectory() throws Exception {
+        ListArgument arg = new ListArgument("foo", null,
+                new char[] { DirectoryLister.OPTION_UNSORTED });
+
+        try (DirectoryListing listing = directoryLister.openListing(arg,
+                fileSystemView, new NLSTFileFormater())) {
+            assertFalse(listing.hasNext());
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.memory.MemoryFileSystemFactory;
+import org.apache.ftpserver.ftplet.AuthorizationRequest;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MemoryFileSystemViewTest extends TestCase {
+
+    private static final String DIR1_NAME = "dir1";
+
+    private MemoryFileSystemFactory factory;
+
+    private BaseUser user = new BaseUser() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public AuthorizationRequest authorize(AuthorizationRequest request) {
+            return request;
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        user.setName("user1");
+        user.setHomeDirectory("/home/user1");
+
+        factory = new MemoryFileSystemFactory();
+        FileSystemView view = factory.createFileSystemView(user);
+        assertTrue(view.getFile(DIR1_NAME).mkdir());
+        OutputStream out = view.getFile(DIR1_NAME + "/file2")
+                .createOutputStream(0);
+        out.close();
+    }
+
+    private MemoryFileSystemView createView() throws FtpException {
+        return (MemoryFileSystemView) factory.createFileSystemView(user);
+    }
+
+    public void testConstructor() throws FtpException {
+        MemoryFileSystemView view = createView();
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+        assertTrue(view.getHomeDirectory().isDirectory());
+        assertTrue(view.isRandomAccessible());
+    }
+
+    public void testConstructorWithNullUser() throws FtpException {
+        try {
+            new MemoryFileSystemView(null, factory.getStore());
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testConstructorWithNullHomeDirectory() throws FtpException {
+        try {
+            new MemoryFileSystemView(new BaseUser(), factory.getStore());
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testChangeDirectory() throws Exception {
+        MemoryFileSystemView view = createView();
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory(DIR1_NAME));
+        assertEquals("/" + DIR1_NAME, view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory("."));
+        assertEquals("/" + DIR1_NAME, view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory(".."));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory("./" + DIR1_NAME));
+        assertEquals("/" + DIR1_NAME, view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory("~"));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertFalse(view.changeWorkingDirectory("dir1/file2"));
+        assertFalse(view.changeWorkingDirectory("foo"));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+    }
+
+    public void testGetVirtualName() throws FtpException {
+        MemoryFileSystemView view = createView();
+
+        assertEquals("/dir1/file2", view.getVirtualName("/dir1/", "file2"));
+        assertEquals("No slashes on currDir", "/dir1/file2", view
+                .getVirtualName("dir1", "file2"));
+        assertEquals("Null currDir", "/file2", view.getVirtualName(null,
+                "file2"));
+        assertEquals("Absolute fileName", "/file2", view.getVirtualName(
+                "/dir1/", "/file2"));
+        assertEquals("Backslashes", "/dir1/file2", view.getVirtualName("/",
+                "dir1\\file2"));
+        assertEquals(".. beyond root", "/file2", view.getVirtualName(
+                "/dir1/", "../../../file2"));
+        assertEquals("~ in fileName", "/file2", view.getVirtualName("/dir1/",
+                "/~/file2"));
+        assertEquals("Root", "/", view.getVirtualName("/dir1/", ".."));
+    }
+
+    public void testFilesOutliveView() throws Exception {
+        MemoryFileSystemView view = createView();
+        view.dispose();
+
+        FtpFile file = createView().getFile("/dir1/file2");
+        assertTrue(file.isFile());
+    }
+
+    public void testSeparateHomeDirectories() throws Exception {
+        BaseUser other = new BaseUser();
+        other.setName("user2");
+        other.setHomeDirectory("/home/user2");
+
+        FileSystemView view = factory.createFileSystemView(other);
+        assertFalse(view.getFile(DIR1_NAME).doesExist());
+        assertTrue(view.getHomeDirectory().listFiles().isEmpty());
+    }
+
+    public void testFactoryLimits() throws IOException, FtpException {
+        factory = new MemoryFileSystemFactory();
+        factory.setChunkSize(4);
+        factory.setMaxMemory(8);
+
+        FileSystemView view = factory.createFileSystemView(user);
+        OutputStream out = view.getFile("file").createOutputStream(0);
+        try {
+            out.write(new byte[8]);
+            out.write(1);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        } finally {
+            out.close();
+        }
+        assertEquals(8, factory.getStore().getUsedMemory());
+    }
+}
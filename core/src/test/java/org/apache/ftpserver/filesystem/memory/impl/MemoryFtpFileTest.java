@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.memory.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.FtpFileTestTemplate;
+import org.apache.ftpserver.ftplet.AuthorizationRequest;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class MemoryFtpFileTest extends FtpFileTestTemplate {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File SPILL_DIR = new File(TEST_TMP_DIR, "spill");
+
+    private static final int CHUNK_SIZE = 16;
+
+    private MemoryFileStore store;
+
+    private MemoryNode root;
+
+    @Override
+    protected void setUp() throws Exception {
+        store = new MemoryFileStore(CHUNK_SIZE, 0, 0, 0, null);
+        root = store.getRoot("/home");
+
+        assertTrue(store.mkdir(root, DIR1_PATH));
+        assertNotNull(store.createFile(root, FILE1_PATH, "user"));
+        assertNotNull(store.createFile(root, FILE2_PATH, "user"));
+        assertNotNull(store.createFile(root, FILE3_PATH, "user"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+    @Override
+    protected FtpFile createFileObject(String fileName, User user) {
+        return new MemoryFtpFile(fileName, store, root, user);
+    }
+
+    public void testTypes() {
+        assertTrue(createFileObject("/", USER).isDirectory());
+        assertTrue(createFileObject(DIR1_PATH, USER).isDirectory());
+        assertTrue(createFileObject(FILE1_PATH, USER).isFile());
+        assertFalse(createFileObject("/foo", USER).doesExist());
+    }
+
+    public void testWriteAndRead() throws IOException {
+        byte[] data = data(100);
+        write(createFileObject(FILE1_PATH, USER), 0, data);
+
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        assertEquals(100, file.getSize());
+        assertTrue(Arrays.equals(data, read(file, 0)));
+        assertEquals(7 * CHUNK_SIZE, store.getUsedMemory());
+    }
+
+    public void testRandomAccessRead() throws IOException {
+        byte[] data = data(100);
+        write(createFileObject(FILE1_PATH, USER), 0, data);
+
+        byte[] actual = read(createFileObject(FILE1_PATH, USER), 37);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, 37, 100), actual));
+    }
+
+    public void testResumeWrite() throws IOException {
+        byte[] data = data(50);
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, Arrays.copyOf(data, 20));
+        write(file, 20, Arrays.copyOfRange(data, 20, 50));
+
+        assertTrue(Arrays.equals(data, read(file, 0)));
+    }
+
+    public void testWriteTruncates() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, data(100));
+        write(file, 10, new byte[] { 1, 2 });
+
+        assertEquals(12, file.getSize());
+        assertEquals(CHUNK_SIZE, store.getUsedMemory());
+    }
+
+    public void testWriteBeyondEnd() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 40, new byte[] { 1 });
+
+        byte[] expected = new byte[41];
+        expected[40] = 1;
+        assertTrue(Arrays.equals(expected, read(file, 0)));
+    }
+
+    public void testCreateNewFile() throws IOException {
+        FtpFile file = createFileObject("/dir1/new", USER);
+        assertFalse(file.doesExist());
+
+        write(file, 0, data(3));
+        assertTrue(file.isFile());
+        assertEquals(2, createFileObject(DIR1_PATH, USER).listFiles().size());
+    }
+
+    public void testCreateFileWithoutParent() {
+        try {
+            createFileObject("/foo/bar", USER).createOutputStream(0);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+    }
+
+    public void testDeleteReleasesMemory() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+        write(file, 0, data(100));
+
+        assertTrue(file.delete());
+        assertFalse(file.doesExist());
+        assertEquals(0, store.getUsedMemory());
+        assertEquals(0, store.getUserMemory(USER.getName()));
+    }
+
+    public void testDeleteNonEmptyDirectory() {
+        assertFalse(createFileObject(DIR1_PATH, USER).delete());
+        assertTrue(createFileObject(FILE2_PATH, USER).delete());
+        assertTrue(createFileObject(DIR1_PATH, USER).delete());
+    }
+
+    public void testDeleteRoot() {
+        assertFalse(createFileObject("/", USER).delete());
+    }
+
+    public void testMkdir() {
+        FtpFile dir = createFileObject("/dir2", USER);
+        assertTrue(dir.mkdir());
+        assertTrue(dir.isDirectory());
+        assertFalse(dir.mkdir());
+        assertFalse(createFileObject("/foo/bar", USER).mkdir());
+    }
+
+    public void testMove() throws IOException {
+        byte[] data = data(10);
+        write(createFileObject(FILE1_PATH, USER), 0, data);
+
+        FtpFile dest = createFileObject("/dir1/moved", USER);
+        assertTrue(createFileObject(FILE1_PATH, USER).move(dest));
+
+        assertFalse(createFileObject(FILE1_PATH, USER).doesExist());
+        assertTrue(Arrays.equals(data, read(dest, 0)));
+    }
+
+    public void testMoveToExisting() {
+        assertFalse(createFileObject(FILE1_PATH, USER).move(
+                createFileObject(FILE3_PATH, USER)));
+    }
+
+    public void testMoveDirectoryIntoItself() {
+        assertFalse(createFileObject(DIR1_PATH, USER).move(
+                createFileObject("/dir1/sub", USER)));
+        assertTrue(createFileObject(DIR1_PATH, USER).isDirectory());
+    }
+
+    public void testNotWritable() {
+        User user = new BaseUser();
+        FtpFile file = createFileObject(FILE1_PATH, user);
+        assertFalse(file.isWritable());
+        assertFalse(file.delete());
+        try {
+            file.createOutputStream(0);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+    }
+
+    public void testMaxMemory() throws IOException {
+        store = new MemoryFileStore(CHUNK_SIZE, 4 * CHUNK_SIZE, 0, 0, null);
+        root = store.getRoot("/home");
+
+        write(createFileObject("/file1", USER), 0, data(2 * CHUNK_SIZE));
+        try {
+            write(createFileObject("/file2", USER), 0, data(3 * CHUNK_SIZE));
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+        assertEquals(4 * CHUNK_SIZE, store.getUsedMemory());
+
+        assertTrue(createFileObject("/file1", USER).delete());
+        write(createFileObject("/file2", USER), 0, data(3 * CHUNK_SIZE));
+    }
+
+    public void testMaxUserMemory() throws IOException {
+        store = new MemoryFileStore(CHUNK_SIZE, 0, 2 * CHUNK_SIZE, 0, null);
+        root = store.getRoot("/home");
+
+        write(createFileObject("/file1", USER), 0, data(2 * CHUNK_SIZE));
+        try {
+            write(createFileObject("/file2", USER), 0, data(1));
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+
+        // other users have their own limit
+        write(createFileObject("/file3", authorizedUser("other")), 0,
+                data(2 * CHUNK_SIZE));
+        assertEquals(2 * CHUNK_SIZE, store.getUserMemory("other"));
+    }
+
+    public void testSpill() throws IOException {
+        store = new MemoryFileStore(CHUNK_SIZE, 2 * CHUNK_SIZE, 0, 0,
+                SPILL_DIR);
+        root = store.getRoot("/home");
+        assertTrue(SPILL_DIR.mkdirs());
+
+        byte[] data = data(5 * CHUNK_SIZE);
+        FtpFile file = createFileObject("/file1", USER);
+        write(file, 0, data);
+
+        assertEquals(1, store.getSpilledFiles());
+        assertEquals(0, store.getUsedMemory());
+        assertEquals(1, SPILL_DIR.list().length);
+        assertTrue(Arrays.equals(data, read(file, 0)));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, 20, data.length),
+                read(file, 20)));
+
+        assertTrue(file.delete());
+        assertEquals(0, store.getSpilledFiles());
+        assertEquals(0, SPILL_DIR.list().length);
+    }
+
+    public void testTimeToLive() throws IOException {
+        store = new MemoryFileStore(CHUNK_SIZE, 0, 0, 1000, null);
+        root = store.getRoot("/home");
+
+        FtpFile file = createFileObject("/file1", USER);
+        write(file, 0, data(10));
+        assertTrue(file.doesExist());
+
+        file.setLastModified(System.currentTimeMillis() - 2000);
+        assertFalse(file.doesExist());
+        assertEquals(0, store.getUsedMemory());
+    }
+
+    public void testPurgeExpired() throws IOException {
+        store = new MemoryFileStore(CHUNK_SIZE, 0, 0, 1000, null);
+        root = store.getRoot("/home");
+        assertTrue(store.mkdir(root, "/dir"));
+
+        FtpFile file = createFileObject("/dir/file1", USER);
+        write(file, 0, data(10));
+        file.setLastModified(System.currentTimeMillis() - 2000);
+        write(createFileObject("/dir/file2", USER), 0, data(10));
+
+        assertEquals(1, store.purgeExpired());
+        assertEquals(CHUNK_SIZE, store.getUsedMemory());
+        assertTrue(createFileObject("/dir", USER).isDirectory());
+    }
+
+    public void testNotExpiredWhileWriting() throws IOException {
+        store = new MemoryFileStore(CHUNK_SIZE, 0, 0, 1000, null);
+        root = store.getRoot("/home");
+
+        FtpFile file = createFileObject("/file1", USER);
+        OutputStream out = file.createOutputStream(0);
+        try {
+            file.setLastModified(System.currentTimeMillis() - 2000);
+            assertEquals(0, store.purgeExpired());
+            out.write(data(10));
+        } finally {
+            out.close();
+        }
+        assertEquals(10, file.getSize());
+    }
+
+    public void testSharedHomeDirectory() {
+        assertSame(root, store.getRoot("/home"));
+        assertNotSame(root, store.getRoot("/other"));
+    }
+
+    private static User authorizedUser(String name) {
+        BaseUser user = new BaseUser() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public AuthorizationRequest authorize(AuthorizationRequest request) {
+                return request;
+            }
+        };
+        user.setName(name);
+        return user;
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static void write(FtpFile file, long offset, byte[] data)
+            throws IOException {
+        OutputStream out = file.createOutputStream(offset);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] read(FtpFile file, long offset) throws IOException {
+        InputStream in = file.createInputStream(offset);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[7];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class CaseFoldingIndexTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final String ROOT_DIR_PATH = ROOT_DIR.getAbsolutePath()
+            .replace(File.separatorChar, '/');
+
+    private CaseFoldingIndex index = new CaseFoldingIndex(2);
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        ROOT_DIR.mkdirs();
+        new File(ROOT_DIR, "File1").createNewFile();
+        new File(ROOT_DIR, "dir1").mkdir();
+    }
+
+    public void testFind() {
+        assertEquals("File1", index.find(ROOT_DIR_PATH, "file1"));
+        assertEquals("File1", index.find(ROOT_DIR_PATH, "FILE1"));
+        assertEquals("File1", index.find(ROOT_DIR_PATH + "/", "File1"));
+        assertEquals("dir1", index.find(ROOT_DIR_PATH, "DIR1"));
+        assertNull(index.find(ROOT_DIR_PATH, "file2"));
+        assertEquals(1, index.size());
+    }
+
+    public void testFindInMissingDirectory() {
+        assertNull(index.find(ROOT_DIR_PATH + "/foo", "file1"));
+        assertEquals(0, index.size());
+    }
+
+    public void testExactMatchPreferred() throws IOException {
+        File other = new File(ROOT_DIR, "FILE1");
+        if (!other.createNewFile() || !new File(ROOT_DIR, "File1").exists()) {
+            // case insensitive file system, nothing to test
+            return;
+        }
+
+        assertEquals("FILE1", index.find(ROOT_DIR_PATH, "FILE1"));
+        assertEquals("File1", index.find(ROOT_DIR_PATH, "File1"));
+        assertNotNull(index.find(ROOT_DIR_PATH, "file1"));
+    }
+
+    public void testInvalidate() throws IOException {
+        assertNull(index.find(ROOT_DIR_PATH, "file2"));
+
+        // keep the time stamp so that only the invalidation can be noticed
+        long lastModified = ROOT_DIR.lastModified();
+        new File(ROOT_DIR, "File2").createNewFile();
+        ROOT_DIR.setLastModified(lastModified);
+        assertNull(index.find(ROOT_DIR_PATH, "file2"));
+
+        index.invalidate(ROOT_DIR_PATH);
+        assertEquals("File2", index.find(ROOT_DIR_PATH, "file2"));
+    }
+
+    public void testRebuiltWhenModified() throws IOException {
+        assertNull(index.find(ROOT_DIR_PATH, "file2"));
+
+        new File(ROOT_DIR, "File2").createNewFile();
+        ROOT_DIR.setLastModified(ROOT_DIR.lastModified() + 10000);
+
+        assertEquals("File2", index.find(ROOT_DIR_PATH, "file2"));
+    }
+
+    public void testBounded() {
+        index.find(ROOT_DIR_PATH, "file1");
+        index.find(ROOT_DIR_PATH + "/dir1", "file1");
+        index.find(TEST_TMP_DIR.getAbsolutePath(), "ftproot");
+
+        assertEquals(2, index.size());
+    }
+
+    public void testFold() {
+        String[] names = { "abc", "ABC", "aBc", "été", "ÉTÉ",
+                "Σ", "σ", "ς", "İ", "i", "I", "ı" };
+        for (String name1 : names) {
+            for (String name2 : names) {
+                assertEquals(name1 + " / " + name2, name1
+                        .equalsIgnoreCase(name2), CaseFoldingIndex.fold(name1)
+                        .equals(CaseFoldingIndex.fold(name2)));
+            }
+        }
+    }
+
+    public void testMkdirThroughViewInvalidates() throws Exception {
+        BaseUser user = new BaseUser();
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new WritePermission());
+        user.setAuthorities(authorities);
+        NativeFileSystemView view = new NativeFileSystemView(user, true, index);
+
+        assertEquals("/File1", view.getFile("FILE1").getAbsolutePath());
+        assertEquals("/DIR2", view.getFile("DIR2").getAbsolutePath());
+
+        long lastModified = ROOT_DIR.lastModified();
+        assertTrue(view.getFile("dir2").mkdir());
+        ROOT_DIR.setLastModified(lastModified);
+
+        assertEquals("/dir2", view.getFile("DIR2").getAbsolutePath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+}
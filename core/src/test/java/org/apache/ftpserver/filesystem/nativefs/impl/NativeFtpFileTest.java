@@ -21,8 +21,11 @@ package org.apache.ftpserver.filesystem.nativefs.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.apache.ftpserver.ftplet.User;
@@ -102,6 +105,60 @@ public class NativeFtpFileTest extends FtpFileTestTemplate {
         assertTrue(physicalFile.delete());
     }
 
+    public void testEqualsSameCanonicalPath() {
+        NativeFtpFile file1 = new NativeFtpFile("/dir1/file2", TEST_FILE2_IN_DIR1,
+                USER);
+        NativeFtpFile file2 = new NativeFtpFile("/dir1/../dir1/file2",
+                new File(TEST_DIR1, "../dir1/file2"), USER);
+        NativeFtpFile file3 = new NativeFtpFile("/file1", TEST_FILE1, USER);
+
+        assertEquals(file1, file2);
+        assertEquals(file1.hashCode(), file2.hashCode());
+        assertFalse(file1.equals(file3));
+
+        Set<FtpFile> files = new HashSet<>();
+        files.add(file1);
+        files.add(file2);
+        files.add(file3);
+        assertEquals(2, files.size());
+    }
+
+    public void testIdentityKeptAfterDelete() {
+        NativeFtpFile file = new NativeFtpFile("/file1", TEST_FILE1, USER);
+        int hashCode = file.hashCode();
+
+        Set<FtpFile> files = new HashSet<>();
+        files.add(file);
+
+        assertTrue(file.delete());
+        assertEquals(hashCode, file.hashCode());
+        assertTrue(files.contains(file));
+    }
+
+    public void testIdentityResolvedOnce() throws IOException {
+        File link = new File(ROOT_DIR, "link");
+        try {
+            Files.createSymbolicLink(link.toPath(), TEST_DIR1.getAbsoluteFile()
+                    .toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            // symbolic links not supported on this platform
+            return;
+        }
+
+        NativeFtpFile file = new NativeFtpFile("/link", link, USER);
+        NativeFtpFile dir = new NativeFtpFile("/dir1", TEST_DIR1, USER);
+        assertEquals(dir, file);
+
+        // retarget the link, the existing instance keeps its identity
+        assertTrue(link.delete());
+        Files.createSymbolicLink(link.toPath(), TEST_FILE1.getAbsoluteFile()
+                .toPath());
+        assertEquals(dir, file);
+
+        // while a new instance sees the new target
+        assertFalse(dir.equals(new NativeFtpFile("/link", link, USER)));
+    }
+
     @Override
     protected void tearDown() throws Exception {
         cleanTmpDirs();
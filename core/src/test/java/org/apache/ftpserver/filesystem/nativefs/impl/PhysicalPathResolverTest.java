@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nativefs.impl;
+
+import java.io.File;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import junit.framework.TestCase;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class PhysicalPathResolverTest extends TestCase {
+
+    private static final String[] ROOTS = { "/", "/root", "/root/",
+            "/root/home", "\\root\\home\\", "/root//home/" };
+
+    private static final String[] CURR_DIRS = { null, "", " ", "/", "//",
+            "dir1", "/dir1", "dir1/", "/dir1/", "/dir1/dir2/", "dir1\\dir2",
+            "dir1/./", "/dir1/../", "/../", "~" };
+
+    private static final String[] TOKENS = { "a", "B", "file", ".", "..",
+            "~", "...", ".a", "a.", " ", "~a", "a b" };
+
+    private static final String[] SEPARATORS = { "/", "//", "\\" };
+
+    public void testExamples() {
+        assertEquals("/root/dir1/file2", PhysicalPathResolver.resolve(
+                "/root/", "/dir1/", "file2", null));
+        assertEquals("/root/file2", PhysicalPathResolver.resolve("/root",
+                "/dir1/", "/file2", null));
+        assertEquals("/root/file2", PhysicalPathResolver.resolve("/root",
+                "/dir1/", "../file2", null));
+        assertEquals("/root/file2", PhysicalPathResolver.resolve("/root",
+                "/dir1/", "../../../file2", null));
+        assertEquals("/root/file2", PhysicalPathResolver.resolve("/root",
+                "/dir1/", "/~/file2", null));
+        assertEquals("/root/", PhysicalPathResolver.resolve("/root",
+                "/dir1/", "..", null));
+        assertEquals("/root/", PhysicalPathResolver.resolve("/root", "/",
+                "/", null));
+        assertEquals("/", PhysicalPathResolver.resolve("/", "/", "..", null));
+    }
+
+    public void testEmptyFileNameIsCurrentDirectory() {
+        assertEquals("/root/dir1", PhysicalPathResolver.resolve("/root",
+                "/dir1/", "", null));
+    }
+
+    public void testNormalizeRoot() {
+        String root = "/root/";
+        assertSame(root, PhysicalPathResolver.normalizeRoot(root));
+        assertEquals("/root/", PhysicalPathResolver.normalizeRoot("/root"));
+        assertEquals("/root/", PhysicalPathResolver
+                .normalizeRoot("\\root\\"));
+    }
+
+    public void testLongPaths() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("/dir").append(i);
+        }
+        String fileName = sb.toString();
+
+        assertEquals("/root" + fileName, PhysicalPathResolver.resolve(
+                "/root", fileName + "/", fileName, null));
+    }
+
+    /**
+     * Random file names resolved against each combination of root and
+     * current directory must give the same result as the original
+     * tokenizing implementation.
+     */
+    public void testMatchesReferenceImplementation() {
+        Random random = new Random(20081208);
+        for (int i = 0; i < 20000; i++) {
+            String fileName = randomFileName(random);
+            String rootDir = ROOTS[random.nextInt(ROOTS.length)];
+            String currDir = CURR_DIRS[random.nextInt(CURR_DIRS.length)];
+
+            String expected = referenceResolve(rootDir, currDir, fileName);
+            String actual = PhysicalPathResolver.resolve(rootDir, currDir,
+                    fileName, null);
+
+            assertEquals("root=" + rootDir + " curr=" + currDir + " file="
+                    + fileName, expected, actual);
+        }
+    }
+
+    /**
+     * No file name may resolve to a path above the root directory.
+     */
+    public void testNeverEscapesRoot() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String fileName = randomFileName(random);
+            String currDir = CURR_DIRS[random.nextInt(CURR_DIRS.length)];
+
+            String actual = PhysicalPathResolver.resolve("/root/home/",
+                    currDir, fileName, null);
+
+            assertTrue(fileName + " => " + actual, actual
+                    .startsWith("/root/home/"));
+        }
+    }
+
+    private static String randomFileName(final Random random) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextBoolean()) {
+            sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        int tokens = 1 + random.nextInt(6);
+        for (int i = 0; i < tokens; i++) {
+            if (i > 0) {
+                sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The tokenizing implementation used before the resolver, without case
+     * insensitivity.
+     */
+    private static String referenceResolve(final String rootDir,
+            final String currDir, final String fileName) {
+
+        String normalizedRootDir = normalizeSeparateChar(rootDir);
+        normalizedRootDir = appendSlash(normalizedRootDir);
+
+        String normalizedFileName = normalizeSeparateChar(fileName);
+        String result;
+
+        if (normalizedFileName.charAt(0) != '/') {
+            String normalizedCurrDir = normalize(currDir, "/");
+
+            result = normalizedRootDir + normalizedCurrDir.substring(1);
+        } else {
+            result = normalizedRootDir;
+        }
+
+        result = trimTrailingSlash(result);
+
+        StringTokenizer st = new StringTokenizer(normalizedFileName, "/");
+        while (st.hasMoreTokens()) {
+            String tok = st.nextToken();
+
+            if (tok.equals(".")) {
+                // ignore
+            } else if (tok.equals("..")) {
+                if (result.startsWith(normalizedRootDir)) {
+                    int slashIndex = result.lastIndexOf('/');
+                    if (slashIndex != -1) {
+                        result = result.substring(0, slashIndex);
+                    }
+                }
+            } else if (tok.equals("~")) {
+                result = trimTrailingSlash(normalizedRootDir);
+                continue;
+            } else {
+                result = result + '/' + tok;
+            }
+        }
+
+        if ((result.length()) + 1 == normalizedRootDir.length()) {
+            result += '/';
+        }
+
+        if (!result.startsWith(normalizedRootDir)) {
+            result = normalizedRootDir;
+        }
+
+        return result;
+    }
+
+    private static String appendSlash(String path) {
+        if (path.charAt(path.length() - 1) != '/') {
+            return path + '/';
+        } else {
+            return path;
+        }
+    }
+
+    private static String prependSlash(String path) {
+        if (path.charAt(0) != '/') {
+            return '/' + path;
+        } else {
+            return path;
+        }
+    }
+
+    private static String trimTrailingSlash(String path) {
+        if (path.charAt(path.length() - 1) == '/') {
+            return path.substring(0, path.length() - 1);
+        } else {
+            return path;
+        }
+    }
+
+    private static String normalizeSeparateChar(final String pathName) {
+        String normalizedPathName = pathName.replace(File.separatorChar, '/');
+        normalizedPathName = normalizedPathName.replace('\\', '/');
+        return normalizedPathName;
+    }
+
+    private static String normalize(String path, String defaultPath) {
+        if (path == null || path.trim().length() == 0) {
+            path = defaultPath;
+        }
+
+        path = normalizeSeparateChar(path);
+        path = prependSlash(appendSlash(path));
+        return path;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NioAttributeCacheTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private static final File TEST_FILE2_IN_DIR1 = new File(TEST_DIR1, "file2");
+
+    private BaseUser user = new BaseUser();
+
+    private NioAttributeCache cache;
+
+    private NioFileSystemView view;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        TEST_DIR1.mkdirs();
+        TEST_FILE1.createNewFile();
+        TEST_FILE2_IN_DIR1.createNewFile();
+
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new WritePermission());
+        user.setAuthorities(authorities);
+
+        cache = new NioAttributeCache(100, 60000);
+        view = new NioFileSystemView(user, ROOT_DIR.toPath(), false, cache);
+    }
+
+    public void testAttributesCached() throws FtpException {
+        assertTrue(view.getFile("file1").doesExist());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // changes made outside of the server are not seen until expiry
+        assertTrue(TEST_FILE1.delete());
+        assertTrue(view.getFile("file1").doesExist());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testListingCached() throws FtpException {
+        List<? extends FtpFile> files = view.getFile("/").listFiles();
+        assertEquals(2, files.size());
+        assertEquals(1, cache.getListingEntryCount());
+
+        // the attributes of the entries are cached by the listing
+        assertTrue(view.getFile("dir1").isDirectory());
+        assertEquals(1, cache.getHitCount());
+
+        // the root directory itself and its listing
+        view.getFile("/").listFiles();
+        assertEquals(3, cache.getHitCount());
+    }
+
+    public void testInvalidatedOnDelete() throws FtpException {
+        view.getFile("/").listFiles();
+
+        assertTrue(view.getFile("file1").delete());
+        assertEquals(1, cache.getInvalidationCount());
+
+        assertFalse(view.getFile("file1").doesExist());
+        assertEquals(1, view.getFile("/").listFiles().size());
+    }
+
+    public void testInvalidatedOnMkdir() throws FtpException {
+        assertFalse(view.getFile("dir2").doesExist());
+        view.getFile("/").listFiles();
+
+        assertTrue(view.getFile("dir2").mkdir());
+
+        assertTrue(view.getFile("dir2").isDirectory());
+        assertEquals(3, view.getFile("/").listFiles().size());
+    }
+
+    public void testInvalidatedOnUpload() throws IOException, FtpException {
+        FtpFile file = view.getFile("file1");
+        assertEquals(0, file.getSize());
+
+        OutputStream out = file.createOutputStream(0);
+        out.write(new byte[] { 1, 2, 3 });
+
+        // read while the upload is in progress, caching the partial size
+        assertEquals(3, view.getFile("file1").getSize());
+        out.write(new byte[] { 4, 5 });
+        out.close();
+
+        assertEquals(5, view.getFile("file1").getSize());
+    }
+
+    public void testMovedDirectoryInvalidatesChildren() throws FtpException {
+        assertTrue(view.getFile("dir1/file2").doesExist());
+        view.getFile("dir1").listFiles();
+
+        assertTrue(view.getFile("dir1").move(view.getFile("dir3")));
+
+        assertFalse(view.getFile("dir1/file2").doesExist());
+        assertNull(view.getFile("dir1").listFiles());
+        assertTrue(view.getFile("dir3/file2").doesExist());
+    }
+
+    public void testUncachedDirectoryInvalidatesChildren() throws FtpException {
+        // only the child is cached, not the directory itself
+        assertTrue(view.getFile("dir1/file2").doesExist());
+
+        assertTrue(view.getFile("dir1").move(view.getFile("dir3")));
+
+        assertFalse(view.getFile("dir1/file2").doesExist());
+    }
+
+    public void testUploadKeepsOtherEntries() throws IOException, FtpException {
+        view.getFile("dir1").listFiles();
+
+        OutputStream out = view.getFile("file3").createOutputStream(0);
+        out.close();
+
+        long hits = cache.getHitCount();
+        assertTrue(view.getFile("dir1/file2").doesExist());
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(1, cache.getListingEntryCount());
+    }
+
+    public void testIndexEmptiedWithEntries() throws FtpException {
+        view.getFile("dir1").listFiles();
+        assertTrue(view.getFile("dir1/file2").doesExist());
+        assertTrue(cache.getIndexedDirectoryCount() > 0);
+
+        cache.invalidate(TEST_DIR1.getAbsoluteFile().toPath());
+        assertEquals(0, cache.getAttributeEntryCount());
+        assertEquals(0, cache.getListingEntryCount());
+        assertEquals(0, cache.getIndexedDirectoryCount());
+    }
+
+    public void testGenerationsOfUnrelatedPaths() {
+        Path dir1 = TEST_DIR1.getAbsoluteFile().toPath();
+        Path file2 = TEST_FILE2_IN_DIR1.getAbsoluteFile().toPath();
+        long fileGeneration = cache.attributesGeneration(file2);
+        long listingGeneration = cache.listingGeneration(dir1);
+
+        // a read of dir1 overlapping an upload elsewhere is still cached
+        cache.invalidate(TEST_FILE1.getAbsoluteFile().toPath());
+        assertEquals(fileGeneration, cache.attributesGeneration(file2));
+        assertEquals(listingGeneration, cache.listingGeneration(dir1));
+
+        cache.invalidate(dir1.resolve("file3"));
+        assertEquals(fileGeneration, cache.attributesGeneration(file2));
+        assertTrue(cache.listingGeneration(dir1) != listingGeneration);
+
+        cache.invalidate(dir1);
+        assertTrue(cache.attributesGeneration(file2) != fileGeneration);
+    }
+
+    public void testExpiry() throws Exception {
+        cache = new NioAttributeCache(100, 1);
+        view = new NioFileSystemView(user, ROOT_DIR.toPath(), false, cache);
+        assertTrue(view.getFile("file1").doesExist());
+
+        assertTrue(TEST_FILE1.delete());
+        Thread.sleep(10);
+
+        assertFalse(view.getFile("file1").doesExist());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testEviction() throws Exception {
+        cache = new NioAttributeCache(1, 60000);
+        view = new NioFileSystemView(user, ROOT_DIR.toPath(), false, cache);
+
+        view.getFile("file1").doesExist();
+        view.getFile("dir1").doesExist();
+
+        assertEquals(1, cache.getAttributeEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    public void testChangeDirectoryUsesCache() throws Exception {
+        assertTrue(view.changeWorkingDirectory("dir1"));
+        assertTrue(view.changeWorkingDirectory("/"));
+        assertTrue(view.changeWorkingDirectory("dir1"));
+        assertTrue(view.changeWorkingDirectory("/"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    public void testClear() throws FtpException {
+        view.getFile("/").listFiles();
+        cache.clear();
+
+        assertEquals(0, cache.getAttributeEntryCount());
+        assertEquals(0, cache.getListingEntryCount());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+}
@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NioBlobStoreTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File USER1_DIR = new File(ROOT_DIR, "user1");
+
+    private static final File USER2_DIR = new File(ROOT_DIR, "user2");
+
+    private static final File BLOB_DIR = new File(TEST_TMP_DIR, "blobs");
+
+    private static final byte[] TEST_DATA = "TESTDATA"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private NioBlobStore blobs;
+
+    private NioFileSystemView view1;
+
+    private NioFileSystemView view2;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        USER1_DIR.mkdirs();
+        USER2_DIR.mkdirs();
+
+        blobs = new NioBlobStore(BLOB_DIR.toPath(), "SHA-256");
+        view1 = createView(USER1_DIR);
+        view2 = createView(USER2_DIR);
+    }
+
+    private NioFileSystemView createView(File home) throws Exception {
+        BaseUser user = new BaseUser();
+        user.setHomeDirectory(home.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<>();
+        authorities.add(new WritePermission());
+        user.setAuthorities(authorities);
+
+        return new NioFileSystemView(user, home.toPath(), false, null, blobs);
+    }
+
+    public void testIdenticalContentStoredOnce() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view2.getFile("copy"), 0, TEST_DATA);
+
+        assertEquals(1, countBlobs());
+        assertTrue(Files.isSameFile(new File(USER1_DIR, "file1").toPath(),
+                new File(USER2_DIR, "copy").toPath()));
+        assertEquals(TEST_DATA.length, view2.getFile("copy").getSize());
+        assertEquals("TESTDATA", read(view2.getFile("copy"), 0));
+    }
+
+    public void testDifferentContent() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view1.getFile("file2"), 0, "OTHER".getBytes(
+                StandardCharsets.UTF_8));
+
+        assertEquals(2, countBlobs());
+        assertEquals("OTHER", read(view1.getFile("file2"), 0));
+    }
+
+    public void testRandomAccessRead() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        assertEquals("DATA", read(view1.getFile("file1"), 4));
+    }
+
+    public void testResumeDoesNotChangeSharedContent() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view2.getFile("file1"), 0, TEST_DATA);
+
+        write(view2.getFile("file1"), 4, "MORE".getBytes(
+                StandardCharsets.UTF_8));
+
+        assertEquals("TESTDATA", read(view1.getFile("file1"), 0));
+        assertEquals("TESTMORE", read(view2.getFile("file1"), 0));
+        assertEquals(2, countBlobs());
+    }
+
+    public void testResumeBeyondEnd() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view1.getFile("file1"), 10, new byte[] { 'X' });
+
+        assertEquals("TESTDATA\0\0X", read(view1.getFile("file1"), 0));
+    }
+
+    public void testDeleteDropsUnreferencedContent() throws Exception {
+        if (!linkCountSupported()) {
+            return;
+        }
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view2.getFile("file1"), 0, TEST_DATA);
+
+        assertTrue(view1.getFile("file1").delete());
+        assertEquals(1, countBlobs());
+
+        assertTrue(view2.getFile("file1").delete());
+        assertEquals(0, countBlobs());
+    }
+
+    public void testOverwriteDropsUnreferencedContent() throws Exception {
+        if (!linkCountSupported()) {
+            return;
+        }
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view1.getFile("file1"), 0, "OTHER".getBytes(
+                StandardCharsets.UTF_8));
+
+        assertEquals(1, countBlobs());
+        assertEquals("OTHER", read(view1.getFile("file1"), 0));
+    }
+
+    public void testRewriteSameContent() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view1.getFile("file1"), 0, TEST_DATA);
+
+        assertEquals(1, countBlobs());
+        assertEquals("TESTDATA", read(view1.getFile("file1"), 0));
+    }
+
+    public void testCollectGarbage() throws Exception {
+        if (!linkCountSupported()) {
+            return;
+        }
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view1.getFile("file2"), 0, "OTHER".getBytes(
+                StandardCharsets.UTF_8));
+
+        // removed behind the back of the server
+        assertTrue(new File(USER1_DIR, "file1").delete());
+
+        NioBlobStore restarted = new NioBlobStore(BLOB_DIR.toPath(),
+                "SHA-256");
+        assertEquals(1, restarted.collectGarbage());
+        assertEquals(1, countBlobs());
+    }
+
+    public void testSetLastModifiedNotShared() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view2.getFile("file1"), 0, TEST_DATA);
+        long before = view2.getFile("file1").getLastModified();
+
+        assertTrue(view1.getFile("file1").setLastModified(1000000000000L));
+
+        assertEquals(1000000000000L, view1.getFile("file1").getLastModified());
+        assertEquals(before, view2.getFile("file1").getLastModified());
+    }
+
+    public void testDuplicateUploadHasOwnModificationTime() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        assertTrue(view1.getFile("file1").setLastModified(1000000000000L));
+
+        long start = System.currentTimeMillis() - 2000;
+        write(view2.getFile("file1"), 0, TEST_DATA);
+
+        assertTrue(view2.getFile("file1").getLastModified() >= start);
+        assertEquals(1000000000000L, view1.getFile("file1").getLastModified());
+    }
+
+    public void testModificationTimeFollowsMove() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view2.getFile("file1"), 0, TEST_DATA);
+        assertTrue(view1.getFile("file1").setLastModified(1000000000000L));
+
+        assertTrue(view1.getFile("file1").move(view1.getFile("file2")));
+
+        assertEquals(1000000000000L, view1.getFile("file2").getLastModified());
+    }
+
+    public void testModificationTimeFollowsDirectoryMove() throws Exception {
+        assertTrue(view1.getFile("dir").mkdir());
+        assertTrue(view1.getFile("dir-x").mkdir());
+        write(view1.getFile("dir/file1"), 0, TEST_DATA);
+        write(view1.getFile("dir-x/file1"), 0, TEST_DATA);
+        assertTrue(view1.getFile("dir/file1").setLastModified(1000000000000L));
+        assertTrue(view1.getFile("dir-x/file1").setLastModified(
+                2000000000000L));
+
+        assertTrue(view1.getFile("dir").move(view1.getFile("moved")));
+
+        assertEquals(1000000000000L, view1.getFile("moved/file1")
+                .getLastModified());
+        assertEquals(2000000000000L, view1.getFile("dir-x/file1")
+                .getLastModified());
+    }
+
+    public void testModificationTimeKeptOverRestart() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        write(view2.getFile("file1"), 0, TEST_DATA);
+        assertTrue(view1.getFile("file1").setLastModified(1000000000000L));
+
+        blobs = new NioBlobStore(BLOB_DIR.toPath(), "SHA-256");
+        NioFileSystemView restarted = createView(USER1_DIR);
+
+        assertEquals(1000000000000L, restarted.getFile("file1")
+                .getLastModified());
+    }
+
+    public void testJournalCompacted() throws Exception {
+        write(view1.getFile("file1"), 0, TEST_DATA);
+        for (int i = 1; i <= 12000; i++) {
+            assertTrue(view1.getFile("file1").setLastModified(i * 1000L));
+        }
+
+        assertTrue(Files.readAllLines(new File(BLOB_DIR, "modified.journal")
+                .toPath()).size() < 12000);
+        assertEquals(12000000L, view1.getFile("file1").getLastModified());
+
+        blobs = new NioBlobStore(BLOB_DIR.toPath(), "SHA-256");
+        assertEquals(12000000L, createView(USER1_DIR).getFile("file1")
+                .getLastModified());
+    }
+
+    public void testStagingFilesOfOtherStoreKept() throws Exception {
+        File stale = new File(new File(BLOB_DIR, "staging"), "upload-1-1");
+        assertTrue(stale.createNewFile());
+
+        OutputStream out = view1.getFile("file1").createOutputStream(0);
+        try {
+            out.write(TEST_DATA);
+            new NioBlobStore(BLOB_DIR.toPath(), "SHA-256");
+
+            assertFalse(stale.exists());
+            assertEquals(1, countStaged());
+        } finally {
+            out.close();
+        }
+        assertEquals("TESTDATA", read(view1.getFile("file1"), 0));
+    }
+
+    public void testWriteWithoutParent() throws Exception {
+        try {
+            view1.getFile("/foo/bar").createOutputStream(0);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            // OK
+        }
+        assertEquals(0, countStaged());
+    }
+
+    public void testUnknownAlgorithm() throws IOException {
+        try {
+            new NioBlobStore(BLOB_DIR.toPath(), "foo");
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    private static boolean linkCountSupported() throws IOException {
+        try {
+            Files.getAttribute(ROOT_DIR.toPath(), "unix:nlink",
+                    LinkOption.NOFOLLOW_LINKS);
+            return true;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static long countBlobs() {
+        try (Stream<Path> files = Files.walk(BLOB_DIR.toPath())) {
+            return files.filter(Files::isRegularFile).filter(
+                    p -> !p.getParent().equals(BLOB_DIR.toPath())).filter(
+                    p -> !p.getParent().getFileName().toString().equals(
+                            "staging")).count();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long countStaged() {
+        return new File(BLOB_DIR, "staging").list(
+                (dir, name) -> !name.endsWith(".lock")).length;
+    }
+
+    private static void write(FtpFile file, long offset, byte[] data)
+            throws IOException {
+        OutputStream out = file.createOutputStream(offset);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(FtpFile file, long offset) throws IOException {
+        InputStream in = file.createInputStream(offset);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IoUtils.copy(in, out, 1024);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
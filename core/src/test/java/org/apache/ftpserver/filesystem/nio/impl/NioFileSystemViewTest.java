@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NioFileSystemViewTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final String DIR1_NAME = "dir1";
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, DIR1_NAME);
+
+    private static final File TEST_FILE2_IN_DIR1 = new File(TEST_DIR1, "file2");
+
+    private BaseUser user = new BaseUser();
+
+    @Override
+    protected void setUp() throws Exception {
+        initDirs();
+
+        TEST_DIR1.mkdirs();
+        TEST_FILE2_IN_DIR1.createNewFile();
+
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+    }
+
+    private NioFileSystemView createView(boolean caseInsensitive)
+            throws FtpException {
+        return new NioFileSystemView(user, ROOT_DIR.toPath(), caseInsensitive);
+    }
+
+    public void testConstructor() throws FtpException {
+        NioFileSystemView view = createView(false);
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+    }
+
+    public void testConstructorWithNullUser() throws FtpException {
+        try {
+            new NioFileSystemView(null, ROOT_DIR.toPath(), false);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testConstructorWithNullRoot() throws FtpException {
+        try {
+            new NioFileSystemView(user, null, false);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testChangeDirectory() throws Exception {
+        NioFileSystemView view = createView(false);
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory(DIR1_NAME));
+        assertEquals("/" + DIR1_NAME, view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory("."));
+        assertEquals("/" + DIR1_NAME, view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory(".."));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory("./" + DIR1_NAME));
+        assertEquals("/" + DIR1_NAME, view.getWorkingDirectory().getAbsolutePath());
+
+        assertTrue(view.changeWorkingDirectory("~"));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+
+        assertFalse(view.changeWorkingDirectory("dir1/file2"));
+        assertFalse(view.changeWorkingDirectory("foo"));
+        assertEquals("/", view.getWorkingDirectory().getAbsolutePath());
+    }
+
+    public void testChangeDirectoryCaseInsensitive() throws Exception {
+        NioFileSystemView view = createView(true);
+
+        assertTrue(view.changeWorkingDirectory("/DIR1"));
+        assertEquals("/dir1", view.getWorkingDirectory().getAbsolutePath());
+        assertTrue(view.getWorkingDirectory().doesExist());
+
+        assertTrue(view.changeWorkingDirectory("/DiR1"));
+        assertEquals("/dir1", view.getWorkingDirectory().getAbsolutePath());
+    }
+
+    public void testGetVirtualName() throws FtpException {
+        NioFileSystemView view = createView(false);
+
+        assertEquals("/dir1/file2", view.getVirtualName("/dir1/", "file2"));
+        assertEquals("No slashes on currDir", "/dir1/file2", view
+                .getVirtualName("dir1", "file2"));
+        assertEquals("Null currDir", "/file2", view.getVirtualName(null,
+                "file2"));
+        assertEquals("Absolute fileName", "/file2", view.getVirtualName(
+                "/dir1/", "/file2"));
+        assertEquals("Backslashes", "/dir1/file2", view.getVirtualName("/",
+                "dir1\\file2"));
+        assertEquals(". in fileName", "/dir1/file2", view.getVirtualName("/",
+                "./dir1/./file2"));
+        assertEquals(".. in fileName", "/file2", view.getVirtualName("/dir1/",
+                "../file2"));
+        assertEquals(".. beyond root", "/file2", view.getVirtualName(
+                "/dir1/", "../../../file2"));
+        assertEquals("~ in fileName", "/file2", view.getVirtualName("/dir1/",
+                "/~/file2"));
+        assertEquals("Root", "/", view.getVirtualName("/dir1/", ".."));
+    }
+
+    public void testGetFile() throws FtpException {
+        NioFileSystemView view = createView(true);
+        assertTrue(view.changeWorkingDirectory(DIR1_NAME));
+
+        FtpFile file = view.getFile("FILE2");
+        assertEquals("/dir1/file2", file.getAbsolutePath());
+        assertTrue(file.isFile());
+        assertEquals(TEST_FILE2_IN_DIR1.getAbsoluteFile().toPath(),
+                ((NioFtpFile) file).getPhysicalFile());
+    }
+
+    public void testGetFileWithInvalidName() throws FtpException {
+        for (boolean caseInsensitive : new boolean[] { false, true }) {
+            NioFileSystemView view = createView(caseInsensitive);
+            try {
+                view.getFile("foo\u0000bar");
+                fail("Must throw FtpException");
+            } catch (FtpException e) {
+                // OK
+            }
+            assertFalse(view.changeWorkingDirectory("foo\u0000bar"));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    /**
+     * @throws IOException
+     */
+    protected void initDirs() throws IOException {
+        cleanTmpDirs();
+
+        TEST_TMP_DIR.mkdirs();
+        ROOT_DIR.mkdirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+}
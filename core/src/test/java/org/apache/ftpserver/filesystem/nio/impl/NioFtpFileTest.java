@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.nio.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.ftpserver.filesystem.nativefs.impl.FtpFileTestTemplate;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class NioFtpFileTest extends FtpFileTestTemplate {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR1 = new File(ROOT_DIR, "dir1");
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "file1");
+
+    private static final File TEST_FILE2_IN_DIR1 = new File(TEST_DIR1, "file2");
+
+    private static final File TEST_FILE3 = new File(ROOT_DIR, "file3");
+
+    private static final Map<String, File> FILE_MAPPINGS = new HashMap<>();
+
+    static {
+        FILE_MAPPINGS.put("/", ROOT_DIR);
+        FILE_MAPPINGS.put(FILE2_PATH, TEST_FILE2_IN_DIR1);
+        FILE_MAPPINGS.put(DIR1_PATH, TEST_DIR1);
+        FILE_MAPPINGS.put(FILE1_PATH, TEST_FILE1);
+        FILE_MAPPINGS.put(FILE3_PATH, TEST_FILE3);
+        FILE_MAPPINGS.put(DIR1_WITH_SLASH_PATH, TEST_DIR1);
+        FILE_MAPPINGS.put(" \t", TEST_FILE2_IN_DIR1);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        initDirs();
+
+        TEST_DIR1.mkdirs();
+        TEST_FILE1.createNewFile();
+        TEST_FILE2_IN_DIR1.createNewFile();
+        TEST_FILE3.createNewFile();
+    }
+
+    @Override
+    protected FtpFile createFileObject(String fileName, User user) {
+        File file = FILE_MAPPINGS.get(fileName);
+        return new NioFtpFile(fileName, file == null ? null : file.toPath(),
+                user);
+    }
+
+    public void testConstructorWithNullPath() {
+        try {
+            new NioFtpFile("foo", null, USER);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testAttributes() throws IOException {
+        Files.write(TEST_FILE1.toPath(), new byte[] { 1, 2, 3 });
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+
+        assertTrue(file.doesExist());
+        assertTrue(file.isFile());
+        assertFalse(file.isDirectory());
+        assertEquals(3, file.getSize());
+        assertEquals(TEST_FILE1.lastModified(), file.getLastModified());
+        assertTrue(file.getLinkCount() >= 1);
+        assertNotNull(file.getOwnerName());
+        assertNotNull(file.getGroupName());
+
+        FtpFile dir = createFileObject(DIR1_PATH, USER);
+        assertTrue(dir.isDirectory());
+        assertFalse(dir.isFile());
+    }
+
+    public void testNonExistingFile() {
+        FtpFile file = new NioFtpFile("/foo", new File(ROOT_DIR, "foo")
+                .toPath(), USER);
+
+        assertFalse(file.doesExist());
+        assertFalse(file.isFile());
+        assertFalse(file.isDirectory());
+        assertFalse(file.isReadable());
+        assertNull(file.listFiles());
+    }
+
+    public void testListedFilesHaveAttributes() {
+        List<? extends FtpFile> files = createFileObject("/", USER)
+                .listFiles();
+
+        assertTrue(files.get(0).isDirectory());
+        assertEquals("/dir1", files.get(0).getAbsolutePath());
+        assertTrue(files.get(1).isFile());
+        assertEquals("/file1", files.get(1).getAbsolutePath());
+    }
+
+    public void testStreamFiles() {
+        List<String> names = new ArrayList<>();
+        try (Stream<? extends FtpFile> files = createFileObject("/", USER)
+                .streamFiles()) {
+            files.forEach(file -> {
+                assertTrue(file.doesExist());
+                names.add(file.getAbsolutePath());
+            });
+        }
+
+        Collections.sort(names);
+        assertEquals(Arrays.asList("/dir1", "/file1", "/file3"), names);
+        assertNull(createFileObject(FILE1_PATH, USER).streamFiles());
+    }
+
+    public void testMkdirAndDelete() {
+        FtpFile dir = new NioFtpFile("/dir2", new File(ROOT_DIR, "dir2")
+                .toPath(), USER);
+        assertFalse(dir.doesExist());
+
+        assertTrue(dir.mkdir());
+        assertTrue(dir.doesExist());
+        assertTrue(dir.isDirectory());
+
+        assertTrue(dir.delete());
+        assertFalse(dir.doesExist());
+    }
+
+    public void testMove() {
+        FtpFile source = createFileObject(FILE1_PATH, USER);
+        FtpFile dest = new NioFtpFile("/file4", new File(ROOT_DIR, "file4")
+                .toPath(), USER);
+
+        assertTrue(source.move(dest));
+        assertFalse(source.doesExist());
+        assertTrue(dest.doesExist());
+
+        // never overwrite an existing file
+        assertFalse(createFileObject(FILE3_PATH, USER).move(dest));
+    }
+
+    public void testWriteAndReadWithOffset() throws IOException {
+        FtpFile file = createFileObject(FILE1_PATH, USER);
+
+        OutputStream out = file.createOutputStream(0);
+        out.write(new byte[] { 1, 2, 3, 4 });
+        out.close();
+
+        out = file.createOutputStream(2);
+        out.write(new byte[] { 5 });
+        out.close();
+        assertEquals(3, file.getSize());
+
+        InputStream in = file.createInputStream(1);
+        assertEquals(2, in.read());
+        assertEquals(5, in.read());
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    public void testEquals() {
+        Path path = TEST_FILE1.toPath();
+        FtpFile file1 = new NioFtpFile("/file1", path, USER);
+        FtpFile file2 = new NioFtpFile("/dir1/../file1", TEST_DIR1.toPath()
+                .resolve("../file1"), USER);
+
+        assertEquals(file1, file2);
+        assertEquals(file1.hashCode(), file2.hashCode());
+        assertFalse(file1.equals(createFileObject(FILE3_PATH, USER)));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    /**
+     * @throws IOException
+     */
+    protected void initDirs() throws IOException {
+        cleanTmpDirs();
+
+        TEST_TMP_DIR.mkdirs();
+        ROOT_DIR.mkdirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.filesystem.tree;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.AuthorizationRequest;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class TreeWalkerTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File ROOT_DIR = new File(TEST_TMP_DIR, "ftproot");
+
+    private static final File TEST_DIR = new File(ROOT_DIR, "dir");
+
+    private TreeWalker walker;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        // 3 levels of 4 directories holding 3 files of 10 bytes each
+        createTree(TEST_DIR, 3);
+        walker = new TreeWalker(4);
+    }
+
+    private void createTree(File dir, int depth) throws IOException {
+        dir.mkdirs();
+        for (int i = 0; i < 3; i++) {
+            FileOutputStream fos = new FileOutputStream(new File(dir, "file"
+                    + i));
+            try {
+                fos.write(new byte[10]);
+            } finally {
+                fos.close();
+            }
+        }
+        if (depth > 1) {
+            for (int i = 0; i < 4; i++) {
+                createTree(new File(dir, "sub" + i), depth - 1);
+            }
+        }
+    }
+
+    private BaseUser createUser(Authority... authorities) {
+        BaseUser user = new BaseUser();
+        user.setName("user");
+        user.setHomeDirectory(ROOT_DIR.getAbsolutePath());
+        user.setAuthorities(Arrays.asList(authorities));
+        return user;
+    }
+
+    private FileSystemView createView(BaseUser user) throws Exception {
+        return new NativeFileSystemFactory().createFileSystemView(user);
+    }
+
+    private void await(TreeProgress progress) throws Exception {
+        assertTrue(progress.await(10000));
+    }
+
+    public void testSize() throws Exception {
+        FileSystemView view = createView(createUser(new WritePermission()));
+        TreeProgress progress = walker.size(view.getFile("dir"));
+        await(progress);
+
+        assertEquals(21, progress.getDirectories());
+        assertEquals(63, progress.getFiles());
+        assertEquals(630, progress.getBytes());
+        assertEquals(0, progress.getSkipped());
+        assertEquals("63 files, 21 directories, 630 bytes, 0 skipped",
+                progress.toString());
+        assertTrue(TEST_DIR.exists());
+    }
+
+    public void testRemove() throws Exception {
+        BaseUser user = createUser(new WritePermission());
+        TreeProgress progress = walker.remove(createView(user).getFile("dir"),
+                user);
+        await(progress);
+
+        assertEquals(21, progress.getDirectories());
+        assertEquals(63, progress.getFiles());
+        assertEquals(630, progress.getBytes());
+        assertEquals(0, progress.getSkipped());
+        assertFalse(TEST_DIR.exists());
+
+        List<FtpFile> files = new ArrayList<FtpFile>();
+        List<FtpFile> dirs = new ArrayList<FtpFile>();
+        progress.pollRemoved(files, dirs);
+        assertEquals(63, files.size());
+        assertEquals(21, dirs.size());
+        assertEquals("/dir", dirs.get(dirs.size() - 1).getAbsolutePath());
+
+        // polled only once
+        files.clear();
+        dirs.clear();
+        progress.pollRemoved(files, dirs);
+        assertTrue(files.isEmpty());
+        assertTrue(dirs.isEmpty());
+    }
+
+    public void testRemoveSkipsDeniedSubtree() throws Exception {
+        BaseUser user = createUser(new WritePermission(), new DenyWrite(
+                "/dir/sub1"));
+        TreeProgress progress = walker.remove(createView(user).getFile("dir"),
+                user);
+        await(progress);
+
+        // sub1 is not even listed, and dir can not be removed as it is not
+        // empty
+        assertEquals(15, progress.getDirectories());
+        assertEquals(48, progress.getFiles());
+        assertEquals(2, progress.getSkipped());
+        assertTrue(new File(TEST_DIR, "sub1/sub3/file2").exists());
+        assertFalse(new File(TEST_DIR, "sub0").exists());
+        assertFalse(new File(TEST_DIR, "file0").exists());
+    }
+
+    public void testCancel() throws Exception {
+        FileSystemView view = createView(createUser(new WritePermission()));
+        TreeProgress progress = walker.size(view.getFile("dir"));
+        progress.cancel();
+        await(progress);
+        assertTrue(progress.isCancelled());
+        assertTrue(progress.getFiles() <= 63);
+    }
+
+    /**
+     * Denies writes below a directory
+     */
+    private static class DenyWrite implements Authority {
+
+        private final String denied;
+
+        private DenyWrite(String denied) {
+            this.denied = denied;
+        }
+
+        public AuthorizationRequest authorize(AuthorizationRequest request) {
+            return ((WriteRequest) request).getFile().startsWith(denied) ? null
+                    : request;
+        }
+
+        public boolean canAuthorize(AuthorizationRequest request) {
+            return request instanceof WriteRequest;
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        walker.dispose();
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ftpletcontainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.clienttests.ClientTestTemplate;
+import org.apache.ftpserver.ftplet.AsyncFtplet;
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.Ftplet;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.apache.ftpserver.test.TestUtil;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class AsyncFtpletTest extends ClientTestTemplate {
+    private static final byte[] TESTDATA = "TESTDATA".getBytes();
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "test1.txt");
+
+    private static final File INFECTED_FILE = new File(ROOT_DIR, "infected.txt");
+
+    private static final long SCAN_DELAY = 200;
+
+    /**
+     * Stands in for a remote virus scanner, answering after a delay
+     */
+    private static class StubScanner {
+
+        private final ScheduledExecutorService executor = Executors
+                .newSingleThreadScheduledExecutor();
+
+        public CompletionStage<Boolean> scan(final String fileName) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            executor.schedule(
+                    () -> result.complete(!fileName.startsWith("infected")),
+                    SCAN_DELAY, TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        public void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class ScanningFtplet extends DefaultFtplet implements
+            AsyncFtplet {
+
+        private final StubScanner scanner;
+
+        private final List<String> commands = Collections
+                .synchronizedList(new ArrayList<String>());
+
+        private ScanningFtplet(final StubScanner scanner) {
+            this.scanner = scanner;
+        }
+
+        @Override
+        public CompletionStage<FtpletResult> beforeCommandAsync(
+                final FtpSession session, final FtpRequest request) {
+            if (!"DELE".equals(request.getCommand())) {
+                return CompletableFuture.completedFuture(FtpletResult.DEFAULT);
+            }
+            return scanner.scan(request.getArgument()).thenApply(clean -> {
+                if (clean) {
+                    return FtpletResult.DEFAULT;
+                }
+                try {
+                    session.write(new DefaultFtpReply(
+                            FtpReply.REPLY_450_REQUESTED_FILE_ACTION_NOT_TAKEN,
+                            "Quarantined"));
+                } catch (Exception e) {
+                    return FtpletResult.DISCONNECT;
+                }
+                return FtpletResult.SKIP;
+            });
+        }
+
+        @Override
+        public CompletionStage<FtpletResult> afterCommandAsync(
+                final FtpSession session, final FtpRequest request,
+                final FtpReply reply) {
+            return scanner.scan(request.getCommand()).thenApply(clean -> {
+                commands.add(request.getCommand());
+                return FtpletResult.DEFAULT;
+            });
+        }
+    }
+
+    private StubScanner scanner;
+
+    private ScanningFtplet ftplet;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        scanner = new StubScanner();
+        ftplet = new ScanningFtplet(scanner);
+
+        Map<String, Ftplet> ftplets = new LinkedHashMap<>();
+        ftplets.put("f1", ftplet);
+        server.setFtplets(ftplets);
+
+        return server;
+    }
+
+    public void testDeferredBeforeCommand() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TESTDATA);
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        assertTrue(client.deleteFile(TEST_FILE1.getName()));
+
+        assertFalse(TEST_FILE1.exists());
+    }
+
+    public void testDeferredSkip() throws Exception {
+        TestUtil.writeDataToFile(INFECTED_FILE, TESTDATA);
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        assertEquals(450, client.dele(INFECTED_FILE.getName()));
+
+        assertTrue(INFECTED_FILE.exists());
+    }
+
+    public void testOrderedWhileDeferred() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TESTDATA);
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+        // the NOOP arrives while the DELE waits on the scanner
+        assertEquals(250, client.sendCommand("DELE " + TEST_FILE1.getName()
+                + "\r\nNOOP"));
+        assertEquals(200, client.getReply());
+        assertEquals(200, client.noop());
+
+        assertFalse(TEST_FILE1.exists());
+        assertEquals("[USER, PASS, DELE, NOOP, NOOP]", ftplet.commands.toString());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        scanner.shutdown();
+    }
+}
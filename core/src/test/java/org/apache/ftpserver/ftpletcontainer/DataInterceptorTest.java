@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ftpletcontainer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.clienttests.ClientTestTemplate;
+import org.apache.ftpserver.ftplet.DataInterceptor;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.Ftplet;
+import org.apache.ftpserver.quota.impl.DefaultQuotaManager;
+import org.apache.ftpserver.test.TestUtil;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DataInterceptorTest extends ClientTestTemplate {
+    private static final byte[] TESTDATA = "TESTDATA".getBytes();
+
+    private static final File TEST_FILE1 = new File(ROOT_DIR, "test1.txt");
+
+    /**
+     * Lower cases uploads, counts downloads and aborts uploads containing
+     * the marker.
+     */
+    private static class InterceptingFtplet extends DefaultFtplet implements
+            DataInterceptor {
+
+        private volatile String command;
+
+        private volatile long downloaded;
+
+        private volatile boolean closed;
+
+        @Override
+        public OutputStream interceptUpload(final FtpSession session,
+                final FtpRequest request, final OutputStream out) {
+            command = request.getCommand();
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len)
+                        throws IOException {
+                    byte[] lower = new byte[len];
+                    for (int i = 0; i < len; i++) {
+                        if (b[off + i] == '!') {
+                            throw new IOException("Rejected");
+                        }
+                        lower[i] = (byte) Character.toLowerCase(b[off + i]);
+                    }
+                    out.write(lower);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closed = true;
+                    super.close();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream interceptDownload(final FtpSession session,
+                final FtpRequest request, final OutputStream out) {
+            command = request.getCommand();
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len)
+                        throws IOException {
+                    downloaded += len;
+                    out.write(b, off, len);
+                }
+            };
+        }
+    }
+
+    private InterceptingFtplet ftplet;
+
+    private DefaultQuotaManager quotaManager;
+
+    @Override
+    protected FtpServerFactory createServer() throws Exception {
+        FtpServerFactory server = super.createServer();
+
+        ftplet = new InterceptingFtplet();
+
+        quotaManager = new DefaultQuotaManager(-1, null, null, 0);
+        server.setQuotaManager(quotaManager);
+
+        Map<String, Ftplet> ftplets = new LinkedHashMap<>();
+        ftplets.put("f1", ftplet);
+        server.setFtplets(ftplets);
+
+        return server;
+    }
+
+    public void testTransformUpload() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+
+        assertTrue(client.storeFile(TEST_FILE1.getName(),
+                new ByteArrayInputStream(TESTDATA)));
+
+        TestUtil.assertFileEqual("testdata".getBytes(), TEST_FILE1);
+        assertEquals("STOR", ftplet.command);
+        assertTrue(ftplet.closed);
+    }
+
+    public void testAbortUpload() throws Exception {
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+
+        assertFalse(client.storeFile(TEST_FILE1.getName(),
+                new ByteArrayInputStream("TEST!DATA".getBytes())));
+        assertEquals(551, client.getReplyCode());
+        assertFalse(TEST_FILE1.exists());
+        assertEquals(0, quotaManager.getUsage(ADMIN_USERNAME));
+    }
+
+    public void testAbortAppend() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TESTDATA);
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+
+        assertFalse(client.appendFile(TEST_FILE1.getName(),
+                new ByteArrayInputStream("MORE!DATA".getBytes())));
+        assertEquals(551, client.getReplyCode());
+        TestUtil.assertFileEqual(TESTDATA, TEST_FILE1);
+        assertEquals(0, quotaManager.getUsage(ADMIN_USERNAME));
+    }
+
+    public void testAbortResumedUpload() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TESTDATA);
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        client.setRestartOffset(4);
+
+        assertFalse(client.storeFile(TEST_FILE1.getName(),
+                new ByteArrayInputStream("MORE!DATA".getBytes())));
+        assertEquals(551, client.getReplyCode());
+        TestUtil.assertFileEqual("TEST".getBytes(), TEST_FILE1);
+        assertEquals(0, quotaManager.getUsage(ADMIN_USERNAME));
+    }
+
+    public void testDownload() throws Exception {
+        TestUtil.writeDataToFile(TEST_FILE1, TESTDATA);
+
+        client.login(ADMIN_USERNAME, ADMIN_PASSWORD);
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(client.retrieveFile(TEST_FILE1.getName(), baos));
+
+        TestUtil.assertArraysEqual(TESTDATA, baos.toByteArray());
+        assertEquals("RETR", ftplet.command);
+        assertEquals(TESTDATA.length, ftplet.downloaded);
+    }
+}
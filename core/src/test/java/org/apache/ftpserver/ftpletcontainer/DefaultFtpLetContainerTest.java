@@ -19,10 +19,26 @@
 
 package org.apache.ftpserver.ftpletcontainer;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
 import org.apache.ftpserver.ftplet.Ftplet;
+import org.apache.ftpserver.ftplet.FtpletContext;
+import org.apache.ftpserver.ftplet.FtpletInterest;
+import org.apache.ftpserver.ftplet.FtpletResult;
 import org.apache.ftpserver.ftpletcontainer.impl.DefaultFtpletContainer;
+import org.apache.ftpserver.impl.DefaultFtpRequest;
+import org.apache.ftpserver.impl.DefaultFtpSession;
 
 /**
 *
@@ -36,4 +52,130 @@ public class DefaultFtpLetContainerTest extends FtpLetContainerTestTemplate {
         return new DefaultFtpletContainer(ftplets);
     }
 
+    /**
+     * Records its calls, interested in DELE before and after the command
+     */
+    private static class InterestedFtplet implements Ftplet, FtpletInterest {
+
+        private final String name;
+
+        private final List<String> calls;
+
+        private InterestedFtplet(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        public Set<String> getBeforeCommands() {
+            return Collections.singleton("DELE");
+        }
+
+        public Set<String> getAfterCommands() {
+            return Collections.singleton("DELE");
+        }
+
+        public boolean handlesConnections() {
+            return false;
+        }
+
+        public void init(FtpletContext ftpletContext) {
+        }
+
+        public void destroy() {
+        }
+
+        public FtpletResult beforeCommand(FtpSession session,
+                FtpRequest request) {
+            calls.add(name + " before " + request.getCommand());
+            return null;
+        }
+
+        public FtpletResult afterCommand(FtpSession session,
+                FtpRequest request, FtpReply reply) {
+            calls.add(name + " after " + request.getCommand());
+            return null;
+        }
+
+        public FtpletResult onConnect(FtpSession session) {
+            calls.add(name + " connect");
+            return null;
+        }
+
+        public FtpletResult onDisconnect(FtpSession session) {
+            calls.add(name + " disconnect");
+            return null;
+        }
+    }
+
+    public void testInterest() throws FtpException, IOException {
+        final List<String> calls = new ArrayList<>();
+        MockFtplet ftplet2 = new MockFtplet() {
+            @Override
+            public FtpletResult beforeCommand(FtpSession session,
+                    FtpRequest request) throws FtpException, IOException {
+                calls.add("ftplet2 before " + request.getCommand());
+                return null;
+            }
+        };
+
+        Map<String, Ftplet> ftplets = new LinkedHashMap<>();
+        ftplets.put("ftplet1", new InterestedFtplet("ftplet1", calls));
+        ftplets.put("ftplet2", ftplet2);
+        ftplets.put("ftplet3", new InterestedFtplet("ftplet3", calls));
+
+        FtpletContainer container = createFtpletContainer(ftplets);
+        DefaultFtpSession session = new DefaultFtpSession(null);
+
+        container.onConnect(session);
+        container.beforeCommand(session, new DefaultFtpRequest("NOOP"));
+        container.afterCommand(session, new DefaultFtpRequest("NOOP"),
+                new DefaultFtpReply(200, "foo"));
+        container.beforeCommand(session, new DefaultFtpRequest("DELE foo"));
+        container.afterCommand(session, new DefaultFtpRequest("DELE foo"),
+                new DefaultFtpReply(250, "foo"));
+
+        assertEquals("[ftplet2 before NOOP, ftplet1 before DELE, "
+                + "ftplet2 before DELE, ftplet3 before DELE, "
+                + "ftplet1 after DELE, ftplet3 after DELE]", calls.toString());
+    }
+
+    public void testInterestAfterFtpletAdded() throws FtpException,
+            IOException {
+        final List<String> calls = new ArrayList<>();
+        Map<String, Ftplet> ftplets = new LinkedHashMap<>();
+        ftplets.put("ftplet1", new InterestedFtplet("ftplet1", calls));
+
+        FtpletContainer container = createFtpletContainer(ftplets);
+        DefaultFtpSession session = new DefaultFtpSession(null);
+        container.beforeCommand(session, new DefaultFtpRequest("DELE foo"));
+
+        ftplets.put("ftplet2", new InterestedFtplet("ftplet2", calls));
+        container.beforeCommand(session, new DefaultFtpRequest("DELE foo"));
+
+        assertEquals("[ftplet1 before DELE, ftplet1 before DELE, "
+                + "ftplet2 before DELE]", calls.toString());
+    }
+
+    public void testInterestAfterFtpletReplaced() throws FtpException,
+            IOException {
+        final List<String> calls = new ArrayList<>();
+        Map<String, Ftplet> ftplets = new LinkedHashMap<>();
+        ftplets.put("ftplet1", new InterestedFtplet("ftplet1", calls));
+
+        FtpletContainer container = createFtpletContainer(ftplets);
+        DefaultFtpSession session = new DefaultFtpSession(null);
+        container.beforeCommand(session, new DefaultFtpRequest("DELE foo"));
+
+        // same name, same number of ftplets
+        ftplets.put("ftplet1", new InterestedFtplet("replaced", calls));
+        container.beforeCommand(session, new DefaultFtpRequest("DELE foo"));
+
+        ftplets.remove("ftplet1");
+        ftplets.put("ftplet2", new InterestedFtplet("ftplet2", calls));
+        container.beforeCommand(session, new DefaultFtpRequest("DELE foo"));
+
+        assertEquals("[ftplet1 before DELE, replaced before DELE, "
+                + "ftplet2 before DELE]", calls.toString());
+    }
+
 }
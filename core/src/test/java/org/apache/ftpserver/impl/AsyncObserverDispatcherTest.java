@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.impl.AsyncObserverDispatcher.OverflowPolicy;
+import org.apache.mina.core.session.DummySession;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class AsyncObserverDispatcherTest extends TestCase {
+
+    private static class RecordingObserver implements StatisticsObserver,
+            FileObserver {
+
+        final List<String> events = Collections
+                .synchronizedList(new ArrayList<String>());
+
+        public void notifyUpload(FtpIoSession session, FtpFile file, long size) {
+            events.add("upload " + size);
+        }
+
+        public void notifyDownload(FtpIoSession session, FtpFile file,
+                long size) {
+            events.add("download " + size);
+        }
+
+        public void notifyDelete(FtpIoSession session, FtpFile file) {
+            events.add("delete");
+        }
+
+        public void notifyMkdir(FtpIoSession session, FtpFile file) {
+            events.add("mkdir");
+        }
+
+        public void notifyRmdir(FtpIoSession session, FtpFile file) {
+            events.add("rmdir");
+        }
+
+        public void notifyUpload() {
+            events.add("stat upload");
+        }
+
+        public void notifyDownload() {
+            events.add("stat download");
+        }
+
+        public void notifyDelete() {
+            events.add("stat delete");
+        }
+
+        public void notifyMkdir() {
+            events.add("stat mkdir");
+        }
+
+        public void notifyRmdir() {
+            events.add("stat rmdir");
+        }
+
+        public void notifyLogin(boolean anonymous) {
+            events.add("login " + anonymous);
+        }
+
+        public void notifyLoginFail(InetAddress address) {
+            events.add("loginfail");
+        }
+
+        public void notifyLogout(boolean anonymous) {
+            events.add("logout " + anonymous);
+        }
+
+        public void notifyOpenConnection() {
+            events.add("open");
+        }
+
+        public void notifyCloseConnection() {
+            events.add("close");
+        }
+    }
+
+    private static class RecordingBatchObserver extends RecordingObserver
+            implements BatchObserver {
+
+        final List<Integer> batchSizes = Collections
+                .synchronizedList(new ArrayList<Integer>());
+
+        public void notifyEvents(List<ObserverEvent> events) {
+            batchSizes.add(events.size());
+            for (ObserverEvent event : events) {
+                this.events.add(event.getType().name());
+            }
+        }
+    }
+
+    public void testCapacityRoundedToPowerOfTwo() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(null,
+                null, 100, OverflowPolicy.DROP);
+        assertEquals(128, dispatcher.getCapacity());
+    }
+
+    public void testDeliveredInOrder() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(
+                observer, observer, 16, OverflowPolicy.BLOCK);
+        dispatcher.start();
+
+        dispatcher.notifyOpenConnection();
+        dispatcher.notifyLogin(true);
+        // raised in pairs by the statistics, delivered once to each observer
+        dispatcher.notifyUpload();
+        dispatcher.notifyUpload(null, null, 17);
+        dispatcher.notifyLogout(true);
+        dispatcher.notifyCloseConnection();
+        dispatcher.stop();
+
+        assertEquals(5, dispatcher.getDeliveredCount());
+        assertEquals(0, dispatcher.getBacklog());
+        assertEquals("[open, login true, stat upload, upload 17, logout true, close]",
+                observer.events.toString());
+    }
+
+    public void testBlockDeliversEverything() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        final AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(
+                observer, observer, 4, OverflowPolicy.BLOCK);
+        dispatcher.start();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        dispatcher.notifyOpenConnection();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        dispatcher.stop();
+
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(4000, dispatcher.getDeliveredCount());
+        assertEquals(4000, observer.events.size());
+    }
+
+    public void testDropWhenFull() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingObserver observer = new RecordingObserver() {
+            @Override
+            public void notifyOpenConnection() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(
+                observer, null, 4, OverflowPolicy.DROP);
+        dispatcher.start();
+
+        // keep the consumer busy with the first event
+        dispatcher.notifyOpenConnection();
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.notifyLogin(false);
+        }
+        assertEquals(4, dispatcher.getBacklog());
+        assertEquals(7, dispatcher.getDroppedCount());
+
+        release.countDown();
+        dispatcher.stop();
+
+        assertEquals(4, dispatcher.getDeliveredCount());
+        assertEquals(3, observer.events.size());
+    }
+
+    public void testSampleWhenMoreThanHalfFull() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingObserver observer = new RecordingObserver() {
+            @Override
+            public void notifyOpenConnection() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(
+                observer, null, 16, OverflowPolicy.SAMPLE);
+        dispatcher.setSampleRate(4);
+        dispatcher.start();
+
+        dispatcher.notifyOpenConnection();
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        // the first 8 fill half of the buffer, of the next 8 one in four is kept
+        for (int i = 0; i < 16; i++) {
+            dispatcher.notifyLogin(false);
+        }
+        assertEquals(11, dispatcher.getBacklog());
+        assertEquals(6, dispatcher.getDroppedCount());
+
+        release.countDown();
+        dispatcher.stop();
+    }
+
+    public void testBatchObserver() throws Exception {
+        RecordingBatchObserver observer = new RecordingBatchObserver();
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(
+                observer, observer, 64, OverflowPolicy.BLOCK);
+        dispatcher.setBatchSize(8);
+
+        // queue up before starting to get full batches
+        for (int i = 0; i < 20; i++) {
+            dispatcher.notifyMkdir(null, null);
+        }
+        dispatcher.start();
+        dispatcher.stop();
+
+        assertEquals(20, observer.events.size());
+        assertEquals("[8, 8, 4]", observer.batchSizes.toString());
+    }
+
+    public void testStatisticsNotifyThroughDispatcher() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(16,
+                OverflowPolicy.BLOCK, 1);
+        DefaultFtpStatistics statistics = new DefaultFtpStatistics();
+        statistics.setObserverDispatcher(dispatcher);
+        // observers set after the dispatcher are handed on to it
+        statistics.setObserver(observer);
+        statistics.setFileObserver(observer);
+
+        FtpIoSession session = new FtpIoSession(null, null);
+        statistics.setOpenConnection(session);
+        statistics.setUpload(session, null, 5);
+        statistics.setCloseConnection(session);
+        assertTrue(observer.events.isEmpty());
+
+        dispatcher.start();
+        dispatcher.stop();
+
+        assertEquals(1, statistics.getTotalUploadNumber());
+        assertEquals("[open, stat upload, upload 5, close]",
+                observer.events.toString());
+    }
+
+    public void testDeleteTreeQueuedAsOneEvent() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        // room for one event, the rest would be dropped
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(1,
+                OverflowPolicy.DROP, 1);
+        DefaultFtpStatistics statistics = new DefaultFtpStatistics();
+        statistics.setObserverDispatcher(dispatcher);
+        statistics.setObserver(observer);
+        statistics.setFileObserver(observer);
+
+        FtpIoSession session = new FtpIoSession(null, null);
+        List<FtpFile> files = Arrays.asList(null, null);
+        List<FtpFile> dirs = Arrays.asList((FtpFile) null);
+        statistics.setDeleteTree(session, files, dirs);
+
+        dispatcher.start();
+        dispatcher.stop();
+
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(2, statistics.getTotalDeleteNumber());
+        assertEquals(1, statistics.getTotalDirectoryRemoved());
+        assertEquals("[stat delete, stat delete, stat rmdir, "
+                + "delete, delete, rmdir]", observer.events.toString());
+    }
+
+    public void testSessionsSpreadOverThreads() throws Exception {
+        final Map<Long, List<String>> bySession = new HashMap<>();
+        FileObserver observer = new RecordingObserver() {
+            @Override
+            public void notifyUpload(FtpIoSession session, FtpFile file,
+                    long size) {
+                synchronized (bySession) {
+                    List<String> events = bySession.get(session.getId());
+                    if (events == null) {
+                        events = new ArrayList<>();
+                        bySession.put(session.getId(), events);
+                    }
+                    events.add(Thread.currentThread().getName() + " " + size);
+                }
+            }
+        };
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(64,
+                OverflowPolicy.BLOCK, 4);
+        dispatcher.setFileObserver(observer);
+        assertEquals(4, dispatcher.getThreads());
+        assertEquals(256, dispatcher.getCapacity());
+        dispatcher.start();
+
+        FtpIoSession[] sessions = new FtpIoSession[8];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new FtpIoSession(new DummySession(), null);
+        }
+        for (int size = 0; size < 50; size++) {
+            for (FtpIoSession session : sessions) {
+                dispatcher.notifyUpload(session, null, size);
+            }
+        }
+        dispatcher.stop();
+
+        assertEquals(400, dispatcher.getDeliveredCount());
+        assertEquals(8, bySession.size());
+        for (List<String> events : bySession.values()) {
+            // all events of a session on one thread and in order
+            String thread = events.get(0).substring(0,
+                    events.get(0).indexOf(' '));
+            assertEquals(50, events.size());
+            for (int size = 0; size < 50; size++) {
+                assertEquals(thread + " " + size, events.get(size));
+            }
+        }
+    }
+}
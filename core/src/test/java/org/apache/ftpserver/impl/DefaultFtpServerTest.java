@@ -19,7 +19,12 @@
 
 package org.apache.ftpserver.impl;
 
+import java.lang.management.ManagementFactory;
 import java.net.BindException;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import junit.framework.TestCase;
 
@@ -110,4 +115,38 @@ public class DefaultFtpServerTest extends TestCase {
             }
         }
     }
+
+    public void testMBeansRegisteredWhileStarted() throws Exception {
+        FtpServerFactory serverFactory = new FtpServerFactory();
+
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setPort(0);
+        serverFactory.addListener("default", listenerFactory.createListener());
+
+        DefaultFtpServer server = (DefaultFtpServer) serverFactory.createServer();
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName(MBeanRegistry.DOMAIN + ":*");
+
+        int before = mbeanServer.queryNames(pattern, null).size();
+        server.start();
+        try {
+            Set<ObjectName> names = mbeanServer.queryNames(new ObjectName(
+                    MBeanRegistry.DOMAIN + ":type=Listener,name=default,*"), null);
+            assertEquals(1, names.size());
+            ObjectName listenerName = names.iterator().next();
+            assertEquals(Boolean.FALSE, mbeanServer.getAttribute(listenerName, "Suspended"));
+            assertEquals(0, mbeanServer.getAttribute(listenerName, "ActiveSessionCount"));
+
+            mbeanServer.invoke(listenerName, "suspend", null, null);
+            assertTrue(server.getListener("default").isSuspended());
+            mbeanServer.invoke(listenerName, "resume", null, null);
+            assertFalse(server.getListener("default").isSuspended());
+
+            assertEquals(1, mbeanServer.queryNames(new ObjectName(
+                    MBeanRegistry.DOMAIN + ":type=ThreadPool,*"), null).size());
+        } finally {
+            server.stop();
+        }
+        assertEquals(before, mbeanServer.queryNames(pattern, null).size());
+    }
 }
@@ -19,10 +19,15 @@
 
 package org.apache.ftpserver.impl;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.Date;
 
 import junit.framework.TestCase;
 
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.mina.core.session.DummySession;
+
 /**
 *
 * @author <a href="http://mina.apache.org">Apache MINA Project</a>
@@ -58,6 +63,76 @@ public abstract class ServerFtpStatisticsTestTemplate extends TestCase {
         assertEquals(0, stats.getCurrentConnectionNumber());
     }
 
+    public void testUserLoginCount() throws Exception {
+        ServerFtpStatistics stats = createStatistics();
+
+        BaseUser user = new BaseUser();
+        user.setName("user1");
+        InetAddress address1 = InetAddress.getByName("10.0.0.1");
+        InetAddress address2 = InetAddress.getByName("10.0.0.2");
+
+        FtpIoSession session1 = createSession(user, address1);
+        FtpIoSession session2 = createSession(user, address1);
+        FtpIoSession session3 = createSession(user, address2);
+
+        stats.setLogin(session1);
+        stats.setLogin(session2);
+        stats.setLogin(session3);
+        assertEquals(3, stats.getCurrentLoginNumber());
+        assertEquals(3, stats.getTotalLoginNumber());
+        assertEquals(3, stats.getCurrentUserLoginNumber(user));
+        assertEquals(2, stats.getCurrentUserLoginNumber(user, address1));
+        assertEquals(1, stats.getCurrentUserLoginNumber(user, address2));
+
+        stats.setLogout(session1);
+        stats.setLogout(session3);
+        assertEquals(1, stats.getCurrentLoginNumber());
+        assertEquals(3, stats.getTotalLoginNumber());
+        assertEquals(1, stats.getCurrentUserLoginNumber(user));
+        assertEquals(1, stats.getCurrentUserLoginNumber(user, address1));
+        assertEquals(0, stats.getCurrentUserLoginNumber(user, address2));
+
+        stats.setLogout(session2);
+        assertEquals(0, stats.getCurrentLoginNumber());
+        assertEquals(0, stats.getCurrentUserLoginNumber(user));
+        assertEquals(0, stats.getCurrentUserLoginNumber(user, address1));
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final ServerFtpStatistics stats = createStatistics();
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        stats.setUpload(null, null, 10);
+                        stats.setOpenConnection(new FtpIoSession(null, null));
+                        stats.setCloseConnection(new FtpIoSession(null, null));
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8000, stats.getTotalUploadNumber());
+        assertEquals(80000, stats.getTotalUploadSize());
+        assertEquals(8000, stats.getTotalConnectionNumber());
+        assertEquals(0, stats.getCurrentConnectionNumber());
+    }
+
+    private FtpIoSession createSession(BaseUser user, InetAddress address) {
+        DummySession dummySession = new DummySession();
+        dummySession.setRemoteAddress(new InetSocketAddress(address, 21));
+        FtpIoSession session = new FtpIoSession(dummySession, null);
+        session.setUser(user);
+        return session;
+    }
+
     @SuppressWarnings("deprecation")
     public void testStartDateImmutable() {
         ServerFtpStatistics stats = createStatistics();
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.impl.jfr;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.impl.PassivePorts;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class FtpEventsTest extends TestCase {
+
+    public void testNoHandleWhenNotRecording() {
+        assertNull(FtpEvents.beginCommand());
+        assertNull(FtpEvents.beginTransfer());
+        assertNull(FtpEvents.beginPassivePort());
+    }
+
+    public void testPassivePortReservationRecorded() throws Exception {
+        if (!FtpEvents.isAvailable()) {
+            return;
+        }
+
+        File file = File.createTempFile("ftpserver", ".jfr");
+        try {
+            Recording recording = new Recording();
+            recording.enable("org.apache.ftpserver.PassivePortReservation");
+            recording.start();
+
+            PassivePorts ports = new PassivePorts("50001-50002", false);
+            int port = ports.reserveNextPort();
+
+            recording.stop();
+            recording.dump(file.toPath());
+            recording.close();
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file
+                    .toPath());
+            assertEquals(1, events.size());
+            assertEquals(port, events.get(0).getInt("port"));
+            assertEquals(1, events.get(0).getInt("freePorts"));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ipfilter;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class ConnectionLimitFilterTest extends TestCase {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final InetAddress IPV4 = address("10.0.0.1");
+
+    private static final InetAddress OTHER_IPV4 = address("10.0.0.2");
+
+    private static InetAddress address(String address) {
+        try {
+            return InetAddress.getByName(address);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void testNegativeLimits() {
+        try {
+            new ConnectionLimitFilter(-1, 0);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            new ConnectionLimitFilter(0, -1);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    public void testMaxConnections() {
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(2, 0);
+
+        assertTrue(filter.acquire(IPV4));
+        assertTrue(filter.acquire(IPV4));
+        assertFalse(filter.acquire(IPV4));
+        assertTrue(filter.acquire(OTHER_IPV4));
+
+        filter.release(IPV4);
+        assertTrue(filter.acquire(IPV4));
+        assertFalse(filter.acquire(IPV4));
+    }
+
+    public void testRateBurstThenAverage() {
+        // 6 per minute, one every 10 seconds with a burst of 6
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(0, 6);
+        long now = 0;
+
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(filter.acquire(IPV4, now));
+        }
+        assertNull(filter.acquire(IPV4, now));
+        assertNull(filter.acquire(IPV4, now + 9 * SECOND));
+        assertNotNull(filter.acquire(IPV4, now + 10 * SECOND));
+        assertNull(filter.acquire(IPV4, now + 11 * SECOND));
+
+        // after a minute the full burst is available again
+        now += 70 * SECOND;
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(filter.acquire(IPV4, now));
+        }
+        assertNull(filter.acquire(IPV4, now));
+    }
+
+    public void testRejectedByRateNotCounted() {
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(2, 1);
+
+        assertNotNull(filter.acquire(IPV4, 0));
+        assertNull(filter.acquire(IPV4, 0));
+        assertNotNull(filter.acquire(IPV4, 60 * SECOND));
+        assertNull(filter.acquire(IPV4, 120 * SECOND));
+    }
+
+    public void testIpv6GroupedBy64() {
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(1, 0);
+
+        assertTrue(filter.acquire(address("2001:db8:1:2::1")));
+        assertFalse(filter.acquire(address("2001:db8:1:2:ffff::2")));
+        assertTrue(filter.acquire(address("2001:db8:1:3::1")));
+        assertEquals(2, filter.size());
+    }
+
+    public void testSweep() {
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(1, 6);
+        long start = System.nanoTime();
+
+        assertNotNull(filter.acquire(IPV4, start));
+        filter.release(IPV4);
+        assertNotNull(filter.acquire(OTHER_IPV4, start));
+        assertEquals(2, filter.size());
+
+        // a sweep removes idle entries with a full bucket but keeps open ones
+        assertNotNull(filter.acquire(address("10.0.0.3"), start + 60 * SECOND));
+        assertEquals(2, filter.size());
+        assertFalse(filter.acquire(OTHER_IPV4));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ftpserver.ipfilter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class IpTrieTest extends TestCase {
+
+    private static IpFilterType lookup(IpTrie trie, String address)
+            throws Exception {
+        return trie.lookup(InetAddress.getByName(address));
+    }
+
+    public void testEmpty() throws Exception {
+        IpTrie trie = IpTrie.empty();
+        assertEquals(0, trie.size());
+        assertNull(lookup(trie, "10.0.0.1"));
+        assertNull(lookup(trie, "::1"));
+    }
+
+    public void testLongestPrefixMatch() throws Exception {
+        IpTrie trie = new IpTrie.Builder()
+                .add("10.0.0.0/8", IpFilterType.DENY)
+                .add("10.1.0.0/16", IpFilterType.ALLOW)
+                .add("10.1.2.0/24", IpFilterType.DENY)
+                .add("10.1.2.3", IpFilterType.ALLOW).build();
+
+        assertEquals(4, trie.size());
+        assertEquals(IpFilterType.DENY, lookup(trie, "10.200.0.1"));
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "10.1.200.1"));
+        assertEquals(IpFilterType.DENY, lookup(trie, "10.1.2.4"));
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "10.1.2.3"));
+        assertNull(lookup(trie, "11.0.0.1"));
+    }
+
+    public void testInsertionOrderDoesNotMatter() throws Exception {
+        IpTrie trie = new IpTrie.Builder()
+                .add("10.1.2.3", IpFilterType.ALLOW)
+                .add("10.1.2.0/24", IpFilterType.DENY)
+                .add("10.1.0.0/16", IpFilterType.ALLOW)
+                .add("10.0.0.0/8", IpFilterType.DENY).build();
+
+        assertEquals(IpFilterType.DENY, lookup(trie, "10.200.0.1"));
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "10.1.200.1"));
+        assertEquals(IpFilterType.DENY, lookup(trie, "10.1.2.4"));
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "10.1.2.3"));
+    }
+
+    public void testDenyTakesPrecedence() throws Exception {
+        IpTrie trie = new IpTrie.Builder()
+                .add("192.168.0.0/16", IpFilterType.ALLOW)
+                .add("192.168.1.1/16", IpFilterType.DENY)
+                .add("192.168.0.0/16", IpFilterType.ALLOW).build();
+
+        assertEquals(1, trie.size());
+        assertEquals(IpFilterType.DENY, lookup(trie, "192.168.3.4"));
+    }
+
+    public void testIpv6() throws Exception {
+        IpTrie trie = new IpTrie.Builder()
+                .add("2001:db8::/32", IpFilterType.DENY)
+                .add("2001:db8:1::/48", IpFilterType.ALLOW)
+                .add("0.0.0.0/0", IpFilterType.ALLOW).build();
+
+        assertEquals(IpFilterType.DENY, lookup(trie, "2001:db8:2::1"));
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "2001:db8:1::1"));
+        assertNull(lookup(trie, "2001:db9::1"));
+
+        // IPv4 subnets do not match IPv6 addresses
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "1.2.3.4"));
+        assertNull(lookup(trie, "::1"));
+    }
+
+    public void testInvalidPrefixLength() throws Exception {
+        IpTrie.Builder builder = new IpTrie.Builder();
+        try {
+            builder.add("10.0.0.0/33", IpFilterType.DENY);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            builder.add(" ", IpFilterType.DENY);
+            fail("Must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testLoad() throws Exception {
+        String list = "# threat list\n" + "10.0.0.0/8\n" + "\n"
+                + "allow 10.1.0.0/16 # partner\n" + "deny 2001:db8::/32\n";
+        IpTrie trie = new IpTrie.Builder().load(new StringReader(list),
+                IpFilterType.DENY).build();
+
+        assertEquals(3, trie.size());
+        assertEquals(IpFilterType.DENY, lookup(trie, "10.2.0.1"));
+        assertEquals(IpFilterType.ALLOW, lookup(trie, "10.1.0.1"));
+        assertEquals(IpFilterType.DENY, lookup(trie, "2001:db8::1"));
+    }
+
+    public void testLoadInvalidLine() throws Exception {
+        try {
+            new IpTrie.Builder().load(new StringReader("10.0.0.0/8\nblock 10.0.0.0/8\n"),
+                    IpFilterType.DENY);
+            fail("Must throw IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("line 2"));
+        }
+    }
+
+    public void testBuilderCanNotBeReused() throws Exception {
+        IpTrie.Builder builder = new IpTrie.Builder();
+        builder.build();
+        try {
+            builder.add("10.0.0.0/8", IpFilterType.DENY);
+            fail("Must throw IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testMatchesLinearScan() throws Exception {
+        Random random = new Random(42);
+        List<byte[]> prefixes = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        List<IpFilterType> actions = new ArrayList<>();
+        IpTrie.Builder builder = new IpTrie.Builder();
+        for (int i = 0; i < 2000; i++) {
+            // few distinct leading bytes so that subnets nest
+            byte[] prefix = new byte[] { (byte) random.nextInt(4),
+                    (byte) random.nextInt(256), (byte) random.nextInt(256),
+                    (byte) random.nextInt(256) };
+            int length = random.nextInt(33);
+            IpFilterType action = random.nextBoolean() ? IpFilterType.ALLOW
+                    : IpFilterType.DENY;
+            builder.add(InetAddress.getByAddress(prefix), length, action);
+            prefixes.add(prefix);
+            lengths.add(length);
+            actions.add(action);
+        }
+        IpTrie trie = builder.build();
+
+        for (int i = 0; i < 5000; i++) {
+            byte[] address = new byte[] { (byte) random.nextInt(4),
+                    (byte) random.nextInt(256), (byte) random.nextInt(256),
+                    (byte) random.nextInt(256) };
+            int a = ((address[0] & 0xFF) << 24) | ((address[1] & 0xFF) << 16)
+                    | ((address[2] & 0xFF) << 8) | (address[3] & 0xFF);
+
+            int bestLength = -1;
+            IpFilterType expected = null;
+            for (int j = 0; j < prefixes.size(); j++) {
+                byte[] p = prefixes.get(j);
+                int n = ((p[0] & 0xFF) << 24) | ((p[1] & 0xFF) << 16)
+                        | ((p[2] & 0xFF) << 8) | (p[3] & 0xFF);
+                int length = lengths.get(j);
+                int mask = length == 0 ? 0 : -1 << (32 - length);
+                if ((a & mask) != (n & mask)) {
+                    continue;
+                }
+                if (length > bestLength) {
+                    bestLength = length;
+                    expected = actions.get(j);
+                } else if (length == bestLength
+                        && actions.get(j) == IpFilterType.DENY) {
+                    expected = IpFilterType.DENY;
+                }
+            }
+
+            assertEquals(expected, trie.lookup(InetAddress
+                    .getByAddress(address)));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.quota.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+import org.apache.ftpserver.quota.QuotaExceededException;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.util.IoUtils;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DefaultQuotaManagerTest extends TestCase {
+
+    private static final File TEST_TMP_DIR = new File("test-tmp");
+
+    private static final File HOME_DIR = new File(TEST_TMP_DIR, "user1");
+
+    private static final File USAGE_FILE = new File(TEST_TMP_DIR,
+            "quota.properties");
+
+    private BaseUser user1;
+
+    private BaseUser user2;
+
+    @Override
+    protected void setUp() throws Exception {
+        cleanTmpDirs();
+
+        HOME_DIR.mkdirs();
+
+        user1 = new BaseUser();
+        user1.setName("user1");
+        user1.setHomeDirectory(HOME_DIR.getAbsolutePath());
+
+        user2 = new BaseUser();
+        user2.setName("user2");
+        user2.setHomeDirectory(HOME_DIR.getAbsolutePath());
+    }
+
+    private DefaultQuotaManager createQuotaManager(File file) {
+        Map<String, Long> quotas = new HashMap<>();
+        quotas.put("user1", 100L);
+        return new DefaultQuotaManager(-1, quotas, file, 0);
+    }
+
+    public void testGetQuota() {
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        assertEquals(100, quotaManager.getQuota("user1"));
+        assertEquals(-1, quotaManager.getQuota("user2"));
+    }
+
+    public void testReserveWithinQuota() throws Exception {
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user1, 60);
+        quotaManager.reserve(user1, 40);
+        assertEquals(100, quotaManager.getUsage("user1"));
+    }
+
+    public void testReserveOverQuota() throws Exception {
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user1, 60);
+        try {
+            quotaManager.reserve(user1, 41);
+            fail("Must throw QuotaExceededException");
+        } catch (QuotaExceededException e) {
+            assertEquals(100, e.getQuota());
+        }
+
+        // nothing accounted for the rejected bytes
+        assertEquals(60, quotaManager.getUsage("user1"));
+    }
+
+    public void testReserveWithoutQuota() throws Exception {
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user2, 1000);
+        assertEquals(1000, quotaManager.getUsage("user2"));
+        assertEquals(0, quotaManager.getUsage("user1"));
+    }
+
+    public void testRelease() throws Exception {
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user1, 60);
+        quotaManager.release(user1, 20);
+        assertEquals(40, quotaManager.getUsage("user1"));
+
+        quotaManager.release(user1, 100);
+        assertEquals(0, quotaManager.getUsage("user1"));
+    }
+
+    public void testPersistUsage() throws Exception {
+        DefaultQuotaManager quotaManager = createQuotaManager(USAGE_FILE);
+        quotaManager.reserve(user1, 60);
+        quotaManager.reserve(user2, 1000);
+        quotaManager.dispose();
+        assertTrue(USAGE_FILE.exists());
+
+        quotaManager = createQuotaManager(USAGE_FILE);
+        assertEquals(60, quotaManager.getUsage("user1"));
+        assertEquals(1000, quotaManager.getUsage("user2"));
+    }
+
+    public void testReconcile() throws Exception {
+        writeFile(new File(HOME_DIR, "file1"), 10);
+        File dir = new File(HOME_DIR, "dir");
+        dir.mkdirs();
+        writeFile(new File(dir, "file2"), 20);
+
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user1, 70);
+        assertTrue(quotaManager.reconcile(user1,
+                new NativeFileSystemFactory()));
+        assertEquals(30, quotaManager.getUsage("user1"));
+
+        quotaManager.reserve(user1, 70);
+        assertEquals(100, quotaManager.getUsage("user1"));
+    }
+
+    public void testReconcileWhileUsageChanges() throws Exception {
+        writeFile(new File(HOME_DIR, "file1"), 10);
+
+        final DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user1, 70);
+
+        // every scan overlaps a change of the usage
+        final NativeFileSystemFactory factory = new NativeFileSystemFactory();
+        FileSystemFactory changing = new FileSystemFactory() {
+            public FileSystemView createFileSystemView(User user)
+                    throws FtpException {
+                quotaManager.touch(user);
+                return factory.createFileSystemView(user);
+            }
+        };
+
+        assertFalse(quotaManager.reconcile(user1, changing));
+        assertEquals(10, quotaManager.getUsage("user1"));
+    }
+
+    public void testReconcileUnlistableDirectory() throws Exception {
+        // the home directory is gone, its listing is null
+        assertTrue(HOME_DIR.delete());
+
+        DefaultQuotaManager quotaManager = createQuotaManager(null);
+        quotaManager.reserve(user1, 70);
+        assertTrue(quotaManager.reconcile(user1,
+                new NativeFileSystemFactory()));
+        assertEquals(0, quotaManager.getUsage("user1"));
+    }
+
+    private void writeFile(File file, int size) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(new byte[size]);
+        } finally {
+            fos.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cleanTmpDirs();
+    }
+
+    protected void cleanTmpDirs() throws IOException {
+        if (TEST_TMP_DIR.exists()) {
+            IoUtils.delete(TEST_TMP_DIR);
+        }
+    }
+}
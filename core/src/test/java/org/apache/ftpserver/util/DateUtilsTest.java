@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.util;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+/**
+*
+* @author <a href="http://mina.apache.org">Apache MINA Project</a>
+*
+*/
+public class DateUtilsTest extends TestCase {
+
+    private static final long SIX_MONTHS = 15811200000L;
+
+    // 2008-12-08T21:05:17.042Z
+    private static final long DATE = 1228770317042L;
+
+    private TimeZone defaultTimeZone;
+
+    @Override
+    protected void setUp() throws Exception {
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    public void testFtpDate() {
+        assertEquals("20081208210517.042", DateUtils.getFtpDate(DATE));
+        assertEquals("20081208210517.000", DateUtils.getFtpDate(DATE - 42));
+        assertEquals("20081208210517.999", DateUtils.getFtpDate(DATE + 957));
+        assertEquals("19700101000000.000", DateUtils.getFtpDate(0));
+    }
+
+    public void testISO8601Date() {
+        assertEquals("2008-12-08T21:05:17", DateUtils.getISO8601Date(DATE));
+        assertEquals("1970-01-01T00:00:00", DateUtils.getISO8601Date(0));
+    }
+
+    public void testUnixDateRecent() {
+        StringBuilder sb = new StringBuilder();
+        DateUtils.appendUnixDate(sb, DATE, DATE + 1000);
+        assertEquals("Dec  8 21:05", sb.toString());
+    }
+
+    public void testUnixDateOld() {
+        StringBuilder sb = new StringBuilder();
+        DateUtils.appendUnixDate(sb, DATE, DATE + SIX_MONTHS + 1);
+        assertEquals("Dec  8  2008", sb.toString());
+
+        // same minute, now recent again
+        sb.setLength(0);
+        DateUtils.appendUnixDate(sb, DATE, DATE);
+        assertEquals("Dec  8 21:05", sb.toString());
+    }
+
+    public void testUnixDateNegative() {
+        assertEquals("------------", DateUtils.getUnixDate(-1));
+    }
+
+    public void testAppendKeepsBufferContent() {
+        StringBuilder sb = new StringBuilder("Modify=");
+        DateUtils.appendFtpDate(sb, DATE);
+        assertEquals("Modify=20081208210517.042", sb.toString());
+    }
+
+    /**
+     * Formatting with the caches must give the same result as formatting
+     * with a new calendar for each date, including repeated dates that are
+     * served from the caches.
+     */
+    public void testMatchesCalendar() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Stockholm"));
+
+        Random random = new Random(DATE);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            long millis;
+            if (random.nextBoolean()) {
+                // around now, to get both the time and the year format
+                millis = now - (long) (random.nextDouble() * 2 * SIX_MONTHS);
+            } else {
+                millis = (long) (random.nextDouble() * 4102444800000L);
+            }
+
+            for (int j = 0; j < 2; j++) {
+                assertEquals(calendarUnixDate(millis, now), unixDate(millis,
+                        now));
+                assertEquals(calendarFtpDate(millis), DateUtils
+                        .getFtpDate(millis));
+                assertEquals(calendarISO8601Date(millis), DateUtils
+                        .getISO8601Date(millis));
+            }
+        }
+    }
+
+    private static String unixDate(long millis, long now) {
+        StringBuilder sb = new StringBuilder();
+        DateUtils.appendUnixDate(sb, millis, now);
+        return sb.toString();
+    }
+
+    private static String calendarUnixDate(long millis, long now) {
+        String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
+                "Aug", "Sep", "Oct", "Nov", "Dec" };
+        Calendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(millis);
+
+        if (Math.abs(now - millis) > SIX_MONTHS) {
+            return String.format("%s %2d  %d", months[cal.get(Calendar.MONTH)],
+                    cal.get(Calendar.DATE), cal.get(Calendar.YEAR));
+        } else {
+            return String.format("%s %2d %02d:%02d", months[cal
+                    .get(Calendar.MONTH)], cal.get(Calendar.DATE), cal
+                    .get(Calendar.HOUR_OF_DAY), cal.get(Calendar.MINUTE));
+        }
+    }
+
+    private static String calendarFtpDate(long millis) {
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        cal.setTimeInMillis(millis);
+        return String.format("%d%02d%02d%02d%02d%02d.%03d", cal
+                .get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal
+                .get(Calendar.DATE), cal.get(Calendar.HOUR_OF_DAY), cal
+                .get(Calendar.MINUTE), cal.get(Calendar.SECOND), cal
+                .get(Calendar.MILLISECOND));
+    }
+
+    private static String calendarISO8601Date(long millis) {
+        Calendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(millis);
+        return String.format("%d-%02d-%02dT%02d:%02d:%02d", cal
+                .get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal
+                .get(Calendar.DATE), cal.get(Calendar.HOUR_OF_DAY), cal
+                .get(Calendar.MINUTE), cal.get(Calendar.SECOND));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.ftplet;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link Ftplet} whose callbacks may complete later, for ftplets waiting on
+ * other services such as a virus scanner or a metadata index. The server
+ * does not hold a thread while a returned stage is pending: the session
+ * resumes processing when the stage completes, and commands the client sends
+ * in the meantime are executed afterwards in the order they were received.
+ * <p>
+ * The default implementations call the synchronous methods of {@link Ftplet},
+ * so that an ftplet, typically derived from {@link DefaultFtplet}, only
+ * overrides the callbacks which need to wait. A stage completing
+ * exceptionally is handled as an exception thrown by the synchronous method.
+ * Processing is resumed on the server's thread pool, not on the thread
+ * completing the stage.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface AsyncFtplet extends Ftplet {
+
+    /**
+     * Called by the ftplet container before a command is executed by the
+     * server.
+     *
+     * @param session
+     *            The current session
+     * @param request
+     *            The current request
+     * @return The stage completing with the desired action to be performed
+     *         by the server, see
+     *         {@link Ftplet#beforeCommand(FtpSession, FtpRequest)}
+     * @throws FtpException
+     * @throws IOException
+     */
+    default CompletionStage<FtpletResult> beforeCommandAsync(
+            FtpSession session, FtpRequest request) throws FtpException,
+            IOException {
+        return CompletableFuture.completedFuture(beforeCommand(session,
+                request));
+    }
+
+    /**
+     * Called by the ftplet container after a command has been executed by the
+     * server.
+     *
+     * @param session
+     *            The current session
+     * @param request
+     *            The current request
+     * @param reply
+     *            the reply that was sent for this command
+     * @return The stage completing with the desired action to be performed
+     *         by the server, see
+     *         {@link Ftplet#afterCommand(FtpSession, FtpRequest, FtpReply)}
+     * @throws FtpException
+     * @throws IOException
+     */
+    default CompletionStage<FtpletResult> afterCommandAsync(
+            FtpSession session, FtpRequest request, FtpReply reply)
+            throws FtpException, IOException {
+        return CompletableFuture.completedFuture(afterCommand(session,
+                request, reply));
+    }
+
+    /**
+     * Client connect notification method. The welcome message is sent once
+     * the stage completes.
+     * @param session The current {@link FtpSession}
+     * @return The stage completing with the desired action to be performed
+     *         by the server
+     * @throws FtpException
+     * @throws IOException
+     */
+    default CompletionStage<FtpletResult> onConnectAsync(FtpSession session)
+            throws FtpException, IOException {
+        return CompletableFuture.completedFuture(onConnect(session));
+    }
+
+    /**
+     * Client disconnect notification method. The resources of the session
+     * are released once the stage completes.
+     * @param session The current {@link FtpSession}
+     * @return The stage completing with the desired action to be performed
+     *         by the server
+     * @throws FtpException
+     * @throws IOException
+     */
+    default CompletionStage<FtpletResult> onDisconnectAsync(
+            FtpSession session) throws FtpException, IOException {
+        return CompletableFuture.completedFuture(onDisconnect(session));
+    }
+}
@@ -22,6 +22,8 @@ package org.apache.ftpserver.ftplet;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 
 /**
  *
@@ -61,4 +63,28 @@ public interface DataConnection {
      */
     void transferToClient(FtpSession session, String str) throws IOException;
 
+    /**
+     * Transfer text to the client piece by piece, e.g. during LIST. Each
+     * piece is written to the data connection as soon as it is produced,
+     * so the complete text is never required to be held in memory.
+     * <p>
+     * The default implementation joins all pieces and calls
+     * {@link #transferToClient(FtpSession, String)}.
+     * @param session The current {@link FtpSession}
+     * @param text
+     *            The pieces of text to transfer, in order
+     * @return The length of the transferred data
+     * @throws IOException
+     */
+    default long transferToClient(FtpSession session,
+            Iterator<? extends CharSequence> text) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (text.hasNext()) {
+            sb.append(text.next());
+        }
+        String str = sb.toString();
+        transferToClient(session, str);
+        return str.getBytes(StandardCharsets.UTF_8).length;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.ftplet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Optionally implemented by a {@link Ftplet} to see the data of uploads and
+ * downloads as it moves over the data connection, e.g. to scan, validate or
+ * digest it without reading the file again after the transfer.
+ * <p>
+ * The returned stream is a stage in front of the given one: it receives the
+ * data and writes it on, either unchanged or transformed. Throwing an
+ * {@link IOException} aborts the transfer, which the client sees as a
+ * failed command. The stage is closed once the transfer ends, also when it
+ * failed; closing it does not close the stream it writes to. Stages of
+ * several ftplets are chained in the order of the ftplets, the first ftplet
+ * seeing the data first.
+ * <p>
+ * Nothing of an aborted upload is kept: a file stored by STOR or STOU is
+ * deleted, a file appended to or resumed is cut back to its size before the
+ * upload, and the quota taken by the upload is given back.
+ * <p>
+ * Upload stages see the data as it is written to the file, download stages
+ * as it is sent to the client. The two only differ for ASCII transfers,
+ * whose line endings are converted.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface DataInterceptor {
+
+    /**
+     * Intercept the data of a file uploaded by the client, e.g. during STOR.
+     * 
+     * @param session
+     *            The current session
+     * @param request
+     *            The command transferring the data
+     * @param out
+     *            The stream to write the data on to
+     * @return The stage to write the data to, or <code>out</code> itself to
+     *         leave this transfer alone
+     * @throws FtpException
+     * @throws IOException
+     */
+    default OutputStream interceptUpload(FtpSession session,
+            FtpRequest request, OutputStream out) throws FtpException,
+            IOException {
+        return out;
+    }
+
+    /**
+     * Intercept the data of a file downloaded by the client, e.g. during
+     * RETR.
+     * 
+     * @param session
+     *            The current session
+     * @param request
+     *            The command transferring the data
+     * @param out
+     *            The stream to write the data on to
+     * @return The stage to write the data to, or <code>out</code> itself to
+     *         leave this transfer alone
+     * @throws FtpException
+     * @throws IOException
+     */
+    default OutputStream interceptDownload(FtpSession session,
+            FtpRequest request, OutputStream out) throws FtpException,
+            IOException {
+        return out;
+    }
+}
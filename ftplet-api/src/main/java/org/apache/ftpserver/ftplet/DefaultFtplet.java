@@ -20,15 +20,175 @@
 package org.apache.ftpserver.ftplet;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Default ftplet implementation. All the callback method returns null. It is
  * just an empty implementation. You can derive your ftplet implementation from
  * this class.
+ * <p>
+ * Commands are dispatched to the <code>onXxx</code> methods through a table.
+ * The commands and events declared through {@link FtpletInterest} are those
+ * whose methods are overridden by the subclass, so that the container does
+ * not call the ftplet for anything else.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
-public class DefaultFtplet implements Ftplet {
+public class DefaultFtplet implements Ftplet, FtpletInterest {
+
+    /**
+     * Calls one of the <code>onXxx</code> methods
+     */
+    private interface Callback {
+        FtpletResult call(DefaultFtplet ftplet, FtpSession session,
+                FtpRequest request) throws FtpException, IOException;
+    }
+
+    /**
+     * A command handled by a callback method
+     */
+    private static class Dispatch {
+
+        private final String methodName;
+
+        private final Callback callback;
+
+        private Dispatch(final String methodName, final Callback callback) {
+            this.methodName = methodName;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * The commands and events handled by a subclass
+     */
+    private static class Interest {
+
+        private final Set<String> beforeCommands;
+
+        private final Set<String> afterCommands;
+
+        private final boolean connections;
+
+        private Interest(final Class<?> type) {
+            beforeCommands = overridden(type, "beforeCommand",
+                    FtpRequest.class)
+                    || overriddenAsync(type, "beforeCommandAsync",
+                            FtpRequest.class) ? null : handled(type,
+                    BEFORE_COMMANDS);
+            afterCommands = overridden(type, "afterCommand", FtpRequest.class,
+                    FtpReply.class)
+                    || overriddenAsync(type, "afterCommandAsync",
+                            FtpRequest.class, FtpReply.class) ? null
+                    : handled(type, AFTER_COMMANDS);
+            connections = overridden(type, "onConnect")
+                    || overridden(type, "onDisconnect")
+                    || overriddenAsync(type, "onConnectAsync")
+                    || overriddenAsync(type, "onDisconnectAsync");
+        }
+
+        private static Set<String> handled(final Class<?> type,
+                final Map<String, Dispatch> commands) {
+            Set<String> handled = new HashSet<>();
+            for (Map.Entry<String, Dispatch> entry : commands.entrySet()) {
+                if (overridden(type, entry.getValue().methodName,
+                        FtpRequest.class)) {
+                    handled.add(entry.getKey());
+                }
+            }
+            return Collections.unmodifiableSet(handled);
+        }
+
+        private static boolean overridden(final Class<?> type,
+                final String methodName, final Class<?>... parameterTypes) {
+            Class<?>[] types = new Class<?>[parameterTypes.length + 1];
+            types[0] = FtpSession.class;
+            System.arraycopy(parameterTypes, 0, types, 1,
+                    parameterTypes.length);
+            try {
+                return type.getMethod(methodName, types).getDeclaringClass() != DefaultFtplet.class;
+            } catch (NoSuchMethodException e) {
+                // can not happen for methods of this class
+                return true;
+            }
+        }
+
+        /**
+         * Whether a subclass implementing {@link AsyncFtplet} overrides one of
+         * its callbacks.
+         */
+        private static boolean overriddenAsync(final Class<?> type,
+                final String methodName, final Class<?>... parameterTypes) {
+            if (!AsyncFtplet.class.isAssignableFrom(type)) {
+                return false;
+            }
+            Class<?>[] types = new Class<?>[parameterTypes.length + 1];
+            types[0] = FtpSession.class;
+            System.arraycopy(parameterTypes, 0, types, 1,
+                    parameterTypes.length);
+            try {
+                return type.getMethod(methodName, types).getDeclaringClass() != AsyncFtplet.class;
+            } catch (NoSuchMethodException e) {
+                // can not happen for methods of the interface
+                return true;
+            }
+        }
+    }
+
+    private static final Map<String, Dispatch> BEFORE_COMMANDS = new HashMap<>();
+
+    private static final Map<String, Dispatch> AFTER_COMMANDS = new HashMap<>();
+
+    private static final ClassValue<Interest> INTERESTS = new ClassValue<Interest>() {
+        @Override
+        protected Interest computeValue(final Class<?> type) {
+            return new Interest(type);
+        }
+    };
+
+    static {
+        BEFORE_COMMANDS.put("DELE", new Dispatch("onDeleteStart",
+                DefaultFtplet::onDeleteStart));
+        BEFORE_COMMANDS.put("STOR", new Dispatch("onUploadStart",
+                DefaultFtplet::onUploadStart));
+        BEFORE_COMMANDS.put("RETR", new Dispatch("onDownloadStart",
+                DefaultFtplet::onDownloadStart));
+        BEFORE_COMMANDS.put("RMD", new Dispatch("onRmdirStart",
+                DefaultFtplet::onRmdirStart));
+        BEFORE_COMMANDS.put("MKD", new Dispatch("onMkdirStart",
+                DefaultFtplet::onMkdirStart));
+        BEFORE_COMMANDS.put("APPE", new Dispatch("onAppendStart",
+                DefaultFtplet::onAppendStart));
+        BEFORE_COMMANDS.put("STOU", new Dispatch("onUploadUniqueStart",
+                DefaultFtplet::onUploadUniqueStart));
+        BEFORE_COMMANDS.put("RNTO", new Dispatch("onRenameStart",
+                DefaultFtplet::onRenameStart));
+        BEFORE_COMMANDS.put("SITE", new Dispatch("onSite",
+                DefaultFtplet::onSite));
+
+        AFTER_COMMANDS.put("PASS", new Dispatch("onLogin",
+                DefaultFtplet::onLogin));
+        AFTER_COMMANDS.put("DELE", new Dispatch("onDeleteEnd",
+                DefaultFtplet::onDeleteEnd));
+        AFTER_COMMANDS.put("STOR", new Dispatch("onUploadEnd",
+                DefaultFtplet::onUploadEnd));
+        AFTER_COMMANDS.put("RETR", new Dispatch("onDownloadEnd",
+                DefaultFtplet::onDownloadEnd));
+        AFTER_COMMANDS.put("RMD", new Dispatch("onRmdirEnd",
+                DefaultFtplet::onRmdirEnd));
+        AFTER_COMMANDS.put("MKD", new Dispatch("onMkdirEnd",
+                DefaultFtplet::onMkdirEnd));
+        AFTER_COMMANDS.put("APPE", new Dispatch("onAppendEnd",
+                DefaultFtplet::onAppendEnd));
+        AFTER_COMMANDS.put("STOU", new Dispatch("onUploadUniqueEnd",
+                DefaultFtplet::onUploadUniqueEnd));
+        AFTER_COMMANDS.put("RNTO", new Dispatch("onRenameEnd",
+                DefaultFtplet::onRenameEnd));
+    }
 
     public void init(FtpletContext ftpletContext) throws FtpException {
     }
@@ -48,61 +208,46 @@ public class DefaultFtplet implements Ftplet {
 
     public FtpletResult beforeCommand(FtpSession session, FtpRequest request)
             throws FtpException, IOException {
-        String command = request.getCommand().toUpperCase();
-
-        if ("DELE".equals(command)) {
-            return onDeleteStart(session, request);
-        } else if ("STOR".equals(command)) {
-            return onUploadStart(session, request);
-        } else if ("RETR".equals(command)) {
-            return onDownloadStart(session, request);
-        } else if ("RMD".equals(command)) {
-            return onRmdirStart(session, request);
-        } else if ("MKD".equals(command)) {
-            return onMkdirStart(session, request);
-        } else if ("APPE".equals(command)) {
-            return onAppendStart(session, request);
-        } else if ("STOU".equals(command)) {
-            return onUploadUniqueStart(session, request);
-        } else if ("RNTO".equals(command)) {
-            return onRenameStart(session, request);
-        } else if ("SITE".equals(command)) {
-            return onSite(session, request);
-        } else {
-            // TODO should we call a catch all?
-            return null;
-        }
+        Dispatch dispatch = BEFORE_COMMANDS.get(request.getCommand()
+                .toUpperCase());
+        return dispatch == null ? null : dispatch.callback.call(this, session,
+                request);
     }
 
     public FtpletResult afterCommand(FtpSession session, FtpRequest request, FtpReply reply)
             throws FtpException, IOException {
 
         // the reply is ignored for these callbacks
-        
-        String command = request.getCommand().toUpperCase();
-
-        if ("PASS".equals(command)) {
-            return onLogin(session, request);
-        } else if ("DELE".equals(command)) {
-            return onDeleteEnd(session, request);
-        } else if ("STOR".equals(command)) {
-            return onUploadEnd(session, request);
-        } else if ("RETR".equals(command)) {
-            return onDownloadEnd(session, request);
-        } else if ("RMD".equals(command)) {
-            return onRmdirEnd(session, request);
-        } else if ("MKD".equals(command)) {
-            return onMkdirEnd(session, request);
-        } else if ("APPE".equals(command)) {
-            return onAppendEnd(session, request);
-        } else if ("STOU".equals(command)) {
-            return onUploadUniqueEnd(session, request);
-        } else if ("RNTO".equals(command)) {
-            return onRenameEnd(session, request);
-        } else {
-            // TODO should we call a catch all?
-            return null;
-        }
+        Dispatch dispatch = AFTER_COMMANDS.get(request.getCommand()
+                .toUpperCase());
+        return dispatch == null ? null : dispatch.callback.call(this, session,
+                request);
+    }
+
+    /**
+     * The commands whose <code>onXxxStart</code> method or
+     * <code>onSite</code> is overridden, or null if
+     * {@link #beforeCommand(FtpSession, FtpRequest)} is.
+     */
+    public Set<String> getBeforeCommands() {
+        return INTERESTS.get(getClass()).beforeCommands;
+    }
+
+    /**
+     * The commands whose <code>onXxxEnd</code> method or
+     * <code>onLogin</code> is overridden, or null if
+     * {@link #afterCommand(FtpSession, FtpRequest, FtpReply)} is.
+     */
+    public Set<String> getAfterCommands() {
+        return INTERESTS.get(getClass()).afterCommands;
+    }
+
+    /**
+     * Whether {@link #onConnect(FtpSession)} or
+     * {@link #onDisconnect(FtpSession)} is overridden.
+     */
+    public boolean handlesConnections() {
+        return INTERESTS.get(getClass()).connections;
     }
 
     /**
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * This is the file abstraction used by the server.
@@ -159,6 +160,21 @@ public interface FtpFile {
      */
     List<? extends FtpFile> listFiles();
 
+    /**
+     * Open a lazily populated stream of the file objects in a directory.
+     * Unlike {@link #listFiles()}, the files are returned in no particular
+     * order and are not required to be held in memory all at once.
+     * The stream must be closed after use. If not a directory or does not
+     * exist, null will be returned.
+     * <p>
+     * The default implementation streams the result of {@link #listFiles()}.
+     * @return The {@link Stream} of {@link FtpFile}s
+     */
+    default Stream<? extends FtpFile> streamFiles() {
+        List<? extends FtpFile> files = listFiles();
+        return files == null ? null : files.stream();
+    }
+
     /**
      * Create output stream for writing.
      * @param offset The number of bytes at where to start writing.
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.ftplet;
+
+import java.util.Set;
+
+/**
+ * Optionally implemented by a {@link Ftplet} to declare the commands and
+ * events it handles. The ftplet container then only calls the ftplet for
+ * those, so that commands no ftplet is interested in cost nothing. Ftplets
+ * not implementing this interface are called for every command and event.
+ * <p>
+ * The interest is read once when the container first dispatches to the
+ * ftplet and must not change afterwards.
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public interface FtpletInterest {
+
+    /**
+     * Get the commands for which
+     * {@link Ftplet#beforeCommand(FtpSession, FtpRequest)} is to be called.
+     * 
+     * @return The upper case command names, or null for all commands
+     */
+    Set<String> getBeforeCommands();
+
+    /**
+     * Get the commands for which
+     * {@link Ftplet#afterCommand(FtpSession, FtpRequest, FtpReply)} is to be
+     * called.
+     * 
+     * @return The upper case command names, or null for all commands
+     */
+    Set<String> getAfterCommands();
+
+    /**
+     * Whether {@link Ftplet#onConnect(FtpSession)} and
+     * {@link Ftplet#onDisconnect(FtpSession)} are to be called.
+     * 
+     * @return true if the ftplet handles connection events
+     */
+    boolean handlesConnections();
+}
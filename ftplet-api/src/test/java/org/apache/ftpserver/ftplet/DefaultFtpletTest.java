@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ftpserver.ftplet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author <a href="http://mina.apache.org">Apache MINA Project</a>
+ */
+public class DefaultFtpletTest extends TestCase {
+
+    private static class DeleteFtplet extends DefaultFtplet {
+
+        private String called;
+
+        @Override
+        public FtpletResult onDeleteStart(FtpSession session,
+                FtpRequest request) throws FtpException, IOException {
+            called = "onDeleteStart";
+            return FtpletResult.SKIP;
+        }
+
+        @Override
+        public FtpletResult onLogin(FtpSession session, FtpRequest request)
+                throws FtpException, IOException {
+            called = "onLogin";
+            return null;
+        }
+    }
+
+    private static class DeleteAndSiteFtplet extends DeleteFtplet {
+
+        @Override
+        public FtpletResult onSite(FtpSession session, FtpRequest request)
+                throws FtpException, IOException {
+            return null;
+        }
+
+        @Override
+        public FtpletResult onDisconnect(FtpSession session)
+                throws FtpException, IOException {
+            return null;
+        }
+    }
+
+    private static class AllCommandsFtplet extends DefaultFtplet {
+
+        @Override
+        public FtpletResult beforeCommand(FtpSession session,
+                FtpRequest request) throws FtpException, IOException {
+            return super.beforeCommand(session, request);
+        }
+    }
+
+    private static class AsyncUploadFtplet extends DeleteFtplet implements
+            AsyncFtplet {
+
+        @Override
+        public CompletionStage<FtpletResult> afterCommandAsync(
+                FtpSession session, FtpRequest request, FtpReply reply) {
+            return CompletableFuture.completedFuture(FtpletResult.DEFAULT);
+        }
+    }
+
+    private static FtpRequest request(final String command) {
+        return new FtpRequest() {
+            public String getRequestLine() {
+                return command;
+            }
+
+            public String getCommand() {
+                return command;
+            }
+
+            public String getArgument() {
+                return null;
+            }
+
+            public boolean hasArgument() {
+                return false;
+            }
+
+            public long getReceivedTime() {
+                return 0;
+            }
+        };
+    }
+
+    public void testNothingOverridden() {
+        DefaultFtplet ftplet = new DefaultFtplet();
+        assertTrue(ftplet.getBeforeCommands().isEmpty());
+        assertTrue(ftplet.getAfterCommands().isEmpty());
+        assertFalse(ftplet.handlesConnections());
+    }
+
+    public void testOverriddenCallbacks() {
+        DeleteFtplet ftplet = new DeleteFtplet();
+        assertEquals(new HashSet<String>(Arrays.asList("DELE")), ftplet
+                .getBeforeCommands());
+        assertEquals(new HashSet<String>(Arrays.asList("PASS")), ftplet
+                .getAfterCommands());
+        assertFalse(ftplet.handlesConnections());
+    }
+
+    public void testInheritedCallbacks() {
+        DeleteAndSiteFtplet ftplet = new DeleteAndSiteFtplet();
+        assertEquals(new HashSet<String>(Arrays.asList("DELE", "SITE")),
+                ftplet.getBeforeCommands());
+        assertTrue(ftplet.handlesConnections());
+    }
+
+    public void testOverriddenHook() {
+        AllCommandsFtplet ftplet = new AllCommandsFtplet();
+        assertNull(ftplet.getBeforeCommands());
+        assertTrue(ftplet.getAfterCommands().isEmpty());
+    }
+
+    public void testOverriddenAsyncHook() throws Exception {
+        AsyncUploadFtplet ftplet = new AsyncUploadFtplet();
+        assertEquals(new HashSet<String>(Arrays.asList("DELE")), ftplet
+                .getBeforeCommands());
+        assertNull(ftplet.getAfterCommands());
+        assertFalse(ftplet.handlesConnections());
+
+        // the hooks not overridden call the synchronous methods
+        assertSame(FtpletResult.SKIP, ftplet.beforeCommandAsync(null,
+                request("DELE")).toCompletableFuture().get());
+        assertEquals("onDeleteStart", ((DeleteFtplet) ftplet).called);
+    }
+
+    public void testDispatch() throws Exception {
+        DeleteFtplet ftplet = new DeleteFtplet();
+        assertSame(FtpletResult.SKIP, ftplet.beforeCommand(null,
+                request("dele")));
+        assertEquals("onDeleteStart", ftplet.called);
+
+        assertNull(ftplet.afterCommand(null, request("PASS"), null));
+        assertEquals("onLogin", ftplet.called);
+
+        ftplet.called = null;
+        assertNull(ftplet.beforeCommand(null, request("NOOP")));
+        assertNull(ftplet.afterCommand(null, request("DELE"), null));
+        assertNull(ftplet.called);
+    }
+}